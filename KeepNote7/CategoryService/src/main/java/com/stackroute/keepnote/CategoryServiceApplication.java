@@ -1,15 +1,21 @@
 package com.stackroute.keepnote;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cloud.bus.jackson.RemoteApplicationEventScan;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import com.stackroute.keepnote.jwtfilter.JwtFilter;
+import com.stackroute.keepnote.jwtfilter.TokenRevocationList;
+import com.stackroute.keepnote.model.TokenRevokedEvent;
 
 import brave.sampler.Sampler;
 
@@ -25,17 +31,28 @@ import brave.sampler.Sampler;
 @SpringBootApplication
 @EnableAspectJAutoProxy
 @EnableDiscoveryClient
+@EnableScheduling
+@RemoteApplicationEventScan(basePackageClasses = TokenRevokedEvent.class)
 public class CategoryServiceApplication {
 	
 	/*
 	 * Define the bean for Filter registration. Create a new FilterRegistrationBean
 	 * object and use setFilter() method to set new instance of JwtFilter object.
-	 * Also specifies the Url patterns for registration bean.
+	 * Also specifies the Url patterns for registration bean. Trusted gateway mode is
+	 * off unless keepnote.gateway.trusted is set, and then needs keepnote.gateway.secret.
 	 */
 	@Bean
-	public FilterRegistrationBean jwtFilter() {
+	public FilterRegistrationBean jwtFilter(@Value("${keepnote.jwt.cache.max-entries:10000}") int maxEntries,
+			@Value("${keepnote.jwt.cache.max-ttl-ms:300000}") long maxTtlMillis,
+			@Value("${keepnote.gateway.trusted:false}") boolean gatewayTrusted,
+			@Value("${keepnote.gateway.secret:}") String gatewaySecret,
+			ObjectProvider<TokenRevocationList> tokenRevocationList) {
+		if (gatewayTrusted && gatewaySecret.isEmpty()) {
+			throw new IllegalArgumentException("keepnote.gateway.secret must be set in trusted gateway mode");
+		}
 		final FilterRegistrationBean registrationBean = new FilterRegistrationBean();
-		registrationBean.setFilter(new JwtFilter());
+		registrationBean.setFilter(new JwtFilter(maxEntries, maxTtlMillis, gatewayTrusted ? gatewaySecret : null,
+				tokenRevocationList.getIfAvailable()));
 		registrationBean.addUrlPatterns("/api/v1/*");
 		return registrationBean;
 	}
@@ -0,0 +1,52 @@
+package com.stackroute.keepnote.config;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Change events are published as JSON to the durable keepnote.events topic exchange,
+ * on the RabbitMQ broker the service already uses for the config bus. Note change
+ * events of the NoteService are consumed from a durable queue, read into the type of
+ * the listener argument.
+ */
+@Configuration
+public class EventsConfig {
+
+	public static final String EXCHANGE = "keepnote.events";
+	public static final String NOTE_QUEUE = "category-service.note-events";
+
+	@Bean
+	public TopicExchange eventsExchange() {
+		return new TopicExchange(EXCHANGE, true, false);
+	}
+
+	@Bean
+	public Queue noteEventsQueue() {
+		return new Queue(NOTE_QUEUE, true);
+	}
+
+	@Bean
+	public Binding noteEventsBinding() {
+		return BindingBuilder.bind(noteEventsQueue()).to(eventsExchange()).with("note.*");
+	}
+
+	@Bean
+	public MessageConverter eventMessageConverter(ObjectMapper objectMapper) {
+		Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter(objectMapper);
+		DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+		typeMapper.setTypePrecedence(Jackson2JavaTypeMapper.TypePrecedence.INFERRED);
+		converter.setJavaTypeMapper(typeMapper);
+		return converter;
+	}
+
+}
@@ -1,5 +1,10 @@
 package com.stackroute.keepnote.controller;
 
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,14 +14,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.stackroute.keepnote.config.SparseFields;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.stackroute.keepnote.exception.CategoryDoesNoteExistsException;
+import com.stackroute.keepnote.exception.CategoryMoveException;
 import com.stackroute.keepnote.exception.CategoryNotCreatedException;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.service.CategoryEventPublisher;
+import com.stackroute.keepnote.service.CategoryNoteCountService;
 import com.stackroute.keepnote.service.CategoryService;
+import com.stackroute.keepnote.service.CategoryTrashService;
+import com.stackroute.keepnote.service.CategoryTreeService;
+import com.stackroute.keepnote.service.IdempotencyService;
 
+import io.jsonwebtoken.Claims;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
@@ -38,13 +55,36 @@ public class CategoryController {
 	 * object using the new keyword
 	 */
 	
+	private static final int MAX_IDS = 200;
+
 	@Autowired
 	private CategoryService categoryService;
 	
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private CategoryTrashService categoryTrashService;
+
+	@Autowired
+	private CategoryEventPublisher categoryEventPublisher;
+
+	@Autowired
+	private CategoryTreeService categoryTreeService;
+
+	@Autowired
+	private CategoryNoteCountService categoryNoteCountService;
 
-	public CategoryController(CategoryService categoryService) {
+	public CategoryController(CategoryService categoryService, IdempotencyService idempotencyService,
+			CategoryTrashService categoryTrashService, CategoryEventPublisher categoryEventPublisher,
+			CategoryTreeService categoryTreeService, CategoryNoteCountService categoryNoteCountService) {
 
 		this.categoryService=categoryService;
+		this.idempotencyService=idempotencyService;
+		this.categoryTrashService=categoryTrashService;
+		this.categoryEventPublisher=categoryEventPublisher;
+		this.categoryTreeService=categoryTreeService;
+		this.categoryNoteCountService=categoryNoteCountService;
 	}
 
 	/*
@@ -57,20 +97,49 @@ public class CategoryController {
 	 * 2. 409(CONFLICT) - In case of duplicate categoryId
 	 *
 	 * 
+	 * A request carrying an Idempotency-Key header is recorded against that key, a
+	 * retry with the same key is answered with the recorded response. A retry arriving
+	 * while the first request still runs gets 409, the key reused with another body 422.
+	 * 
 	 * This handler method should map to the URL "/api/v1/category" using HTTP POST
 	 * method".
 	 */
 	
 	@ApiOperation(value="Create a Category")
 	@PostMapping("/api/v1/category")
-	public ResponseEntity<Category> createCategory(@RequestBody Category category) {
+	public ResponseEntity<?> createCategory(@RequestBody Category category, HttpServletRequest request,
+			@RequestHeader(value="Idempotency-Key", required=false) String idempotencyKey) {
+		
+		String key = null;
+		String fingerprint = null;
+		if(idempotencyKey != null) {
+			/* scoped by the caller, not by the body, so nobody can replay another user's response */
+			Claims claims = (Claims) request.getAttribute("claims");
+			key = "category:" + claims.getSubject() + ":" + idempotencyKey;
+			fingerprint = idempotencyService.fingerprint(category);
+			ResponseEntity<?> stored = idempotencyService.reserve(key, fingerprint);
+			if(stored != null) {
+				return stored;
+			}
+		}
 		
+		ResponseEntity<Category> response;
 		try {
 			Category cat1 = categoryService.createCategory(category);
-			return new ResponseEntity<Category>(cat1, HttpStatus.CREATED);
+			response = new ResponseEntity<Category>(cat1, HttpStatus.CREATED);
 		} catch (CategoryNotCreatedException e) {
-			return new ResponseEntity<>(HttpStatus.CONFLICT);
+			response = new ResponseEntity<>(HttpStatus.CONFLICT);
+		} catch (RuntimeException e) {
+			if(key != null) {
+				idempotencyService.complete(key, fingerprint, new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+			}
+			throw e;
+		}
+		
+		if(key != null) {
+			idempotencyService.complete(key, fingerprint, response);
 		}
+		return response;
 		
 	}
 	
@@ -136,19 +205,195 @@ public class CategoryController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the category found successfully. 
 	 * 
+	 * With ?fields=id,categoryName only the listed fields are loaded and returned,
+	 * 400(BAD REQUEST) for unknown fields.
 	 * 
 	 * This handler method should map to the URL "/api/v1/category" using HTTP GET method
 	 */
 	@ApiOperation(value="Get All Category by UserId")
 	@GetMapping("/api/v1/category/{id}")
-	public ResponseEntity<?> getCategoryById(@PathVariable String id) {
+	public ResponseEntity<?> getCategoryById(@PathVariable String id,
+			@RequestParam(value="fields", required=false) String fields) {
+		
+			Set<String> selected;
+			try {
+				selected = SparseFields.parse(fields, Category.class);
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
 		
 			try {
-				return new ResponseEntity<>(categoryService.getCategoryById(id),HttpStatus.OK);
+				if(selected == null) {
+					return new ResponseEntity<>(categoryService.getCategoryById(id),HttpStatus.OK);
+				}
+				return new ResponseEntity<>(SparseFields.filter(categoryService.getCategoryById(id, selected),
+						SparseFieldsConfig.CATEGORY_FILTER, selected), HttpStatus.OK);
 			} catch (CategoryNotFoundException e) {
 				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
 		
 	}
 
-}
\ No newline at end of file
+
+	/*
+	 * Define a handler method which will get a category together with all categories
+	 * nested below it, each category after its parent.
+	 * 1. 200(OK) - The category and its descendants.
+	 * 2. 404(NOT FOUND) - If the category with specified categoryId is not found.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/{id}/subtree" using
+	 * HTTP GET method
+	 */
+	@ApiOperation(value="Get a Category with all nested Categories")
+	@GetMapping("/api/v1/category/{id}/subtree")
+	public ResponseEntity<?> getCategorySubtree(@PathVariable String id) {
+
+		try {
+			return new ResponseEntity<>(categoryTreeService.getSubtree(id), HttpStatus.OK);
+		} catch (CategoryNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/*
+	 * Define a handler method which will move a category, with everything nested below
+	 * it, under another category. Without parentId the category becomes a top level
+	 * category. This handler method should return any one of the status messages basis
+	 * on different situations:
+	 * 1. 200(OK) - If the category was moved, the body carries the moved category.
+	 * 2. 404(NOT FOUND) - If the category or the new parent is not found.
+	 * 3. 409(CONFLICT) - If the move would nest the category below itself, the parent
+	 *    belongs to another user or the subtree was changed concurrently.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/{id}/parent?parentId="
+	 * using HTTP PUT method
+	 */
+	@ApiOperation(value="Move a Category below another Category")
+	@PutMapping("/api/v1/category/{id}/parent")
+	public ResponseEntity<?> moveCategory(@PathVariable String id,
+			@RequestParam(value="parentId", required=false) String parentId) {
+
+		try {
+			return new ResponseEntity<>(categoryTreeService.moveCategory(id, parentId), HttpStatus.OK);
+		} catch (CategoryNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		} catch (CategoryMoveException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+	}
+
+	/*
+	 * Define a handler method which will resolve many categories in one round trip.
+	 * The ids are given comma separated, at most MAX_IDS of them. This handler
+	 * method should return any one of the status messages basis on different
+	 * situations:
+	 * 1. 200(OK) - The categories found, in the order of the ids. Unknown ids are left out.
+	 * 2. 400(BAD REQUEST) - If no ids or more than MAX_IDS ids are given.
+	 *
+	 * This handler method should map to the URL "/api/v1/category?ids=a,b,c" using HTTP GET method
+	 */
+	@ApiOperation(value="Get Categories by ids")
+	@GetMapping(value="/api/v1/category", params="ids")
+	public ResponseEntity<?> getCategoriesByIds(@RequestParam("ids") List<String> ids) {
+
+		if(ids.isEmpty() || ids.size() > MAX_IDS) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		return new ResponseEntity<>(categoryService.getCategoriesByIds(ids), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will stream all category records of the logged in
+	 * user as newline delimited JSON. It is used by the user data export of the
+	 * NoteService, the records are written to the response as they are read from
+	 * the database.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/stream" using HTTP GET method
+	 */
+	@ApiOperation(value="Stream All Categories of the logged in user")
+	@GetMapping(value="/api/v1/category/stream", produces="application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> streamCategories(HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		String userId = claims.getSubject();
+		return new ResponseEntity<>(outputStream -> categoryService.exportAllCategoryByUserId(userId, outputStream),
+				HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return the number of notes per category of the
+	 * logged in user, keyed by categoryId. Categories without notes are left out.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/counts" using HTTP GET method
+	 */
+	@ApiOperation(value="Get the note counts of the Categories of the logged in user")
+	@GetMapping("/api/v1/category/counts")
+	public ResponseEntity<?> getCategoryNoteCounts(HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		return new ResponseEntity<>(categoryNoteCountService.getCounts(claims.getSubject()), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will list the deleted categories of the logged in user,
+	 * most recently deleted first. Trashed categories are purged automatically after the
+	 * retention time.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/trash" using HTTP GET method
+	 */
+	@ApiOperation(value="List the deleted Categories of the logged in user")
+	@GetMapping("/api/v1/category/trash")
+	public ResponseEntity<?> getCategoryTrash(HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		return new ResponseEntity<>(categoryTrashService.getTrash(claims.getSubject()), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will restore a deleted category of the logged in user.
+	 * This handler method should return any one of the status messages basis on
+	 * different situations:
+	 * 1. 200(OK) - If the category was restored, the body carries the category.
+	 * 2. 404(NOT FOUND) - If the category is not in the user's trash.
+	 * 3. 409(CONFLICT) - If a category with the same id exists again.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/trash/{id}/restore" using
+	 * HTTP POST method
+	 */
+	@ApiOperation(value="Restore a deleted Category")
+	@PostMapping("/api/v1/category/trash/{id}/restore")
+	public ResponseEntity<?> restoreCategory(@PathVariable String id, HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		try {
+			return new ResponseEntity<>(categoryTrashService.restore(id, claims.getSubject()), HttpStatus.OK);
+		} catch (CategoryNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		} catch (CategoryNotCreatedException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+	}
+
+	/*
+	 * Define a handler method which will publish the stored category change events again,
+	 * e.g. after a consumer lost events. Consumers skip changes they already applied.
+	 * Only internal callers may replay, the request must carry the configured
+	 * keepnote.events.replay-token in the X-Replay-Token header.
+	 * 1. 200(OK) - The body carries the number of events sent.
+	 * 2. 403(FORBIDDEN) - If the token is missing or wrong, or no token is configured.
+	 *
+	 * This handler method should map to the URL "/api/v1/category/events/replay?since=" using
+	 * HTTP POST method, since is the epoch millisecond time of the oldest change to send
+	 */
+	@ApiOperation(value="Replay Category change events")
+	@PostMapping("/api/v1/category/events/replay")
+	public ResponseEntity<?> replayEvents(@RequestParam("since") long since,
+			@RequestHeader(value="X-Replay-Token", required=false) String replayToken) {
+
+		if (!categoryEventPublisher.isReplayAllowed(replayToken)) {
+			return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+		}
+		return new ResponseEntity<>(categoryEventPublisher.replay(since), HttpStatus.OK);
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.stackroute.keepnote.exception;
+
+public class CategoryMoveException extends Exception {
+   
+	private static final long serialVersionUID = 1L;
+
+	public CategoryMoveException(String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,8 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 /*
@@ -10,6 +12,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
  * @Document identifies a domain object to be persisted to MongoDB.
  *  */
 @Document
+@CompoundIndex(name = "category_path_idx", def = "{'categoryCreatedBy': 1, 'path': 1}")
 public class Category {
 
 	/*
@@ -29,7 +32,15 @@ public class Category {
 	private String categoryName;
 	private String categoryDescription;
 	private Date categoryCreationDate;
+	@Indexed
 	private String categoryCreatedBy;
+	/*
+	 * Categories nest: parentId is the direct parent, null for top level categories,
+	 * and path lists the ids from the top level category down to this one, e.g.
+	 * "/work/projectx/meetings/". A whole subtree shares the path prefix of its root.
+	 */
+	private String parentId;
+	private String path;
 	
 	public Category() {
 
@@ -85,10 +96,26 @@ public class Category {
 		this.categoryCreatedBy = categoryCreatedBy;
 	}
 
+	public String getParentId() {
+		return parentId;
+	}
+
+	public void setParentId(String parentId) {
+		this.parentId = parentId;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+
 	@Override
 	public String toString() {
 		return "Category [id=" + id + ", categoryName=" + categoryName + ", categoryDescription="
 				+ categoryDescription + ", categoryCreationDate=" + categoryCreationDate + ", categoryCreatedBy="
-				+ categoryCreatedBy + "]";
+				+ categoryCreatedBy + ", parentId=" + parentId + ", path=" + path + "]";
 	}
 }
\ No newline at end of file
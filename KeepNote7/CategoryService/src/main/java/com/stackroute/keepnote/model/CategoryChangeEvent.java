@@ -0,0 +1,132 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * A change of a category, published to the keepnote.events exchange so that services
+ * holding embedded copies of the category can bring them up to date. Every event is kept
+ * in the category_events collection first (the outbox): events the broker did not take are
+ * sent again later, and stored events can be replayed. Outbox entries expire after
+ * seven days.
+ *
+ * version counts the changes of the category, see CategoryVersion. Consumers apply an event only
+ * to copies older than it, which makes redelivery and replay harmless.
+ */
+@Document(collection = "category_events")
+public class CategoryChangeEvent {
+
+	public static final String UPSERTED = "UPSERTED";
+	public static final String DELETED = "DELETED";
+
+	@Id
+	private String eventId;
+	private String type;
+	private String categoryId;
+	private String userId;
+	private Category category;
+	private long version;
+	private Date publishedAt;
+	@Indexed
+	private boolean published;
+	private boolean replayed;
+	@Indexed(expireAfterSeconds = 604800)
+	private Date createdAt;
+
+	public CategoryChangeEvent() {
+	}
+
+	public CategoryChangeEvent(String eventId, String type, String categoryId, String userId, Category category, long version) {
+		this.eventId = eventId;
+		this.type = type;
+		this.categoryId = categoryId;
+		this.userId = userId;
+		this.category = category;
+		this.version = version;
+		this.createdAt = new Date();
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(String categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	public void setCategory(Category category) {
+		this.category = category;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public Date getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(Date publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public boolean isPublished() {
+		return published;
+	}
+
+	public void setPublished(boolean published) {
+		this.published = published;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+	public void setReplayed(boolean replayed) {
+		this.replayed = replayed;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The number of notes per category of one user, one document per user keyed by the
+ * userId. counts is maintained with $inc from note change events, appliedEvents holds
+ * the ids of the most recently applied events so a redelivered event is not counted
+ * twice. reconciledAt is the time of the last recount from the notes, createdAt the
+ * time the first event created the document.
+ */
+@Document(collection = "category_note_counts")
+public class CategoryNoteCounts {
+
+	@Id
+	private String userId;
+	private Map<String, Long> counts;
+	private List<String> appliedEvents;
+	private Date reconciledAt;
+	private Date createdAt;
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Map<String, Long> getCounts() {
+		return counts;
+	}
+
+	public void setCounts(Map<String, Long> counts) {
+		this.counts = counts;
+	}
+
+	public List<String> getAppliedEvents() {
+		return appliedEvents;
+	}
+
+	public void setAppliedEvents(List<String> appliedEvents) {
+		this.appliedEvents = appliedEvents;
+	}
+
+	public Date getReconciledAt() {
+		return reconciledAt;
+	}
+
+	public void setReconciledAt(Date reconciledAt) {
+		this.reconciledAt = reconciledAt;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@Override
+	public String toString() {
+		return "CategoryNoteCounts [userId=" + userId + ", counts=" + counts + ", reconciledAt=" + reconciledAt + "]";
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * Materialized category paths. A path lists the category ids from the top level
+ * category down to the category itself, each followed by a slash, so the path of
+ * a category is a prefix of the paths of all its descendants and a subtree is one
+ * anchored prefix match on the path index. Categories created before nesting have
+ * no stored path and count as top level categories.
+ */
+public final class CategoryPaths {
+
+	private static final String REGEX_META = "\\.[]{}()*+?^$|";
+
+	private CategoryPaths() {
+	}
+
+	public static String child(String parentPath, String categoryId) {
+		return (parentPath == null ? "/" : parentPath) + categoryId + "/";
+	}
+
+	public static String of(Category category) {
+		return category.getPath() != null ? category.getPath() : child(null, category.getId());
+	}
+
+	/*
+	 * Category ids are path segments and keys of the per user note counts document,
+	 * so they may not contain a slash or a dot nor start with a dollar sign.
+	 */
+	public static boolean isValidId(String categoryId) {
+		return categoryId != null && !categoryId.isEmpty() && categoryId.indexOf('/') < 0
+				&& categoryId.indexOf('.') < 0 && !categoryId.startsWith("$");
+	}
+
+	public static String rebase(String path, String oldPrefix, String newPrefix) {
+		if (!path.startsWith(oldPrefix)) {
+			throw new IllegalArgumentException(path + " is not below " + oldPrefix);
+		}
+		return newPrefix + path.substring(oldPrefix.length());
+	}
+
+	/*
+	 * An anchored regex matching paths that start with the prefix. Regex meta
+	 * characters are escaped one by one, not quoted, so Mongo can still turn the
+	 * literal prefix into index bounds.
+	 */
+	public static String prefixRegex(String prefix) {
+		StringBuilder regex = new StringBuilder("^");
+		for (char c : prefix.toCharArray()) {
+			if (REGEX_META.indexOf(c) >= 0) {
+				regex.append('\\');
+			}
+			regex.append(c);
+		}
+		return regex.toString();
+	}
+
+}
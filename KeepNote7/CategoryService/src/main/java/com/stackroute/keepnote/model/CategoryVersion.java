@@ -0,0 +1,34 @@
+package com.stackroute.keepnote.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The version of the last change event published for a category. Every event takes
+ * the next version with one $inc, so versions of a category are unique and ordered
+ * whatever the clocks of the instances publishing them say.
+ */
+@Document(collection = "category_versions")
+public class CategoryVersion {
+
+	@Id
+	private String categoryId;
+	private long version;
+
+	public String getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(String categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+}
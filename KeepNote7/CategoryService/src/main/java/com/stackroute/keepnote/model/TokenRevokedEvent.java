@@ -0,0 +1,36 @@
+package com.stackroute.keepnote.model;
+
+import org.springframework.cloud.bus.event.RemoteApplicationEvent;
+
+/*
+ * Sent over the Spring Cloud Bus by the UserAuthentication-Service when a token is
+ * revoked, it declares the same event. The token id is kept in the
+ * TokenRevocationList until expiresAt (epoch millis), the token is rejected by its
+ * expiry after that.
+ */
+public class TokenRevokedEvent extends RemoteApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private String tokenId;
+	private long expiresAt;
+
+	/* for deserialization */
+	protected TokenRevokedEvent() {
+	}
+
+	public TokenRevokedEvent(Object source, String originService, String tokenId, long expiresAt) {
+		super(source, originService);
+		this.tokenId = tokenId;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getTokenId() {
+		return tokenId;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * A deleted category kept in the category_trash collection until purgeAt. purgeAt carries a
+ * TTL index with no extra delay, so Mongo removes the entry once the retention time
+ * has passed and no application sweep is needed. Keyed by the category id, deleting a
+ * restored category again replaces the older entry.
+ */
+@Document(collection = "category_trash")
+public class TrashedCategory {
+
+	@Id
+	private String categoryId;
+	@Indexed
+	private String userId;
+	private Category category;
+	private Date deletedAt;
+	@Indexed(expireAfterSeconds = 0)
+	private Date purgeAt;
+
+	public TrashedCategory() {
+	}
+
+	public TrashedCategory(String categoryId, String userId, Category category, Date deletedAt, Date purgeAt) {
+		this.categoryId = categoryId;
+		this.userId = userId;
+		this.category = category;
+		this.deletedAt = deletedAt;
+		this.purgeAt = purgeAt;
+	}
+
+	public String getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(String categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	public void setCategory(Category category) {
+		this.category = category;
+	}
+
+	public Date getDeletedAt() {
+		return deletedAt;
+	}
+
+	public void setDeletedAt(Date deletedAt) {
+		this.deletedAt = deletedAt;
+	}
+
+	public Date getPurgeAt() {
+		return purgeAt;
+	}
+
+	public void setPurgeAt(Date purgeAt) {
+		this.purgeAt = purgeAt;
+	}
+
+}
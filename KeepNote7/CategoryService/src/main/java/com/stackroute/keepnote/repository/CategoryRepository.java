@@ -1,6 +1,7 @@
 package com.stackroute.keepnote.repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -12,7 +13,7 @@ import com.stackroute.keepnote.model.Category;
 * Annotate this class with @Repository annotation
 * */
 @Repository
-public interface CategoryRepository extends MongoRepository<Category, String> {
+public interface CategoryRepository extends MongoRepository<Category, String>, CategoryRepositoryCustom {
 
 	/*
 	 * Apart from the standard CRUD methods already available in Mongo Repository,
@@ -27,6 +28,12 @@ public interface CategoryRepository extends MongoRepository<Category, String> {
 	 */
 	List<Category> findAllCategoryByCategoryCreatedBy(String createdBy);
 
+	/*
+	 * Same as above, but backed by a Mongo cursor. The stream has to be closed by
+	 * the caller.
+	 */
+	Stream<Category> streamAllCategoryByCategoryCreatedBy(String createdBy);
+
 	Category findCategoryById(String categoryId);
 
 	long deleteCategoryById(String categoryId);
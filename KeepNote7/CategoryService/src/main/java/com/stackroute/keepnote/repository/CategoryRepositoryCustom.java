@@ -0,0 +1,38 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.stackroute.keepnote.model.Category;
+
+/*
+ * Queries of the CategoryRepository that need a field projection or a bulk write,
+ * implemented in CategoryRepositoryImpl.
+ */
+public interface CategoryRepositoryCustom {
+
+	/*
+	 * Loads a category with only the given fields filled in, null if there is none.
+	 */
+	Category findProjectedById(String categoryId, Collection<String> fields);
+
+	/*
+	 * Loads the categories of a user whose path starts with the given prefix, ordered
+	 * by path so every category follows its parent.
+	 */
+	List<Category> findByPathPrefix(String userId, String pathPrefix);
+
+	/*
+	 * Moves a subtree: the path prefix oldPrefix of every given category is replaced
+	 * by newPrefix and the subtree root gets newParentId. The descendants are
+	 * rewritten first in one unordered bulk write, the root only once all of them
+	 * were. A category is only updated if it still has the path it was read with.
+	 * Returns the number of categories matched, categories already in place count.
+	 *
+	 * If fewer than all categories match, the root keeps its old place, so the
+	 * same move retried moves the descendants still under oldPrefix and then the
+	 * root, the descendants moved before are already under newPrefix.
+	 */
+	int moveSubtree(String rootId, String newParentId, String oldPrefix, String newPrefix, List<Category> subtree);
+
+}
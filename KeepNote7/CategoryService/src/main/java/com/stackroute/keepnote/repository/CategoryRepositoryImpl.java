@@ -0,0 +1,78 @@
+package com.stackroute.keepnote.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryPaths;
+
+public class CategoryRepositoryImpl implements CategoryRepositoryCustom {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	public CategoryRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	public Category findProjectedById(String categoryId, Collection<String> fields) {
+
+		Query query = query(where("_id").is(categoryId));
+		include(query, fields);
+		return mongoOperations.findOne(query, Category.class);
+	}
+
+	private Query movedFrom(Category category) {
+		return query(where("_id").is(category.getId()).and("path").is(category.getPath()));
+	}
+
+	private Update moveTo(Category category, String oldPrefix, String newPrefix) {
+		return Update.update("path", CategoryPaths.rebase(CategoryPaths.of(category), oldPrefix, newPrefix));
+	}
+
+	public List<Category> findByPathPrefix(String userId, String pathPrefix) {
+
+		Query query = query(where("categoryCreatedBy").is(userId).and("path").regex(CategoryPaths.prefixRegex(pathPrefix)));
+		query.with(Sort.by(Sort.Direction.ASC, "path"));
+		return mongoOperations.find(query, Category.class);
+	}
+
+	public int moveSubtree(String rootId, String newParentId, String oldPrefix, String newPrefix, List<Category> subtree) {
+
+		Category root = null;
+		BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Category.class);
+		int descendants = 0;
+		for (Category category : subtree) {
+			if (category.getId().equals(rootId)) {
+				root = category;
+				continue;
+			}
+			bulk.updateOne(movedFrom(category), moveTo(category, oldPrefix, newPrefix));
+			descendants++;
+		}
+
+		int matched = descendants == 0 ? 0 : bulk.execute().getMatchedCount();
+		if (root == null || matched < descendants) {
+			return matched;
+		}
+		Update update = moveTo(root, oldPrefix, newPrefix).set("parentId", newParentId);
+		return matched + (int) mongoOperations.updateFirst(movedFrom(root), update, Category.class).getMatchedCount();
+	}
+
+	private void include(Query query, Collection<String> fields) {
+		for (String field : fields) {
+			query.fields().include(field);
+		}
+	}
+
+}
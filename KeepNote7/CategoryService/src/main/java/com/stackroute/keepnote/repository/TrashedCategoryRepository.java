@@ -0,0 +1,20 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.TrashedCategory;
+
+/*
+* This class is implementing the MongoRepository interface for TrashedCategory.
+* Annotate this class with @Repository annotation
+* */
+@Repository
+public interface TrashedCategoryRepository extends MongoRepository<TrashedCategory, String> {
+
+	List<TrashedCategory> findByUserId(String userId, Sort sort);
+
+}
@@ -0,0 +1,188 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.model.Category;
+
+/*
+ * Per-user cache of categories. A user's categories are cached as one entry, lookups
+ * by id are answered from the owner's entry. Entries are evicted least recently used
+ * first once max-users is reached and ignored after ttl-seconds, which bounds how
+ * long a change made through another instance can go unnoticed.
+ *
+ * Writes invalidate the owner's entry after the write reached the database. Every
+ * invalidation is stamped with the next generation and remembered per user, a loader
+ * only stores what it read if that user was not invalidated since it started, so a
+ * slow read can not put back data that a concurrent write has already replaced, and
+ * writes of other users do not discard it. The stamps of the max-users most recently
+ * invalidated users are kept, older users are compared against the newest stamp
+ * that was dropped.
+ *
+ * Callers get copies of the cached categories, changing them does not change the
+ * cache.
+ */
+@Component
+public class CategoryCache {
+
+	private final int maxUsers;
+	private final long ttlMillis;
+	private final Map<String, Entry> users;
+	private final Map<String, String> owners = new HashMap<>();
+	private final Map<String, Long> invalidations;
+	private long generation;
+	private long droppedInvalidation;
+
+	public CategoryCache(@Value("${keepnote.category.cache.max-users:10000}") int maxUsers,
+			@Value("${keepnote.category.cache.ttl-seconds:300}") long ttlSeconds) {
+		this.maxUsers = maxUsers;
+		this.ttlMillis = ttlSeconds * 1000;
+		this.users = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() > CategoryCache.this.maxUsers) {
+					forgetOwners(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		this.invalidations = new LinkedHashMap<String, Long>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				if (size() > CategoryCache.this.maxUsers) {
+					droppedInvalidation = Math.max(droppedInvalidation, eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/*
+	 * Returns the cached categories of a user, or null if they have to be loaded.
+	 */
+	public synchronized List<Category> getUserCategories(String userId) {
+
+		Entry entry = fresh(userId);
+		if (entry == null) {
+			return null;
+		}
+		List<Category> categories = new ArrayList<>(entry.categories.size());
+		for (Category category : entry.categories) {
+			categories.add(copy(category));
+		}
+		return categories;
+	}
+
+	/*
+	 * Returns a cached category, or null if its owner's categories are not cached.
+	 */
+	public synchronized Category getCategory(String categoryId) {
+
+		String owner = owners.get(categoryId);
+		Entry entry = owner == null ? null : fresh(owner);
+		Category category = entry == null ? null : entry.byId.get(categoryId);
+		return category == null ? null : copy(category);
+	}
+
+	/*
+	 * Read before loading from the database and hand back to putUserCategories.
+	 */
+	public synchronized long generation() {
+		return generation;
+	}
+
+	public synchronized void putUserCategories(String userId, List<Category> categories, long loadedGeneration) {
+
+		if (userId == null || categories == null) {
+			return;
+		}
+		Long invalidated = invalidations.get(userId);
+		if ((invalidated == null ? droppedInvalidation : invalidated) > loadedGeneration) {
+			return;
+		}
+		Entry entry = new Entry(userId, categories);
+		Entry previous = users.put(userId, entry);
+		if (previous != null) {
+			forgetOwners(previous);
+		}
+		for (String categoryId : entry.byId.keySet()) {
+			owners.put(categoryId, userId);
+		}
+	}
+
+	public synchronized void invalidate(String userId) {
+
+		generation++;
+		if (userId != null) {
+			invalidations.remove(userId);
+			invalidations.put(userId, generation);
+		}
+		Entry entry = userId == null ? null : users.remove(userId);
+		if (entry != null) {
+			forgetOwners(entry);
+		}
+	}
+
+	private Entry fresh(String userId) {
+
+		Entry entry = users.get(userId);
+		if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+			users.remove(userId);
+			forgetOwners(entry);
+			return null;
+		}
+		return entry;
+	}
+
+	private void forgetOwners(Entry entry) {
+		for (String categoryId : entry.byId.keySet()) {
+			owners.remove(categoryId, entry.userId);
+		}
+	}
+
+	private static Category copy(Category category) {
+
+		Category copy = new Category(category.getId(), category.getCategoryName(), category.getCategoryDescription(),
+				category.getCategoryCreationDate() == null ? null : new Date(category.getCategoryCreationDate().getTime()),
+				category.getCategoryCreatedBy());
+		copy.setParentId(category.getParentId());
+		copy.setPath(category.getPath());
+		return copy;
+	}
+
+	private static final class Entry {
+
+		private final String userId;
+		private final List<Category> categories;
+		private final Map<String, Category> byId = new HashMap<>();
+		private final long loadedAt = System.currentTimeMillis();
+
+		private Entry(String userId, List<Category> categories) {
+			this.userId = userId;
+			List<Category> copies = new ArrayList<>(categories.size());
+			for (Category category : categories) {
+				Category copy = copy(category);
+				copies.add(copy);
+				byId.put(copy.getId(), copy);
+			}
+			this.categories = Collections.unmodifiableList(copies);
+		}
+	}
+
+}
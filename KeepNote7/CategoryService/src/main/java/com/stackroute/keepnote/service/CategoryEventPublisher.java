@@ -0,0 +1,23 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.model.Category;
+
+public interface CategoryEventPublisher {
+
+	void publishUpserted(Category category);
+
+	void publishDeleted(Category category);
+
+	/*
+	 * Sends all stored events created at or after since (epoch millis) again, oldest
+	 * first. Returns the number of events sent.
+	 */
+	int replay(long since);
+
+	/*
+	 * True if the token is the configured keepnote.events.replay-token. Without a
+	 * configured token nobody may replay.
+	 */
+	boolean isReplayAllowed(String token);
+
+}
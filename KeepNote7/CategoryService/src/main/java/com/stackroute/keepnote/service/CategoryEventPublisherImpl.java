@@ -0,0 +1,149 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryChangeEvent;
+import com.stackroute.keepnote.model.CategoryVersion;
+import com.stackroute.keepnote.repository.CategoryChangeEventRepository;
+
+/*
+ * Publishes category changes to the keepnote.events exchange with routing key
+ * category.upserted or category.deleted. Each event is written to the outbox before it is
+ * sent and marked published once the broker took it. Events the broker did not take
+ * are retried every keepnote.events.retry-interval-ms, a failing broker never fails
+ * the category write itself.
+ */
+@Service
+public class CategoryEventPublisherImpl implements CategoryEventPublisher {
+
+	private static Logger log = LoggerFactory.getLogger(CategoryEventPublisherImpl.class);
+
+	@Autowired
+	private CategoryChangeEventRepository categoryChangeEventRepository;
+
+	@Autowired
+	private AmqpTemplate amqpTemplate;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	private final int retryBatchSize;
+	private final String replayToken;
+
+	public CategoryEventPublisherImpl(CategoryChangeEventRepository categoryChangeEventRepository, AmqpTemplate amqpTemplate,
+			MongoOperations mongoOperations, @Value("${keepnote.events.retry-batch-size:500}") int retryBatchSize,
+			@Value("${keepnote.events.replay-token:}") String replayToken) {
+		this.categoryChangeEventRepository = categoryChangeEventRepository;
+		this.amqpTemplate = amqpTemplate;
+		this.mongoOperations = mongoOperations;
+		this.retryBatchSize = retryBatchSize;
+		this.replayToken = replayToken;
+	}
+
+	public void publishUpserted(Category category) {
+		publish(new CategoryChangeEvent(UUID.randomUUID().toString(), CategoryChangeEvent.UPSERTED, category.getId(),
+				category.getCategoryCreatedBy(), category, nextVersion(category.getId())));
+	}
+
+	public void publishDeleted(Category category) {
+		publish(new CategoryChangeEvent(UUID.randomUUID().toString(), CategoryChangeEvent.DELETED, category.getId(),
+				category.getCategoryCreatedBy(), null, nextVersion(category.getId())));
+	}
+
+	public int replay(long since) {
+
+		List<CategoryChangeEvent> events = categoryChangeEventRepository.findByCreatedAtGreaterThanEqual(new Date(since),
+				Sort.by(Sort.Direction.ASC, "createdAt", "version"));
+		int sent = 0;
+		for (CategoryChangeEvent event : events) {
+			event.setReplayed(true);
+			if (send(event)) {
+				sent++;
+			}
+		}
+		return sent;
+	}
+
+	public boolean isReplayAllowed(String token) {
+
+		return !replayToken.isEmpty() && token != null && MessageDigest.isEqual(
+				replayToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.events.retry-interval-ms:30000}")
+	public void publishPending() {
+
+		for (CategoryChangeEvent event : categoryChangeEventRepository.findByPublishedFalse(PageRequest.of(0, retryBatchSize))) {
+			if (send(event)) {
+				event.setPublished(true);
+				categoryChangeEventRepository.save(event);
+			}
+		}
+	}
+
+	/*
+	 * The first version of a category starts at the current time in milliseconds, so it is
+	 * above the time based versions that copies synchronized before received.
+	 */
+	private long nextVersion(String categoryId) {
+
+		Query query = query(where("_id").is(categoryId));
+		if (!mongoOperations.exists(query, CategoryVersion.class)) {
+			try {
+				mongoOperations.upsert(query, new Update().setOnInsert("version", System.currentTimeMillis()),
+						CategoryVersion.class);
+			} catch (DuplicateKeyException e) {
+				/* another instance created it first */
+			}
+		}
+		return mongoOperations.findAndModify(query, new Update().inc("version", 1),
+				FindAndModifyOptions.options().returnNew(true).upsert(true), CategoryVersion.class).getVersion();
+	}
+
+	private void publish(CategoryChangeEvent event) {
+
+		categoryChangeEventRepository.save(event);
+		if (send(event)) {
+			event.setPublished(true);
+			categoryChangeEventRepository.save(event);
+		}
+	}
+
+	private boolean send(CategoryChangeEvent event) {
+
+		event.setPublishedAt(new Date());
+		try {
+			amqpTemplate.convertAndSend(EventsConfig.EXCHANGE, "category." + event.getType().toLowerCase(), event);
+			return true;
+		} catch (AmqpException e) {
+			log.warn("Category event " + event.getEventId() + " not published: " + e.getMessage());
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Map;
+
+import com.stackroute.keepnote.model.NoteChangeEvent;
+
+public interface CategoryNoteCountService {
+
+	/*
+	 * Applies a note change event to the user's counts document.
+	 */
+	void noteChanged(NoteChangeEvent event);
+
+	/*
+	 * Returns the number of notes per categoryId of the user, categories without
+	 * notes are left out.
+	 */
+	Map<String, Long> getCounts(String userId);
+
+	/*
+	 * Recomputes all counts documents from the notes and returns the number of users
+	 * recounted.
+	 */
+	int reconcile();
+
+}
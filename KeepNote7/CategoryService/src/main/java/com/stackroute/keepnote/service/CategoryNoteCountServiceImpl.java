@@ -0,0 +1,202 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.CategoryNoteCounts;
+import com.stackroute.keepnote.model.CategoryPaths;
+import com.stackroute.keepnote.model.NoteChangeEvent;
+
+/*
+ * Keeps the number of notes per category in one document per user, so reading all
+ * counts of a user is a single lookup by id. Note change events from the NoteService
+ * are applied with $inc, an event whose id is among the user's recently applied events
+ * is skipped.
+ *
+ * Events lost on the way (the NoteService does not keep an outbox) make the counts
+ * drift, so the counts are recomputed from the NoteService's noteUser documents every
+ * keepnote.counts.reconcile-cron. Users are recounted in batches of
+ * keepnote.counts.reconcile-batch-size, keepnote.counts.reconcile-parallelism batches
+ * at a time. An event applied while its user's batch is being recounted can be
+ * overwritten by the recount and is corrected by the next run. Counts of users that
+ * have no notes any more are cleared, unless the document was recounted or created
+ * after the run started.
+ */
+@Service
+public class CategoryNoteCountServiceImpl implements CategoryNoteCountService {
+
+	private static Logger log = LoggerFactory.getLogger(CategoryNoteCountServiceImpl.class);
+
+	static final int APPLIED_EVENTS_KEPT = 200;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	private final int batchSize;
+	private final int parallelism;
+	private final String noteCollection;
+
+	public CategoryNoteCountServiceImpl(MongoOperations mongoOperations,
+			@Value("${keepnote.counts.reconcile-batch-size:500}") int batchSize,
+			@Value("${keepnote.counts.reconcile-parallelism:4}") int parallelism,
+			@Value("${keepnote.counts.note-collection:noteUser}") String noteCollection) {
+		this.mongoOperations = mongoOperations;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+		this.noteCollection = noteCollection;
+	}
+
+	@RabbitListener(queues = EventsConfig.NOTE_QUEUE)
+	public void noteChanged(NoteChangeEvent event) {
+
+		if (event.getUserId() == null || event.getEventId() == null) {
+			return;
+		}
+
+		Update update = new Update();
+		if (NoteChangeEvent.RESET.equals(event.getType())) {
+			update.set("counts", new Document());
+		} else if (event.getDeltas() != null) {
+			for (Map.Entry<String, Integer> delta : event.getDeltas().entrySet()) {
+				if (CategoryPaths.isValidId(delta.getKey()) && delta.getValue() != null) {
+					update.inc("counts." + delta.getKey(), delta.getValue().longValue());
+				}
+			}
+		}
+		update.push("appliedEvents").slice(-APPLIED_EVENTS_KEPT).each(event.getEventId());
+		update.setOnInsert("createdAt", new Date());
+
+		try {
+			mongoOperations.upsert(query(where("_id").is(event.getUserId()).and("appliedEvents").ne(event.getEventId())),
+					update, CategoryNoteCounts.class);
+		} catch (DuplicateKeyException e) {
+			/* the document exists and already lists the event */
+			log.debug("Note event " + event.getEventId() + " already applied");
+		}
+	}
+
+	public Map<String, Long> getCounts(String userId) {
+
+		Map<String, Long> counts = new HashMap<>();
+		CategoryNoteCounts stored = mongoOperations.findById(userId, CategoryNoteCounts.class);
+		if (stored != null && stored.getCounts() != null) {
+			for (Map.Entry<String, Long> count : stored.getCounts().entrySet()) {
+				if (count.getValue() != null && count.getValue() > 0) {
+					counts.put(count.getKey(), count.getValue());
+				}
+			}
+		}
+		return counts;
+	}
+
+	@Scheduled(cron = "${keepnote.counts.reconcile-cron:0 30 3 * * *}")
+	public int reconcile() {
+
+		Date start = new Date();
+		MongoCollection<Document> notes = mongoOperations.getCollection(noteCollection);
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+				new CustomizableThreadFactory("category-count-reconcile-"));
+		Deque<Future<Integer>> running = new ArrayDeque<>();
+		int users = 0;
+		try {
+			Object lastId = null;
+			while (true) {
+				List<Object> userIds = new ArrayList<>(batchSize);
+				for (Document noteUser : notes.find(lastId == null ? new Document() : Filters.gt("_id", lastId))
+						.projection(new Document("_id", 1)).sort(new Document("_id", 1)).limit(batchSize)) {
+					userIds.add(noteUser.get("_id"));
+				}
+				if (userIds.isEmpty()) {
+					break;
+				}
+				lastId = userIds.get(userIds.size() - 1);
+				/* at most parallelism batches are read into memory at a time */
+				if (running.size() >= parallelism) {
+					users += running.removeFirst().get();
+				}
+				running.addLast(executor.submit(() -> reconcileBatch(notes, userIds, start)));
+			}
+			while (!running.isEmpty()) {
+				users += running.removeFirst().get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return users;
+		} catch (ExecutionException e) {
+			log.warn("Category note count reconciliation failed: " + e.getCause());
+			return users;
+		} finally {
+			executor.shutdownNow();
+		}
+
+		/* users whose notes are all gone, documents without createdAt predate the field */
+		mongoOperations.updateMulti(
+				query(new Criteria().orOperator(where("reconciledAt").lt(start),
+						where("reconciledAt").exists(false).and("createdAt").not().gte(start))),
+				new Update().set("counts", new Document()).set("reconciledAt", start), CategoryNoteCounts.class);
+		log.info("Recounted category notes of " + users + " users");
+		return users;
+	}
+
+	private int reconcileBatch(MongoCollection<Document> notes, List<Object> userIds, Date start) {
+
+		Map<Object, Document> countsByUser = new HashMap<>();
+		for (Object userId : userIds) {
+			countsByUser.put(userId, new Document());
+		}
+
+		for (Document group : notes.aggregate(Arrays.asList(
+				new Document("$match", new Document("_id", new Document("$in", userIds))),
+				new Document("$unwind", "$notes"),
+				new Document("$match", new Document("notes.category.categoryId", new Document("$ne", null))),
+				new Document("$group", new Document("_id",
+						new Document("user", "$_id").append("category", "$notes.category.categoryId"))
+								.append("count", new Document("$sum", 1L)))))) {
+			Document key = (Document) group.get("_id");
+			String categoryId = key.getString("category");
+			if (CategoryPaths.isValidId(categoryId)) {
+				countsByUser.get(key.get("user")).put(categoryId, ((Number) group.get("count")).longValue());
+			}
+		}
+
+		BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, CategoryNoteCounts.class);
+		for (Map.Entry<Object, Document> counts : countsByUser.entrySet()) {
+			bulk.upsert(query(where("_id").is(counts.getKey())),
+					new Update().set("counts", counts.getValue()).set("reconciledAt", start));
+		}
+		bulk.execute();
+		return userIds.size();
+	}
+
+}
@@ -4,7 +4,11 @@ import com.stackroute.keepnote.exception.CategoryDoesNoteExistsException;
 import com.stackroute.keepnote.exception.CategoryNotCreatedException;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface CategoryService {
 	
@@ -21,6 +25,12 @@ public interface CategoryService {
 
     Category getCategoryById(String categoryId) throws CategoryNotFoundException;
 
+    Category getCategoryById(String categoryId, Set<String> fields) throws CategoryNotFoundException;
+
+    List<Category> getCategoriesByIds(Collection<String> categoryIds);
+
     List<Category> getAllCategoryByUserId(String userId);
 
+    void exportAllCategoryByUserId(String userId, OutputStream outputStream) throws IOException;
+
 }
@@ -1,17 +1,30 @@
 package com.stackroute.keepnote.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 import com.stackroute.keepnote.exception.CategoryDoesNoteExistsException;
 import com.stackroute.keepnote.exception.CategoryNotCreatedException;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryPaths;
 import com.stackroute.keepnote.repository.CategoryRepository;
 
 /*
@@ -32,26 +45,43 @@ public class CategoryServiceImpl implements CategoryService {
 	 * object using the new keyword.
 	 */
 	
+	private static final ObjectWriter EXPORT_WRITER = new ObjectMapper().writerFor(Category.class);
+
 	@Autowired
 	private CategoryRepository categoryRepository;
 	
-	public CategoryServiceImpl(CategoryRepository categoryRepository) {
+	@Autowired
+	private CategoryTrashService categoryTrashService;
+	
+	@Autowired
+	private CategoryCache categoryCache;
+	
+	@Autowired
+	private CategoryEventPublisher categoryEventPublisher;
+	
+	public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryTrashService categoryTrashService,
+			CategoryCache categoryCache, CategoryEventPublisher categoryEventPublisher) {
 		
 		this.categoryRepository=categoryRepository;
+		this.categoryTrashService=categoryTrashService;
+		this.categoryCache=categoryCache;
+		this.categoryEventPublisher=categoryEventPublisher;
 	}
 
 	/*
-	 * This method should be used to save a new category.Call the corresponding
-	 * method of Respository interface.
+	 * This method should be used to save a new category. A category with a parentId
+	 * is nested below that category, which has to belong to the same user.
 	 */
 	public Category createCategory(Category category) throws CategoryNotCreatedException {
 
 
-		if(category!= null && category.getId()!= null) {
+		if(category!= null && CategoryPaths.isValidId(category.getId())) {
 			category.setCategoryCreationDate(new Date());
+			category.setPath(CategoryPaths.child(parentPath(category), category.getId()));
 			Category cat = categoryRepository.insert(category);
 			
 			if(cat!= null) {
+				categoryCache.invalidate(cat.getCategoryCreatedBy());
 				return cat;
 			}
 		}
@@ -59,9 +89,22 @@ public class CategoryServiceImpl implements CategoryService {
 		throw new CategoryNotCreatedException("Category not created");
 	}
 
+	private String parentPath(Category category) throws CategoryNotCreatedException {
+
+		if(category.getParentId() == null) {
+			return null;
+		}
+		Optional<Category> parent = categoryRepository.findById(category.getParentId());
+		if(!parent.isPresent() || category.getCategoryCreatedBy() == null
+				|| !category.getCategoryCreatedBy().equals(parent.get().getCategoryCreatedBy())) {
+			throw new CategoryNotCreatedException("Parent category not found");
+		}
+		return CategoryPaths.of(parent.get());
+	}
+
 	/*
-	 * This method should be used to delete an existing category.Call the
-	 * corresponding method of Respository interface.
+	 * This method should be used to delete an existing category. The category is
+	 * moved to the trash, from where it can be restored until it is purged.
 	 */
 	public boolean deleteCategory(String categoryId) throws CategoryDoesNoteExistsException {
 
@@ -71,7 +114,9 @@ public class CategoryServiceImpl implements CategoryService {
 				cat1 = getCategoryById(categoryId);
 			}
 			if(cat1 != null) {
-				 categoryRepository.delete(cat1);
+				 categoryTrashService.moveToTrash(cat1);
+				 categoryCache.invalidate(cat1.getCategoryCreatedBy());
+				 categoryEventPublisher.publishDeleted(cat1);
 				 return true;
 			}
 		} catch (CategoryNotFoundException e) {
@@ -83,8 +128,9 @@ public class CategoryServiceImpl implements CategoryService {
 	}
 
 	/*
-	 * This method should be used to update a existing category.Call the
-	 * corresponding method of Respository interface.
+	 * This method should be used to update a existing category. Notes embedding a
+	 * copy of the category are brought up to date asynchronously from the published
+	 * change event.
 	 */
 	public Category updateCategory(Category category, String categoryId) {
 
@@ -95,8 +141,14 @@ public class CategoryServiceImpl implements CategoryService {
 			
 				if(cat1!= null && category!= null) {
 					category.setId(cat1.getId());
+					/* the position in the hierarchy only changes through moveCategory */
+					category.setParentId(cat1.getParentId());
+					category.setPath(cat1.getPath());
 					category.setCategoryCreationDate(new Date());
 					categoryRepository.save(category);
+					categoryCache.invalidate(cat1.getCategoryCreatedBy());
+					categoryCache.invalidate(category.getCategoryCreatedBy());
+					categoryEventPublisher.publishUpserted(category);
 					
 					return category;
 				}
@@ -110,8 +162,9 @@ public class CategoryServiceImpl implements CategoryService {
 	}
 
 	/*
-	 * This method should be used to get a category by categoryId.Call the
-	 * corresponding method of Respository interface.
+	 * This method should be used to get a category by categoryId. The category is
+	 * answered from its owner's cached categories when they are cached, otherwise it
+	 * is read by id alone.
 	 */
 	public Category getCategoryById(String categoryId) throws CategoryNotFoundException {
 
@@ -119,6 +172,10 @@ public class CategoryServiceImpl implements CategoryService {
 		
 		try {
 			if(categoryId!= null) {
+				Category cached = categoryCache.getCategory(categoryId);
+				if(cached != null) {
+					return cached;
+				}
 				category = categoryRepository.findById(categoryId);
 			}
 			if(category != null) {
@@ -133,12 +190,82 @@ public class CategoryServiceImpl implements CategoryService {
 	}
 
 	/*
-	 * This method should be used to get a category by userId.Call the corresponding
-	 * method of Respository interface.
+	 * Same as getCategoryById, but only the given fields are loaded from the database.
+	 */
+	public Category getCategoryById(String categoryId, Set<String> fields) throws CategoryNotFoundException {
+
+		Category category = categoryId == null ? null : categoryRepository.findProjectedById(categoryId, fields);
+		if(category != null) {
+			return category;
+		}
+
+		throw new CategoryNotFoundException("Category not found") ;
+	}
+
+	/*
+	 * Resolves many categories in one call. Cached categories are answered from the
+	 * cache, the rest are read with a single query on their ids. The categories are
+	 * returned in the order of the ids, unknown ids are left out.
+	 */
+	public List<Category> getCategoriesByIds(Collection<String> categoryIds) {
+
+		Set<String> ids = new LinkedHashSet<>(categoryIds);
+		Map<String, Category> found = new HashMap<>();
+		List<String> missing = new ArrayList<>();
+		for (String id : ids) {
+			Category cached = categoryCache.getCategory(id);
+			if(cached != null) {
+				found.put(id, cached);
+			} else {
+				missing.add(id);
+			}
+		}
+		if(!missing.isEmpty()) {
+			for (Category category : categoryRepository.findAllById(missing)) {
+				found.put(category.getId(), category);
+			}
+		}
+
+		List<Category> categories = new ArrayList<>(found.size());
+		for (String id : ids) {
+			if(found.containsKey(id)) {
+				categories.add(found.get(id));
+			}
+		}
+		return categories;
+	}
+
+	/*
+	 * This method should be used to get a category by userId. The user's categories
+	 * are cached until one of them is written.
 	 */
 	public List<Category> getAllCategoryByUserId(String userId) {
 
-		return categoryRepository.findAllCategoryByCategoryCreatedBy(userId);
+		List<Category> cached = categoryCache.getUserCategories(userId);
+		if(cached != null) {
+			return cached;
+		}
+
+		long generation = categoryCache.generation();
+		List<Category> categories = categoryRepository.findAllCategoryByCategoryCreatedBy(userId);
+		categoryCache.putUserCategories(userId, categories, generation);
+		return categories;
+	}
+
+	/*
+	 * This method writes all categories of a user as newline delimited JSON. The
+	 * categories are read through a Mongo cursor and written one at a time, so the
+	 * user's categories are never held in memory together.
+	 */
+	public void exportAllCategoryByUserId(String userId, OutputStream outputStream) throws IOException {
+
+		try (Stream<Category> categories = categoryRepository.streamAllCategoryByCategoryCreatedBy(userId)) {
+			for (Category category : (Iterable<Category>) categories::iterator) {
+				outputStream.write(EXPORT_WRITER.writeValueAsBytes(category));
+				outputStream.write('\n');
+			}
+		}
+		outputStream.flush();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.exception.CategoryNotCreatedException;
+import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.TrashedCategory;
+
+public interface CategoryTrashService {
+
+	/*
+	 * Moves a category out of the category collection into the trash.
+	 */
+	void moveToTrash(Category category);
+
+	/*
+	 * Lists the trashed categories of a user, most recently deleted first.
+	 */
+	List<TrashedCategory> getTrash(String userId);
+
+	/*
+	 * Moves a trashed category of the user back into the category collection.
+	 */
+	Category restore(String categoryId, String userId) throws CategoryNotFoundException, CategoryNotCreatedException;
+
+}
@@ -0,0 +1,85 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.CategoryNotCreatedException;
+import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.TrashedCategory;
+import com.stackroute.keepnote.repository.CategoryRepository;
+import com.stackroute.keepnote.repository.TrashedCategoryRepository;
+
+/*
+ * Deleting a category moves it into the category_trash collection: one insert there and one
+ * delete by id here. Trashed categories are purged by Mongo's TTL monitor after
+ * keepnote.trash.retention-days, the category collection and its queries never see them.
+ */
+@Service
+public class CategoryTrashServiceImpl implements CategoryTrashService {
+
+	@Autowired
+	private TrashedCategoryRepository trashedCategoryRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private CategoryCache categoryCache;
+
+	@Autowired
+	private CategoryEventPublisher categoryEventPublisher;
+
+	private final long retentionMillis;
+
+	public CategoryTrashServiceImpl(TrashedCategoryRepository trashedCategoryRepository, CategoryRepository categoryRepository,
+			CategoryCache categoryCache, CategoryEventPublisher categoryEventPublisher,
+			@Value("${keepnote.trash.retention-days:30}") int retentionDays) {
+		this.trashedCategoryRepository = trashedCategoryRepository;
+		this.categoryRepository = categoryRepository;
+		this.categoryCache = categoryCache;
+		this.categoryEventPublisher = categoryEventPublisher;
+		this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+	}
+
+	public void moveToTrash(Category category) {
+
+		Date now = new Date();
+		trashedCategoryRepository.save(new TrashedCategory(category.getId(), category.getCategoryCreatedBy(), category, now,
+				new Date(now.getTime() + retentionMillis)));
+		categoryRepository.delete(category);
+	}
+
+	public List<TrashedCategory> getTrash(String userId) {
+
+		return trashedCategoryRepository.findByUserId(userId, Sort.by(Sort.Direction.DESC, "deletedAt"));
+	}
+
+	public Category restore(String categoryId, String userId) throws CategoryNotFoundException, CategoryNotCreatedException {
+
+		Optional<TrashedCategory> trashed = trashedCategoryRepository.findById(categoryId);
+		if (!trashed.isPresent() || userId == null || !userId.equals(trashed.get().getUserId())) {
+			throw new CategoryNotFoundException("Category not found in trash");
+		}
+
+		Category category = trashed.get().getCategory();
+		try {
+			categoryRepository.insert(category);
+		} catch (DuplicateKeyException e) {
+			throw new CategoryNotCreatedException("Category already exists");
+		}
+		trashedCategoryRepository.deleteById(categoryId);
+		categoryCache.invalidate(category.getCategoryCreatedBy());
+		categoryEventPublisher.publishUpserted(category);
+		return category;
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.exception.CategoryMoveException;
+import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.model.Category;
+
+public interface CategoryTreeService {
+
+	/*
+	 * Returns a category followed by all its descendants, every category after its parent.
+	 */
+	List<Category> getSubtree(String categoryId) throws CategoryNotFoundException;
+
+	/*
+	 * Moves a category with all its descendants below another category of the same
+	 * user, or to the top level if parentId is null.
+	 */
+	Category moveCategory(String categoryId, String parentId) throws CategoryNotFoundException, CategoryMoveException;
+
+}
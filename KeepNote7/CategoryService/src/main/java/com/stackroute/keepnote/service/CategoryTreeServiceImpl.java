@@ -0,0 +1,92 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.CategoryMoveException;
+import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryPaths;
+import com.stackroute.keepnote.repository.CategoryRepository;
+
+/*
+ * Category nesting on materialized paths (see CategoryPaths). Reading a subtree is
+ * one prefix query on the (categoryCreatedBy, path) index. Moving a subtree reads it
+ * once and rewrites the path prefix of all its categories in a single bulk write,
+ * the root last. A move that ran into a concurrent change answers 409 and leaves the
+ * root in place, retrying the same move completes it.
+ */
+@Service
+public class CategoryTreeServiceImpl implements CategoryTreeService {
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private CategoryCache categoryCache;
+
+	public CategoryTreeServiceImpl(CategoryRepository categoryRepository, CategoryCache categoryCache) {
+		this.categoryRepository = categoryRepository;
+		this.categoryCache = categoryCache;
+	}
+
+	public List<Category> getSubtree(String categoryId) throws CategoryNotFoundException {
+
+		return subtree(find(categoryId));
+	}
+
+	public Category moveCategory(String categoryId, String parentId) throws CategoryNotFoundException, CategoryMoveException {
+
+		Category category = find(categoryId);
+		String oldPath = CategoryPaths.of(category);
+		String parentPath = null;
+		if (parentId != null) {
+			Category parent = find(parentId);
+			if (category.getCategoryCreatedBy() == null
+					|| !category.getCategoryCreatedBy().equals(parent.getCategoryCreatedBy())) {
+				throw new CategoryMoveException("Parent category belongs to another user");
+			}
+			parentPath = CategoryPaths.of(parent);
+			if (parentPath.startsWith(oldPath)) {
+				throw new CategoryMoveException("A category can not be moved below itself");
+			}
+		}
+
+		String newPath = CategoryPaths.child(parentPath, category.getId());
+		List<Category> subtree = subtree(category);
+		int moved = categoryRepository.moveSubtree(category.getId(), parentId, oldPath, newPath, subtree);
+		categoryCache.invalidate(category.getCategoryCreatedBy());
+		if (moved < subtree.size()) {
+			throw new CategoryMoveException("Categories were changed concurrently, " + moved + " of "
+					+ subtree.size() + " moved, retry the move to complete it");
+		}
+
+		category.setParentId(parentId);
+		category.setPath(newPath);
+		return category;
+	}
+
+	private List<Category> subtree(Category root) {
+
+		List<Category> subtree = new ArrayList<>();
+		if (root.getPath() == null) {
+			subtree.add(root);
+		}
+		subtree.addAll(categoryRepository.findByPathPrefix(root.getCategoryCreatedBy(), CategoryPaths.of(root)));
+		return subtree;
+	}
+
+	private Category find(String categoryId) throws CategoryNotFoundException {
+
+		Optional<Category> category = categoryId == null ? Optional.empty() : categoryRepository.findById(categoryId);
+		if (!category.isPresent()) {
+			throw new CategoryNotFoundException("Category not found");
+		}
+		return category.get();
+	}
+
+}
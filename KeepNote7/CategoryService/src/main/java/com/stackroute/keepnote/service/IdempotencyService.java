@@ -0,0 +1,27 @@
+package com.stackroute.keepnote.service;
+
+import org.springframework.http.ResponseEntity;
+
+public interface IdempotencyService {
+
+	/*
+	 * Reserves the key for a request whose body has the given fingerprint. Returns null
+	 * when the caller now holds the key, it has to run the request and then call
+	 * complete(). Otherwise returns the response to answer with: the recorded response
+	 * of the earlier request, 409 (CONFLICT) while that request is still running, or
+	 * 422 (UNPROCESSABLE ENTITY) when the key was used with a different body.
+	 */
+	ResponseEntity<?> reserve(String key, String fingerprint);
+
+	/*
+	 * Records the response produced for a reserved key so that later retries with the
+	 * same key are answered from the store. A server error releases the key instead.
+	 */
+	void complete(String key, String fingerprint, ResponseEntity<?> response);
+
+	/*
+	 * The hash of the request body a key is bound to.
+	 */
+	String fingerprint(Object body);
+
+}
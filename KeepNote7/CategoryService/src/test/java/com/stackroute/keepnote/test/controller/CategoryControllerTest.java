@@ -1,24 +1,41 @@
 package com.stackroute.keepnote.test.controller;
 
+import java.util.Collections;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.controller.CategoryController;
 import com.stackroute.keepnote.exception.CategoryDoesNoteExistsException;
 import com.stackroute.keepnote.exception.CategoryNotCreatedException;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.service.CategoryNoteCountService;
 import com.stackroute.keepnote.service.CategoryService;
+import com.stackroute.keepnote.service.CategoryEventPublisher;
+import com.stackroute.keepnote.service.CategoryTrashService;
+import com.stackroute.keepnote.service.CategoryTreeService;
+import com.stackroute.keepnote.exception.CategoryMoveException;
+import io.jsonwebtoken.Jwts;
+import com.stackroute.keepnote.service.IdempotencyService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -26,6 +43,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -38,6 +56,16 @@ public class CategoryControllerTest {
     private Category category;
     @MockBean
     private CategoryService categoryService;
+    @MockBean
+    private IdempotencyService idempotencyService;
+    @MockBean
+    private CategoryTrashService categoryTrashService;
+    @MockBean
+    private CategoryEventPublisher categoryEventPublisher;
+    @MockBean
+    private CategoryTreeService categoryTreeService;
+    @MockBean
+    private CategoryNoteCountService categoryNoteCountService;
     @InjectMocks
     private CategoryController categoryController;
     private List<Category> allCategories = null;
@@ -143,6 +171,181 @@ public class CategoryControllerTest {
 
 
 
+    @Test
+    public void createCategoryWithIdempotencyKeyStoresResponse() throws Exception {
+
+        when(categoryService.createCategory(any())).thenReturn(category);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(idempotencyService).complete(eq("category:Jhon123:key-1"), any(), any());
+    }
+
+    @Test
+    public void createCategoryIdempotencyKeyIsScopedByCaller() throws Exception {
+
+        when(categoryService.createCategory(any())).thenReturn(category);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("Other123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(idempotencyService).reserve(eq("category:Other123:key-1"), any());
+    }
+
+    @Test
+    public void createCategoryWithIdempotencyKeyInProgress() throws Exception {
+
+        doReturn(new ResponseEntity<>(HttpStatus.CONFLICT)).when(idempotencyService).reserve(eq("category:Jhon123:key-1"), any());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+        verify(categoryService, never()).createCategory(any());
+    }
+
+    @Test
+    public void createCategoryWithIdempotencyKeyReplaysStoredResponse() throws Exception {
+
+        doReturn(new ResponseEntity<>(category, HttpStatus.CREATED)).when(idempotencyService)
+                .reserve(eq("category:Jhon123:key-1"), any());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(category)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(categoryService, never()).createCategory(any());
+    }
+
+    @Test
+    public void getCategoryByIdWithFields() throws Exception {
+        Category projected = new Category();
+        projected.setCategoryName(category.getCategoryName());
+        when(categoryService.getCategoryById(category.getId(), Collections.singleton("categoryName")))
+                .thenReturn(projected);
+        mockMvc = MockMvcBuilders.standaloneSetup(categoryController).setMessageConverters(sparseFieldsConverter()).build();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/category/5b04f7411764e3765c35f8f6").param("fields", "categoryName"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.categoryName").value("Cricket-Category"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.categoryDescription").doesNotExist())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getCategoryByIdWithUnknownField() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/category/5b04f7411764e3765c35f8f6").param("fields", "noSuchField"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getCategoriesByIdsSuccess() throws Exception {
+        when(categoryService.getCategoriesByIds(Arrays.asList("5b04f7411764e3765c35f8f6", "5b04f7411764e3765c35f8f7")))
+                .thenReturn(allCategories);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/category")
+                .param("ids", "5b04f7411764e3765c35f8f6,5b04f7411764e3765c35f8f7"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].categoryName").value("Cricket-Category"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getCategoriesByIdsTooMany() throws Exception {
+        StringBuilder ids = new StringBuilder("0");
+        for (int i = 1; i <= 200; i++) {
+            ids.append(',').append(i);
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/category").param("ids", ids.toString()))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+        verify(categoryService, never()).getCategoriesByIds(any());
+    }
+
+    @Test
+    public void getCategorySubtreeSuccess() throws Exception {
+        when(categoryTreeService.getSubtree(category.getId())).thenReturn(allCategories);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/category/5b04f7411764e3765c35f8f6/subtree"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value("5b04f7411764e3765c35f8f6"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void moveCategoryBelowItselfConflict() throws Exception {
+        when(categoryTreeService.moveCategory(category.getId(), "5b04f7411764e3765c35f8f7"))
+                .thenThrow(CategoryMoveException.class);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/category/5b04f7411764e3765c35f8f6/parent")
+                .param("parentId", "5b04f7411764e3765c35f8f7"))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void moveCategoryToTopLevel() throws Exception {
+        when(categoryTreeService.moveCategory(category.getId(), null)).thenReturn(category);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/category/5b04f7411764e3765c35f8f6/parent"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void replayEventsSuccess() throws Exception {
+        when(categoryEventPublisher.isReplayAllowed("internal-token")).thenReturn(true);
+        when(categoryEventPublisher.replay(1527000000000L)).thenReturn(3);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category/events/replay").param("since", "1527000000000")
+                .header("X-Replay-Token", "internal-token"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("3"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void replayEventsWithoutTokenForbidden() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category/events/replay").param("since", "1527000000000")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isForbidden())
+                .andDo(MockMvcResultHandlers.print());
+        verify(categoryEventPublisher, never()).replay(anyLong());
+    }
+
+    @Test
+    public void restoreCategorySuccess() throws Exception {
+        when(categoryTrashService.restore("5b04f7411764e3765c35f8f6", "Jhon123")).thenReturn(category);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category/trash/5b04f7411764e3765c35f8f6/restore")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void restoreCategoryNotInTrash() throws Exception {
+        when(categoryTrashService.restore("5b04f7411764e3765c35f8f6", "Jhon123")).thenThrow(CategoryNotFoundException.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/category/trash/5b04f7411764e3765c35f8f6/restore")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getCategoryNoteCountsSuccess() throws Exception {
+        when(categoryNoteCountService.getCounts("Jhon123"))
+                .thenReturn(Collections.singletonMap("5b04f7411764e3765c35f8f6", 3L));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/category/counts")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$['5b04f7411764e3765c35f8f6']").value(3))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    private static MappingJackson2HttpMessageConverter sparseFieldsConverter() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        SparseFieldsConfig.configure(builder);
+        return new MappingJackson2HttpMessageConverter(builder.build());
+    }
+
     private static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
@@ -0,0 +1,171 @@
+package com.stackroute.keepnote.test.jwtfilter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.ServletException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.stackroute.keepnote.jwtfilter.JwtFilter;
+import com.stackroute.keepnote.jwtfilter.TokenRevocationList;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+
+public class JwtFilterTest {
+
+    private static String token(String subject, long expiresAt, String key) {
+        return Jwts.builder().setSubject(subject).setIssuedAt(new Date()).setExpiration(new Date(expiresAt))
+                .signWith(SignatureAlgorithm.HS256, key).compact();
+    }
+
+    private static String token(String subject) {
+        return token(subject, System.currentTimeMillis() + 3600000, "secretkey");
+    }
+
+    private static Claims filter(JwtFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/category");
+        request.addHeader("authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        Assert.assertSame(request, chain.getRequest());
+        return (Claims) request.getAttribute("claims");
+    }
+
+    private static MockHttpServletRequest gatewayRequest(String user, long expires, String secret) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mac.doFinal((user + "\n" + expires).getBytes(StandardCharsets.UTF_8)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/category");
+        request.addHeader("X-Auth-User", user);
+        request.addHeader("X-Auth-Expires", Long.toString(expires));
+        request.addHeader("X-Auth-Signature", signature);
+        return request;
+    }
+
+    @Test
+    public void setsVerifiedClaims() throws Exception {
+        Claims claims = filter(new JwtFilter(), token("Jhon123"));
+        Assert.assertEquals("Jhon123", claims.getSubject());
+    }
+
+    @Test
+    public void reusesCachedClaimsForTheSameToken() throws Exception {
+        JwtFilter filter = new JwtFilter();
+        String token = token("Jhon123");
+        Assert.assertSame(filter(filter, token), filter(filter, token));
+        Assert.assertNotSame(filter(filter, token), filter(filter, token("Jhon123-other")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedToken() throws Exception {
+        JwtFilter filter = new JwtFilter(1, 300000);
+        String first = token("first");
+        Claims cached = filter(filter, first);
+        filter(filter, token("second"));
+        Assert.assertNotSame(cached, filter(filter, first));
+    }
+
+    @Test
+    public void doesNotCacheWithZeroTtl() throws Exception {
+        JwtFilter filter = new JwtFilter(10, 0);
+        String token = token("Jhon123");
+        Assert.assertNotSame(filter(filter, token), filter(filter, token));
+    }
+
+    @Test(expected = ExpiredJwtException.class)
+    public void rejectsCachedTokenOnceExpired() throws Exception {
+        JwtFilter filter = new JwtFilter();
+        /* exp is serialized in whole seconds */
+        long expiresAt = (System.currentTimeMillis() / 1000 + 2) * 1000;
+        String token = token("Jhon123", expiresAt, "secretkey");
+        filter(filter, token);
+        Thread.sleep(expiresAt - System.currentTimeMillis() + 10);
+        filter(filter, token);
+    }
+
+    @Test(expected = SignatureException.class)
+    public void rejectsTokenSignedWithAnotherKey() throws Exception {
+        filter(new JwtFilter(), token("Jhon123", System.currentTimeMillis() + 3600000, "otherkey"));
+    }
+
+    @Test(expected = ServletException.class)
+    public void rejectsMissingAuthorizationHeader() throws Exception {
+        new JwtFilter().doFilter(new MockHttpServletRequest("GET", "/api/v1/category"), new MockHttpServletResponse(),
+                new MockFilterChain());
+    }
+
+    @Test
+    public void trustsSignedGatewayIdentity() throws Exception {
+        long expires = System.currentTimeMillis() + 30000;
+        MockHttpServletRequest request = gatewayRequest("Jhon123", expires, "gatewaysecret");
+        MockFilterChain chain = new MockFilterChain();
+        new JwtFilter(10, 300000, "gatewaysecret").doFilter(request, new MockHttpServletResponse(), chain);
+        Claims claims = (Claims) request.getAttribute("claims");
+        Assert.assertSame(request, chain.getRequest());
+        Assert.assertEquals("Jhon123", claims.getSubject());
+        Assert.assertEquals(expires, claims.getExpiration().getTime());
+    }
+
+    @Test(expected = ServletException.class)
+    public void rejectsGatewayIdentitySignedWithAnotherSecret() throws Exception {
+        new JwtFilter(10, 300000, "gatewaysecret").doFilter(
+                gatewayRequest("Jhon123", System.currentTimeMillis() + 30000, "othersecret"),
+                new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    @Test(expected = ServletException.class)
+    public void rejectsTamperedGatewayUser() throws Exception {
+        MockHttpServletRequest request = gatewayRequest("Jhon123", System.currentTimeMillis() + 30000, "gatewaysecret");
+        MockHttpServletRequest tampered = new MockHttpServletRequest("GET", "/api/v1/category");
+        tampered.addHeader("X-Auth-User", "Jhon456");
+        tampered.addHeader("X-Auth-Expires", request.getHeader("X-Auth-Expires"));
+        tampered.addHeader("X-Auth-Signature", request.getHeader("X-Auth-Signature"));
+        new JwtFilter(10, 300000, "gatewaysecret").doFilter(tampered, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    @Test(expected = ServletException.class)
+    public void rejectsExpiredGatewayIdentity() throws Exception {
+        new JwtFilter(10, 300000, "gatewaysecret").doFilter(
+                gatewayRequest("Jhon123", System.currentTimeMillis() - 1, "gatewaysecret"),
+                new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    @Test(expected = ServletException.class)
+    public void ignoresGatewayIdentityWhenNotTrusted() throws Exception {
+        new JwtFilter().doFilter(gatewayRequest("Jhon123", System.currentTimeMillis() + 30000, "gatewaysecret"),
+                new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    @Test
+    public void rejectsRevokedTokenEvenWhenCached() throws Exception {
+        TokenRevocationList revocations = new TokenRevocationList(new RestTemplateBuilder(),
+                "http://localhost:9100/api/v1/auth/revocations", 1000, 0.001);
+        JwtFilter filter = new JwtFilter(10, 300000, null, revocations);
+        long expiresAt = System.currentTimeMillis() + 3600000;
+        String token = Jwts.builder().setId("token-1").setSubject("Jhon123").setExpiration(new Date(expiresAt))
+                .signWith(SignatureAlgorithm.HS256, "secretkey").compact();
+        Assert.assertEquals("Jhon123", filter(filter, token).getSubject());
+
+        revocations.revoke("token-1", expiresAt);
+        try {
+            filter(filter, token);
+            Assert.fail("revoked token accepted");
+        } catch (ServletException e) {
+            Assert.assertEquals("Token has been revoked", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.service.CategoryCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CategoryCacheTest {
+
+    private CategoryCache categoryCache;
+    private Category cricket;
+    private Category football;
+
+    @Before
+    public void setUp() {
+        categoryCache = new CategoryCache(2, 300);
+        cricket = category("5b04f7411764e3765c35f8f6", "Jhon123");
+        football = category("5b04f7411764e3765c35f8f7", "Jhon123");
+    }
+
+    @Test
+    public void lookupByIdGoesThroughOwnerEntry() {
+        categoryCache.putUserCategories("Jhon123", Arrays.asList(cricket, football), categoryCache.generation());
+        Assert.assertEquals(football.getId(), categoryCache.getCategory(football.getId()).getId());
+        Assert.assertEquals(2, categoryCache.getUserCategories("Jhon123").size());
+    }
+
+    @Test
+    public void callersGetCopies() {
+        cricket.setCategoryName("Cricket");
+        categoryCache.putUserCategories("Jhon123", Arrays.asList(cricket, football), categoryCache.generation());
+        cricket.setCategoryName("changed after caching");
+        categoryCache.getCategory(cricket.getId()).setCategoryName("changed by a caller");
+        categoryCache.getUserCategories("Jhon123").get(0).setCategoryName("changed by a caller");
+
+        Assert.assertEquals("Cricket", categoryCache.getCategory(cricket.getId()).getCategoryName());
+        Assert.assertEquals("Cricket", categoryCache.getUserCategories("Jhon123").get(0).getCategoryName());
+    }
+
+    @Test
+    public void invalidateDropsOwnerEntry() {
+        categoryCache.putUserCategories("Jhon123", Arrays.asList(cricket, football), categoryCache.generation());
+        categoryCache.invalidate("Jhon123");
+        Assert.assertNull(categoryCache.getUserCategories("Jhon123"));
+        Assert.assertNull(categoryCache.getCategory(cricket.getId()));
+    }
+
+    @Test
+    public void loadStartedBeforeInvalidationIsNotStored() {
+        long generation = categoryCache.generation();
+        categoryCache.invalidate("Jhon123");
+        categoryCache.putUserCategories("Jhon123", Collections.singletonList(cricket), generation);
+        Assert.assertNull(categoryCache.getUserCategories("Jhon123"));
+    }
+
+    @Test
+    public void invalidationOfAnotherUserDoesNotDiscardLoad() {
+        long generation = categoryCache.generation();
+        categoryCache.invalidate("Kate123");
+        categoryCache.putUserCategories("Jhon123", Collections.singletonList(cricket), generation);
+        Assert.assertNotNull(categoryCache.getUserCategories("Jhon123"));
+    }
+
+    @Test
+    public void droppedInvalidationStillDiscardsOlderLoad() {
+        long generation = categoryCache.generation();
+        categoryCache.invalidate("Jhon123");
+        categoryCache.invalidate("Kate123");
+        categoryCache.invalidate("Mark123");
+        categoryCache.putUserCategories("Jhon123", Collections.singletonList(cricket), generation);
+        Assert.assertNull(categoryCache.getUserCategories("Jhon123"));
+    }
+
+    @Test
+    public void leastRecentlyUsedUserIsEvicted() {
+        categoryCache.putUserCategories("Jhon123", Collections.singletonList(cricket), categoryCache.generation());
+        categoryCache.putUserCategories("Kate123", Collections.emptyList(), categoryCache.generation());
+        categoryCache.putUserCategories("Mark123", Collections.emptyList(), categoryCache.generation());
+        Assert.assertNull(categoryCache.getUserCategories("Jhon123"));
+        Assert.assertNull(categoryCache.getCategory(cricket.getId()));
+        Assert.assertNotNull(categoryCache.getUserCategories("Mark123"));
+    }
+
+    @Test
+    public void expiredEntryIsReloaded() {
+        categoryCache = new CategoryCache(2, 0);
+        categoryCache.putUserCategories("Jhon123", Collections.singletonList(cricket), categoryCache.generation());
+        sleep();
+        Assert.assertNull(categoryCache.getUserCategories("Jhon123"));
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Category category(String id, String userId) {
+        Category category = new Category();
+        category.setId(id);
+        category.setCategoryCreatedBy(userId);
+        return category;
+    }
+}
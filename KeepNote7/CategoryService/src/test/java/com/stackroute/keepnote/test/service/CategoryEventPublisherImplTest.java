@@ -0,0 +1,120 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryChangeEvent;
+import com.stackroute.keepnote.model.CategoryVersion;
+import com.stackroute.keepnote.repository.CategoryChangeEventRepository;
+import com.stackroute.keepnote.service.CategoryEventPublisherImpl;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.net.ConnectException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CategoryEventPublisherImplTest {
+
+    @Mock
+    private CategoryChangeEventRepository categoryChangeEventRepository;
+    @Mock
+    private AmqpTemplate amqpTemplate;
+    @Mock
+    private MongoOperations mongoOperations;
+    private CategoryEventPublisherImpl categoryEventPublisher;
+    private Category category;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        categoryEventPublisher = new CategoryEventPublisherImpl(categoryChangeEventRepository, amqpTemplate,
+                mongoOperations, 500, "internal-token");
+        CategoryVersion version = new CategoryVersion();
+        version.setVersion(42L);
+        when(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(CategoryVersion.class))).thenReturn(version);
+        category = new Category();
+        category.setId("5b04f7411764e3765c35f8f6");
+        category.setCategoryName("Cricket-Category");
+        category.setCategoryCreatedBy("Jhon123");
+    }
+
+    @Test
+    public void publishUpsertedStoresThenSends() {
+        categoryEventPublisher.publishUpserted(category);
+
+        ArgumentCaptor<CategoryChangeEvent> sent = ArgumentCaptor.forClass(CategoryChangeEvent.class);
+        verify(amqpTemplate).convertAndSend(eq(EventsConfig.EXCHANGE), eq("category.upserted"), sent.capture());
+        Assert.assertEquals("5b04f7411764e3765c35f8f6", sent.getValue().getCategoryId());
+        Assert.assertSame(category, sent.getValue().getCategory());
+        Assert.assertTrue(sent.getValue().isPublished());
+        Assert.assertEquals(42L, sent.getValue().getVersion());
+        verify(categoryChangeEventRepository, times(2)).save(sent.getValue());
+    }
+
+    @Test
+    public void firstVersionOfACategoryStartsAtTheCurrentTime() {
+        categoryEventPublisher.publishUpserted(category);
+
+        ArgumentCaptor<Update> seed = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), seed.capture(), eq(CategoryVersion.class));
+        Document setOnInsert = (Document) seed.getValue().getUpdateObject().get("$setOnInsert");
+        Assert.assertTrue((Long) setOnInsert.get("version") > 1500000000000L);
+    }
+
+    @Test
+    public void replayNeedsTheConfiguredToken() {
+        Assert.assertTrue(categoryEventPublisher.isReplayAllowed("internal-token"));
+        Assert.assertFalse(categoryEventPublisher.isReplayAllowed("guess"));
+        Assert.assertFalse(categoryEventPublisher.isReplayAllowed(null));
+        Assert.assertFalse(new CategoryEventPublisherImpl(categoryChangeEventRepository, amqpTemplate,
+                mongoOperations, 500, "").isReplayAllowed(""));
+    }
+
+    @Test
+    public void brokerFailureLeavesEventInOutbox() {
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(amqpTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        categoryEventPublisher.publishDeleted(category);
+
+        ArgumentCaptor<CategoryChangeEvent> stored = ArgumentCaptor.forClass(CategoryChangeEvent.class);
+        verify(categoryChangeEventRepository, times(1)).save(stored.capture());
+        Assert.assertFalse(stored.getValue().isPublished());
+        Assert.assertNull(stored.getValue().getCategory());
+    }
+
+    @Test
+    public void replaySendsStoredEventsMarkedAsReplayed() {
+        List<CategoryChangeEvent> stored = Arrays.asList(
+                new CategoryChangeEvent("e1", CategoryChangeEvent.UPSERTED, category.getId(), "Jhon123", category, 10L),
+                new CategoryChangeEvent("e2", CategoryChangeEvent.DELETED, category.getId(), "Jhon123", null, 20L));
+        when(categoryChangeEventRepository.findByCreatedAtGreaterThanEqual(eq(new Date(10L)), any(Sort.class)))
+                .thenReturn(stored);
+
+        Assert.assertEquals(2, categoryEventPublisher.replay(10L));
+        verify(amqpTemplate).convertAndSend(EventsConfig.EXCHANGE, "category.deleted", stored.get(1));
+        Assert.assertTrue(stored.get(0).isReplayed());
+    }
+}
@@ -0,0 +1,146 @@
+package com.stackroute.keepnote.test.service;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.stackroute.keepnote.model.CategoryNoteCounts;
+import com.stackroute.keepnote.model.NoteChangeEvent;
+import com.stackroute.keepnote.service.CategoryNoteCountServiceImpl;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CategoryNoteCountServiceImplTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    private CategoryNoteCountServiceImpl categoryNoteCountService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        categoryNoteCountService = new CategoryNoteCountServiceImpl(mongoOperations, 500, 2, "noteUser");
+    }
+
+    private NoteChangeEvent changed(Map<String, Integer> deltas) {
+        return new NoteChangeEvent("e1", NoteChangeEvent.CHANGED, "Jhon123", deltas);
+    }
+
+    @Test
+    public void noteChangedIncrementsCounts() {
+        Map<String, Integer> deltas = new HashMap<>();
+        deltas.put("c1", 2);
+        deltas.put("c2", -1);
+        categoryNoteCountService.noteChanged(changed(deltas));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(query.capture(), update.capture(), eq(CategoryNoteCounts.class));
+        Document inc = (Document) update.getValue().getUpdateObject().get("$inc");
+        Assert.assertEquals(2L, inc.get("counts.c1"));
+        Assert.assertEquals(-1L, inc.get("counts.c2"));
+        Assert.assertEquals("Jhon123", query.getValue().getQueryObject().get("_id"));
+        Assert.assertEquals(new Document("$ne", "e1"), query.getValue().getQueryObject().get("appliedEvents"));
+        Document setOnInsert = (Document) update.getValue().getUpdateObject().get("$setOnInsert");
+        Assert.assertNotNull(setOnInsert.get("createdAt"));
+    }
+
+    @Test
+    public void noteChangedSkipsInvalidCategoryIds() {
+        Map<String, Integer> deltas = new HashMap<>();
+        deltas.put("a.b", 1);
+        deltas.put("$c", 1);
+        categoryNoteCountService.noteChanged(changed(deltas));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), update.capture(), eq(CategoryNoteCounts.class));
+        Assert.assertNull(update.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    public void redeliveredEventIsIgnored() {
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(CategoryNoteCounts.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+        categoryNoteCountService.noteChanged(changed(new HashMap<>()));
+    }
+
+    @Test
+    public void resetClearsCounts() {
+        categoryNoteCountService.noteChanged(new NoteChangeEvent("e2", NoteChangeEvent.RESET, "Jhon123", null));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).upsert(any(Query.class), update.capture(), eq(CategoryNoteCounts.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        Assert.assertEquals(new Document(), set.get("counts"));
+    }
+
+    @Test
+    public void eventWithoutUserIsDropped() {
+        categoryNoteCountService.noteChanged(new NoteChangeEvent("e3", NoteChangeEvent.CHANGED, null, new HashMap<>()));
+        verify(mongoOperations, never()).upsert(any(Query.class), any(Update.class), eq(CategoryNoteCounts.class));
+    }
+
+    @Test
+    public void getCountsLeavesOutEmptyCategories() {
+        Map<String, Long> stored = new HashMap<>();
+        stored.put("c1", 3L);
+        stored.put("c2", 0L);
+        stored.put("c3", -1L);
+        CategoryNoteCounts counts = new CategoryNoteCounts();
+        counts.setUserId("Jhon123");
+        counts.setCounts(stored);
+        when(mongoOperations.findById("Jhon123", CategoryNoteCounts.class)).thenReturn(counts);
+
+        Map<String, Long> result = categoryNoteCountService.getCounts("Jhon123");
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(Long.valueOf(3), result.get("c1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void reconcileClearsOnlyDocumentsOlderThanTheRun() {
+        MongoCollection<Document> notes = mock(MongoCollection.class);
+        FindIterable<Document> found = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(mongoOperations.getCollection("noteUser")).thenReturn(notes);
+        when(notes.find(any(Document.class))).thenReturn(found);
+        when(found.projection(any())).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.limit(500)).thenReturn(found);
+        when(found.iterator()).thenReturn(cursor);
+
+        Assert.assertEquals(0, categoryNoteCountService.reconcile());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).updateMulti(query.capture(), any(Update.class), eq(CategoryNoteCounts.class));
+        List<Document> or = (List<Document>) query.getValue().getQueryObject().get("$or");
+        Date start = (Date) ((Document) or.get(0).get("reconciledAt")).get("$lt");
+        Assert.assertEquals(new Document("$exists", false), or.get(1).get("reconciledAt"));
+        Assert.assertEquals(new Document("$not", new Document("$gte", start)), or.get(1).get("createdAt"));
+    }
+
+    @Test
+    public void getCountsWithoutDocument() {
+        Assert.assertTrue(categoryNoteCountService.getCounts("Jhon123").isEmpty());
+    }
+}
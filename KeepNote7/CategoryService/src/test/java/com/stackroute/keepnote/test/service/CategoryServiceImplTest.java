@@ -4,22 +4,35 @@ import com.stackroute.keepnote.exception.CategoryNotCreatedException;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.repository.CategoryRepository;
+import com.stackroute.keepnote.service.CategoryCache;
+import com.stackroute.keepnote.service.CategoryEventPublisher;
 import com.stackroute.keepnote.service.CategoryServiceImpl;
+import com.stackroute.keepnote.service.CategoryTrashService;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import java.io.ByteArrayOutputStream;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class CategoryServiceImplTest {
 
     private Category category;
     @Mock
     private CategoryRepository categoryRepository;
+    @Mock
+    private CategoryTrashService categoryTrashService;
+    @Mock
+    private CategoryCache categoryCache;
+    @Mock
+    private CategoryEventPublisher categoryEventPublisher;
     @InjectMocks
     private CategoryServiceImpl categoryServiceImpl;
     private List<Category> allCategories = null;
@@ -65,6 +78,7 @@ public class CategoryServiceImplTest {
         when(categoryRepository.findById(category.getId())).thenReturn(options);
         boolean flag = categoryServiceImpl.deleteCategory(category.getId());
         Assert.assertEquals(true, flag);
+        verify(categoryTrashService).moveToTrash(category);
     }
 
 
@@ -112,4 +126,107 @@ public class CategoryServiceImplTest {
         List<Category> categories = categoryServiceImpl.getAllCategoryByUserId("Jhon123");
         Assert.assertEquals(allCategories, categories);
     }
+    @Test
+    public void createCategoryInvalidatesOwnerCache() throws Exception {
+        when(categoryRepository.insert((Category) any())).thenReturn(category);
+        categoryServiceImpl.createCategory(category);
+        verify(categoryCache).invalidate("Jhon123");
+    }
+
+    @Test
+    public void createNestedCategoryExtendsParentPath() throws Exception {
+        Category child = new Category();
+        child.setId("5b04f7411764e3765c35f8f7");
+        child.setParentId(category.getId());
+        child.setCategoryCreatedBy("Jhon123");
+        category.setPath("/5b04f7411764e3765c35f8f6/");
+        when(categoryRepository.findById(category.getId())).thenReturn(options);
+        when(categoryRepository.insert((Category) any())).thenReturn(child);
+        categoryServiceImpl.createCategory(child);
+        Assert.assertEquals("/5b04f7411764e3765c35f8f6/5b04f7411764e3765c35f8f7/", child.getPath());
+    }
+
+    @Test(expected = CategoryNotCreatedException.class)
+    public void createCategoryBelowOtherUsersCategory() throws Exception {
+        Category child = new Category();
+        child.setId("5b04f7411764e3765c35f8f7");
+        child.setParentId(category.getId());
+        child.setCategoryCreatedBy("Kate123");
+        when(categoryRepository.findById(category.getId())).thenReturn(options);
+        categoryServiceImpl.createCategory(child);
+    }
+
+    @Test
+    public void updateCategoryKeepsPosition() {
+        category.setParentId("5b04f7411764e3765c35f8f0");
+        category.setPath("/5b04f7411764e3765c35f8f0/5b04f7411764e3765c35f8f6/");
+        when(categoryRepository.findById(category.getId())).thenReturn(options);
+        Category renamed = new Category();
+        renamed.setCategoryName("Sports-Category");
+        categoryServiceImpl.updateCategory(renamed, category.getId());
+        Assert.assertEquals("5b04f7411764e3765c35f8f0", renamed.getParentId());
+        Assert.assertEquals(category.getPath(), renamed.getPath());
+    }
+
+    @Test
+    public void updateCategoryPublishesChange() {
+        when(categoryRepository.findById(category.getId())).thenReturn(options);
+        Category renamed = new Category();
+        renamed.setCategoryName("Sports-Category");
+        renamed.setCategoryCreatedBy("Jhon123");
+        categoryServiceImpl.updateCategory(renamed, category.getId());
+        verify(categoryEventPublisher).publishUpserted(renamed);
+    }
+
+    @Test
+    public void deleteCategoryPublishesDeletion() throws Exception {
+        when(categoryRepository.findById(category.getId())).thenReturn(options);
+        categoryServiceImpl.deleteCategory(category.getId());
+        verify(categoryEventPublisher).publishDeleted(category);
+    }
+
+    @Test
+    public void getAllCategoryByUserIdServedFromCache() {
+        when(categoryCache.getUserCategories("Jhon123")).thenReturn(allCategories);
+        List<Category> categories = categoryServiceImpl.getAllCategoryByUserId("Jhon123");
+        Assert.assertEquals(allCategories, categories);
+        verify(categoryRepository, never()).findAllCategoryByCategoryCreatedBy("Jhon123");
+    }
+
+    @Test
+    public void getCategoryByIdMissReadsOnlyTheCategory() throws CategoryNotFoundException {
+        when(categoryRepository.findById(category.getId())).thenReturn(options);
+        Assert.assertEquals(category, categoryServiceImpl.getCategoryById(category.getId()));
+        verify(categoryRepository, never()).findAllCategoryByCategoryCreatedBy("Jhon123");
+    }
+
+    @Test
+    public void getCategoriesByIdsReadsOnlyMisses() {
+        Category second = new Category();
+        second.setId("5b04f7411764e3765c35f8f7");
+        when(categoryCache.getCategory(category.getId())).thenReturn(category);
+        when(categoryRepository.findAllById(Collections.singletonList(second.getId())))
+                .thenReturn(Collections.singletonList(second));
+        List<Category> categories = categoryServiceImpl.getCategoriesByIds(
+                Arrays.asList(second.getId(), "unknown", category.getId()));
+        Assert.assertEquals(Arrays.asList(second, category), categories);
+    }
+
+    @Test
+    public void exportAllCategoryByUserIdWritesOneLinePerCategory() throws Exception {
+
+        Category second = new Category();
+        second.setId("5b04f7411764e3765c35f8f7");
+        second.setCategoryName("Football-Category");
+        second.setCategoryCreatedBy("Jhon123");
+        when(categoryRepository.streamAllCategoryByCategoryCreatedBy("Jhon123"))
+                .thenReturn(Stream.of(category, second));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        categoryServiceImpl.exportAllCategoryByUserId("Jhon123", outputStream);
+        String[] lines = outputStream.toString("UTF-8").split("\n");
+        Assert.assertEquals(2, lines.length);
+        Assert.assertTrue(lines[0].contains("Cricket-Category"));
+        Assert.assertTrue(lines[1].contains("Football-Category"));
+    }
+
 }
@@ -0,0 +1,92 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.exception.CategoryNotCreatedException;
+import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.TrashedCategory;
+import com.stackroute.keepnote.repository.CategoryRepository;
+import com.stackroute.keepnote.repository.TrashedCategoryRepository;
+import com.stackroute.keepnote.service.CategoryCache;
+import com.stackroute.keepnote.service.CategoryEventPublisher;
+import com.stackroute.keepnote.service.CategoryTrashServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CategoryTrashServiceImplTest {
+
+    @Mock
+    private TrashedCategoryRepository trashedCategoryRepository;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private CategoryCache categoryCache;
+    @Mock
+    private CategoryEventPublisher categoryEventPublisher;
+    private CategoryTrashServiceImpl categoryTrashService;
+    private Category category;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        categoryTrashService = new CategoryTrashServiceImpl(trashedCategoryRepository, categoryRepository, categoryCache,
+                categoryEventPublisher, 30);
+        category = new Category();
+        category.setId("5b04f7411764e3765c35f8f6");
+        category.setCategoryName("Cricket-Category");
+        category.setCategoryCreatedBy("Jhon123");
+    }
+
+    @Test
+    public void moveToTrashSavesThenDeletes() {
+        categoryTrashService.moveToTrash(category);
+        ArgumentCaptor<TrashedCategory> trashed = ArgumentCaptor.forClass(TrashedCategory.class);
+        verify(trashedCategoryRepository).save(trashed.capture());
+        Assert.assertEquals("Jhon123", trashed.getValue().getUserId());
+        Assert.assertTrue(trashed.getValue().getPurgeAt().after(trashed.getValue().getDeletedAt()));
+        verify(categoryRepository).delete(category);
+    }
+
+    @Test
+    public void restoreSuccess() throws Exception {
+        when(trashedCategoryRepository.findById(category.getId())).thenReturn(Optional.of(trashed()));
+        Category restored = categoryTrashService.restore(category.getId(), "Jhon123");
+        Assert.assertSame(category, restored);
+        verify(categoryRepository).insert(category);
+        verify(trashedCategoryRepository).deleteById(category.getId());
+        verify(categoryCache).invalidate("Jhon123");
+    }
+
+    @Test(expected = CategoryNotFoundException.class)
+    public void restoreOtherUsersCategory() throws Exception {
+        when(trashedCategoryRepository.findById(category.getId())).thenReturn(Optional.of(trashed()));
+        categoryTrashService.restore(category.getId(), "Kate123");
+    }
+
+    @Test
+    public void restoreExistingCategory() throws Exception {
+        when(trashedCategoryRepository.findById(category.getId())).thenReturn(Optional.of(trashed()));
+        when(categoryRepository.insert(category)).thenThrow(new DuplicateKeyException("duplicate"));
+        try {
+            categoryTrashService.restore(category.getId(), "Jhon123");
+            Assert.fail();
+        } catch (CategoryNotCreatedException e) {
+            verify(trashedCategoryRepository, never()).deleteById(category.getId());
+        }
+    }
+
+    private TrashedCategory trashed() {
+        return new TrashedCategory(category.getId(), "Jhon123", category, new Date(), new Date());
+    }
+}
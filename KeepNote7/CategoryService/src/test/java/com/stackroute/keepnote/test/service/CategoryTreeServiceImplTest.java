@@ -0,0 +1,114 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.exception.CategoryMoveException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryPaths;
+import com.stackroute.keepnote.repository.CategoryRepository;
+import com.stackroute.keepnote.service.CategoryCache;
+import com.stackroute.keepnote.service.CategoryTreeServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CategoryTreeServiceImplTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private CategoryCache categoryCache;
+    private CategoryTreeServiceImpl categoryTreeService;
+    private Category work;
+    private Category projectX;
+    private Category meetings;
+    private Category personal;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        categoryTreeService = new CategoryTreeServiceImpl(categoryRepository, categoryCache);
+        work = category("work", null, "/work/");
+        projectX = category("projectx", "work", "/work/projectx/");
+        meetings = category("meetings", "projectx", "/work/projectx/meetings/");
+        personal = category("personal", null, "/personal/");
+        for (Category category : Arrays.asList(work, projectX, meetings, personal)) {
+            when(categoryRepository.findById(category.getId())).thenReturn(Optional.of(category));
+        }
+    }
+
+    @Test
+    public void subtreeIsOnePrefixQuery() throws Exception {
+        when(categoryRepository.findByPathPrefix("Jhon123", "/work/"))
+                .thenReturn(Arrays.asList(work, projectX, meetings));
+        Assert.assertEquals(3, categoryTreeService.getSubtree("work").size());
+    }
+
+    @Test
+    public void legacyCategoryWithoutPathIsItsOwnRoot() throws Exception {
+        Category legacy = category("legacy", null, null);
+        when(categoryRepository.findById("legacy")).thenReturn(Optional.of(legacy));
+        when(categoryRepository.findByPathPrefix("Jhon123", "/legacy/")).thenReturn(Collections.emptyList());
+        List<Category> subtree = categoryTreeService.getSubtree("legacy");
+        Assert.assertEquals(Collections.singletonList(legacy), subtree);
+    }
+
+    @Test
+    public void moveRewritesSubtreeInOneBulkWrite() throws Exception {
+        List<Category> subtree = Arrays.asList(projectX, meetings);
+        when(categoryRepository.findByPathPrefix("Jhon123", "/work/projectx/")).thenReturn(subtree);
+        when(categoryRepository.moveSubtree("projectx", "personal", "/work/projectx/", "/personal/projectx/", subtree))
+                .thenReturn(2);
+
+        Category moved = categoryTreeService.moveCategory("projectx", "personal");
+        Assert.assertEquals("/personal/projectx/", moved.getPath());
+        Assert.assertEquals("personal", moved.getParentId());
+        verify(categoryCache).invalidate("Jhon123");
+    }
+
+    @Test(expected = CategoryMoveException.class)
+    public void moveBelowOwnDescendantIsRejected() throws Exception {
+        try {
+            categoryTreeService.moveCategory("work", "meetings");
+        } finally {
+            verify(categoryRepository, never()).moveSubtree(anyString(), anyString(), anyString(), anyString(), anyList());
+        }
+    }
+
+    @Test(expected = CategoryMoveException.class)
+    public void concurrentChangeIsReported() throws Exception {
+        List<Category> subtree = Arrays.asList(projectX, meetings);
+        when(categoryRepository.findByPathPrefix("Jhon123", "/work/projectx/")).thenReturn(subtree);
+        when(categoryRepository.moveSubtree(eq("projectx"), eq(null), anyString(), anyString(), anyList())).thenReturn(1);
+        categoryTreeService.moveCategory("projectx", null);
+    }
+
+    @Test
+    public void pathHelpers() {
+        Assert.assertEquals("/personal/projectx/meetings/",
+                CategoryPaths.rebase("/work/projectx/meetings/", "/work/projectx/", "/personal/projectx/"));
+        Assert.assertEquals("^/a\\.b/", CategoryPaths.prefixRegex("/a.b/"));
+        Assert.assertFalse(CategoryPaths.isValidId("a/b"));
+    }
+
+    private Category category(String id, String parentId, String path) {
+        Category category = new Category();
+        category.setId(id);
+        category.setParentId(parentId);
+        category.setPath(path);
+        category.setCategoryCreatedBy("Jhon123");
+        return category;
+    }
+}
@@ -0,0 +1,87 @@
+package com.stackroute.keepnote.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * The NoteService consumes category and reminder change events from the durable
+ * keepnote.events topic exchange, one durable queue per entity so events survive a
+ * NoteService restart. Payloads are read into the type of the listener argument, the
+ * publishers' class names are not trusted.
+ *
+ * The change event listeners acknowledge manually, only after the change was written.
+ * Their prefetch is keepnote.events.batch-size so a whole batch can be in flight.
+ */
+@Configuration
+public class EventsConfig {
+
+	public static final String EXCHANGE = "keepnote.events";
+	public static final String CATEGORY_QUEUE = "note-service.category-events";
+	public static final String REMINDER_QUEUE = "note-service.reminder-events";
+	public static final String MANUAL_ACK_CONTAINER_FACTORY = "manualAckContainerFactory";
+
+	@Bean
+	public TopicExchange eventsExchange() {
+		return new TopicExchange(EXCHANGE, true, false);
+	}
+
+	@Bean
+	public Queue categoryEventsQueue() {
+		return new Queue(CATEGORY_QUEUE, true);
+	}
+
+	@Bean
+	public Queue reminderEventsQueue() {
+		return new Queue(REMINDER_QUEUE, true);
+	}
+
+	@Bean
+	public Binding categoryEventsBinding() {
+		return BindingBuilder.bind(categoryEventsQueue()).to(eventsExchange()).with("category.*");
+	}
+
+	@Bean
+	public Binding reminderEventsBinding() {
+		return BindingBuilder.bind(reminderEventsQueue()).to(eventsExchange()).with("reminder.*");
+	}
+
+	@Bean(name = MANUAL_ACK_CONTAINER_FACTORY)
+	public SimpleRabbitListenerContainerFactory manualAckContainerFactory(
+			SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+			@Value("${keepnote.events.batch-size:500}") int batchSize) {
+		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+		configurer.configure(factory, connectionFactory);
+		factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+		factory.setPrefetchCount(batchSize);
+		return factory;
+	}
+
+	@Bean
+	public MessageConverter eventMessageConverter(ObjectMapper objectMapper) {
+		return messageConverter(objectMapper);
+	}
+
+	public static Jackson2JsonMessageConverter messageConverter(ObjectMapper objectMapper) {
+		Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter(objectMapper);
+		DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+		typeMapper.setTypePrecedence(Jackson2JavaTypeMapper.TypePrecedence.INFERRED);
+		converter.setJavaTypeMapper(typeMapper);
+		return converter;
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.stackroute.keepnote.config;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/*
+ * Helpers for the ?fields= query parameter of the read endpoints. The selected field
+ * names are used twice: as a Mongo projection so the other fields are never loaded,
+ * and as a Jackson property filter so they are never serialized.
+ */
+public final class SparseFields {
+
+	private SparseFields() {
+	}
+
+	/*
+	 * Parses a comma separated field list. Returns null when no fields were asked for,
+	 * meaning the full object. Names that are not fields of the type are rejected.
+	 */
+	public static Set<String> parse(String fields, Class<?> type) {
+
+		if (fields == null || fields.trim().isEmpty()) {
+			return null;
+		}
+
+		Set<String> known = new HashSet<>();
+		for (Field field : type.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				known.add(field.getName());
+			}
+		}
+
+		Set<String> selected = new LinkedHashSet<>();
+		for (String name : fields.split(",")) {
+			String trimmed = name.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			if (!known.contains(trimmed)) {
+				throw new IllegalArgumentException("Unknown field: " + trimmed);
+			}
+			selected.add(trimmed);
+		}
+		return selected.isEmpty() ? null : selected;
+	}
+
+	/*
+	 * Wraps a response body so that only the selected fields of the filtered type are
+	 * written. Nested objects of other types are written in full.
+	 */
+	public static MappingJacksonValue filter(Object body, String filterId, Set<String> fields) {
+
+		MappingJacksonValue value = new MappingJacksonValue(body);
+		value.setFilters(new SimpleFilterProvider().setFailOnUnknownId(false).addFilter(filterId,
+				SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+		return value;
+	}
+
+}
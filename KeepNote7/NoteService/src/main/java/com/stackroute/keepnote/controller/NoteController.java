@@ -1,5 +1,11 @@
 package com.stackroute.keepnote.controller;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,12 +18,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.stackroute.keepnote.config.SparseFields;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.stackroute.keepnote.exception.NoteNotFoundExeption;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteLookup;
+import com.stackroute.keepnote.service.IdempotencyService;
+import com.stackroute.keepnote.service.MarkdownRenderService;
 import com.stackroute.keepnote.service.NoteService;
+import com.stackroute.keepnote.service.OrderKeys;
 
 import io.jsonwebtoken.Claims;
 import io.swagger.annotations.Api;
@@ -37,6 +51,9 @@ import io.swagger.annotations.ApiOperation;
 @RequestMapping
 public class NoteController {
 
+	/* upper bound for the ids of one multi-get request */
+	private static final int MAX_IDS = 200;
+
 	/*
 	 * Autowiring should be implemented for the NoteService. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
@@ -46,10 +63,18 @@ public class NoteController {
 	@Autowired
 	private NoteService noteService;
 	
+	@Autowired
+	private IdempotencyService idempotencyService;
+	
+	@Autowired
+	private MarkdownRenderService markdownRenderService;
 
-	public NoteController(NoteService noteService) {
+	public NoteController(NoteService noteService, IdempotencyService idempotencyService,
+			MarkdownRenderService markdownRenderService) {
 		
 		this.noteService=noteService;
+		this.idempotencyService=idempotencyService;
+		this.markdownRenderService=markdownRenderService;
 	}
 
 	/*
@@ -60,21 +85,52 @@ public class NoteController {
 	 * 1. 201(CREATED) - If the note created successfully. 
 	 * 2. 409(CONFLICT) - If the noteId conflicts with any existing user.
 	 * 
+	 * When the client sends an Idempotency-Key header, the outcome is recorded against
+	 * that key and a retry carrying the same key is answered with the recorded response
+	 * without creating the note again. A retry that arrives while the first request is
+	 * still running gets 409, reusing the key with a different body gets 422.
+	 * 
 	 * This handler method should map to the URL "/api/v1/note" using HTTP POST method
 	 */
 	@ApiOperation(value="Create a Note")
 	@PostMapping("/api/v1/note")
-	public ResponseEntity<?> createNote(@RequestBody Note note, HttpServletRequest request) {
+	public ResponseEntity<?> createNote(@RequestBody Note note, HttpServletRequest request,
+			@RequestHeader(value="Idempotency-Key", required=false) String idempotencyKey) {
 		
 		System.out.println("note:::: ----------"+note);
 		Claims claims = (Claims) request.getAttribute("claims");
 		note.setNoteCreatedBy(claims.getSubject());
-		boolean flag = noteService.createNote(note);
-		if(flag) {
-			return new ResponseEntity<Note>(HttpStatus.CREATED);
+		
+		String key = null;
+		String fingerprint = null;
+		if(idempotencyKey != null) {
+			key = "note:" + claims.getSubject() + ":" + idempotencyKey;
+			fingerprint = idempotencyService.fingerprint(note);
+			ResponseEntity<?> stored = idempotencyService.reserve(key, fingerprint);
+			if(stored != null) {
+				return stored;
+			}
 		}
 		
-		return new ResponseEntity<Note>(HttpStatus.CONFLICT);
+		ResponseEntity<Note> response;
+		try {
+			boolean flag = noteService.createNote(note);
+			if(flag) {
+				response = new ResponseEntity<Note>(HttpStatus.CREATED);
+			} else {
+				response = new ResponseEntity<Note>(HttpStatus.CONFLICT);
+			}
+		} catch (RuntimeException e) {
+			if(key != null) {
+				idempotencyService.complete(key, fingerprint, new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+			}
+			throw e;
+		}
+		
+		if(key != null) {
+			idempotencyService.complete(key, fingerprint, response);
+		}
+		return response;
 		
 	}
 
@@ -157,25 +213,77 @@ public class NoteController {
 	 * different situations: 
 	 * 1. 200(OK) - If the note found successfully. 
 	 * 
+	 * With ?render=html every note also carries noteContentHtml, the Markdown of
+	 * noteContent rendered on the server. With ?fields=noteId,noteTitle only the
+	 * listed fields are loaded and returned, 400(BAD REQUEST) for unknown fields.
+	 * ?sort=order lists pinned notes first, then in the manual drag-and-drop order.
+	 * 
 	 * This handler method should map to the URL "/api/v1/note" using HTTP GET method
 	 */
 	@ApiOperation(value="Get all notes by a userId")
 	@GetMapping("/api/v1/note/{userId}")
-	public ResponseEntity<?> getAllNotesByUserId(@PathVariable String userId) {
+	public ResponseEntity<?> getAllNotesByUserId(@PathVariable String userId,
+			@RequestParam(value="render", required=false) String render,
+			@RequestParam(value="fields", required=false) String fields,
+			@RequestParam(value="sort", required=false) String sort) {
 		
-		return new ResponseEntity<>(noteService.getAllNoteByUserId(userId), HttpStatus.OK);
+		return getNotes(userId, render, fields, sort);
 		
 	}
 	
+	/*
+	 * Define a handler method which will get many notes of a user by id in one call.
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 
+	 * 1. 200(OK) - One entry per requested id, in request order. Ids without a note
+	 *    are returned with status NOT_FOUND instead of failing the whole request.
+	 * 2. 400(BAD REQUEST) - If more than MAX_IDS ids or unknown fields are requested.
+	 * 
+	 * ?render=html and ?fields= apply to the returned notes as for the note list.
+	 * 
+	 * This handler method should map to the URL "/api/v1/note/{userId}?ids=1,2,3" using
+	 * HTTP GET method
+	 */
+	@ApiOperation(value="Get many notes of a userId by noteId")
+	@GetMapping(value="/api/v1/note/{userId}", params="ids")
+	public ResponseEntity<?> getNotesByIds(@PathVariable String userId, @RequestParam("ids") List<Integer> ids,
+			@RequestParam(value="render", required=false) String render,
+			@RequestParam(value="fields", required=false) String fields) {
+		
+		Set<String> selected;
+		try {
+			selected = SparseFields.parse(fields, Note.class);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		if(ids.size() > MAX_IDS) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		
+		List<NoteLookup> lookups = noteService.getNotesByNoteIds(userId, ids,
+				selected == null ? null : projection(selected, render));
+		if("html".equals(render)) {
+			for(NoteLookup lookup : lookups) {
+				if(lookup.getNote() != null) {
+					lookup.getNote().setNoteContentHtml(markdownRenderService.renderHtml(lookup.getNote().getNoteContent()));
+				}
+			}
+		}
+		return new ResponseEntity<>(body(lookups, selected), HttpStatus.OK);
+	}
+	
 	@ApiOperation(value="Get all notes using login user details")
 	@GetMapping("/api/v1/note")
-	public ResponseEntity<?> getAllNotes(HttpServletRequest request) {
+	public ResponseEntity<?> getAllNotes(HttpServletRequest request,
+			@RequestParam(value="render", required=false) String render,
+			@RequestParam(value="fields", required=false) String fields,
+			@RequestParam(value="sort", required=false) String sort) {
 		
 		Claims claims = (Claims) request.getAttribute("claims");
 		
 		System.out.println("Claims Subject"+claims.getSubject());
 		
-		return new ResponseEntity<>(noteService.getAllNoteByUserId(claims.getSubject()), HttpStatus.OK);
+		return getNotes(claims.getSubject(), render, fields, sort);
 		
 	}
 	
@@ -185,22 +293,90 @@ public class NoteController {
 	 * different situations: 
 	 * 1. 200(OK) - If the note found successfully. 
 	 * 2. 404(NOT FOUND) - If the note with specified noteId is not found.
+	 * With ?render=html the note also carries noteContentHtml, ?fields= limits the
+	 * loaded and returned fields as for the note list.
 	 * This handler method should map to the URL "/api/v1/note/{userId}/{noteId}" using HTTP GET method
 	 * where "id" should be replaced by a valid reminderId without {}
 	 * 
 	 */
 	@ApiOperation(value="Get specific note by a userId")
 	@GetMapping("/api/v1/note/{userId}/{noteId}")
-	public ResponseEntity<?> getNote(@PathVariable String userId, @PathVariable int noteId) {
+	public ResponseEntity<?> getNote(@PathVariable String userId, @PathVariable int noteId,
+			@RequestParam(value="render", required=false) String render,
+			@RequestParam(value="fields", required=false) String fields) {
+		
+		Set<String> selected;
+		try {
+			selected = SparseFields.parse(fields, Note.class);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 		
 		try {
-			Note note = noteService.getNoteByNoteId(userId, noteId);
-			return new ResponseEntity<>(note, HttpStatus.OK);
+			Note note = selected == null ? noteService.getNoteByNoteId(userId, noteId)
+					: noteService.getNoteByNoteId(userId, noteId, projection(selected, render));
+			if("html".equals(render) && note != null) {
+				note.setNoteContentHtml(markdownRenderService.renderHtml(note.getNoteContent()));
+			}
+			return new ResponseEntity<>(body(note, selected), HttpStatus.OK);
 		} catch (NoteNotFoundExeption e) {
 			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 		}
 		
 	}
+	
+	private ResponseEntity<?> getNotes(String userId, String render, String fields, String sort) {
+		
+		Set<String> selected;
+		try {
+			selected = SparseFields.parse(fields, Note.class);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		
+		boolean manualOrder = "order".equals(sort);
+		Set<String> projection = null;
+		if(selected != null) {
+			projection = new HashSet<>(projection(selected, render));
+			if(manualOrder) {
+				projection.addAll(Arrays.asList("noteId", "orderKey", "pinned"));
+			}
+		}
+		
+		List<Note> notes = selected == null ? noteService.getAllNoteByUserId(userId)
+				: noteService.getAllNoteByUserId(userId, projection);
+		if(manualOrder && notes != null) {
+			notes = new ArrayList<>(notes);
+			notes.sort(OrderKeys.DISPLAY_ORDER);
+		}
+		return new ResponseEntity<>(body(render(notes, render), selected), HttpStatus.OK);
+	}
+	
+	/* rendering needs noteContent even when only noteContentHtml was asked for */
+	private Set<String> projection(Set<String> selected, String render) {
+		
+		if("html".equals(render) && selected.contains("noteContentHtml")) {
+			Set<String> projection = new HashSet<>(selected);
+			projection.add("noteContent");
+			return projection;
+		}
+		return selected;
+	}
+	
+	private Object body(Object body, Set<String> selected) {
+		
+		return selected == null ? body : SparseFields.filter(body, SparseFieldsConfig.NOTE_FILTER, selected);
+	}
+	
+	private List<Note> render(List<Note> notes, String render) {
+		
+		if("html".equals(render) && notes != null) {
+			for(Note note : notes) {
+				note.setNoteContentHtml(markdownRenderService.renderHtml(note.getNoteContent()));
+			}
+		}
+		return notes;
+	}
 
 
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.stackroute.keepnote.controller;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.stackroute.keepnote.exception.ImportJobNotFoundException;
+import com.stackroute.keepnote.model.ImportJob;
+import com.stackroute.keepnote.service.NoteImportService;
+
+import io.jsonwebtoken.Claims;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@CrossOrigin(origins="http://localhost:4200")
+@RestController
+@Api
+public class NoteImportController {
+
+	@Autowired
+	private NoteImportService noteImportService;
+
+	public NoteImportController(NoteImportService noteImportService) {
+		this.noteImportService = noteImportService;
+	}
+
+	/*
+	 * Define a handler method which will accept a zip (Markdown/text/CSV entries) or
+	 * CSV archive for the logged in user and queue the import. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 202(ACCEPTED) - If the import job was queued, the job is returned in the body.
+	 * 2. 400(BAD REQUEST) - If the file is empty or neither a zip nor a CSV file.
+	 * 3. 503(SERVICE UNAVAILABLE) - If too many imports are already queued.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/import" using HTTP POST method
+	 */
+	@ApiOperation(value="Import notes from a zip or CSV archive")
+	@PostMapping("/api/v1/note/import")
+	public ResponseEntity<?> importNotes(@RequestParam("file") MultipartFile file, HttpServletRequest request) {
+
+		String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+		if (file.isEmpty() || !(fileName.endsWith(".zip") || fileName.endsWith(".csv"))) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		try {
+			ImportJob job = noteImportService.startImport(claims.getSubject(), file);
+			return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+		} catch (RejectedExecutionException e) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		} catch (IOException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	/*
+	 * Define a handler method which will return the progress of an import job started
+	 * by the logged in user.
+	 * 1. 200(OK) - If the job was found.
+	 * 2. 404(NOT FOUND) - If there is no such job for the user.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/import/{jobId}" using HTTP GET method
+	 */
+	@ApiOperation(value="Get the status of a note import")
+	@GetMapping("/api/v1/note/import/{jobId}")
+	public ResponseEntity<?> getImportJob(@PathVariable String jobId, HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		try {
+			return new ResponseEntity<>(noteImportService.getImportJob(claims.getSubject(), jobId), HttpStatus.OK);
+		} catch (ImportJobNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.stackroute.keepnote.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.service.NoteLinkService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@CrossOrigin(origins="http://localhost:4200")
+@RestController
+@Api
+public class NoteLinkController {
+
+	@Autowired
+	private NoteLinkService noteLinkService;
+
+	public NoteLinkController(NoteLinkService noteLinkService) {
+		this.noteLinkService = noteLinkService;
+	}
+
+	/*
+	 * Define a handler method which will list the ids of the notes linking to a note.
+	 * 1. 200(OK) - The list of note ids, empty if nothing links to the note.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/{noteId}/backlinks"
+	 * using HTTP GET method
+	 */
+	@ApiOperation(value="List the notes linking to a note")
+	@GetMapping("/api/v1/note/{userId}/{noteId}/backlinks")
+	public ResponseEntity<?> getBacklinks(@PathVariable String userId, @PathVariable int noteId) {
+
+		return new ResponseEntity<>(noteLinkService.getBacklinks(userId, noteId), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return the notes within the given number of
+	 * link hops of a note, following links in both directions.
+	 * 1. 200(OK) - The neighborhood, hop counts per note and the links between them.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/{noteId}/neighborhood"
+	 * using HTTP GET method
+	 */
+	@ApiOperation(value="Get the link neighborhood of a note")
+	@GetMapping("/api/v1/note/{userId}/{noteId}/neighborhood")
+	public ResponseEntity<?> getNeighborhood(@PathVariable String userId, @PathVariable int noteId,
+			@RequestParam(value="hops", defaultValue="1") int hops) {
+
+		return new ResponseEntity<>(noteLinkService.getNeighborhood(userId, noteId, hops), HttpStatus.OK);
+	}
+
+}
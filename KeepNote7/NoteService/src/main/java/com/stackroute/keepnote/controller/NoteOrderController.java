@@ -0,0 +1,83 @@
+package com.stackroute.keepnote.controller;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.exception.NoteOrderConflictException;
+import com.stackroute.keepnote.service.NoteOrderService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@CrossOrigin(origins="http://localhost:4200")
+@RestController
+@Api
+public class NoteOrderController {
+
+	@Autowired
+	private NoteOrderService noteOrderService;
+
+	public NoteOrderController(NoteOrderService noteOrderService) {
+		this.noteOrderService = noteOrderService;
+	}
+
+	/*
+	 * Define a handler method which will move a note in the manual order, between the
+	 * note it was dropped after and the note it was dropped before. Leave out "after"
+	 * to move it to the start and "before" to move it to the end. Only the moved note
+	 * is written.
+	 * 1. 200(OK) - The note was moved, the body carries its new orderKey.
+	 * 2. 404(NOT FOUND) - If the note or one of the neighbours is not found.
+	 * 3. 409(CONFLICT) - If the neighbours are not in that order any more.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/{noteId}/position"
+	 * using HTTP PUT method
+	 */
+	@ApiOperation(value="Move a note in the manual order")
+	@PutMapping("/api/v1/note/{userId}/{noteId}/position")
+	public ResponseEntity<?> moveNote(@PathVariable String userId, @PathVariable int noteId,
+			@RequestParam(value="after", required=false) Integer after,
+			@RequestParam(value="before", required=false) Integer before) {
+
+		try {
+			String orderKey = noteOrderService.moveNote(userId, noteId, after, before);
+			return new ResponseEntity<>(Collections.singletonMap("orderKey", orderKey), HttpStatus.OK);
+		} catch (NoteNotFoundExeption e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		} catch (NoteOrderConflictException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+	}
+
+	/*
+	 * Define a handler method which will pin or unpin a note. Pinned notes are listed
+	 * before all other notes.
+	 * 1. 200(OK) - If the note was updated.
+	 * 2. 404(NOT FOUND) - If the note is not found.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/{noteId}/pin"
+	 * using HTTP PUT method
+	 */
+	@ApiOperation(value="Pin or unpin a note")
+	@PutMapping("/api/v1/note/{userId}/{noteId}/pin")
+	public ResponseEntity<?> pinNote(@PathVariable String userId, @PathVariable int noteId,
+			@RequestParam(value="pinned", defaultValue="true") boolean pinned) {
+
+		try {
+			noteOrderService.pinNote(userId, noteId, pinned);
+			return new ResponseEntity<>(HttpStatus.OK);
+		} catch (NoteNotFoundExeption e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+}
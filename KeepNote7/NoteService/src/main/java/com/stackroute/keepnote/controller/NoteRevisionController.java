@@ -0,0 +1,64 @@
+package com.stackroute.keepnote.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.service.NoteRevisionService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@CrossOrigin(origins="http://localhost:4200")
+@RestController
+@Api
+public class NoteRevisionController {
+
+	@Autowired
+	private NoteRevisionService noteRevisionService;
+
+	public NoteRevisionController(NoteRevisionService noteRevisionService) {
+		this.noteRevisionService = noteRevisionService;
+	}
+
+	/*
+	 * Define a handler method which will list the revisions of a note, newest first.
+	 * Only the revision metadata (number, date, title, length) is returned.
+	 * 1. 200(OK) - The list of revisions, empty if the note has no history.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/{noteId}/revisions"
+	 * using HTTP GET method
+	 */
+	@ApiOperation(value="List the revisions of a note")
+	@GetMapping("/api/v1/note/{userId}/{noteId}/revisions")
+	public ResponseEntity<?> getRevisions(@PathVariable String userId, @PathVariable int noteId) {
+
+		return new ResponseEntity<>(noteRevisionService.getRevisions(userId, noteId), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return a note as it was at a given revision.
+	 * 1. 200(OK) - If the revision exists.
+	 * 2. 404(NOT FOUND) - If the note has no such revision.
+	 *
+	 * This handler method should map to the URL
+	 * "/api/v1/note/{userId}/{noteId}/revisions/{revision}" using HTTP GET method
+	 */
+	@ApiOperation(value="Get a note as it was at a given revision")
+	@GetMapping("/api/v1/note/{userId}/{noteId}/revisions/{revision}")
+	public ResponseEntity<?> getRevision(@PathVariable String userId, @PathVariable int noteId,
+			@PathVariable int revision) {
+
+		try {
+			return new ResponseEntity<>(noteRevisionService.getNoteAtRevision(userId, noteId, revision), HttpStatus.OK);
+		} catch (NoteNotFoundExeption e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+}
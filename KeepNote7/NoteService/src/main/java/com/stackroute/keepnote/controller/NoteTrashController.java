@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.exception.NoteAlreadyExistsException;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.service.NoteTrashService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@CrossOrigin(origins="http://localhost:4200")
+@RestController
+@Api
+public class NoteTrashController {
+
+	@Autowired
+	private NoteTrashService noteTrashService;
+
+	public NoteTrashController(NoteTrashService noteTrashService) {
+		this.noteTrashService = noteTrashService;
+	}
+
+	/*
+	 * Define a handler method which will list the deleted notes of a user, most
+	 * recently deleted first. Trashed notes are purged automatically after the
+	 * retention time.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/trash" using
+	 * HTTP GET method
+	 */
+	@ApiOperation(value="List the deleted Notes of a user")
+	@GetMapping("/api/v1/note/{userId}/trash")
+	public ResponseEntity<?> getTrash(@PathVariable String userId) {
+
+		return new ResponseEntity<>(noteTrashService.getTrash(userId), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will restore a deleted note. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - If the note was restored, the body carries the note.
+	 * 2. 404(NOT FOUND) - If the note is not in the user's trash.
+	 * 3. 409(CONFLICT) - If a note with the same id exists again.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/{userId}/trash/{noteId}/restore"
+	 * using HTTP POST method
+	 */
+	@ApiOperation(value="Restore a deleted Note")
+	@PostMapping("/api/v1/note/{userId}/trash/{noteId}/restore")
+	public ResponseEntity<?> restoreNote(@PathVariable String userId, @PathVariable int noteId) {
+
+		try {
+			return new ResponseEntity<>(noteTrashService.restoreNote(userId, noteId), HttpStatus.OK);
+		} catch (NoteNotFoundExeption e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		} catch (NoteAlreadyExistsException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+	}
+
+}
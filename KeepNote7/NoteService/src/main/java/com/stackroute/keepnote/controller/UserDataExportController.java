@@ -0,0 +1,59 @@
+package com.stackroute.keepnote.controller;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.stackroute.keepnote.service.UserDataExportService;
+
+import io.jsonwebtoken.Claims;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@CrossOrigin(origins="http://localhost:4200")
+@RestController
+@Api
+public class UserDataExportController {
+
+	@Autowired
+	private UserDataExportService userDataExportService;
+
+	public UserDataExportController(UserDataExportService userDataExportService) {
+		this.userDataExportService = userDataExportService;
+	}
+
+	/*
+	 * Define a handler method which will download everything stored for the logged in
+	 * user (notes, categories and reminders) as a zip archive. The archive is streamed
+	 * to the client while it is being built.
+	 * 1. 200(OK) - The zip archive is streamed in the body.
+	 * 2. 503(SERVICE UNAVAILABLE) - If too many exports are already running.
+	 *
+	 * This handler method should map to the URL "/api/v1/note/export" using HTTP GET method
+	 */
+	@ApiOperation(value="Download all notes, categories and reminders of the logged in user")
+	@GetMapping(value="/api/v1/note/export", produces="application/zip")
+	public ResponseEntity<StreamingResponseBody> exportUserData(HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		try {
+			StreamingResponseBody body = userDataExportService.startExport(claims.getSubject(),
+					request.getHeader(HttpHeaders.AUTHORIZATION));
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"keepnote-export.zip\"");
+			return new ResponseEntity<>(body, headers, HttpStatus.OK);
+		} catch (RejectedExecutionException e) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.stackroute.keepnote.exception;
+
+public class ImportJobNotFoundException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public ImportJobNotFoundException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,11 @@
+package com.stackroute.keepnote.exception;
+
+public class NoteOrderConflictException extends Exception{
+	
+	private static final long serialVersionUID = 1L;
+
+	public NoteOrderConflictException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,53 @@
+package com.stackroute.keepnote.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * Counts the bytes consumed from the wrapped stream, used to report import progress
+ * against the size of the uploaded archive.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	private volatile long count;
+
+	public CountingInputStream(InputStream in) {
+		super(in);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if (result != -1) {
+			count++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int result = super.read(b, off, len);
+		if (result > 0) {
+			count += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+		count += result;
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.stackroute.keepnote.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Reads notes from CSV (RFC 4180 quoting, quoted fields may span lines). The first
+ * record is the header, the columns title, content and status (or noteTitle,
+ * noteContent, noteStatus) are mapped onto the note, other columns are ignored.
+ * Fields longer than maxFieldLength are rejected so that a malformed file cannot
+ * make the reader buffer an unbounded amount of text.
+ */
+public class CsvNoteReader implements NoteRecordReader {
+
+	private final Reader reader;
+	private final int maxFieldLength;
+	private int titleColumn = -1;
+	private int contentColumn = -1;
+	private int statusColumn = -1;
+	private boolean endOfInput;
+	private long recordNumber;
+
+	public CsvNoteReader(Reader reader, int maxFieldLength) throws IOException {
+		this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
+		this.maxFieldLength = maxFieldLength;
+		readHeader();
+	}
+
+	public Note next() throws IOException {
+
+		List<String> record;
+		do {
+			record = nextRecord();
+			if (record == null) {
+				return null;
+			}
+		} while (record.size() == 1 && record.get(0).isEmpty());
+
+		Note note = new Note();
+		note.setNoteTitle(column(record, titleColumn));
+		note.setNoteContent(column(record, contentColumn));
+		note.setNoteStatus(column(record, statusColumn));
+		return note;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void readHeader() throws IOException {
+
+		List<String> header = nextRecord();
+		if (header == null) {
+			return;
+		}
+		for (int i = 0; i < header.size(); i++) {
+			String name = header.get(i).trim().toLowerCase();
+			if (name.equals("title") || name.equals("notetitle")) {
+				titleColumn = i;
+			} else if (name.equals("content") || name.equals("notecontent")) {
+				contentColumn = i;
+			} else if (name.equals("status") || name.equals("notestatus")) {
+				statusColumn = i;
+			}
+		}
+		if (titleColumn < 0 && contentColumn < 0) {
+			throw new IOException("CSV header must contain a title or content column");
+		}
+	}
+
+	private String column(List<String> record, int index) {
+		return index >= 0 && index < record.size() ? record.get(index) : null;
+	}
+
+	/*
+	 * Returns the fields of the next record, or null at the end of the input.
+	 */
+	private List<String> nextRecord() throws IOException {
+
+		if (endOfInput) {
+			return null;
+		}
+
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean fieldStarted = false;
+		recordNumber++;
+
+		while (true) {
+			int c = reader.read();
+			if (c == -1) {
+				endOfInput = true;
+				if (quoted) {
+					throw new IOException("Unterminated quoted field in CSV record " + recordNumber);
+				}
+				if (!fieldStarted && fields.isEmpty()) {
+					return null;
+				}
+				fields.add(field.toString());
+				return fields;
+			}
+
+			if (quoted) {
+				if (c == '"') {
+					reader.mark(1);
+					int following = reader.read();
+					if (following == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						if (following != -1) {
+							reader.reset();
+						}
+					}
+				} else {
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+				fieldStarted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+				fieldStarted = true;
+			} else if (c == '\n') {
+				fields.add(field.toString());
+				return fields;
+			} else if (c != '\r') {
+				field.append((char) c);
+				fieldStarted = true;
+			}
+
+			if (field.length() > maxFieldLength) {
+				throw new IOException("CSV field in record " + recordNumber + " exceeds " + maxFieldLength
+						+ " characters");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.stackroute.keepnote.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Pull parser over an import archive. Each call to next() reads just enough of the
+ * underlying stream to produce one note, so the caller decides how fast the archive
+ * is consumed and only one note is held by the reader at any time.
+ */
+public interface NoteRecordReader extends Closeable {
+
+	/*
+	 * Returns the next note of the archive, or null once the archive is exhausted.
+	 */
+	Note next() throws IOException;
+
+}
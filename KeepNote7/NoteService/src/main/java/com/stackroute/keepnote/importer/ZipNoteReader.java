@@ -0,0 +1,107 @@
+package com.stackroute.keepnote.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Reads notes from a zip archive entry by entry. Markdown and text entries become one
+ * note each (the first "# " heading, or else the file name, is used as title), CSV
+ * entries are handed to a CsvNoteReader. Other entries are skipped. Entries are read
+ * straight from the zip stream, nothing beyond the current note is buffered and an
+ * entry larger than maxNoteLength characters is rejected.
+ */
+public class ZipNoteReader implements NoteRecordReader {
+
+	private final ZipInputStream zip;
+	private final int maxNoteLength;
+	private CsvNoteReader csvEntry;
+
+	public ZipNoteReader(InputStream inputStream, int maxNoteLength) {
+		this.zip = new ZipInputStream(inputStream, StandardCharsets.UTF_8);
+		this.maxNoteLength = maxNoteLength;
+	}
+
+	public Note next() throws IOException {
+
+		while (true) {
+			if (csvEntry != null) {
+				Note note = csvEntry.next();
+				if (note != null) {
+					return note;
+				}
+				/* the CSV reader shares the zip stream, so it is dropped rather than closed */
+				csvEntry = null;
+			}
+
+			ZipEntry entry = zip.getNextEntry();
+			if (entry == null) {
+				return null;
+			}
+			if (entry.isDirectory()) {
+				continue;
+			}
+
+			String name = entry.getName();
+			String lowerName = name.toLowerCase();
+			if (lowerName.endsWith(".csv")) {
+				csvEntry = new CsvNoteReader(new InputStreamReader(zip, StandardCharsets.UTF_8), maxNoteLength);
+			} else if (lowerName.endsWith(".md") || lowerName.endsWith(".markdown") || lowerName.endsWith(".txt")) {
+				return readTextEntry(name);
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		zip.close();
+	}
+
+	private Note readTextEntry(String name) throws IOException {
+
+		InputStreamReader reader = new InputStreamReader(zip, StandardCharsets.UTF_8);
+		StringBuilder content = new StringBuilder();
+		char[] buffer = new char[8192];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			content.append(buffer, 0, read);
+			if (content.length() > maxNoteLength) {
+				throw new IOException("Archive entry " + name + " exceeds " + maxNoteLength + " characters");
+			}
+		}
+
+		Note note = new Note();
+		note.setNoteTitle(titleOf(name, content));
+		note.setNoteContent(content.toString());
+		return note;
+	}
+
+	private String titleOf(String name, CharSequence content) {
+
+		int lineStart = 0;
+		int length = content.length();
+		while (lineStart < length) {
+			int lineEnd = lineStart;
+			while (lineEnd < length && content.charAt(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			String line = content.subSequence(lineStart, lineEnd).toString().trim();
+			if (line.startsWith("# ")) {
+				return line.substring(2).trim();
+			}
+			if (!line.isEmpty()) {
+				break;
+			}
+			lineStart = lineEnd + 1;
+		}
+
+		String fileName = name.substring(name.lastIndexOf('/') + 1);
+		int dot = fileName.lastIndexOf('.');
+		return dot > 0 ? fileName.substring(0, dot) : fileName;
+	}
+
+}
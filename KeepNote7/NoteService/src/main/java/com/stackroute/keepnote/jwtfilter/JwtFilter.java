@@ -4,8 +4,13 @@ package com.stackroute.keepnote.jwtfilter;
 import org.springframework.web.filter.GenericFilterBean;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -14,58 +19,194 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 
-/* This class implements the custom filter by extending org.springframework.web.filter.GenericFilterBean.  
+/* This class implements the custom filter by extending org.springframework.web.filter.GenericFilterBean.
  * Override the doFilter method with ServletRequest, ServletResponse and FilterChain.
  * This is used to authorize the API access for the application.
+ *
+ * The signing key and the parser are built once. Verified claims are cached by the
+ * SHA-256 of the token, at most maxEntries tokens, least recently used first out. A
+ * cached entry is only used until the token expires and for at most maxTtlMillis,
+ * after that the token is parsed and verified again, so an expired token is still
+ * rejected by the parser. Tokens that fail verification are never cached.
+ *
+ * In trusted gateway mode (a gateway secret is given) a request that carries the
+ * identity headers of the Zuul gateway's JwtAuthenticationFilter is not parsed
+ * again: X-Auth-Signature must be the HMAC-SHA256 of "X-Auth-User\nX-Auth-Expires"
+ * under the shared secret and X-Auth-Expires must not have passed. Requests without
+ * these headers still need a bearer token.
+ *
+ * A token whose id is in the TokenRevocationList is rejected, cached or not. The
+ * gateway identity is not checked against it, the gateway only signs identities for
+ * tokens it found unrevoked.
  */
 
 
 public class JwtFilter extends GenericFilterBean {
 
-	
-	
-	
+	/* the same bytes signWith(SignatureAlgorithm.HS256, "secretkey") signs with */
+	private static final Key SIGNING_KEY = new SecretKeySpec(TextCodec.BASE64.decode("secretkey"),
+			SignatureAlgorithm.HS256.getJcaName());
+
+	private static final String USER_HEADER = "X-Auth-User";
+	private static final String EXPIRES_HEADER = "X-Auth-Expires";
+	private static final String SIGNATURE_HEADER = "X-Auth-Signature";
+
+	private final JwtParser parser = Jwts.parser().setSigningKey(SIGNING_KEY);
+	private final SecretKeySpec gatewayKey;
+	private final TokenRevocationList revocations;
+	private final int maxEntries;
+	private final long maxTtlMillis;
+	private final Map<String, CachedClaims> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	public JwtFilter() {
+		this(10000, 300000);
+	}
+
+	public JwtFilter(int maxEntries, long maxTtlMillis) {
+		this(maxEntries, maxTtlMillis, null);
+	}
+
+	public JwtFilter(int maxEntries, long maxTtlMillis, String gatewaySecret) {
+		this(maxEntries, maxTtlMillis, gatewaySecret, null);
+	}
+
+	public JwtFilter(int maxEntries, long maxTtlMillis, String gatewaySecret, TokenRevocationList revocations) {
+		this.revocations = revocations;
+		this.gatewayKey = gatewaySecret == null ? null
+				: new SecretKeySpec(gatewaySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+		this.maxEntries = maxEntries;
+		this.maxTtlMillis = maxTtlMillis;
+	}
 
 	/*
 	 * Override the doFilter method of GenericFilterBean.
      * Retrieve the "authorization" header from the HttpServletRequest object.
      * Retrieve the "Bearer" token from "authorization" header.
-     * If authorization header is invalid, throw Exception with message. 
+     * If authorization header is invalid, throw Exception with message.
      * Parse the JWT token and get claims from the token using the secret key
      * Set the request attribute with the retrieved claims
      * Call FilterChain object's doFilter() method */
-	
-	
+
+
     @Override
     public void doFilter(ServletRequest req, ServletResponse res, FilterChain filterChain) throws IOException, ServletException {
 
     	final HttpServletRequest request = (HttpServletRequest) req;
 		final HttpServletResponse response = (HttpServletResponse) res;
-		System.out.println("-------------------------------------------------------");
-		
 		final String authHeader = request.getHeader("authorization");
-		System.out.println("authHeader ::"+ authHeader);
-		System.out.println("request.getMethod() ::"+ request.getMethod());
-		System.out.println("-------------------------------------------------------");
 		if ("OPTIONS".equals(request.getMethod())) {
 			response.setStatus(HttpServletResponse.SC_OK);
 			filterChain.doFilter(req, res);
+		} else if (gatewayKey != null && request.getHeader(SIGNATURE_HEADER) != null) {
+			request.setAttribute("claims", gatewayClaims(request));
+			filterChain.doFilter(req, res);
 		} else {
 			if (authHeader == null || !authHeader.startsWith("Bearer ")) {
 				throw new ServletException("Missing or invalid Authorization header");
 			}
 			final String token = authHeader.substring(7);
-			final Claims claims = Jwts.parser()
-									  .setSigningKey("secretkey")
-									  .parseClaimsJws(token)
-									  .getBody();
+			final Claims claims = verify(token);
+			if (revocations != null && revocations.isRevoked(claims.getId())) {
+				throw new ServletException("Token has been revoked");
+			}
 			request.setAttribute("claims", claims);
-			System.out.println("Claims Subject"+claims.getSubject());
 			filterChain.doFilter(req, res);
 		}
 
     }
-}
\ No newline at end of file
+
+	private Claims gatewayClaims(HttpServletRequest request) throws ServletException {
+
+		String user = request.getHeader(USER_HEADER);
+		String expires = request.getHeader(EXPIRES_HEADER);
+		if (user == null || expires == null) {
+			throw new ServletException("Incomplete gateway identity");
+		}
+		byte[] expected;
+		byte[] signature;
+		long expiresAt;
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(gatewayKey);
+			expected = mac.doFinal((user + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+			signature = Base64.getUrlDecoder().decode(request.getHeader(SIGNATURE_HEADER));
+			expiresAt = Long.parseLong(expires);
+		} catch (IllegalArgumentException e) {
+			throw new ServletException("Invalid gateway identity");
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+		if (!MessageDigest.isEqual(expected, signature)) {
+			throw new ServletException("Invalid gateway identity");
+		}
+		if (System.currentTimeMillis() >= expiresAt) {
+			throw new ServletException("Expired gateway identity");
+		}
+		return Jwts.claims().setSubject(user).setExpiration(new Date(expiresAt));
+	}
+
+	private Claims verify(String token) {
+
+		long now = System.currentTimeMillis();
+		String key = tokenHash(token);
+		synchronized (cache) {
+			CachedClaims cached = cache.get(key);
+			if (cached != null) {
+				if (now < cached.validUntil) {
+					return cached.claims;
+				}
+				cache.remove(key);
+			}
+		}
+
+		Claims claims = parser.parseClaimsJws(token).getBody();
+
+		Date expiration = claims.getExpiration();
+		long validUntil = now + maxTtlMillis;
+		if (expiration != null) {
+			validUntil = Math.min(validUntil, expiration.getTime());
+		}
+		if (validUntil > now && maxEntries > 0) {
+			synchronized (cache) {
+				cache.put(key, new CachedClaims(claims, validUntil));
+				if (cache.size() > maxEntries) {
+					cache.remove(cache.keySet().iterator().next());
+				}
+			}
+		}
+		return claims;
+	}
+
+	private String tokenHash(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class CachedClaims {
+
+		private final Claims claims;
+		private final long validUntil;
+
+		CachedClaims(Claims claims, long validUntil) {
+			this.claims = claims;
+			this.validUntil = validUntil;
+		}
+
+	}
+}
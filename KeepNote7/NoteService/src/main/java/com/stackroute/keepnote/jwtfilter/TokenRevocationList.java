@@ -0,0 +1,165 @@
+package com.stackroute.keepnote.jwtfilter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.stackroute.keepnote.model.TokenRevokedEvent;
+
+/*
+ * The ids (jti) of tokens revoked at the UserAuthentication-Service, each kept
+ * until its token expires. isRevoked() runs on every request, so it asks a Bloom
+ * filter first and only looks the id up in the exact map on a probable hit: a token
+ * that was never revoked costs a few bit probes. The filter is sized for
+ * keepnote.revocation.expected-tokens at a false positive rate of
+ * keepnote.revocation.fpp, and for twice the revoked tokens if there are more.
+ *
+ * New revocations arrive over the Spring Cloud Bus as TokenRevokedEvent. The full
+ * list is loaded from keepnote.revocation.url on start and every
+ * keepnote.revocation.resync-ms, in case an event was missed; every resync also
+ * drops expired ids and rebuilds the filter, a Bloom filter cannot remove entries.
+ */
+@Component
+public class TokenRevocationList {
+
+	private static Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+	private final RestTemplate restTemplate;
+	private final String url;
+	private final int expectedTokens;
+	private final double falsePositiveRate;
+	private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+	private volatile BloomFilter bloomFilter;
+
+	public TokenRevocationList(RestTemplateBuilder restTemplateBuilder,
+			@Value("${keepnote.revocation.url:http://localhost:9100/api/v1/auth/revocations}") String url,
+			@Value("${keepnote.revocation.expected-tokens:100000}") int expectedTokens,
+			@Value("${keepnote.revocation.fpp:0.001}") double falsePositiveRate) {
+		this.restTemplate = restTemplateBuilder.setConnectTimeout(2000).setReadTimeout(5000).build();
+		this.url = url;
+		this.expectedTokens = expectedTokens;
+		this.falsePositiveRate = falsePositiveRate;
+		this.bloomFilter = new BloomFilter(expectedTokens, falsePositiveRate);
+	}
+
+	public boolean isRevoked(String tokenId) {
+		return tokenId != null && bloomFilter.mightContain(tokenId) && revoked.containsKey(tokenId);
+	}
+
+	/* the map first, a probable hit in the filter then always finds the id */
+	public synchronized void revoke(String tokenId, long expiresAt) {
+
+		if (expiresAt <= System.currentTimeMillis()) {
+			return;
+		}
+		revoked.put(tokenId, expiresAt);
+		bloomFilter.put(tokenId);
+	}
+
+	public int size() {
+		return revoked.size();
+	}
+
+	@EventListener
+	public void tokenRevoked(TokenRevokedEvent event) {
+		revoke(event.getTokenId(), event.getExpiresAt());
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.revocation.resync-ms:300000}")
+	public void resync() {
+
+		try {
+			Map<?, ?> current = restTemplate.getForObject(url, Map.class);
+			if (current != null) {
+				for (Map.Entry<?, ?> token : current.entrySet()) {
+					revoke((String) token.getKey(), ((Number) token.getValue()).longValue());
+				}
+			}
+		} catch (RestClientException e) {
+			log.warn("Could not load revoked tokens from " + url + ": " + e.getMessage());
+		}
+		purgeExpired();
+	}
+
+	public synchronized void purgeExpired() {
+
+		long now = System.currentTimeMillis();
+		revoked.values().removeIf(expiresAt -> expiresAt <= now);
+		BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, revoked.size() * 2), falsePositiveRate);
+		for (String tokenId : revoked.keySet()) {
+			rebuilt.put(tokenId);
+		}
+		bloomFilter = rebuilt;
+	}
+
+	/*
+	 * A Bloom filter over a bit array, the k bit positions come from two halves of a
+	 * 64-bit hash (Kirsch and Mitzenmacher). Bits are set atomically, readers never
+	 * lock.
+	 */
+	private static final class BloomFilter {
+
+		private final AtomicLongArray bits;
+		private final long bitCount;
+		private final int hashes;
+
+		BloomFilter(int expected, double falsePositiveRate) {
+			double ln2 = Math.log(2);
+			long optimal = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+			this.bits = new AtomicLongArray((int) ((Math.max(64, optimal) + 63) / 64));
+			this.bitCount = bits.length() * 64L;
+			this.hashes = Math.max(1, (int) Math.round((double) bitCount / expected * ln2));
+		}
+
+		void put(String value) {
+			long hash = hash(value);
+			for (int i = 0; i < hashes; i++) {
+				long index = index(hash, i);
+				bits.accumulateAndGet((int) (index >>> 6), 1L << index, (word, bit) -> word | bit);
+			}
+		}
+
+		boolean mightContain(String value) {
+			long hash = hash(value);
+			for (int i = 0; i < hashes; i++) {
+				long index = index(hash, i);
+				if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private long index(long hash, int i) {
+			return Math.floorMod((int) hash + i * (hash >>> 32), bitCount);
+		}
+
+		/* FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 64-bit mix */
+		private static long hash(String value) {
+			long hash = 0xcbf29ce484222325L;
+			for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+				hash ^= b & 0xff;
+				hash *= 0x100000001b3L;
+			}
+			hash ^= hash >>> 33;
+			hash *= 0xff51afd7ed558ccdL;
+			hash ^= hash >>> 33;
+			hash *= 0xc4ceb9fe1a85ec53L;
+			hash ^= hash >>> 33;
+			return hash;
+		}
+
+	}
+
+}
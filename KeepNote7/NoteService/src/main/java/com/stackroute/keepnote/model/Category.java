@@ -17,6 +17,11 @@ public class Category {
 	private String categoryDescription;
 	private String categoryCreatedBy;
 	private Date categoryCreationDate;
+	/*
+	 * Version of the category change event this copy was last synchronized from, null for
+	 * copies that were never synchronized.
+	 */
+	private Long syncVersion;
 	
 	public Category() {
 	}
@@ -71,11 +76,19 @@ public class Category {
 		this.categoryCreationDate = categoryCreationDate;
 	}
 
+	public Long getSyncVersion() {
+		return syncVersion;
+	}
+
+	public void setSyncVersion(Long syncVersion) {
+		this.syncVersion = syncVersion;
+	}
+
 	@Override
 	public String toString() {
 		return "Category [categoryId=" + categoryId + ", categoryName=" + categoryName + ", categoryDescription="
 				+ categoryDescription + ", categoryCreatedBy=" + categoryCreatedBy + ", categoryCreationDate="
-				+ categoryCreationDate + "]";
+				+ categoryCreationDate + ", syncVersion=" + syncVersion + "]";
 	}
 
 }
\ No newline at end of file
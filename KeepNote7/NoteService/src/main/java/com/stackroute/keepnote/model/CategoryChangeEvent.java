@@ -0,0 +1,98 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * A category change as published by the CategoryService on the keepnote.events exchange.
+ * version is the time of the change in milliseconds, category is null for deletions.
+ */
+public class CategoryChangeEvent {
+
+	public static final String UPSERTED = "UPSERTED";
+	public static final String DELETED = "DELETED";
+
+	private String eventId;
+	private String type;
+	private String categoryId;
+	private String userId;
+	private Category category;
+	private long version;
+	private Date publishedAt;
+	private boolean replayed;
+
+	public CategoryChangeEvent() {
+	}
+
+	public CategoryChangeEvent(String eventId, String type, String categoryId, Category category, long version) {
+		this.eventId = eventId;
+		this.type = type;
+		this.categoryId = categoryId;
+		this.category = category;
+		this.version = version;
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(String categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Category getCategory() {
+		return category;
+	}
+
+	public void setCategory(Category category) {
+		this.category = category;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public Date getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(Date publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+	public void setReplayed(boolean replayed) {
+		this.replayed = replayed;
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Progress of a bulk note import. The document is created when the archive is
+ * accepted and updated after every bulk write, clients poll it through
+ * /api/v1/note/import/{jobId}.
+ */
+@Document(collection = "note_import_jobs")
+public class ImportJob {
+
+	public static final String QUEUED = "QUEUED";
+	public static final String RUNNING = "RUNNING";
+	public static final String COMPLETED = "COMPLETED";
+	public static final String FAILED = "FAILED";
+
+	@Id
+	private String jobId;
+	private String userId;
+	private String fileName;
+	private String status;
+	private long bytesTotal;
+	private long bytesRead;
+	private long notesImported;
+	private long batchesWritten;
+	private String error;
+	private Date createdAt;
+	private Date finishedAt;
+
+	public ImportJob() {
+	}
+
+	public ImportJob(String jobId, String userId, String fileName, long bytesTotal) {
+		this.jobId = jobId;
+		this.userId = userId;
+		this.fileName = fileName;
+		this.bytesTotal = bytesTotal;
+		this.status = QUEUED;
+		this.createdAt = new Date();
+	}
+
+	public String getJobId() {
+		return jobId;
+	}
+
+	public void setJobId(String jobId) {
+		this.jobId = jobId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public long getBytesTotal() {
+		return bytesTotal;
+	}
+
+	public void setBytesTotal(long bytesTotal) {
+		this.bytesTotal = bytesTotal;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public void setBytesRead(long bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+
+	public long getNotesImported() {
+		return notesImported;
+	}
+
+	public void setNotesImported(long notesImported) {
+		this.notesImported = notesImported;
+	}
+
+	public long getBatchesWritten() {
+		return batchesWritten;
+	}
+
+	public void setBatchesWritten(long batchesWritten) {
+		this.batchesWritten = batchesWritten;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Date getFinishedAt() {
+		return finishedAt;
+	}
+
+	public void setFinishedAt(Date finishedAt) {
+		this.finishedAt = finishedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportJob [jobId=" + jobId + ", userId=" + userId + ", fileName=" + fileName + ", status=" + status
+				+ ", bytesRead=" + bytesRead + "/" + bytesTotal + ", notesImported=" + notesImported + "]";
+	}
+
+}
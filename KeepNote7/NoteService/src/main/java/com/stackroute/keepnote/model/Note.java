@@ -3,6 +3,10 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.annotation.Transient;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class Note {
 	
 	/*
@@ -26,6 +30,14 @@ public class Note {
 	private String noteCreatedBy;
 	private Category category;
 	private List<Reminder> reminders;
+	private int revision;
+	/* fractional index for the manual order, see OrderKeys */
+	private String orderKey;
+	private boolean pinned;
+	/* rendered form of noteContent, only filled in for ?render=html reads and never stored */
+	@Transient
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String noteContentHtml;
 	
 	public Note() {
 	}
@@ -106,11 +118,43 @@ public class Note {
 		this.reminders = reminders;
 	}
 
+	public int getRevision() {
+		return revision;
+	}
+
+	public void setRevision(int revision) {
+		this.revision = revision;
+	}
+
+	public String getOrderKey() {
+		return orderKey;
+	}
+
+	public void setOrderKey(String orderKey) {
+		this.orderKey = orderKey;
+	}
+
+	public boolean isPinned() {
+		return pinned;
+	}
+
+	public void setPinned(boolean pinned) {
+		this.pinned = pinned;
+	}
+
+	public String getNoteContentHtml() {
+		return noteContentHtml;
+	}
+
+	public void setNoteContentHtml(String noteContentHtml) {
+		this.noteContentHtml = noteContentHtml;
+	}
+
 	@Override
 	public String toString() {
 		return "Note [noteId=" + noteId + ", noteTitle=" + noteTitle + ", noteContent=" + noteContent + ", noteStatus="
 				+ noteStatus + ", noteCreationDate=" + noteCreationDate + ", noteCreatedBy=" + noteCreatedBy
-				+ ", category=" + category + ", reminders=" + reminders + "]";
+				+ ", category=" + category + ", reminders=" + reminders + ", revision=" + revision + ", orderKey=" + orderKey + ", pinned=" + pinned + "]";
 	}
 	
 }
\ No newline at end of file
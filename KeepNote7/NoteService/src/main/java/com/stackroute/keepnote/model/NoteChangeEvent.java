@@ -0,0 +1,79 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+import java.util.Map;
+
+/*
+ * A change of a user's notes as far as category note counts are concerned, published
+ * to the keepnote.events exchange with routing key note.changed or note.reset. deltas
+ * maps a categoryId to the change of its note count, a reset tells consumers that the
+ * user has no notes left.
+ */
+public class NoteChangeEvent {
+
+	public static final String CHANGED = "CHANGED";
+	public static final String RESET = "RESET";
+
+	private String eventId;
+	private String type;
+	private String userId;
+	private Map<String, Integer> deltas;
+	private Date publishedAt;
+
+	public NoteChangeEvent() {
+	}
+
+	public NoteChangeEvent(String eventId, String type, String userId, Map<String, Integer> deltas) {
+		this.eventId = eventId;
+		this.type = type;
+		this.userId = userId;
+		this.deltas = deltas;
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Map<String, Integer> getDeltas() {
+		return deltas;
+	}
+
+	public void setDeltas(Map<String, Integer> deltas) {
+		this.deltas = deltas;
+	}
+
+	public Date getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(Date publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteChangeEvent [eventId=" + eventId + ", type=" + type + ", userId=" + userId + ", deltas=" + deltas
+				+ "]";
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.stackroute.keepnote.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The highest noteId handed out for a user. Imports reserve a block of ids per batch
+ * with one $inc on this document, so concurrent imports never assign the same id.
+ * It lives outside NoteUser so that the whole-document saves of NoteUser cannot
+ * reset it.
+ */
+@Document(collection = "note_id_sequences")
+public class NoteIdSequence {
+
+	@Id
+	private String userId;
+	private int lastNoteId;
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public int getLastNoteId() {
+		return lastNoteId;
+	}
+
+	public void setLastNoteId(int lastNoteId) {
+		this.lastNoteId = lastNoteId;
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.stackroute.keepnote.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * One edge of a user's note link graph: the content of sourceNoteId links to
+ * targetNoteId. Edges are indexed from both ends so forward links and backlinks
+ * are each one index range scan.
+ */
+@Document(collection = "note_links")
+@CompoundIndexes({
+		@CompoundIndex(name = "note_link_forward_idx", def = "{'userId': 1, 'sourceNoteId': 1, 'targetNoteId': 1}", unique = true),
+		@CompoundIndex(name = "note_link_backward_idx", def = "{'userId': 1, 'targetNoteId': 1, 'sourceNoteId': 1}") })
+public class NoteLink {
+
+	@Id
+	private String id;
+	private String userId;
+	private int sourceNoteId;
+	private int targetNoteId;
+
+	public NoteLink() {
+	}
+
+	public NoteLink(String userId, int sourceNoteId, int targetNoteId) {
+		this.userId = userId;
+		this.sourceNoteId = sourceNoteId;
+		this.targetNoteId = targetNoteId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public int getSourceNoteId() {
+		return sourceNoteId;
+	}
+
+	public void setSourceNoteId(int sourceNoteId) {
+		this.sourceNoteId = sourceNoteId;
+	}
+
+	public int getTargetNoteId() {
+		return targetNoteId;
+	}
+
+	public void setTargetNoteId(int targetNoteId) {
+		this.targetNoteId = targetNoteId;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteLink [userId=" + userId + ", sourceNoteId=" + sourceNoteId + ", targetNoteId=" + targetNoteId + "]";
+	}
+
+}
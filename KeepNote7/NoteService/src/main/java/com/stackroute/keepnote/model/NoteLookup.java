@@ -0,0 +1,52 @@
+package com.stackroute.keepnote.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * One entry of a multi-get response. Entries come back in request order, an id
+ * that does not resolve to a note of the user is marked NOT_FOUND and carries no note.
+ */
+public class NoteLookup {
+
+	public static final String FOUND = "FOUND";
+	public static final String NOT_FOUND = "NOT_FOUND";
+
+	private int noteId;
+	private String status;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Note note;
+
+	public NoteLookup() {
+	}
+
+	public NoteLookup(int noteId, String status, Note note) {
+		this.noteId = noteId;
+		this.status = status;
+		this.note = note;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public Note getNote() {
+		return note;
+	}
+
+	public void setNote(Note note) {
+		this.note = note;
+	}
+
+}
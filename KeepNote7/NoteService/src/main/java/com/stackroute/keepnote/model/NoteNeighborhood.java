@@ -0,0 +1,71 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The notes reachable from a note within a number of hops, following links in either
+ * direction. distances maps each reached noteId to its hop count, links are the edges
+ * between the reached notes. truncated is set when the node limit cut the walk short.
+ */
+public class NoteNeighborhood {
+
+	private int noteId;
+	private int hops;
+	private Map<Integer, Integer> distances;
+	private List<NoteLink> links;
+	private boolean truncated;
+
+	public NoteNeighborhood() {
+	}
+
+	public NoteNeighborhood(int noteId, int hops, Map<Integer, Integer> distances, List<NoteLink> links,
+			boolean truncated) {
+		this.noteId = noteId;
+		this.hops = hops;
+		this.distances = distances;
+		this.links = links;
+		this.truncated = truncated;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public int getHops() {
+		return hops;
+	}
+
+	public void setHops(int hops) {
+		this.hops = hops;
+	}
+
+	public Map<Integer, Integer> getDistances() {
+		return distances;
+	}
+
+	public void setDistances(Map<Integer, Integer> distances) {
+		this.distances = distances;
+	}
+
+	public List<NoteLink> getLinks() {
+		return links;
+	}
+
+	public void setLinks(List<NoteLink> links) {
+		this.links = links;
+	}
+
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	public void setTruncated(boolean truncated) {
+		this.truncated = truncated;
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * One revision of a note. Snapshot revisions carry the full content, the revisions
+ * in between only carry the delta against the previous revision. A revision is
+ * materialized from the closest snapshot at or below it plus the deltas after it.
+ */
+@Document(collection = "note_revisions")
+@CompoundIndex(name = "note_revision_idx", def = "{'userId': 1, 'noteId': 1, 'revision': 1}", unique = true)
+public class NoteRevision {
+
+	@Id
+	private String id;
+	private String userId;
+	private int noteId;
+	private int revision;
+	private boolean snapshot;
+	private String noteTitle;
+	private String noteStatus;
+	private String noteContent;
+	private TextDelta delta;
+	private int contentLength;
+	private Date revisionDate;
+
+	public NoteRevision() {
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public int getRevision() {
+		return revision;
+	}
+
+	public void setRevision(int revision) {
+		this.revision = revision;
+	}
+
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public String getNoteTitle() {
+		return noteTitle;
+	}
+
+	public void setNoteTitle(String noteTitle) {
+		this.noteTitle = noteTitle;
+	}
+
+	public String getNoteStatus() {
+		return noteStatus;
+	}
+
+	public void setNoteStatus(String noteStatus) {
+		this.noteStatus = noteStatus;
+	}
+
+	public String getNoteContent() {
+		return noteContent;
+	}
+
+	public void setNoteContent(String noteContent) {
+		this.noteContent = noteContent;
+	}
+
+	public TextDelta getDelta() {
+		return delta;
+	}
+
+	public void setDelta(TextDelta delta) {
+		this.delta = delta;
+	}
+
+	public int getContentLength() {
+		return contentLength;
+	}
+
+	public void setContentLength(int contentLength) {
+		this.contentLength = contentLength;
+	}
+
+	public Date getRevisionDate() {
+		return revisionDate;
+	}
+
+	public void setRevisionDate(Date revisionDate) {
+		this.revisionDate = revisionDate;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteRevision [userId=" + userId + ", noteId=" + noteId + ", revision=" + revision + ", snapshot="
+				+ snapshot + ", contentLength=" + contentLength + ", revisionDate=" + revisionDate + "]";
+	}
+
+}
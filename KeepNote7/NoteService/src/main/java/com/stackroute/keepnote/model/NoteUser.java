@@ -4,13 +4,20 @@ import java.util.List;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 /*
  * Please note that this class is annotated with @Document annotation
  * @Document identifies a domain object to be persisted to MongoDB.
+ * The multikey indexes find the users embedding a category or reminder when a
+ * change event has to be applied to the copies.
  *  */
 @Document
+@CompoundIndexes({
+		@CompoundIndex(name = "note_category_idx", def = "{'notes.category.categoryId': 1}"),
+		@CompoundIndex(name = "note_reminder_idx", def = "{'notes.reminders.reminderId': 1}") })
 public class NoteUser {
 
 	/*
@@ -19,6 +19,11 @@ public class Reminder {
 	private String reminderType;
 	private String reminderCreatedBy;
 	private Date reminderCreationDate;
+	/*
+	 * Version of the reminder change event this copy was last synchronized from, null for
+	 * copies that were never synchronized.
+	 */
+	private Long syncVersion;
 	
 	public Reminder() {
 	}
@@ -82,11 +87,19 @@ public class Reminder {
 		this.reminderCreationDate = reminderCreationDate;
 	}
 
+	public Long getSyncVersion() {
+		return syncVersion;
+	}
+
+	public void setSyncVersion(Long syncVersion) {
+		this.syncVersion = syncVersion;
+	}
+
 	@Override
 	public String toString() {
 		return "Reminder [reminderId=" + reminderId + ", reminderName=" + reminderName + ", reminderDescription="
 				+ reminderDescription + ", reminderType=" + reminderType + ", reminderCreatedBy=" + reminderCreatedBy
-				+ ", reminderCreationDate=" + reminderCreationDate + "]";
+				+ ", reminderCreationDate=" + reminderCreationDate + ", syncVersion=" + syncVersion + "]";
 	}
 
 }
\ No newline at end of file
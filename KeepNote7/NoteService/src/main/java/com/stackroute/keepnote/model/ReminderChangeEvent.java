@@ -0,0 +1,98 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * A reminder change as published by the ReminderService on the keepnote.events exchange.
+ * version is the time of the change in milliseconds, reminder is null for deletions.
+ */
+public class ReminderChangeEvent {
+
+	public static final String UPSERTED = "UPSERTED";
+	public static final String DELETED = "DELETED";
+
+	private String eventId;
+	private String type;
+	private String reminderId;
+	private String userId;
+	private Reminder reminder;
+	private long version;
+	private Date publishedAt;
+	private boolean replayed;
+
+	public ReminderChangeEvent() {
+	}
+
+	public ReminderChangeEvent(String eventId, String type, String reminderId, Reminder reminder, long version) {
+		this.eventId = eventId;
+		this.type = type;
+		this.reminderId = reminderId;
+		this.reminder = reminder;
+		this.version = version;
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(String reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Reminder getReminder() {
+		return reminder;
+	}
+
+	public void setReminder(Reminder reminder) {
+		this.reminder = reminder;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public Date getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(Date publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+	public void setReplayed(boolean replayed) {
+		this.replayed = replayed;
+	}
+
+}
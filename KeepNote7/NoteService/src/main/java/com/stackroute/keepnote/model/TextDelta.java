@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * Compact edit between two versions of a text: deleteLength characters starting at
+ * offset are replaced by insert. The delta is computed by trimming the common prefix
+ * and suffix of both versions, so its size follows the size of the edited region and
+ * not the size of the note.
+ */
+public class TextDelta {
+
+	private int offset;
+	private int deleteLength;
+	private String insert;
+
+	public TextDelta() {
+	}
+
+	public TextDelta(int offset, int deleteLength, String insert) {
+		this.offset = offset;
+		this.deleteLength = deleteLength;
+		this.insert = insert;
+	}
+
+	public static TextDelta between(String from, String to) {
+
+		String source = from == null ? "" : from;
+		String target = to == null ? "" : to;
+
+		int prefix = 0;
+		int maxPrefix = Math.min(source.length(), target.length());
+		while (prefix < maxPrefix && source.charAt(prefix) == target.charAt(prefix)) {
+			prefix++;
+		}
+
+		int suffix = 0;
+		int maxSuffix = maxPrefix - prefix;
+		while (suffix < maxSuffix
+				&& source.charAt(source.length() - 1 - suffix) == target.charAt(target.length() - 1 - suffix)) {
+			suffix++;
+		}
+
+		return new TextDelta(prefix, source.length() - prefix - suffix,
+				target.substring(prefix, target.length() - suffix));
+	}
+
+	public String applyTo(String text) {
+
+		String source = text == null ? "" : text;
+		return source.substring(0, offset) + (insert == null ? "" : insert)
+				+ source.substring(offset + deleteLength);
+	}
+
+	public int size() {
+		return insert == null ? 0 : insert.length();
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	public int getDeleteLength() {
+		return deleteLength;
+	}
+
+	public void setDeleteLength(int deleteLength) {
+		this.deleteLength = deleteLength;
+	}
+
+	public String getInsert() {
+		return insert;
+	}
+
+	public void setInsert(String insert) {
+		this.insert = insert;
+	}
+
+	@Override
+	public String toString() {
+		return "TextDelta [offset=" + offset + ", deleteLength=" + deleteLength + ", insert=" + insert + "]";
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * A deleted note kept in the note_trash collection until purgeAt. purgeAt carries a
+ * TTL index with no extra delay, so Mongo removes the entry once the retention time
+ * has passed. Keyed by "userId:noteId", deleting a restored note again replaces the
+ * older entry; the trash listing is one scan of the (userId, deletedAt) index.
+ */
+@Document(collection = "note_trash")
+@CompoundIndex(name = "note_trash_user_idx", def = "{'userId': 1, 'deletedAt': -1}")
+public class TrashedNote {
+
+	@Id
+	private String id;
+	private String userId;
+	private int noteId;
+	private Note note;
+	private Date deletedAt;
+	@Indexed(expireAfterSeconds = 0)
+	private Date purgeAt;
+
+	public TrashedNote() {
+	}
+
+	public TrashedNote(String userId, Note note, Date deletedAt, Date purgeAt) {
+		this.id = key(userId, note.getNoteId());
+		this.userId = userId;
+		this.noteId = note.getNoteId();
+		this.note = note;
+		this.deletedAt = deletedAt;
+		this.purgeAt = purgeAt;
+	}
+
+	public static String key(String userId, int noteId) {
+		return userId + ":" + noteId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public Note getNote() {
+		return note;
+	}
+
+	public void setNote(Note note) {
+		this.note = note;
+	}
+
+	public Date getDeletedAt() {
+		return deletedAt;
+	}
+
+	public void setDeletedAt(Date deletedAt) {
+		this.deletedAt = deletedAt;
+	}
+
+	public Date getPurgeAt() {
+		return purgeAt;
+	}
+
+	public void setPurgeAt(Date purgeAt) {
+		this.purgeAt = purgeAt;
+	}
+
+}
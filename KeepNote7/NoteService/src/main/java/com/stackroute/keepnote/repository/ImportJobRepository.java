@@ -0,0 +1,14 @@
+package com.stackroute.keepnote.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.ImportJob;
+
+/*
+* This class is implementing the MongoRepository interface for ImportJob.
+* */
+@Repository
+public interface ImportJobRepository extends MongoRepository<ImportJob, String> {
+
+}
@@ -0,0 +1,36 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.DeleteQuery;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.NoteLink;
+
+/*
+* This class is implementing the MongoRepository interface for NoteLink.
+* Forward lookups use the (userId, sourceNoteId) index, backlinks the
+* (userId, targetNoteId) index.
+* */
+@Repository
+public interface NoteLinkRepository extends MongoRepository<NoteLink, String> {
+
+	@Query(value = "{ 'userId' : ?0, 'sourceNoteId' : { '$in' : ?1 } }", fields = "{ '_id' : 0 }")
+	List<NoteLink> findLinksFrom(String userId, Collection<Integer> sourceNoteIds);
+
+	@Query(value = "{ 'userId' : ?0, 'targetNoteId' : { '$in' : ?1 } }", fields = "{ '_id' : 0 }")
+	List<NoteLink> findLinksTo(String userId, Collection<Integer> targetNoteIds);
+
+	@DeleteQuery("{ 'userId' : ?0, 'sourceNoteId' : ?1, 'targetNoteId' : { '$in' : ?2 } }")
+	void deleteLinks(String userId, int sourceNoteId, Collection<Integer> targetNoteIds);
+
+	@DeleteQuery("{ 'userId' : ?0, 'sourceNoteId' : ?1 }")
+	void deleteAllLinksFrom(String userId, int sourceNoteId);
+
+	@DeleteQuery("{ 'userId' : ?0 }")
+	void deleteAllByUserId(String userId);
+
+}
@@ -11,7 +11,7 @@ import com.stackroute.keepnote.model.NoteUser;
 * Annotate this class with @Repository annotation
 * */
 @Repository
-public interface NoteRepository extends MongoRepository<NoteUser, String> {
+public interface NoteRepository extends MongoRepository<NoteUser, String>, NoteRepositoryCustom {
 	
 	@DeleteQuery(value="{userId:?0}")
 	void deleteAllByUserId(String userId);
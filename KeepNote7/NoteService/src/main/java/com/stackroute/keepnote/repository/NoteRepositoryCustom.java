@@ -0,0 +1,37 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Queries of the NoteRepository that need a field projection, and updates that must
+ * not rewrite the whole notes array, implemented in NoteRepositoryImpl.
+ */
+public interface NoteRepositoryCustom {
+
+	/*
+	 * Loads the notes of a user with only the given note fields filled in.
+	 */
+	List<Note> findNotesByUserId(String userId, Collection<String> fields);
+
+	/*
+	 * Loads only the notes of a user with the given ids, in storage order. fields may
+	 * be null for whole notes.
+	 */
+	List<Note> findNotesByIds(String userId, Collection<Integer> noteIds, Collection<String> fields);
+
+	/*
+	 * Appends the note to the user's notes with one $push, creating the document when
+	 * the user has none. Notes pushed concurrently, e.g. by an import, are kept.
+	 */
+	boolean pushNote(String userId, Note note);
+
+	/*
+	 * Reserves count consecutive noteIds for the user and returns the first one. The
+	 * sequence starts after the highest noteId the user already has.
+	 */
+	int reserveNoteIds(String userId, int count);
+
+}
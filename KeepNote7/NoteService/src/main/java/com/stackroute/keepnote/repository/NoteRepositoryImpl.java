@@ -0,0 +1,113 @@
+package com.stackroute.keepnote.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.bson.Document;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.client.result.UpdateResult;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteIdSequence;
+import com.stackroute.keepnote.model.NoteUser;
+
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	public NoteRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	public List<Note> findNotesByUserId(String userId, Collection<String> fields) {
+
+		Query query = query(where("userId").is(userId));
+		for (String field : fields) {
+			query.fields().include("notes." + field);
+		}
+		NoteUser noteUser = mongoOperations.findOne(query, NoteUser.class);
+		return noteUser == null ? null : noteUser.getNotes();
+	}
+
+	/*
+	 * One aggregation on the user's document: $filter keeps the matching elements of
+	 * the notes array on the server, so only the requested notes leave the database.
+	 */
+	public List<Note> findNotesByIds(String userId, Collection<Integer> noteIds, Collection<String> fields) {
+
+		List<Document> pipeline = new ArrayList<>();
+		pipeline.add(new Document("$match", new Document("_id", userId)));
+		pipeline.add(new Document("$project", new Document("notes", new Document("$filter",
+				new Document("input", "$notes").append("as", "note").append("cond",
+						new Document("$in", Arrays.asList("$$note.noteId", new ArrayList<>(noteIds))))))));
+		if (fields != null) {
+			Document projection = new Document();
+			for (String field : fields) {
+				projection.append("notes." + field, 1);
+			}
+			pipeline.add(new Document("$project", projection));
+		}
+
+		Document result = mongoOperations.getCollection(mongoOperations.getCollectionName(NoteUser.class))
+				.aggregate(pipeline).first();
+		List<Note> notes = new ArrayList<>();
+		if (result != null && result.get("notes") instanceof List) {
+			for (Object note : (List<?>) result.get("notes")) {
+				notes.add(mongoOperations.getConverter().read(Note.class, (Document) note));
+			}
+		}
+		return notes;
+	}
+
+	/*
+	 * A noteId chosen by the client is raised into the sequence, so later imports
+	 * continue after it.
+	 */
+	public boolean pushNote(String userId, Note note) {
+
+		UpdateResult result = mongoOperations.upsert(query(where("_id").is(userId)), new Update().push("notes", note),
+				NoteUser.class);
+		mongoOperations.updateFirst(query(where("_id").is(userId)), new Update().max("lastNoteId", note.getNoteId()),
+				NoteIdSequence.class);
+		return result.getMatchedCount() > 0 || result.getUpsertedId() != null;
+	}
+
+	/*
+	 * The first reservation seeds the sequence with the highest existing noteId. $max
+	 * makes two concurrent first reservations agree on the seed, then $inc hands each
+	 * one its own block.
+	 */
+	public int reserveNoteIds(String userId, int count) {
+
+		Query sequence = query(where("_id").is(userId));
+		if (!mongoOperations.exists(sequence, NoteIdSequence.class)) {
+			mongoOperations.upsert(sequence, new Update().max("lastNoteId", maxNoteId(userId)), NoteIdSequence.class);
+		}
+		NoteIdSequence reserved = mongoOperations.findAndModify(sequence, new Update().inc("lastNoteId", count),
+				FindAndModifyOptions.options().returnNew(true).upsert(true), NoteIdSequence.class);
+		return reserved.getLastNoteId() - count + 1;
+	}
+
+	/* the highest noteId is computed by Mongo, the notes array is not loaded */
+	private int maxNoteId(String userId) {
+
+		Document result = mongoOperations.getCollection(mongoOperations.getCollectionName(NoteUser.class))
+				.aggregate(Arrays.asList(new Document("$match", new Document("_id", userId)),
+						new Document("$project", new Document("maxNoteId", new Document("$max", "$notes.noteId")))))
+				.first();
+		Object maxNoteId = result == null ? null : result.get("maxNoteId");
+		return maxNoteId instanceof Number ? ((Number) maxNoteId).intValue() : 0;
+	}
+
+}
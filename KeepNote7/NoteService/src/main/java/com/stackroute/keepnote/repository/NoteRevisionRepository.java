@@ -0,0 +1,42 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.NoteRevision;
+
+/*
+* This class is implementing the MongoRepository interface for NoteRevision.
+* All lookups are served by the (userId, noteId, revision) index.
+* */
+@Repository
+public interface NoteRevisionRepository extends MongoRepository<NoteRevision, String> {
+
+	/*
+	 * Lists the revisions of a note without their content.
+	 */
+	@Query(value = "{ 'userId' : ?0, 'noteId' : ?1 }", fields = "{ 'noteContent' : 0, 'delta' : 0 }")
+	List<NoteRevision> findRevisionSummaries(String userId, int noteId, Sort sort);
+
+	/*
+	 * Returns the closest snapshot at or below the given revision.
+	 */
+	NoteRevision findFirstByUserIdAndNoteIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(String userId,
+			int noteId, int revision);
+
+	/*
+	 * Returns the newest revision of a note.
+	 */
+	NoteRevision findFirstByUserIdAndNoteIdOrderByRevisionDesc(String userId, int noteId);
+
+	/*
+	 * Returns the revisions after a snapshot up to and including the given revision.
+	 */
+	@Query("{ 'userId' : ?0, 'noteId' : ?1, 'revision' : { '$gt' : ?2, '$lte' : ?3 } }")
+	List<NoteRevision> findRevisionsAfter(String userId, int noteId, int fromRevision, int toRevision, Sort sort);
+
+}
@@ -0,0 +1,27 @@
+package com.stackroute.keepnote.service;
+
+import com.rabbitmq.client.Channel;
+import com.stackroute.keepnote.model.CategoryChangeEvent;
+import com.stackroute.keepnote.model.ReminderChangeEvent;
+
+public interface EmbeddedCopyService {
+
+	/*
+	 * Queues a category change for the notes embedding the category. The delivery is
+	 * acknowledged once the change is written.
+	 */
+	void categoryChanged(CategoryChangeEvent event, Channel channel, long deliveryTag);
+
+	/*
+	 * Queues a reminder change for the notes embedding the reminder. The delivery is
+	 * acknowledged once the change is written.
+	 */
+	void reminderChanged(ReminderChangeEvent event, Channel channel, long deliveryTag);
+
+	/*
+	 * Applies the queued changes and acknowledges their deliveries, returns the number
+	 * of changes applied.
+	 */
+	int flush();
+
+}
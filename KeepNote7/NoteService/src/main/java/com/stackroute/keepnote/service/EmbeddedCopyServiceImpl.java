@@ -0,0 +1,287 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.rabbitmq.client.Channel;
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategoryChangeEvent;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderChangeEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Keeps the category and reminder copies embedded in notes up to date. Change events
+ * are queued per entity, a newer event for the same entity replaces the queued one.
+ * The queue is flushed every keepnote.events.flush-interval-ms, or as soon as it holds
+ * keepnote.events.batch-size changes, as one unordered bulk write with one updateMany
+ * per change. Array filters select only the copies of the changed entity inside each
+ * user's notes array, the rest of the NoteUser document is not rewritten.
+ *
+ * Every copy written carries the event version as syncVersion and an event is only
+ * applied to copies older than it, so redelivered, replayed or reordered events never
+ * overwrite newer data. Deliveries are acknowledged manually after the bulk write that
+ * contains their change succeeded, a delivery replaced by a newer event is acknowledged
+ * with it. A flush that fails is queued again. Changes queued but not yet flushed
+ * when the instance dies are still unacknowledged and the broker delivers them again.
+ *
+ * Metrics: keepnote.events.received (tagged entity and replayed),
+ * keepnote.events.coalesced, keepnote.events.applied (documents modified),
+ * keepnote.events.flush.failures, keepnote.events.pending and the keepnote.events.lag
+ * timer from publication to application, published with a percentile histogram.
+ */
+@Service
+public class EmbeddedCopyServiceImpl implements EmbeddedCopyService {
+
+	private static Logger log = LoggerFactory.getLogger(EmbeddedCopyServiceImpl.class);
+
+	private static final String CATEGORY = "category";
+	private static final String REMINDER = "reminder";
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	private final int batchSize;
+	private final Map<String, Object> pending = new LinkedHashMap<>();
+	private final List<Delivery> unacknowledged = new ArrayList<>();
+	private final MeterRegistry meterRegistry;
+	private final Counter coalesced;
+	private final Counter applied;
+	private final Counter flushFailures;
+	private final Timer lag;
+
+	public EmbeddedCopyServiceImpl(MongoOperations mongoOperations, MeterRegistry meterRegistry,
+			@Value("${keepnote.events.batch-size:500}") int batchSize) {
+		this.mongoOperations = mongoOperations;
+		this.meterRegistry = meterRegistry;
+		this.batchSize = batchSize;
+		this.coalesced = Counter.builder("keepnote.events.coalesced")
+				.description("Change events replaced by a newer event before being applied").register(meterRegistry);
+		this.applied = Counter.builder("keepnote.events.applied")
+				.description("Note documents modified by change events").register(meterRegistry);
+		this.flushFailures = Counter.builder("keepnote.events.flush.failures").register(meterRegistry);
+		this.lag = Timer.builder("keepnote.events.lag").description("Time from publication to application of a change")
+				.publishPercentileHistogram().register(meterRegistry);
+		Gauge.builder("keepnote.events.pending", pending, EmbeddedCopyServiceImpl::size).register(meterRegistry);
+	}
+
+	@RabbitListener(queues = EventsConfig.CATEGORY_QUEUE, containerFactory = EventsConfig.MANUAL_ACK_CONTAINER_FACTORY)
+	public void categoryChanged(CategoryChangeEvent event, Channel channel,
+			@Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+
+		received(CATEGORY, event.isReplayed());
+		enqueue(CATEGORY + ":" + event.getCategoryId(), event, event.getVersion(), new Delivery(channel, deliveryTag));
+	}
+
+	@RabbitListener(queues = EventsConfig.REMINDER_QUEUE, containerFactory = EventsConfig.MANUAL_ACK_CONTAINER_FACTORY)
+	public void reminderChanged(ReminderChangeEvent event, Channel channel,
+			@Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+
+		received(REMINDER, event.isReplayed());
+		enqueue(REMINDER + ":" + event.getReminderId(), event, event.getVersion(), new Delivery(channel, deliveryTag));
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.events.flush-interval-ms:250}")
+	public int flush() {
+
+		List<Object> events;
+		List<Delivery> deliveries;
+		synchronized (pending) {
+			if (pending.isEmpty() && unacknowledged.isEmpty()) {
+				return 0;
+			}
+			events = new ArrayList<>(pending.values());
+			deliveries = new ArrayList<>(unacknowledged);
+			pending.clear();
+			unacknowledged.clear();
+		}
+		if (events.isEmpty()) {
+			acknowledge(deliveries);
+			return 0;
+		}
+
+		List<WriteModel<Document>> writes = new ArrayList<>(events.size());
+		for (Object event : events) {
+			writes.add(event instanceof CategoryChangeEvent ? categoryUpdate((CategoryChangeEvent) event)
+					: reminderUpdate((ReminderChangeEvent) event));
+		}
+
+		try {
+			BulkWriteResult result = mongoOperations.getCollection(mongoOperations.getCollectionName(NoteUser.class))
+					.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+			applied.increment(result.getModifiedCount());
+		} catch (MongoException e) {
+			flushFailures.increment();
+			log.warn("Applying " + events.size() + " change events failed: " + e.getMessage());
+			synchronized (pending) {
+				for (Object event : events) {
+					requeue(event);
+				}
+				unacknowledged.addAll(deliveries);
+			}
+			return 0;
+		}
+		acknowledge(deliveries);
+
+		long now = System.currentTimeMillis();
+		for (Object event : events) {
+			Date publishedAt = publishedAt(event);
+			if (publishedAt != null) {
+				lag.record(Math.max(0, now - publishedAt.getTime()), TimeUnit.MILLISECONDS);
+			}
+		}
+		return events.size();
+	}
+
+	private UpdateManyModel<Document> categoryUpdate(CategoryChangeEvent event) {
+
+		Document filter = new Document("notes.category.categoryId", event.getCategoryId());
+		Document copy = null;
+		if (CategoryChangeEvent.UPSERTED.equals(event.getType()) && event.getCategory() != null) {
+			Category category = event.getCategory();
+			category.setCategoryId(event.getCategoryId());
+			category.setSyncVersion(event.getVersion());
+			copy = toDocument(category);
+		}
+		Document arrayFilter = new Document("n.category.categoryId", event.getCategoryId())
+				.append("n.category.syncVersion", olderThan(event.getVersion()));
+		return new UpdateManyModel<>(filter, new Document("$set", new Document("notes.$[n].category", copy)),
+				new UpdateOptions().arrayFilters(Collections.singletonList(arrayFilter)));
+	}
+
+	private UpdateManyModel<Document> reminderUpdate(ReminderChangeEvent event) {
+
+		Document filter = new Document("notes.reminders.reminderId", event.getReminderId());
+		if (ReminderChangeEvent.UPSERTED.equals(event.getType()) && event.getReminder() != null) {
+			Reminder reminder = event.getReminder();
+			reminder.setReminderId(event.getReminderId());
+			reminder.setSyncVersion(event.getVersion());
+			Document arrayFilter = new Document("r.reminderId", event.getReminderId())
+					.append("r.syncVersion", olderThan(event.getVersion()));
+			return new UpdateManyModel<>(filter,
+					new Document("$set", new Document("notes.$[].reminders.$[r]", toDocument(reminder))),
+					new UpdateOptions().arrayFilters(Collections.singletonList(arrayFilter)));
+		}
+		Document deleted = new Document("reminderId", event.getReminderId()).append("syncVersion",
+				olderThan(event.getVersion()));
+		return new UpdateManyModel<>(filter, new Document("$pull", new Document("notes.$[].reminders", deleted)));
+	}
+
+	/* matches copies synchronized from an older event and copies never synchronized */
+	private Document olderThan(long version) {
+		return new Document("$not", new Document("$gte", version));
+	}
+
+	private Document toDocument(Object entity) {
+		Document document = new Document();
+		mongoOperations.getConverter().write(entity, document);
+		document.remove("_class");
+		return document;
+	}
+
+	private void received(String entity, boolean replayed) {
+		Counter.builder("keepnote.events.received").tag("entity", entity).tag("replayed", String.valueOf(replayed))
+				.register(meterRegistry).increment();
+	}
+
+	private void enqueue(String key, Object event, long version, Delivery delivery) {
+
+		boolean full;
+		synchronized (pending) {
+			unacknowledged.add(delivery);
+			Object queued = pending.get(key);
+			if (queued != null) {
+				coalesced.increment();
+				if (version(queued) > version) {
+					return;
+				}
+			}
+			pending.put(key, event);
+			full = pending.size() >= batchSize;
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	/* called holding the pending lock */
+	private void requeue(Object event) {
+
+		String key = event instanceof CategoryChangeEvent ? CATEGORY + ":" + ((CategoryChangeEvent) event).getCategoryId()
+				: REMINDER + ":" + ((ReminderChangeEvent) event).getReminderId();
+		Object queued = pending.get(key);
+		if (queued == null || version(queued) < version(event)) {
+			pending.put(key, event);
+		}
+	}
+
+	/* a failed ack is harmless, the broker delivers again and the version guard skips it */
+	private void acknowledge(List<Delivery> deliveries) {
+
+		for (Delivery delivery : deliveries) {
+			try {
+				delivery.channel.basicAck(delivery.deliveryTag, false);
+			} catch (IOException | RuntimeException e) {
+				log.warn("Acknowledging change event " + delivery.deliveryTag + " failed: " + e.getMessage());
+			}
+		}
+	}
+
+	private static long version(Object event) {
+		return event instanceof CategoryChangeEvent ? ((CategoryChangeEvent) event).getVersion()
+				: ((ReminderChangeEvent) event).getVersion();
+	}
+
+	private static Date publishedAt(Object event) {
+		return event instanceof CategoryChangeEvent ? ((CategoryChangeEvent) event).getPublishedAt()
+				: ((ReminderChangeEvent) event).getPublishedAt();
+	}
+
+	private static double size(Map<String, Object> pending) {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	private static final class Delivery {
+
+		private final Channel channel;
+		private final long deliveryTag;
+
+		private Delivery(Channel channel, long deliveryTag) {
+			this.channel = channel;
+			this.deliveryTag = deliveryTag;
+		}
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.stackroute.keepnote.service;
+
+public interface MarkdownRenderService {
+
+	/*
+	 * Renders Markdown to HTML. Raw HTML in the source is escaped.
+	 */
+	String renderHtml(String markdown);
+
+}
@@ -0,0 +1,166 @@
+package com.stackroute.keepnote.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.commonmark.node.AbstractVisitor;
+import org.commonmark.node.Image;
+import org.commonmark.node.Link;
+import org.commonmark.node.Node;
+import org.commonmark.parser.Parser;
+import org.commonmark.renderer.html.HtmlRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Renders note Markdown to HTML. Rendered HTML is cached by the SHA-256 of the
+ * Markdown source, the cache is shared by all users so identical bodies (templates,
+ * shared or imported notes) are rendered once. The cache is bounded both in entries
+ * and in total cached characters, least recently used entries are evicted first.
+ *
+ * Raw HTML is escaped. Link and image destinations are limited to http, https,
+ * mailto and relative URLs, any other scheme (javascript:, data:, vbscript:, ...)
+ * is rendered as an empty destination. commonmark 0.11 has no sanitizeUrls option.
+ *
+ * Metrics: keepnote.markdown.cache.requests (tagged result=hit|miss),
+ * keepnote.markdown.cache.hit.ratio, keepnote.markdown.cache.size and the
+ * keepnote.markdown.render timer, published with a percentile histogram.
+ */
+@Service
+public class MarkdownRenderServiceImpl implements MarkdownRenderService {
+
+	private static final Pattern SCHEME = Pattern.compile("^[^/?#]*:");
+	private static final Pattern ALLOWED_SCHEME = Pattern.compile("^(https?|mailto):", Pattern.CASE_INSENSITIVE);
+	/* browsers drop these inside a URL, "java\tscript:" is still javascript: */
+	private static final Pattern IGNORED_BY_BROWSERS = Pattern.compile("[\\x00-\\x20\\x7f]");
+
+	private final Parser parser = Parser.builder().build();
+	private final HtmlRenderer renderer = HtmlRenderer.builder().escapeHtml(true).build();
+
+	private final int maxEntries;
+	private final long maxChars;
+	private final Map<String, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private long cachedChars;
+
+	private final Counter hits;
+	private final Counter misses;
+	private final Timer renderTimer;
+
+	public MarkdownRenderServiceImpl(MeterRegistry meterRegistry,
+			@Value("${keepnote.markdown.cache.max-entries:10000}") int maxEntries,
+			@Value("${keepnote.markdown.cache.max-chars:33554432}") long maxChars) {
+		this.maxEntries = maxEntries;
+		this.maxChars = maxChars;
+		this.hits = Counter.builder("keepnote.markdown.cache.requests").tag("result", "hit")
+				.description("Markdown render cache lookups").register(meterRegistry);
+		this.misses = Counter.builder("keepnote.markdown.cache.requests").tag("result", "miss")
+				.description("Markdown render cache lookups").register(meterRegistry);
+		this.renderTimer = Timer.builder("keepnote.markdown.render").description("Markdown to HTML render time")
+				.publishPercentileHistogram().register(meterRegistry);
+		Gauge.builder("keepnote.markdown.cache.hit.ratio", this, MarkdownRenderServiceImpl::hitRatio)
+				.register(meterRegistry);
+		Gauge.builder("keepnote.markdown.cache.size", this, MarkdownRenderServiceImpl::cacheSize)
+				.register(meterRegistry);
+	}
+
+	public String renderHtml(String markdown) {
+
+		if (markdown == null) {
+			return null;
+		}
+
+		String key = contentHash(markdown);
+		String html;
+		synchronized (cache) {
+			html = cache.get(key);
+		}
+		if (html != null) {
+			hits.increment();
+			return html;
+		}
+
+		misses.increment();
+		long start = System.nanoTime();
+		Node document = parser.parse(markdown);
+		document.accept(new DestinationFilter());
+		html = renderer.render(document);
+		renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+		store(key, html);
+		return html;
+	}
+
+	private static boolean isSafeDestination(String destination) {
+
+		String normalized = IGNORED_BY_BROWSERS.matcher(destination).replaceAll("");
+		return !SCHEME.matcher(normalized).find() || ALLOWED_SCHEME.matcher(normalized).find();
+	}
+
+	private static class DestinationFilter extends AbstractVisitor {
+
+		@Override
+		public void visit(Link link) {
+			if (!isSafeDestination(link.getDestination())) {
+				link.setDestination("");
+			}
+			visitChildren(link);
+		}
+
+		@Override
+		public void visit(Image image) {
+			if (!isSafeDestination(image.getDestination())) {
+				image.setDestination("");
+			}
+			visitChildren(image);
+		}
+	}
+
+	private void store(String key, String html) {
+
+		if (html.length() > maxChars) {
+			return;
+		}
+		synchronized (cache) {
+			String previous = cache.put(key, html);
+			cachedChars += html.length() - (previous == null ? 0 : previous.length());
+			Iterator<Map.Entry<String, String>> eldest = cache.entrySet().iterator();
+			while ((cache.size() > maxEntries || cachedChars > maxChars) && eldest.hasNext()) {
+				cachedChars -= eldest.next().getValue().length();
+				eldest.remove();
+			}
+		}
+	}
+
+	private String contentHash(String markdown) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(markdown.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private double hitRatio() {
+		double total = hits.count() + misses.count();
+		return total == 0 ? 0 : hits.count() / total;
+	}
+
+	private double cacheSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.stackroute.keepnote.model.Note;
+
+public interface NoteEventPublisher {
+
+	/*
+	 * Publishes the change of the user's category note counts, categoryId to delta.
+	 * Nothing is published when every delta is zero.
+	 */
+	void publishCountChanges(String userId, Map<String, Integer> deltas);
+
+	/*
+	 * Publishes the category note counts gained by adding the given notes.
+	 */
+	void publishAdded(String userId, Collection<Note> notes);
+
+	/*
+	 * Publishes the count change of replacing previous by note, nothing when the
+	 * category stayed the same.
+	 */
+	void publishReplaced(String userId, Note previous, Note note);
+
+	/*
+	 * Publishes the category note counts lost by removing the given notes.
+	 */
+	void publishRemoved(String userId, Collection<Note> notes);
+
+	/*
+	 * Publishes that all of the user's notes were deleted.
+	 */
+	void publishReset(String userId);
+
+}
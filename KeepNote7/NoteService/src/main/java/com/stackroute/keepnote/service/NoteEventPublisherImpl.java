@@ -0,0 +1,93 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteChangeEvent;
+
+/*
+ * Publishes note count changes to the keepnote.events exchange. There is no outbox:
+ * an event the broker did not take is logged and dropped, the CategoryService
+ * reconciliation recomputes the counts from the notes themselves.
+ */
+@Service
+public class NoteEventPublisherImpl implements NoteEventPublisher {
+
+	private static Logger log = LoggerFactory.getLogger(NoteEventPublisherImpl.class);
+
+	@Autowired
+	private AmqpTemplate amqpTemplate;
+
+	public NoteEventPublisherImpl(AmqpTemplate amqpTemplate) {
+		this.amqpTemplate = amqpTemplate;
+	}
+
+	public void publishCountChanges(String userId, Map<String, Integer> deltas) {
+
+		Map<String, Integer> changed = new HashMap<>();
+		for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+			if (delta.getKey() != null && delta.getValue() != null && delta.getValue() != 0) {
+				changed.put(delta.getKey(), delta.getValue());
+			}
+		}
+		if (!changed.isEmpty()) {
+			send(new NoteChangeEvent(UUID.randomUUID().toString(), NoteChangeEvent.CHANGED, userId, changed));
+		}
+	}
+
+	public void publishAdded(String userId, Collection<Note> notes) {
+		publishCountChanges(userId, deltas(notes, 1));
+	}
+
+	public void publishReplaced(String userId, Note previous, Note note) {
+
+		Map<String, Integer> deltas = deltas(Collections.singletonList(note), 1);
+		if (previous != null) {
+			deltas(Collections.singletonList(previous), -1).forEach((categoryId, delta) -> deltas.merge(categoryId, delta, Integer::sum));
+		}
+		publishCountChanges(userId, deltas);
+	}
+
+	public void publishRemoved(String userId, Collection<Note> notes) {
+		publishCountChanges(userId, deltas(notes, -1));
+	}
+
+	public void publishReset(String userId) {
+		send(new NoteChangeEvent(UUID.randomUUID().toString(), NoteChangeEvent.RESET, userId, null));
+	}
+
+	private Map<String, Integer> deltas(Collection<Note> notes, int sign) {
+
+		Map<String, Integer> deltas = new HashMap<>();
+		for (Note note : notes) {
+			if (note.getCategory() != null && note.getCategory().getCategoryId() != null) {
+				deltas.merge(note.getCategory().getCategoryId(), sign, Integer::sum);
+			}
+		}
+		return deltas;
+	}
+
+	private void send(NoteChangeEvent event) {
+
+		event.setPublishedAt(new Date());
+		try {
+			amqpTemplate.convertAndSend(EventsConfig.EXCHANGE, "note." + event.getType().toLowerCase(), event);
+		} catch (AmqpException e) {
+			log.warn("Note event " + event.getEventId() + " not published: " + e.getMessage());
+		}
+	}
+
+}
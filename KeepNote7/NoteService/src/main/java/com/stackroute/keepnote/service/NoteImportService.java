@@ -0,0 +1,20 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import com.stackroute.keepnote.exception.ImportJobNotFoundException;
+import com.stackroute.keepnote.model.ImportJob;
+
+public interface NoteImportService {
+
+	/*
+	 * Accepts a zip or CSV archive for the given user and queues the import. The
+	 * returned job is in QUEUED state, its progress can be polled with getImportJob.
+	 */
+	ImportJob startImport(String userId, MultipartFile file) throws IOException;
+
+	ImportJob getImportJob(String userId, String jobId) throws ImportJobNotFoundException;
+
+}
@@ -0,0 +1,220 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.stackroute.keepnote.exception.ImportJobNotFoundException;
+import com.stackroute.keepnote.importer.CountingInputStream;
+import com.stackroute.keepnote.importer.CsvNoteReader;
+import com.stackroute.keepnote.importer.NoteRecordReader;
+import com.stackroute.keepnote.importer.ZipNoteReader;
+import com.stackroute.keepnote.model.ImportJob;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.repository.ImportJobRepository;
+import com.stackroute.keepnote.repository.NoteRepository;
+
+/*
+ * Imports notes from uploaded zip/CSV archives. The upload is spooled to a temporary
+ * file and processed on a small bounded pool, further imports are rejected once the
+ * pool queue is full. Each job pulls notes from the archive one at a time and pushes
+ * them into the user's NoteUser document with one $push/$each update per batch. The
+ * reader only advances once the previous batch has been acknowledged by Mongo, so a
+ * slow database slows the parser down instead of letting parsed notes pile up, and
+ * the heap used by a job is bounded by one batch whatever the size of the archive.
+ *
+ * Every batch reserves its noteIds with one $inc on the user's NoteIdSequence right
+ * before it is written, so imports running side by side, and notes created meanwhile,
+ * never share an id. All notes of a user still live in one NoteUser document, so an
+ * import fails once that document would exceed Mongo's 16 MB limit. The batches
+ * written until then stay imported.
+ */
+@Service
+public class NoteImportServiceImpl implements NoteImportService {
+
+	@Autowired
+	private ImportJobRepository importJobRepository;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private NoteLinkService noteLinkService;
+
+	@Autowired
+	private NoteEventPublisher noteEventPublisher;
+
+	private final int batchSize;
+	private final long maxBatchChars;
+	private final int maxNoteLength;
+	private final ThreadPoolExecutor executor;
+
+	public NoteImportServiceImpl(ImportJobRepository importJobRepository, MongoOperations mongoOperations,
+			NoteRepository noteRepository, NoteLinkService noteLinkService, NoteEventPublisher noteEventPublisher,
+			@Value("${keepnote.import.batch-size:500}") int batchSize,
+			@Value("${keepnote.import.max-batch-chars:4194304}") long maxBatchChars,
+			@Value("${keepnote.import.max-note-length:1048576}") int maxNoteLength,
+			@Value("${keepnote.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+			@Value("${keepnote.import.queue-capacity:8}") int queueCapacity) {
+		this.importJobRepository = importJobRepository;
+		this.mongoOperations = mongoOperations;
+		this.noteRepository = noteRepository;
+		this.noteLinkService = noteLinkService;
+		this.noteEventPublisher = noteEventPublisher;
+		this.batchSize = batchSize;
+		this.maxBatchChars = maxBatchChars;
+		this.maxNoteLength = maxNoteLength;
+		this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("note-import-"));
+	}
+
+	public ImportJob startImport(String userId, MultipartFile file) throws IOException {
+
+		String fileName = file.getOriginalFilename();
+		Path archive = Files.createTempFile("note-import-", isZip(fileName) ? ".zip" : ".csv");
+		ImportJob job;
+		try {
+			file.transferTo(archive.toFile());
+			job = new ImportJob(UUID.randomUUID().toString(), userId, fileName, Files.size(archive));
+			importJobRepository.insert(job);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(archive);
+			throw e;
+		}
+
+		try {
+			executor.execute(() -> runImport(job, archive));
+		} catch (RejectedExecutionException e) {
+			Files.deleteIfExists(archive);
+			job.setStatus(ImportJob.FAILED);
+			job.setError("Import queue is full");
+			job.setFinishedAt(new Date());
+			importJobRepository.save(job);
+			throw e;
+		}
+		return job;
+	}
+
+	public ImportJob getImportJob(String userId, String jobId) throws ImportJobNotFoundException {
+
+		Optional<ImportJob> optional = importJobRepository.findById(jobId);
+		if (optional.isPresent() && optional.get().getUserId().equals(userId)) {
+			return optional.get();
+		}
+		throw new ImportJobNotFoundException("Import job not found");
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void runImport(ImportJob job, Path archive) {
+
+		mongoOperations.updateFirst(query(where("jobId").is(job.getJobId())),
+				new Update().set("status", ImportJob.RUNNING), ImportJob.class);
+
+		CountingInputStream counting = null;
+		try {
+			counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(archive)));
+			try (NoteRecordReader reader = openReader(job.getFileName(), counting)) {
+
+				Date creationDate = new Date();
+				List<Note> batch = new ArrayList<>(batchSize);
+				long batchChars = 0;
+
+				Note note;
+				while ((note = reader.next()) != null) {
+					note.setNoteCreatedBy(job.getUserId());
+					note.setNoteCreationDate(creationDate);
+					batch.add(note);
+					batchChars += note.getNoteContent() == null ? 0 : note.getNoteContent().length();
+
+					if (batch.size() >= batchSize || batchChars >= maxBatchChars) {
+						writeBatch(job, batch, counting.getCount());
+						batch.clear();
+						batchChars = 0;
+					}
+				}
+				if (!batch.isEmpty()) {
+					writeBatch(job, batch, counting.getCount());
+				}
+			}
+			finish(job, ImportJob.COMPLETED, null, counting.getCount());
+		} catch (IOException | RuntimeException e) {
+			finish(job, ImportJob.FAILED, e.getMessage(), counting == null ? 0 : counting.getCount());
+		} finally {
+			try {
+				Files.deleteIfExists(archive);
+			} catch (IOException e) {
+				archive.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	private NoteRecordReader openReader(String fileName, InputStream inputStream) throws IOException {
+
+		if (isZip(fileName)) {
+			return new ZipNoteReader(inputStream, maxNoteLength);
+		}
+		return new CsvNoteReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), maxNoteLength);
+	}
+
+	private boolean isZip(String fileName) {
+		return fileName != null && fileName.toLowerCase().endsWith(".zip");
+	}
+
+	private void writeBatch(ImportJob job, List<Note> batch, long bytesRead) {
+
+		int noteId = noteRepository.reserveNoteIds(job.getUserId(), batch.size());
+		for (Note note : batch) {
+			note.setNoteId(noteId++);
+		}
+		mongoOperations.upsert(query(where("userId").is(job.getUserId())),
+				new Update().push("notes").each(batch.toArray()), NoteUser.class);
+		noteLinkService.addLinks(job.getUserId(), batch);
+		noteEventPublisher.publishAdded(job.getUserId(), batch);
+		mongoOperations.updateFirst(query(where("jobId").is(job.getJobId())),
+				new Update().inc("notesImported", batch.size()).inc("batchesWritten", 1).set("bytesRead", bytesRead),
+				ImportJob.class);
+	}
+
+	private void finish(ImportJob job, String status, String error, long bytesRead) {
+
+		mongoOperations.updateFirst(query(where("jobId").is(job.getJobId())),
+				new Update().set("status", status).set("error", error).set("bytesRead", bytesRead)
+						.set("finishedAt", new Date()),
+				ImportJob.class);
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteNeighborhood;
+
+public interface NoteLinkService {
+
+	/*
+	 * Brings the outgoing edges of a note in line with the links in its content.
+	 */
+	void updateLinks(String userId, int noteId, String noteContent);
+
+	/*
+	 * Adds the outgoing edges of notes that have no edges yet, e.g. freshly imported notes.
+	 */
+	void addLinks(String userId, List<Note> notes);
+
+	void removeNote(String userId, int noteId);
+
+	void removeAllNotes(String userId);
+
+	/*
+	 * Returns the ids of the notes linking to a note.
+	 */
+	List<Integer> getBacklinks(String userId, int noteId);
+
+	NoteNeighborhood getNeighborhood(String userId, int noteId, int hops);
+
+}
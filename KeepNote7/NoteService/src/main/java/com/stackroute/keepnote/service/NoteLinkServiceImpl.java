@@ -0,0 +1,180 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteLink;
+import com.stackroute.keepnote.model.NoteNeighborhood;
+import com.stackroute.keepnote.repository.NoteLinkRepository;
+
+/*
+ * Maintains the per-user note link graph in the note_links collection. A note links
+ * to another note by writing [[noteId]] in its content. Edges are parsed when a note
+ * is written and only the difference against the stored outgoing edges is applied,
+ * so a write touches the edges that changed and nothing else. Backlinks and
+ * neighborhoods are answered from the edge indexes alone, note bodies are never read.
+ *
+ * Edges pointing at a deleted note are kept, they still reflect the content of the
+ * linking note and become live again if the id is reused.
+ */
+@Service
+public class NoteLinkServiceImpl implements NoteLinkService {
+
+	private static final Pattern LINK = Pattern.compile("\\[\\[(\\d{1,9})\\]\\]");
+
+	@Autowired
+	private NoteLinkRepository noteLinkRepository;
+
+	private final int maxHops;
+	private final int maxNodes;
+
+	public NoteLinkServiceImpl(NoteLinkRepository noteLinkRepository,
+			@Value("${keepnote.links.max-hops:3}") int maxHops,
+			@Value("${keepnote.links.max-nodes:500}") int maxNodes) {
+		this.noteLinkRepository = noteLinkRepository;
+		this.maxHops = maxHops;
+		this.maxNodes = maxNodes;
+	}
+
+	public static Set<Integer> parseLinks(int noteId, String noteContent) {
+
+		Set<Integer> targets = new LinkedHashSet<>();
+		if (noteContent != null) {
+			Matcher matcher = LINK.matcher(noteContent);
+			while (matcher.find()) {
+				int target = Integer.parseInt(matcher.group(1));
+				if (target != noteId) {
+					targets.add(target);
+				}
+			}
+		}
+		return targets;
+	}
+
+	public void updateLinks(String userId, int noteId, String noteContent) {
+
+		Set<Integer> targets = parseLinks(noteId, noteContent);
+		Set<Integer> stored = new HashSet<>();
+		for (NoteLink link : noteLinkRepository.findLinksFrom(userId, Collections.singleton(noteId))) {
+			stored.add(link.getTargetNoteId());
+		}
+
+		Set<Integer> removed = new HashSet<>(stored);
+		removed.removeAll(targets);
+		if (!removed.isEmpty()) {
+			noteLinkRepository.deleteLinks(userId, noteId, removed);
+		}
+
+		List<NoteLink> added = new ArrayList<>();
+		for (Integer target : targets) {
+			if (!stored.contains(target)) {
+				added.add(new NoteLink(userId, noteId, target));
+			}
+		}
+		insert(added);
+	}
+
+	public void addLinks(String userId, List<Note> notes) {
+
+		List<NoteLink> added = new ArrayList<>();
+		for (Note note : notes) {
+			for (Integer target : parseLinks(note.getNoteId(), note.getNoteContent())) {
+				added.add(new NoteLink(userId, note.getNoteId(), target));
+			}
+		}
+		insert(added);
+	}
+
+	public void removeNote(String userId, int noteId) {
+
+		noteLinkRepository.deleteAllLinksFrom(userId, noteId);
+	}
+
+	public void removeAllNotes(String userId) {
+
+		noteLinkRepository.deleteAllByUserId(userId);
+	}
+
+	public List<Integer> getBacklinks(String userId, int noteId) {
+
+		List<Integer> sources = new ArrayList<>();
+		for (NoteLink link : noteLinkRepository.findLinksTo(userId, Collections.singleton(noteId))) {
+			sources.add(link.getSourceNoteId());
+		}
+		Collections.sort(sources);
+		return sources;
+	}
+
+	/*
+	 * Breadth first walk over both edge directions, one pair of index queries per hop.
+	 * Hops are capped at keepnote.links.max-hops and the walk stops adding notes once
+	 * keepnote.links.max-nodes have been reached.
+	 */
+	public NoteNeighborhood getNeighborhood(String userId, int noteId, int hops) {
+
+		int depth = Math.max(0, Math.min(hops, maxHops));
+		Map<Integer, Integer> distances = new LinkedHashMap<>();
+		Map<String, NoteLink> links = new LinkedHashMap<>();
+		distances.put(noteId, 0);
+		boolean truncated = false;
+
+		Set<Integer> frontier = Collections.singleton(noteId);
+		for (int hop = 1; hop <= depth && !frontier.isEmpty() && !truncated; hop++) {
+			List<NoteLink> edges = new ArrayList<>(noteLinkRepository.findLinksFrom(userId, frontier));
+			edges.addAll(noteLinkRepository.findLinksTo(userId, frontier));
+
+			Set<Integer> next = new LinkedHashSet<>();
+			for (NoteLink edge : edges) {
+				for (int end : new int[] { edge.getSourceNoteId(), edge.getTargetNoteId() }) {
+					if (!distances.containsKey(end)) {
+						if (distances.size() >= maxNodes) {
+							truncated = true;
+							continue;
+						}
+						distances.put(end, hop);
+						next.add(end);
+					}
+				}
+				if (distances.containsKey(edge.getSourceNoteId()) && distances.containsKey(edge.getTargetNoteId())) {
+					links.putIfAbsent(edge.getSourceNoteId() + ">" + edge.getTargetNoteId(), edge);
+				}
+			}
+			frontier = next;
+		}
+
+		return new NoteNeighborhood(noteId, depth, distances, new ArrayList<>(links.values()), truncated);
+	}
+
+	private void insert(List<NoteLink> links) {
+
+		if (links.isEmpty()) {
+			return;
+		}
+		try {
+			noteLinkRepository.insert(links);
+		} catch (DuplicateKeyException e) {
+			/* a concurrent write of the same note got there first, keep what is missing */
+			for (NoteLink link : links) {
+				try {
+					noteLinkRepository.insert(link);
+				} catch (DuplicateKeyException ignored) {
+				}
+			}
+		}
+	}
+
+}
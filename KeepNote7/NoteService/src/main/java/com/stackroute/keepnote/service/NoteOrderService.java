@@ -0,0 +1,23 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.exception.NoteOrderConflictException;
+
+public interface NoteOrderService {
+
+	/*
+	 * Moves a note between two neighbours of the manual order and returns its new
+	 * order key. A null afterNoteId moves it to the start, a null beforeNoteId to the end.
+	 */
+	String moveNote(String userId, int noteId, Integer afterNoteId, Integer beforeNoteId)
+			throws NoteNotFoundExeption, NoteOrderConflictException;
+
+	void pinNote(String userId, int noteId, boolean pinned) throws NoteNotFoundExeption;
+
+	/*
+	 * Rewrites the order keys of a user's notes to short, evenly spaced keys, keeping
+	 * the current order. Returns the number of notes whose key changed.
+	 */
+	int rebalance(String userId);
+
+}
@@ -0,0 +1,171 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.exception.NoteOrderConflictException;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.repository.NoteRepository;
+
+/*
+ * Keeps the manual order of notes. Each note carries an order key (see OrderKeys);
+ * moving or pinning a note is a single positional update of that one array element,
+ * the rest of the NoteUser document is not rewritten.
+ *
+ * Keys grow when notes are repeatedly dropped into the same gap. A scheduled job
+ * looks for users with keys longer than keepnote.ordering.max-key-length and
+ * respreads their keys. Each key is only rewritten if it still holds the value the
+ * job read, so a move that races the job wins.
+ */
+@Service
+public class NoteOrderServiceImpl implements NoteOrderService {
+
+	private static final Set<String> ORDER_FIELDS = new HashSet<>(Arrays.asList("noteId", "orderKey", "pinned"));
+
+	@Autowired
+	private NoteRepository noteRepository;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	private final int maxKeyLength;
+	private final int rebalanceBatchSize;
+
+	public NoteOrderServiceImpl(NoteRepository noteRepository, MongoOperations mongoOperations,
+			@Value("${keepnote.ordering.max-key-length:16}") int maxKeyLength,
+			@Value("${keepnote.ordering.rebalance-batch-size:100}") int rebalanceBatchSize) {
+		this.noteRepository = noteRepository;
+		this.mongoOperations = mongoOperations;
+		this.maxKeyLength = maxKeyLength;
+		this.rebalanceBatchSize = rebalanceBatchSize;
+	}
+
+	public String moveNote(String userId, int noteId, Integer afterNoteId, Integer beforeNoteId)
+			throws NoteNotFoundExeption, NoteOrderConflictException {
+
+		Map<Integer, Note> neighbours = neighbours(userId, afterNoteId, beforeNoteId);
+		if (hasMissingKey(neighbours)) {
+			/* notes written before ordering existed get their keys on first use */
+			rebalance(userId);
+			neighbours = neighbours(userId, afterNoteId, beforeNoteId);
+		}
+		if ((afterNoteId != null && !neighbours.containsKey(afterNoteId))
+				|| (beforeNoteId != null && !neighbours.containsKey(beforeNoteId))) {
+			throw new NoteNotFoundExeption("Neighbour note not found");
+		}
+
+		String key;
+		try {
+			key = OrderKeys.between(afterNoteId == null ? null : neighbours.get(afterNoteId).getOrderKey(),
+					beforeNoteId == null ? null : neighbours.get(beforeNoteId).getOrderKey());
+		} catch (IllegalArgumentException e) {
+			throw new NoteOrderConflictException("Neighbours are not adjacent in this order");
+		}
+
+		setField(userId, noteId, "orderKey", key);
+		return key;
+	}
+
+	public void pinNote(String userId, int noteId, boolean pinned) throws NoteNotFoundExeption {
+
+		setField(userId, noteId, "pinned", pinned);
+	}
+
+	public int rebalance(String userId) {
+
+		List<Note> notes = noteRepository.findNotesByUserId(userId, ORDER_FIELDS);
+		if (notes == null || notes.isEmpty()) {
+			return 0;
+		}
+		notes = new ArrayList<>(notes);
+		notes.sort(OrderKeys.DISPLAY_ORDER);
+		List<String> keys = OrderKeys.spread(notes.size());
+
+		BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, NoteUser.class);
+		int changed = 0;
+		for (int i = 0; i < notes.size(); i++) {
+			Note note = notes.get(i);
+			if (!keys.get(i).equals(note.getOrderKey())) {
+				bulk.updateOne(query(where("userId").is(userId).and("notes")
+						.elemMatch(where("noteId").is(note.getNoteId()).and("orderKey").is(note.getOrderKey()))),
+						new Update().set("notes.$.orderKey", keys.get(i)));
+				changed++;
+			}
+		}
+		if (changed > 0) {
+			bulk.execute();
+		}
+		return changed;
+	}
+
+	/*
+	 * Rebalances the users that have at least one over-long key, a batch per run.
+	 */
+	@Scheduled(fixedDelayString = "${keepnote.ordering.rebalance-interval-ms:600000}")
+	public void rebalanceLongKeys() {
+
+		Query query = query(where("notes.orderKey").regex("^.{" + (maxKeyLength + 1) + "}"))
+				.limit(rebalanceBatchSize);
+		query.fields().include("userId");
+		for (NoteUser noteUser : mongoOperations.find(query, NoteUser.class)) {
+			rebalance(noteUser.getUserId());
+		}
+	}
+
+	private Map<Integer, Note> neighbours(String userId, Integer afterNoteId, Integer beforeNoteId) {
+
+		Set<Integer> ids = new HashSet<>();
+		if (afterNoteId != null) {
+			ids.add(afterNoteId);
+		}
+		if (beforeNoteId != null) {
+			ids.add(beforeNoteId);
+		}
+		Map<Integer, Note> neighbours = new HashMap<>();
+		if (!ids.isEmpty()) {
+			for (Note note : noteRepository.findNotesByIds(userId, ids, ORDER_FIELDS)) {
+				neighbours.put(note.getNoteId(), note);
+			}
+		}
+		return neighbours;
+	}
+
+	private boolean hasMissingKey(Map<Integer, Note> neighbours) {
+
+		for (Note note : neighbours.values()) {
+			if (note.getOrderKey() == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void setField(String userId, int noteId, String field, Object value) throws NoteNotFoundExeption {
+
+		long matched = mongoOperations.updateFirst(query(where("userId").is(userId).and("notes.noteId").is(noteId)),
+				new Update().set("notes.$." + field, value), NoteUser.class).getMatchedCount();
+		if (matched == 0) {
+			throw new NoteNotFoundExeption("Note Not Found!");
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteRevision;
+
+public interface NoteRevisionService {
+
+	/*
+	 * Appends the revision of a written note. previousContent and previousRevision
+	 * describe the note as it was before the write (null and 0 for a new note). If a
+	 * concurrent write took the note's revision number, the revision is appended
+	 * after the newest one and the note's revision is set to the number it got.
+	 */
+	void recordRevision(String userId, Note note, String previousContent, int previousRevision);
+
+	/*
+	 * Lists the revisions of a note, newest first, without their content.
+	 */
+	List<NoteRevision> getRevisions(String userId, int noteId);
+
+	/*
+	 * Rebuilds the note as it was at the given revision.
+	 */
+	Note getNoteAtRevision(String userId, int noteId, int revision) throws NoteNotFoundExeption;
+
+}
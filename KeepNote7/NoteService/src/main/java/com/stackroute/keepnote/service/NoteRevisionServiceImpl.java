@@ -0,0 +1,135 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteRevision;
+import com.stackroute.keepnote.model.TextDelta;
+import com.stackroute.keepnote.repository.NoteRevisionRepository;
+
+/*
+ * Stores the revision history of notes in the note_revisions collection. Every write
+ * of a note appends exactly one revision document. A full snapshot of the content is
+ * stored for the first revision, every snapshot-interval revisions and whenever the
+ * delta would be larger than half the note; all other revisions store a TextDelta
+ * against the previous revision. Reading a revision costs one indexed lookup for the
+ * closest snapshot and one range query for the deltas after it.
+ *
+ * Two concurrent writes of a note both read the same revision and both try to
+ * append the next one. The unique (userId, noteId, revision) index rejects the
+ * second insert. The loser is then appended after the newest stored revision, as a
+ * snapshot because its delta was computed against content that is no longer the
+ * previous revision. The number it got is set on the note, which the caller saves
+ * only after this, so the stored note and its newest revision agree.
+ */
+@Service
+public class NoteRevisionServiceImpl implements NoteRevisionService {
+
+	private static final int MAX_INSERT_ATTEMPTS = 5;
+
+	@Autowired
+	private NoteRevisionRepository noteRevisionRepository;
+
+	private final int snapshotInterval;
+
+	public NoteRevisionServiceImpl(NoteRevisionRepository noteRevisionRepository,
+			@Value("${keepnote.revisions.snapshot-interval:20}") int snapshotInterval) {
+		this.noteRevisionRepository = noteRevisionRepository;
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public void recordRevision(String userId, Note note, String previousContent, int previousRevision) {
+
+		String content = note.getNoteContent() == null ? "" : note.getNoteContent();
+
+		NoteRevision revision = new NoteRevision();
+		revision.setUserId(userId);
+		revision.setNoteId(note.getNoteId());
+		revision.setRevision(note.getRevision());
+		revision.setNoteTitle(note.getNoteTitle());
+		revision.setNoteStatus(note.getNoteStatus());
+		revision.setContentLength(content.length());
+		revision.setRevisionDate(new Date());
+
+		/* notes written before revisions were kept have no stored chain to diff against */
+		boolean snapshot = previousRevision == 0 || note.getRevision() % snapshotInterval == 0;
+		if (!snapshot) {
+			TextDelta delta = TextDelta.between(previousContent, content);
+			if (delta.size() * 2 > content.length()) {
+				snapshot = true;
+			} else {
+				revision.setDelta(delta);
+			}
+		}
+		if (snapshot) {
+			revision.setSnapshot(true);
+			revision.setNoteContent(content);
+		}
+
+		for (int attempt = 1; ; attempt++) {
+			try {
+				noteRevisionRepository.insert(revision);
+				note.setRevision(revision.getRevision());
+				return;
+			} catch (DuplicateKeyException e) {
+				NoteRevision latest = noteRevisionRepository.findFirstByUserIdAndNoteIdOrderByRevisionDesc(userId,
+						note.getNoteId());
+				if (attempt == MAX_INSERT_ATTEMPTS || latest == null) {
+					throw e;
+				}
+				revision.setRevision(latest.getRevision() + 1);
+				revision.setSnapshot(true);
+				revision.setNoteContent(content);
+				revision.setDelta(null);
+			}
+		}
+	}
+
+	public List<NoteRevision> getRevisions(String userId, int noteId) {
+
+		return noteRevisionRepository.findRevisionSummaries(userId, noteId, Sort.by(Sort.Direction.DESC, "revision"));
+	}
+
+	public Note getNoteAtRevision(String userId, int noteId, int revision) throws NoteNotFoundExeption {
+
+		NoteRevision snapshot = noteRevisionRepository
+				.findFirstByUserIdAndNoteIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(userId, noteId,
+						revision);
+		if (snapshot == null) {
+			throw new NoteNotFoundExeption("Revision not found");
+		}
+
+		NoteRevision last = snapshot;
+		String content = snapshot.getNoteContent();
+		if (snapshot.getRevision() < revision) {
+			List<NoteRevision> deltas = noteRevisionRepository.findRevisionsAfter(userId, noteId,
+					snapshot.getRevision(), revision, Sort.by(Sort.Direction.ASC, "revision"));
+			for (NoteRevision delta : deltas) {
+				content = delta.isSnapshot() ? delta.getNoteContent() : delta.getDelta().applyTo(content);
+				last = delta;
+			}
+		}
+		if (last.getRevision() != revision) {
+			throw new NoteNotFoundExeption("Revision not found");
+		}
+
+		Note note = new Note();
+		note.setNoteId(noteId);
+		note.setNoteCreatedBy(userId);
+		note.setNoteTitle(last.getNoteTitle());
+		note.setNoteStatus(last.getNoteStatus());
+		note.setNoteContent(content);
+		note.setRevision(revision);
+		note.setNoteCreationDate(last.getRevisionDate());
+		return note;
+	}
+
+}
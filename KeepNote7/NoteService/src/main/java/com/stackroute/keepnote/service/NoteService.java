@@ -2,8 +2,10 @@ package com.stackroute.keepnote.service;
 
 import com.stackroute.keepnote.exception.NoteNotFoundExeption;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteLookup;
 
 import java.util.List;
+import java.util.Set;
 
 
 public interface NoteService {
@@ -26,5 +28,11 @@ public interface NoteService {
 
     List<Note> getAllNoteByUserId(String userId);
 
+    Note getNoteByNoteId(String userId, int noteId, Set<String> fields) throws NoteNotFoundExeption;
+
+    List<Note> getAllNoteByUserId(String userId, Set<String> fields);
+
+    List<NoteLookup> getNotesByNoteIds(String userId, List<Integer> noteIds, Set<String> fields);
+
 
 }
@@ -1,16 +1,23 @@
 package com.stackroute.keepnote.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.keepnote.exception.NoteNotFoundExeption;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteLookup;
 import com.stackroute.keepnote.model.NoteUser;
 import com.stackroute.keepnote.repository.NoteRepository;
 
@@ -35,14 +42,32 @@ public class NoteServiceImpl implements NoteService{
 	@Autowired
 	private NoteRepository noteRepository;
 	
+	@Autowired
+	private NoteRevisionService noteRevisionService;
+	
+	@Autowired
+	private NoteLinkService noteLinkService;
+	
+	@Autowired
+	private NoteTrashService noteTrashService;
+	
+	@Autowired
+	private NoteEventPublisher noteEventPublisher;
 			
-	public NoteServiceImpl(NoteRepository noteRepository) {
+	public NoteServiceImpl(NoteRepository noteRepository, NoteRevisionService noteRevisionService,
+			NoteLinkService noteLinkService, NoteTrashService noteTrashService, NoteEventPublisher noteEventPublisher) {
 		this.noteRepository = noteRepository;
+		this.noteRevisionService = noteRevisionService;
+		this.noteLinkService = noteLinkService;
+		this.noteTrashService = noteTrashService;
+		this.noteEventPublisher = noteEventPublisher;
 		
 	}
 
 	/*
-	 * This method should be used to save a new note.
+	 * This method should be used to save a new note. The note is pushed onto the
+	 * user's notes instead of saving the whole list read before, so notes an import
+	 * adds in the meantime are not overwritten.
 	 */
 	public boolean createNote(Note note) {
 		
@@ -50,30 +75,41 @@ public class NoteServiceImpl implements NoteService{
 		NoteUser noteUser = new NoteUser();
 		if(note!= null && note.getNoteCreatedBy()!= null) {
 			note.setNoteCreationDate(new Date());
+			note.setRevision(1);
 			List<Note> notes = null;
 			
 			notes = getAllNoteByUserId(note.getNoteCreatedBy());
 			if(notes!= null && !notes.isEmpty()) {
 				
-				notes.add(note);
-				noteUser.setNotes(notes);
-				noteUser.setUserId(note.getNoteCreatedBy());
-				NoteUser noteUser2=  noteRepository.save(noteUser);
-				System.out.println("noteUser2 Update:::: "+noteUser2);
-				if(noteUser2!=null) {
+				note.setOrderKey(OrderKeys.between(lastOrderKey(notes), null));
+				if(noteRepository.pushNote(note.getNoteCreatedBy(), note)) {
+					noteRevisionService.recordRevision(note.getNoteCreatedBy(), note, null, 0);
+					noteLinkService.updateLinks(note.getNoteCreatedBy(), note.getNoteId(), note.getNoteContent());
+					noteEventPublisher.publishAdded(note.getNoteCreatedBy(), Collections.singletonList(note));
 					return true;
 				}
 				
 			}else {
 
 				notes = new ArrayList<>();
+				note.setOrderKey(OrderKeys.between(null, null));
 				notes.add(note);
 				noteUser.setNotes(notes);
 				noteUser.setUserId(note.getNoteCreatedBy());
 				
-				NoteUser noteUser2=  noteRepository.insert(noteUser);
-				System.out.println("noteUser2 Insert:::: "+noteUser2);
-				if(noteUser2!=null) {
+				boolean added;
+				try {
+					NoteUser noteUser2=  noteRepository.insert(noteUser);
+					System.out.println("noteUser2 Insert:::: "+noteUser2);
+					added = noteUser2 != null;
+				} catch (DuplicateKeyException e) {
+					/* an import created the user's document first */
+					added = noteRepository.pushNote(note.getNoteCreatedBy(), note);
+				}
+				if(added) {
+					noteRevisionService.recordRevision(note.getNoteCreatedBy(), note, null, 0);
+					noteLinkService.updateLinks(note.getNoteCreatedBy(), note.getNoteId(), note.getNoteContent());
+					noteEventPublisher.publishAdded(note.getNoteCreatedBy(), Collections.singletonList(note));
 					return true;
 				}
 			}
@@ -82,7 +118,22 @@ public class NoteServiceImpl implements NoteService{
 		return false;
 	}
 	
-	/* This method should be used to delete an existing note. */
+	/* new notes are appended after the last note of the manual order */
+	private String lastOrderKey(List<Note> notes) {
+		
+		String last = null;
+		for (Note existing : notes) {
+			if(existing.getOrderKey() != null && (last == null || existing.getOrderKey().compareTo(last) > 0)) {
+				last = existing.getOrderKey();
+			}
+		}
+		return last;
+	}
+	
+	/*
+	 * This method should be used to delete an existing note. The note is moved to
+	 * the trash, from where it can be restored until it is purged.
+	 */
 
 	
 	public boolean deleteNote(String userId, int noteId) {
@@ -96,12 +147,9 @@ public class NoteServiceImpl implements NoteService{
 				throw new NullPointerException();
 			}
 			if(note!= null) {
-				NoteUser noteUser = new NoteUser();
-				List<Note> notes = new ArrayList<>();
-				notes.add(note);
-				noteUser.setNotes(notes);
-				noteUser.setUserId(userId);
-				noteRepository.delete(noteUser);
+				noteTrashService.moveToTrash(userId, note);
+				noteLinkService.removeNote(userId, noteId);
+				noteEventPublisher.publishRemoved(userId, Collections.singletonList(note));
 				return true;
 			}
 		}
@@ -109,14 +157,20 @@ public class NoteServiceImpl implements NoteService{
 		return false;
 	}
 	
-	/* This method should be used to delete all notes with specific userId. */
+	/*
+	 * This method should be used to delete all notes with specific userId. The notes
+	 * are copied to the trash first.
+	 */
 
 	
 	public boolean deleteAllNotes(String userId) {
 		
 		if(userId!= null) {
 			
+			noteTrashService.moveAllToTrash(userId, getAllNoteByUserId(userId));
 			noteRepository.deleteAllByUserId(userId);
+			noteLinkService.removeAllNotes(userId);
+			noteEventPublisher.publishReset(userId);
 			return true;
 		}
 		
@@ -124,14 +178,20 @@ public class NoteServiceImpl implements NoteService{
 	}
 
 	/*
-	 * This method should be used to update a existing note.
+	 * This method should be used to update a existing note. The previous content is
+	 * kept in the revision history, one revision is appended per update, and the
+	 * note's outgoing links are brought in line with the new content. The revision is
+	 * appended before the note is saved, so the note is stored with the number the
+	 * revision history assigned, also when a concurrent write took the next one.
 	 */
 	public Note updateNote(Note note, int id, String userId) throws NoteNotFoundExeption {
 		
 		List<Note> notes = null;
 		if(userId != null) {
 			
-			 getNoteByNoteId(userId, id);
+			Note previous = getNoteByNoteId(userId, id);
+			String previousContent = previous == null ? null : previous.getNoteContent();
+			int previousRevision = previous == null ? 0 : previous.getRevision();
 			
 			notes = getAllNoteByUserId(userId);
 			//note1 =  getNoteByNoteId(userId, id);
@@ -144,10 +204,20 @@ public class NoteServiceImpl implements NoteService{
 					}
 				}
 				
+				note.setNoteId(id);
+				note.setRevision(previousRevision + 1);
+				/* order and pinning only change through NoteOrderService */
+				if(previous != null) {
+					note.setOrderKey(previous.getOrderKey());
+					note.setPinned(previous.isPinned());
+				}
+				noteRevisionService.recordRevision(userId, note, previousContent, previousRevision);
 				newNotes.add(note);
 				noteUser.setNotes(newNotes);
 				noteUser.setUserId(userId);
 				noteRepository.save(noteUser);
+				noteLinkService.updateLinks(userId, id, note.getNoteContent());
+				noteEventPublisher.publishReplaced(userId, previous, note);
 				return note;
 			}
 			
@@ -203,4 +273,66 @@ public class NoteServiceImpl implements NoteService{
 		return null;
 	}
 
-}
\ No newline at end of file
+	/*
+	 * Same as getNoteByNoteId, but only the given fields of the user's notes are
+	 * loaded from the database.
+	 */
+	public Note getNoteByNoteId(String userId, int noteId, Set<String> fields) throws NoteNotFoundExeption {
+		
+		if(userId!= null && noteId > 0) {
+			
+			Set<String> projection = new HashSet<>(fields);
+			projection.add("noteId");
+			List<Note> notes = noteRepository.findNotesByUserId(userId, projection);
+			if(notes!= null) {
+				for (Note note : notes) {
+					if(note.getNoteId() == noteId) {
+						return note;
+					}
+				}
+			}
+		}
+		
+		throw new NoteNotFoundExeption("Note Not Found!");
+	}
+
+	/*
+	 * Same as getAllNoteByUserId, but only the given fields of the notes are loaded
+	 * from the database.
+	 */
+	public List<Note> getAllNoteByUserId(String userId, Set<String> fields) {
+		
+		if(userId!= null) {
+			return noteRepository.findNotesByUserId(userId, fields);
+		}
+		
+		return null;
+	}
+
+	/*
+	 * This method should be used to get many notes of a user at once. All ids are
+	 * resolved by one aggregation and the result follows the order of noteIds, ids
+	 * without a note are marked NOT_FOUND. fields may be null for whole notes.
+	 */
+	public List<NoteLookup> getNotesByNoteIds(String userId, List<Integer> noteIds, Set<String> fields) {
+		
+		Set<String> projection = null;
+		if(fields != null) {
+			projection = new HashSet<>(fields);
+			projection.add("noteId");
+		}
+		
+		Map<Integer, Note> notes = new HashMap<>();
+		for (Note note : noteRepository.findNotesByIds(userId, new HashSet<>(noteIds), projection)) {
+			notes.putIfAbsent(note.getNoteId(), note);
+		}
+		
+		List<NoteLookup> lookups = new ArrayList<>(noteIds.size());
+		for (Integer noteId : noteIds) {
+			Note note = notes.get(noteId);
+			lookups.add(new NoteLookup(noteId, note == null ? NoteLookup.NOT_FOUND : NoteLookup.FOUND, note));
+		}
+		return lookups;
+	}
+
+}
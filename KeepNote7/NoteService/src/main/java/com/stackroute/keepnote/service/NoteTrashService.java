@@ -0,0 +1,26 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.exception.NoteAlreadyExistsException;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.TrashedNote;
+
+public interface NoteTrashService {
+
+	/*
+	 * Copies the note into the trash and pulls it out of the user's notes.
+	 */
+	void moveToTrash(String userId, Note note);
+
+	/*
+	 * Copies all notes into the trash. The caller removes the notes themselves.
+	 */
+	void moveAllToTrash(String userId, List<Note> notes);
+
+	List<TrashedNote> getTrash(String userId);
+
+	Note restoreNote(String userId, int noteId) throws NoteNotFoundExeption, NoteAlreadyExistsException;
+
+}
@@ -0,0 +1,116 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.NoteAlreadyExistsException;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.model.TrashedNote;
+import com.stackroute.keepnote.repository.TrashedNoteRepository;
+
+/*
+ * Deleting a note moves it into the note_trash collection: one insert there and one
+ * $pull of the array element from the user's NoteUser document, the other notes are
+ * not rewritten. Trashed notes are purged by Mongo's TTL monitor after
+ * keepnote.trash.retention-days. Restoring pushes the note back and rebuilds its
+ * outgoing links, which were dropped on delete. The push only matches a document
+ * without a note of that id, so concurrent restores, creates or imports of the same
+ * noteId cannot add it twice; the trash entry is removed once the push went through.
+ */
+@Service
+public class NoteTrashServiceImpl implements NoteTrashService {
+
+	@Autowired
+	private TrashedNoteRepository trashedNoteRepository;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private NoteLinkService noteLinkService;
+
+	@Autowired
+	private NoteEventPublisher noteEventPublisher;
+
+	private final long retentionMillis;
+
+	public NoteTrashServiceImpl(TrashedNoteRepository trashedNoteRepository, MongoOperations mongoOperations,
+			NoteLinkService noteLinkService, NoteEventPublisher noteEventPublisher,
+			@Value("${keepnote.trash.retention-days:30}") int retentionDays) {
+		this.trashedNoteRepository = trashedNoteRepository;
+		this.mongoOperations = mongoOperations;
+		this.noteLinkService = noteLinkService;
+		this.noteEventPublisher = noteEventPublisher;
+		this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+	}
+
+	public void moveToTrash(String userId, Note note) {
+
+		trashedNoteRepository.save(trashed(userId, note, new Date()));
+		mongoOperations.updateFirst(query(where("_id").is(userId)),
+				new Update().pull("notes", new Document("noteId", note.getNoteId())), NoteUser.class);
+	}
+
+	public void moveAllToTrash(String userId, List<Note> notes) {
+
+		if (notes == null || notes.isEmpty()) {
+			return;
+		}
+		Date now = new Date();
+		List<TrashedNote> trashed = new ArrayList<>(notes.size());
+		for (Note note : notes) {
+			trashed.add(trashed(userId, note, now));
+		}
+		trashedNoteRepository.saveAll(trashed);
+	}
+
+	public List<TrashedNote> getTrash(String userId) {
+
+		return trashedNoteRepository.findByUserId(userId, Sort.by(Sort.Direction.DESC, "deletedAt"));
+	}
+
+	public Note restoreNote(String userId, int noteId) throws NoteNotFoundExeption, NoteAlreadyExistsException {
+
+		String key = TrashedNote.key(userId, noteId);
+		Optional<TrashedNote> trashed = trashedNoteRepository.findById(key);
+		if (!trashed.isPresent()) {
+			throw new NoteNotFoundExeption("Note not found in trash");
+		}
+
+		Note note = trashed.get().getNote();
+		try {
+			mongoOperations.upsert(query(where("_id").is(userId).and("notes.noteId").ne(noteId)),
+					new Update().push("notes", note), NoteUser.class);
+		} catch (DuplicateKeyException e) {
+			/* the document exists and already holds a note with this id */
+			throw new NoteAlreadyExistsException("Note already exists");
+		}
+		trashedNoteRepository.deleteById(key);
+		noteLinkService.updateLinks(userId, noteId, note.getNoteContent());
+		noteEventPublisher.publishAdded(userId, Collections.singletonList(note));
+		return note;
+	}
+
+	private TrashedNote trashed(String userId, Note note, Date now) {
+		return new TrashedNote(userId, note, now, new Date(now.getTime() + retentionMillis));
+	}
+
+}
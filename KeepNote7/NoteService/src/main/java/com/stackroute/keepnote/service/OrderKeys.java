@@ -0,0 +1,121 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Fractional indexing for the manual order of notes. A key is a base-62 string read
+ * as the digits of a fraction in (0, 1); keys never end in '0', so there is always a
+ * key between any two keys and a note can be moved by giving it the key between its
+ * new neighbours without touching any other note. The digits are in ASCII order, so
+ * keys compare correctly with String.compareTo and in Mongo.
+ */
+public final class OrderKeys {
+
+	static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+	private static final int BASE = DIGITS.length();
+
+	/*
+	 * Pinned notes first, then by order key, notes without a key last by noteId.
+	 */
+	public static final Comparator<Note> DISPLAY_ORDER = Comparator.comparing(Note::isPinned).reversed()
+			.thenComparing(Note::getOrderKey, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparingInt(Note::getNoteId);
+
+	private OrderKeys() {
+	}
+
+	/*
+	 * Returns a key sorting strictly between before and after. A null before means
+	 * the start of the list, a null after the end.
+	 */
+	public static String between(String before, String after) {
+
+		if (before != null && after != null && before.compareTo(after) >= 0) {
+			throw new IllegalArgumentException("Keys out of order: " + before + " >= " + after);
+		}
+		/* at the ends of the list step the last digit, so repeated appends grow slowly */
+		if (before != null && after == null && lastDigit(before) < BASE - 1) {
+			return withLastDigit(before, lastDigit(before) + 1);
+		}
+		if (before == null && after != null && lastDigit(after) > 1) {
+			return withLastDigit(after, lastDigit(after) - 1);
+		}
+		return midpoint(before == null ? "" : before, after);
+	}
+
+	/*
+	 * Returns count evenly spaced keys in ascending order, all of the shortest length
+	 * that can hold them. Used to rebalance a list whose keys have grown long.
+	 */
+	public static List<String> spread(int count) {
+
+		int length = 1;
+		long slots = BASE;
+		while (slots <= count) {
+			length++;
+			slots *= BASE;
+		}
+
+		List<String> keys = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			keys.add(encode(slots * i / (count + 1), length));
+		}
+		return keys;
+	}
+
+	/* a is the lower bound ("" for 0), b the upper bound (null for 1) */
+	private static String midpoint(String a, String b) {
+
+		if (b != null) {
+			int common = 0;
+			while (common < b.length() && digitAt(a, common) == b.charAt(common)) {
+				common++;
+			}
+			if (common > 0) {
+				return b.substring(0, common)
+						+ midpoint(a.length() > common ? a.substring(common) : "", b.substring(common));
+			}
+		}
+
+		int low = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+		int high = b == null ? BASE : DIGITS.indexOf(b.charAt(0));
+		if (high - low > 1) {
+			return String.valueOf(DIGITS.charAt((low + high) / 2));
+		}
+		if (b != null && b.length() > 1) {
+			return b.substring(0, 1);
+		}
+		return DIGITS.charAt(low) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+	}
+
+	private static int lastDigit(String key) {
+		return DIGITS.indexOf(key.charAt(key.length() - 1));
+	}
+
+	private static String withLastDigit(String key, int digit) {
+		return key.substring(0, key.length() - 1) + DIGITS.charAt(digit);
+	}
+
+	private static char digitAt(String key, int index) {
+		return index < key.length() ? key.charAt(index) : DIGITS.charAt(0);
+	}
+
+	private static String encode(long value, int length) {
+
+		char[] digits = new char[length];
+		for (int i = length - 1; i >= 0; i--) {
+			digits[i] = DIGITS.charAt((int) (value % BASE));
+			value /= BASE;
+		}
+		int end = length;
+		while (end > 1 && digits[end - 1] == DIGITS.charAt(0)) {
+			end--;
+		}
+		return new String(digits, 0, end);
+	}
+
+}
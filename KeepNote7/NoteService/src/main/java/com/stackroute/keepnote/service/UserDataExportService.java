@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface UserDataExportService {
+
+	/*
+	 * Starts fetching the user's categories and reminders from their services and
+	 * returns the body that writes the export zip (notes, categories and reminders)
+	 * to the response. Throws RejectedExecutionException when the maximum number of
+	 * concurrent exports is already running.
+	 */
+	StreamingResponseBody startExport(String userId, String authorization);
+
+}
@@ -0,0 +1,279 @@
+package com.stackroute.keepnote.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.SynchronousQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mongodb.client.MongoCursor;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteUser;
+
+/*
+ * Builds the "download everything" zip of a user. Notes are read from Mongo with an
+ * aggregation cursor that unwinds the NoteUser document, categories and reminders
+ * are read from the newline delimited JSON streams of CategoryService and
+ * ReminderService. The two remote streams are fetched in parallel with the notes,
+ * each into a bounded queue: once a queue is full its fetcher blocks (and so does
+ * the remote cursor behind it) until the zip writer drains it. Every record is
+ * written to the response as soon as the zip writer reaches it, no part of the
+ * export holds the full dataset of the user.
+ *
+ * The export permit and the two fetchers belong to the returned body. If the body
+ * is not invoked within fetch-timeout-seconds, e.g. because the client went away
+ * before the response was committed, releaseAbandonedExports() releases them.
+ */
+@Service
+public class UserDataExportServiceImpl implements UserDataExportService {
+
+	private static final String END_OF_STREAM = new String("END_OF_STREAM");
+
+	private static final ObjectWriter NOTE_WRITER = new ObjectMapper().writerFor(Note.class);
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private RestTemplate restTemplate;
+
+	private final String categoryStreamUrl;
+	private final String reminderStreamUrl;
+	private final int bufferedRecords;
+	private final long fetchTimeoutSeconds;
+	private final Semaphore exportPermits;
+	private final ThreadPoolExecutor fetchExecutor;
+	private final Set<PendingExport> pendingExports = ConcurrentHashMap.newKeySet();
+
+	public UserDataExportServiceImpl(MongoOperations mongoOperations, RestTemplate restTemplate,
+			@Value("${keepnote.export.category-stream-url:http://category-service/api/v1/category/stream}") String categoryStreamUrl,
+			@Value("${keepnote.export.reminder-stream-url:http://reminder-service/api/v1/reminder/stream}") String reminderStreamUrl,
+			@Value("${keepnote.export.buffered-records:256}") int bufferedRecords,
+			@Value("${keepnote.export.fetch-timeout-seconds:120}") long fetchTimeoutSeconds,
+			@Value("${keepnote.export.max-concurrent-exports:4}") int maxConcurrentExports) {
+		this.mongoOperations = mongoOperations;
+		this.restTemplate = restTemplate;
+		this.categoryStreamUrl = categoryStreamUrl;
+		this.reminderStreamUrl = reminderStreamUrl;
+		this.bufferedRecords = bufferedRecords;
+		this.fetchTimeoutSeconds = fetchTimeoutSeconds;
+		this.exportPermits = new Semaphore(maxConcurrentExports);
+		this.fetchExecutor = new ThreadPoolExecutor(2 * maxConcurrentExports, 2 * maxConcurrentExports, 0L,
+				TimeUnit.MILLISECONDS, new SynchronousQueue<>(), new CustomizableThreadFactory("user-export-"));
+	}
+
+	public StreamingResponseBody startExport(String userId, String authorization) {
+
+		if (!exportPermits.tryAcquire()) {
+			throw new RejectedExecutionException("Too many exports in progress");
+		}
+
+		RemoteFeed categories = new RemoteFeed(categoryStreamUrl, authorization);
+		RemoteFeed reminders = new RemoteFeed(reminderStreamUrl, authorization);
+		try {
+			categories.future = fetchExecutor.submit(categories);
+			reminders.future = fetchExecutor.submit(reminders);
+		} catch (RejectedExecutionException e) {
+			categories.cancel();
+			exportPermits.release();
+			throw e;
+		}
+
+		PendingExport export = new PendingExport(categories, reminders);
+		pendingExports.add(export);
+		return outputStream -> {
+			if (!pendingExports.remove(export)) {
+				throw new InterruptedIOException("Export abandoned before the response was written");
+			}
+			try {
+				ZipOutputStream zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+				writeNotes(userId, zip);
+				writeFeed("categories.ndjson", categories, zip);
+				writeFeed("reminders.ndjson", reminders, zip);
+				zip.finish();
+				zip.flush();
+			} finally {
+				export.release();
+			}
+		};
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.export.abandoned-check-ms:30000}")
+	public void releaseAbandonedExports() {
+
+		long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(fetchTimeoutSeconds);
+		for (PendingExport export : pendingExports) {
+			if (export.createdAt < cutoff && pendingExports.remove(export)) {
+				export.release();
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		fetchExecutor.shutdownNow();
+	}
+
+	private void writeNotes(String userId, ZipOutputStream zip) throws IOException {
+
+		zip.putNextEntry(new ZipEntry("notes.ndjson"));
+		MongoCursor<Document> cursor = mongoOperations.getCollection(mongoOperations.getCollectionName(NoteUser.class))
+				.aggregate(Arrays.asList(new Document("$match", new Document("_id", userId)),
+						new Document("$unwind", "$notes"),
+						new Document("$replaceRoot", new Document("newRoot", "$notes"))))
+				.batchSize(bufferedRecords).iterator();
+		try {
+			while (cursor.hasNext()) {
+				Note note = mongoOperations.getConverter().read(Note.class, cursor.next());
+				zip.write(NOTE_WRITER.writeValueAsBytes(note));
+				zip.write('\n');
+			}
+		} finally {
+			cursor.close();
+		}
+		zip.closeEntry();
+	}
+
+	private void writeFeed(String entryName, RemoteFeed feed, ZipOutputStream zip) throws IOException {
+
+		zip.putNextEntry(new ZipEntry(entryName));
+		String line;
+		while ((line = feed.take()) != END_OF_STREAM) {
+			zip.write(line.getBytes(StandardCharsets.UTF_8));
+			zip.write('\n');
+		}
+		zip.closeEntry();
+
+		if (feed.failure != null) {
+			zip.putNextEntry(new ZipEntry(entryName + ".error.txt"));
+			zip.write(("Export of " + entryName + " is incomplete: " + feed.failure).getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+	}
+
+	/*
+	 * An export whose body has not started yet. Whoever removes it from
+	 * pendingExports, the body or releaseAbandonedExports(), releases it.
+	 */
+	private class PendingExport {
+
+		private final RemoteFeed categories;
+		private final RemoteFeed reminders;
+		private final long createdAt = System.currentTimeMillis();
+
+		PendingExport(RemoteFeed categories, RemoteFeed reminders) {
+			this.categories = categories;
+			this.reminders = reminders;
+		}
+
+		void release() {
+			categories.cancel();
+			reminders.cancel();
+			exportPermits.release();
+		}
+	}
+
+	/*
+	 * Reads one remote newline delimited JSON stream into a bounded queue.
+	 */
+	private class RemoteFeed implements Runnable {
+
+		private final String url;
+		private final String authorization;
+		private final BlockingQueue<String> records = new ArrayBlockingQueue<>(bufferedRecords);
+		private volatile Future<?> future;
+		private volatile String failure;
+
+		RemoteFeed(String url, String authorization) {
+			this.url = url;
+			this.authorization = authorization;
+		}
+
+		public void run() {
+			try {
+				restTemplate.execute(url, HttpMethod.GET,
+						request -> request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization), response -> {
+							BufferedReader reader = new BufferedReader(
+									new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+							String line;
+							while ((line = reader.readLine()) != null) {
+								if (!line.isEmpty()) {
+									put(line);
+								}
+							}
+							return null;
+						});
+			} catch (RuntimeException e) {
+				failure = e.getMessage();
+			} finally {
+				try {
+					records.put(END_OF_STREAM);
+				} catch (InterruptedException e) {
+					/* the export was cancelled, nobody reads the queue any more */
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void put(String line) throws IOException {
+			try {
+				records.put(line);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Export cancelled");
+			}
+		}
+
+		String take() throws IOException {
+			try {
+				String line = records.poll(fetchTimeoutSeconds, TimeUnit.SECONDS);
+				if (line == null) {
+					cancel();
+					failure = "timed out waiting for " + url;
+					return END_OF_STREAM;
+				}
+				return line;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Export cancelled");
+			}
+		}
+
+		void cancel() {
+			if (future != null) {
+				future.cancel(true);
+			}
+		}
+	}
+
+}
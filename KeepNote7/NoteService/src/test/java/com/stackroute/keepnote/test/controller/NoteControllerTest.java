@@ -1,12 +1,22 @@
 package com.stackroute.keepnote.test.controller;
 
+import java.util.Arrays;
+import com.stackroute.keepnote.model.NoteLookup;
+import java.util.Collections;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.controller.NoteController;
 import com.stackroute.keepnote.exception.NoteNotFoundExeption;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.service.IdempotencyService;
+import com.stackroute.keepnote.service.MarkdownRenderService;
 import com.stackroute.keepnote.service.NoteService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -16,7 +26,9 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -25,13 +37,16 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.doReturn;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 @RunWith(SpringRunner.class)
-@WebMvcTest
+@WebMvcTest(NoteController.class)
 public class NoteControllerTest {
 
     @Autowired
@@ -45,6 +60,10 @@ public class NoteControllerTest {
     private Reminder reminder;
     @MockBean
     private NoteService noteService;
+    @MockBean
+    private IdempotencyService idempotencyService;
+    @MockBean
+    private MarkdownRenderService markdownRenderService;
     @InjectMocks
     private NoteController noteController;
     private List<Note> noteList;
@@ -225,6 +244,93 @@ public class NoteControllerTest {
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void addNoteWithIdempotencyKeyStoresResponse() throws Exception {
+        Claims claims = Jwts.claims().setSubject("Jhon123");
+        when(noteService.createNote(any())).thenReturn(true);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/note").contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", "key-1").requestAttr("claims", claims)
+                .content(asJsonString(note)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(idempotencyService).complete(eq("note:Jhon123:key-1"), any(), any());
+    }
+
+    @Test
+    public void addNoteWithIdempotencyKeyReplaysStoredResponse() throws Exception {
+        Claims claims = Jwts.claims().setSubject("Jhon123");
+        doReturn(new ResponseEntity<>(HttpStatus.CREATED)).when(idempotencyService)
+                .reserve(eq("note:Jhon123:key-1"), any());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/note").contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", "key-1").requestAttr("claims", claims)
+                .content(asJsonString(note)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(noteService, never()).createNote(any());
+    }
+
+    @Test
+    public void getNoteRenderedAsHtml() throws Exception {
+        when(noteService.getNoteByNoteId("Jhon123", 1)).thenReturn(note);
+        when(markdownRenderService.renderHtml(note.getNoteContent())).thenReturn("<p>rendered</p>\n");
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1").param("render", "html")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.noteContentHtml").value("<p>rendered</p>\n"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getNoteWithoutRenderOmitsHtml() throws Exception {
+        when(noteService.getNoteByNoteId("Jhon123", 1)).thenReturn(note);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.noteContentHtml").doesNotExist())
+                .andDo(MockMvcResultHandlers.print());
+        verify(markdownRenderService, never()).renderHtml(any());
+    }
+
+    @Test
+    public void getNoteWithFields() throws Exception {
+        Note projected = new Note();
+        projected.setNoteId(1);
+        projected.setNoteTitle("IPL lists");
+        when(noteService.getNoteByNoteId("Jhon123", 1, Collections.singleton("noteTitle"))).thenReturn(projected);
+        mockMvc = MockMvcBuilders.standaloneSetup(noteController).setMessageConverters(sparseFieldsConverter()).build();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1").param("fields", "noteTitle"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.noteTitle").value("IPL lists"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.noteId").doesNotExist())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getNoteWithUnknownField() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1").param("fields", "noSuchField"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    private static MappingJackson2HttpMessageConverter sparseFieldsConverter() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        SparseFieldsConfig.configure(builder);
+        return new MappingJackson2HttpMessageConverter(builder.build());
+    }
+
+    @Test
+    public void getNotesByIdsInRequestOrder() throws Exception {
+        when(noteService.getNotesByNoteIds("Jhon123", Arrays.asList(7, 1), null)).thenReturn(Arrays.asList(
+                new NoteLookup(7, NoteLookup.NOT_FOUND, null), new NoteLookup(1, NoteLookup.FOUND, note)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123").param("ids", "7,1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("NOT_FOUND"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].note").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].note.noteTitle").value("IPL lists"))
+                .andDo(MockMvcResultHandlers.print());
+        verify(noteService, never()).getAllNoteByUserId("Jhon123");
+    }
+
     private static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
@@ -0,0 +1,98 @@
+package com.stackroute.keepnote.test.controller;
+
+import com.stackroute.keepnote.controller.NoteImportController;
+import com.stackroute.keepnote.exception.ImportJobNotFoundException;
+import com.stackroute.keepnote.model.ImportJob;
+import com.stackroute.keepnote.service.NoteImportService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(NoteImportController.class)
+public class NoteImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private NoteImportService noteImportService;
+    @InjectMocks
+    private NoteImportController noteImportController;
+    private Claims claims;
+    private MockMultipartFile archive;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(noteImportController).build();
+        claims = Jwts.claims().setSubject("Jhon123");
+        archive = new MockMultipartFile("file", "notes.csv", "text/csv", "title,content\nIPL,match\n".getBytes());
+    }
+
+    @Test
+    public void importNotesAccepted() throws Exception {
+        when(noteImportService.startImport(eq("Jhon123"), any()))
+                .thenReturn(new ImportJob("job-1", "Jhon123", "notes.csv", 22));
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/note/import").file(archive)
+                .requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.jobId").value("job-1"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void importNotesUnsupportedFile() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("file", "notes.png", "image/png", new byte[] { 1 });
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/note/import").file(image)
+                .requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void importNotesQueueFull() throws Exception {
+        when(noteImportService.startImport(eq("Jhon123"), any())).thenThrow(RejectedExecutionException.class);
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/note/import").file(archive)
+                .requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getImportJobSuccess() throws Exception {
+        when(noteImportService.getImportJob("Jhon123", "job-1"))
+                .thenReturn(new ImportJob("job-1", "Jhon123", "notes.csv", 22));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/import/job-1").requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("QUEUED"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getImportJobFailure() throws Exception {
+        when(noteImportService.getImportJob("Jhon123", "job-1")).thenThrow(ImportJobNotFoundException.class);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/import/job-1").requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+}
@@ -0,0 +1,68 @@
+package com.stackroute.keepnote.test.controller;
+
+import com.stackroute.keepnote.controller.NoteLinkController;
+import com.stackroute.keepnote.model.NoteLink;
+import com.stackroute.keepnote.model.NoteNeighborhood;
+import com.stackroute.keepnote.service.NoteLinkService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(NoteLinkController.class)
+public class NoteLinkControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private NoteLinkService noteLinkService;
+    @InjectMocks
+    private NoteLinkController noteLinkController;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(noteLinkController).build();
+    }
+
+    @Test
+    public void getBacklinksSuccess() throws Exception {
+        when(noteLinkService.getBacklinks("Jhon123", 1)).thenReturn(Arrays.asList(2, 5));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1/backlinks"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1]").value(5))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getNeighborhoodSuccess() throws Exception {
+        Map<Integer, Integer> distances = new LinkedHashMap<>();
+        distances.put(1, 0);
+        distances.put(2, 1);
+        when(noteLinkService.getNeighborhood("Jhon123", 1, 2)).thenReturn(new NoteNeighborhood(1, 2, distances,
+                Collections.singletonList(new NoteLink("Jhon123", 1, 2)), false));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1/neighborhood").param("hops", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.distances.2").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.links[0].targetNoteId").value(2))
+                .andDo(MockMvcResultHandlers.print());
+    }
+}
@@ -0,0 +1,76 @@
+package com.stackroute.keepnote.test.controller;
+
+import com.stackroute.keepnote.controller.NoteOrderController;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.exception.NoteOrderConflictException;
+import com.stackroute.keepnote.service.NoteOrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(NoteOrderController.class)
+public class NoteOrderControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private NoteOrderService noteOrderService;
+    @InjectMocks
+    private NoteOrderController noteOrderController;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(noteOrderController).build();
+    }
+
+    @Test
+    public void moveNoteSuccess() throws Exception {
+        when(noteOrderService.moveNote("Jhon123", 1, 2, 3)).thenReturn("AV");
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/note/Jhon123/1/position").param("after", "2")
+                .param("before", "3"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.orderKey").value("AV"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void moveNoteConflict() throws Exception {
+        when(noteOrderService.moveNote("Jhon123", 1, 2, 3)).thenThrow(NoteOrderConflictException.class);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/note/Jhon123/1/position").param("after", "2")
+                .param("before", "3"))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void moveNoteNotFound() throws Exception {
+        when(noteOrderService.moveNote("Jhon123", 9, null, null)).thenThrow(NoteNotFoundExeption.class);
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/note/Jhon123/9/position"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void pinNoteSuccess() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/note/Jhon123/1/pin"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+        verify(noteOrderService).pinNote("Jhon123", 1, true);
+    }
+}
@@ -0,0 +1,75 @@
+package com.stackroute.keepnote.test.controller;
+
+import com.stackroute.keepnote.controller.NoteRevisionController;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteRevision;
+import com.stackroute.keepnote.service.NoteRevisionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(NoteRevisionController.class)
+public class NoteRevisionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private NoteRevisionService noteRevisionService;
+    @InjectMocks
+    private NoteRevisionController noteRevisionController;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(noteRevisionController).build();
+    }
+
+    @Test
+    public void getRevisionsSuccess() throws Exception {
+        NoteRevision revision = new NoteRevision();
+        revision.setRevision(2);
+        when(noteRevisionService.getRevisions("Jhon123", 1)).thenReturn(Collections.singletonList(revision));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1/revisions"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].revision").value(2))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getRevisionSuccess() throws Exception {
+        Note note = new Note();
+        note.setNoteId(1);
+        note.setNoteContent("Mumbai Indians vs RCB match scheduled  for 4 PM");
+        note.setRevision(2);
+        when(noteRevisionService.getNoteAtRevision("Jhon123", 1, 2)).thenReturn(note);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1/revisions/2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.revision").value(2))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getRevisionFailure() throws Exception {
+        when(noteRevisionService.getNoteAtRevision("Jhon123", 1, 9)).thenThrow(NoteNotFoundExeption.class);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/1/revisions/9"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+}
@@ -0,0 +1,84 @@
+package com.stackroute.keepnote.test.controller;
+
+import com.stackroute.keepnote.controller.NoteTrashController;
+import com.stackroute.keepnote.exception.NoteAlreadyExistsException;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.TrashedNote;
+import com.stackroute.keepnote.service.NoteTrashService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(NoteTrashController.class)
+public class NoteTrashControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private NoteTrashService noteTrashService;
+    @InjectMocks
+    private NoteTrashController noteTrashController;
+    private Note note;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(noteTrashController).build();
+        note = new Note();
+        note.setNoteId(1);
+        note.setNoteTitle("IPL lists");
+    }
+
+    @Test
+    public void getTrashSuccess() throws Exception {
+        when(noteTrashService.getTrash("Jhon123"))
+                .thenReturn(Collections.singletonList(new TrashedNote("Jhon123", note, new Date(), new Date())));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/Jhon123/trash"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].noteId").value(1))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void restoreNoteSuccess() throws Exception {
+        when(noteTrashService.restoreNote("Jhon123", 1)).thenReturn(note);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/note/Jhon123/trash/1/restore"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.noteTitle").value("IPL lists"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void restoreNoteNotInTrash() throws Exception {
+        when(noteTrashService.restoreNote("Jhon123", 1)).thenThrow(NoteNotFoundExeption.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/note/Jhon123/trash/1/restore"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void restoreNoteConflict() throws Exception {
+        when(noteTrashService.restoreNote("Jhon123", 1)).thenThrow(NoteAlreadyExistsException.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/note/Jhon123/trash/1/restore"))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+    }
+}
@@ -0,0 +1,71 @@
+package com.stackroute.keepnote.test.controller;
+
+import com.stackroute.keepnote.controller.UserDataExportController;
+import com.stackroute.keepnote.service.UserDataExportService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(UserDataExportController.class)
+public class UserDataExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private UserDataExportService userDataExportService;
+    @InjectMocks
+    private UserDataExportController userDataExportController;
+    private Claims claims;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(userDataExportController).build();
+        claims = Jwts.claims().setSubject("Jhon123");
+    }
+
+    @Test
+    public void exportUserDataSuccess() throws Exception {
+        StreamingResponseBody body = outputStream -> outputStream.write("zip".getBytes());
+        when(userDataExportService.startExport("Jhon123", "Bearer token")).thenReturn(body);
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/export")
+                .header("Authorization", "Bearer token").requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Content-Disposition",
+                        "attachment; filename=\"keepnote-export.zip\""))
+                .andExpect(MockMvcResultMatchers.content().string("zip"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void exportUserDataTooManyExports() throws Exception {
+        when(userDataExportService.startExport("Jhon123", "Bearer token")).thenThrow(RejectedExecutionException.class);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/note/export")
+                .header("Authorization", "Bearer token").requestAttr("claims", claims))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andDo(MockMvcResultHandlers.print());
+    }
+}
@@ -0,0 +1,77 @@
+package com.stackroute.keepnote.test.importer;
+
+import com.stackroute.keepnote.importer.CsvNoteReader;
+import com.stackroute.keepnote.importer.NoteRecordReader;
+import com.stackroute.keepnote.importer.ZipNoteReader;
+import com.stackroute.keepnote.model.Note;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class NoteRecordReaderTest {
+
+    @Test
+    public void csvReaderParsesQuotedFields() throws IOException {
+        String csv = "title,content,status\r\n"
+                + "IPL lists,\"Mumbai Indians vs RCB, 4 PM\",Active\r\n"
+                + "\"Quote \"\"test\"\"\",\"line one\nline two\",\r\n";
+        NoteRecordReader reader = new CsvNoteReader(new StringReader(csv), 1024);
+
+        Note first = reader.next();
+        Assert.assertEquals("IPL lists", first.getNoteTitle());
+        Assert.assertEquals("Mumbai Indians vs RCB, 4 PM", first.getNoteContent());
+        Assert.assertEquals("Active", first.getNoteStatus());
+
+        Note second = reader.next();
+        Assert.assertEquals("Quote \"test\"", second.getNoteTitle());
+        Assert.assertEquals("line one\nline two", second.getNoteContent());
+        Assert.assertEquals("", second.getNoteStatus());
+
+        Assert.assertNull(reader.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void csvReaderRejectsOversizedField() throws IOException {
+        NoteRecordReader reader = new CsvNoteReader(new StringReader("title\n0123456789abc\n"), 10);
+        reader.next();
+    }
+
+    @Test(expected = IOException.class)
+    public void csvReaderRequiresKnownHeader() throws IOException {
+        new CsvNoteReader(new StringReader("foo,bar\n1,2\n"), 1024);
+    }
+
+    @Test
+    public void zipReaderReadsMarkdownAndCsvEntries() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("notes/"));
+            zip.putNextEntry(new ZipEntry("notes/first.md"));
+            zip.write("\n# Shopping\n- milk\n".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("notes/untitled.txt"));
+            zip.write("plain text".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("image.png"));
+            zip.write(new byte[] { 1, 2, 3 });
+            zip.putNextEntry(new ZipEntry("more.csv"));
+            zip.write("title,content\nFrom CSV,csv body\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        NoteRecordReader reader = new ZipNoteReader(new ByteArrayInputStream(bytes.toByteArray()), 1024);
+        Assert.assertEquals("Shopping", reader.next().getNoteTitle());
+        Note text = reader.next();
+        Assert.assertEquals("untitled", text.getNoteTitle());
+        Assert.assertEquals("plain text", text.getNoteContent());
+        Note fromCsv = reader.next();
+        Assert.assertEquals("From CSV", fromCsv.getNoteTitle());
+        Assert.assertEquals("csv body", fromCsv.getNoteContent());
+        Assert.assertNull(reader.next());
+        reader.close();
+    }
+}
@@ -0,0 +1,187 @@
+package com.stackroute.keepnote.test.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoSocketException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.WriteModel;
+import com.rabbitmq.client.Channel;
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.CategoryChangeEvent;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.model.ReminderChangeEvent;
+import com.stackroute.keepnote.service.EmbeddedCopyServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmbeddedCopyServiceImplTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private MongoCollection<Document> collection;
+    @Mock
+    private MongoConverter mongoConverter;
+    @Mock
+    private Channel channel;
+    private long deliveryTag;
+    private SimpleMeterRegistry meterRegistry;
+    private EmbeddedCopyServiceImpl embeddedCopyService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        embeddedCopyService = new EmbeddedCopyServiceImpl(mongoOperations, meterRegistry, 500);
+        when(mongoOperations.getCollectionName(NoteUser.class)).thenReturn("noteUser");
+        when(mongoOperations.getCollection("noteUser")).thenReturn(collection);
+        when(mongoOperations.getConverter()).thenReturn(mongoConverter);
+        when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(BulkWriteResult.acknowledged(0, 3, 0, 3, Collections.emptyList()));
+    }
+
+    @Test
+    public void categoryEventFromBrokerIsAppliedWithVersionGuard() {
+        deliverCategory(categoryPayload("UPSERTED", "Sports-Category", 200L));
+        Assert.assertEquals(1, embeddedCopyService.flush());
+
+        UpdateManyModel<Document> update = flushedUpdates().get(0);
+        Assert.assertEquals("5b04f7411764e3765c35f8f6", ((Document) update.getFilter()).get("notes.category.categoryId"));
+        Document arrayFilter = (Document) update.getOptions().getArrayFilters().get(0);
+        Assert.assertEquals(new Document("$not", new Document("$gte", 200L)), arrayFilter.get("n.category.syncVersion"));
+        Assert.assertEquals(3.0, meterRegistry.get("keepnote.events.applied").counter().count(), 0);
+        Assert.assertEquals(1, meterRegistry.get("keepnote.events.lag").timer().count());
+    }
+
+    @Test
+    public void deliveryIsAcknowledgedOnlyAfterTheWrite() throws IOException {
+        deliverCategory(categoryPayload("UPSERTED", "Sports-Category", 200L));
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        embeddedCopyService.flush();
+        verify(channel).basicAck(1L, false);
+    }
+
+    @Test
+    public void newerQueuedChangeWinsOverOlderOne() throws IOException {
+        deliverCategory(categoryPayload("UPSERTED", "Sports-Category", 300L));
+        deliverCategory(categoryPayload("UPSERTED", "Cricket-Category", 200L));
+        embeddedCopyService.flush();
+        verify(channel).basicAck(1L, false);
+        verify(channel).basicAck(2L, false);
+
+        List<UpdateManyModel<Document>> updates = flushedUpdates();
+        Assert.assertEquals(1, updates.size());
+        Document arrayFilter = (Document) updates.get(0).getOptions().getArrayFilters().get(0);
+        Assert.assertEquals(new Document("$not", new Document("$gte", 300L)), arrayFilter.get("n.category.syncVersion"));
+        Assert.assertEquals(1.0, meterRegistry.get("keepnote.events.coalesced").counter().count(), 0);
+    }
+
+    @Test
+    public void deletedReminderIsPulledFromAllNotes() {
+        ReminderChangeEvent event = new ReminderChangeEvent("e1", ReminderChangeEvent.DELETED,
+                "5b0509731764e3096984eae6", null, 400L);
+        event.setReplayed(true);
+        embeddedCopyService.reminderChanged(event, channel, 7L);
+        embeddedCopyService.flush();
+
+        Document update = (Document) flushedUpdates().get(0).getUpdate();
+        Document pull = (Document) ((Document) update.get("$pull")).get("notes.$[].reminders");
+        Assert.assertEquals("5b0509731764e3096984eae6", pull.get("reminderId"));
+        Assert.assertEquals(1.0, meterRegistry.get("keepnote.events.received").tag("entity", "reminder")
+                .tag("replayed", "true").counter().count(), 0);
+    }
+
+    @Test
+    public void failedFlushIsQueuedAgain() throws IOException {
+        when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenThrow(new MongoSocketException("down", new ServerAddress()))
+                .thenReturn(BulkWriteResult.acknowledged(0, 1, 0, 1, Collections.emptyList()));
+        deliverCategory(categoryPayload("DELETED", null, 500L));
+        Assert.assertEquals(0, embeddedCopyService.flush());
+        Assert.assertEquals(1.0, meterRegistry.get("keepnote.events.pending").gauge().value(), 0);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        Assert.assertEquals(1, embeddedCopyService.flush());
+        verify(channel).basicAck(1L, false);
+    }
+
+    @Test
+    public void emptyQueueDoesNotWrite() {
+        Assert.assertEquals(0, embeddedCopyService.flush());
+        verify(collection, never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    /*
+     * Local stand-in for the broker: the payload is written the way the CategoryService
+     * publishes it and read back with the NoteService's converter, as the listener
+     * container would, before it is handed to the listener method.
+     */
+    private void deliverCategory(Map<String, Object> payload) {
+        Message message = new Jackson2JsonMessageConverter().toMessage(payload, new MessageProperties());
+        message.getMessageProperties().setInferredArgumentType(CategoryChangeEvent.class);
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        embeddedCopyService.categoryChanged(
+                (CategoryChangeEvent) EventsConfig.messageConverter(objectMapper).fromMessage(message), channel,
+                ++deliveryTag);
+    }
+
+    private Map<String, Object> categoryPayload(String type, String name, long version) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("eventId", "e-" + version);
+        payload.put("type", type);
+        payload.put("categoryId", "5b04f7411764e3765c35f8f6");
+        payload.put("userId", "Jhon123");
+        if (name != null) {
+            Map<String, Object> category = new LinkedHashMap<>();
+            category.put("id", "5b04f7411764e3765c35f8f6");
+            category.put("categoryName", name);
+            category.put("categoryCreatedBy", "Jhon123");
+            payload.put("category", category);
+        }
+        payload.put("version", version);
+        payload.put("publishedAt", System.currentTimeMillis());
+        payload.put("published", true);
+        return payload;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UpdateManyModel<Document>> flushedUpdates() {
+        ArgumentCaptor<List> writes = ArgumentCaptor.forClass(List.class);
+        verify(collection).bulkWrite(writes.capture(), any(BulkWriteOptions.class));
+        List<UpdateManyModel<Document>> updates = new ArrayList<>();
+        for (WriteModel<Document> write : (List<WriteModel<Document>>) writes.getValue()) {
+            updates.add((UpdateManyModel<Document>) write);
+        }
+        return updates;
+    }
+}
@@ -0,0 +1,135 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.model.IdempotentResponse;
+import com.stackroute.keepnote.repository.IdempotentResponseRepository;
+import com.stackroute.keepnote.service.IdempotencyServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotentResponseRepository idempotentResponseRepository;
+    private IdempotencyServiceImpl idempotencyService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        idempotencyService = new IdempotencyServiceImpl(idempotentResponseRepository, 2, 60, 30, false);
+    }
+
+    @Test
+    public void reserveReplaysCompletedResponse() {
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        idempotencyService.complete("key-1", "fp", new ResponseEntity<>("created", HttpStatus.CREATED));
+        ResponseEntity<?> stored = idempotencyService.reserve("key-1", "fp");
+        Assert.assertEquals(HttpStatus.CREATED, stored.getStatusCode());
+        Assert.assertEquals("created", stored.getBody());
+        verify(idempotentResponseRepository, never()).save(any());
+    }
+
+    @Test
+    public void concurrentRetryGetsConflictWhileFirstRuns() {
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        Assert.assertEquals(HttpStatus.CONFLICT, idempotencyService.reserve("key-1", "fp").getStatusCode());
+    }
+
+    @Test
+    public void keyReusedWithAnotherBodyIsRejected() {
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        idempotencyService.complete("key-1", "fp", new ResponseEntity<>(HttpStatus.CREATED));
+        Assert.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+                idempotencyService.reserve("key-1", "other").getStatusCode());
+    }
+
+    @Test
+    public void fingerprintDependsOnBody() {
+        Assert.assertEquals(idempotencyService.fingerprint(Collections.singletonMap("a", 1)),
+                idempotencyService.fingerprint(Collections.singletonMap("a", 1)));
+        Assert.assertNotEquals(idempotencyService.fingerprint(Collections.singletonMap("a", 1)),
+                idempotencyService.fingerprint(Collections.singletonMap("a", 2)));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        idempotencyService.complete("key-1", "fp", new ResponseEntity<>(HttpStatus.CREATED));
+        idempotencyService.complete("key-2", "fp", new ResponseEntity<>(HttpStatus.CREATED));
+        idempotencyService.reserve("key-1", "fp");
+        idempotencyService.complete("key-3", "fp", new ResponseEntity<>(HttpStatus.CREATED));
+        Assert.assertNotNull(idempotencyService.reserve("key-1", "fp"));
+        Assert.assertNotNull(idempotencyService.reserve("key-3", "fp"));
+        Assert.assertNull(idempotencyService.reserve("key-2", "fp"));
+    }
+
+    @Test
+    public void serverErrorReleasesTheKey() {
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        idempotencyService.complete("key-1", "fp", new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+    }
+
+    @Test
+    public void abandonedReservationIsTakenOver() {
+        idempotencyService = new IdempotencyServiceImpl(idempotentResponseRepository, 2, 60, 0, false);
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        sleep(5);
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+    }
+
+    @Test
+    public void mongoInsertReservesTheKey() {
+        idempotencyService = new IdempotencyServiceImpl(idempotentResponseRepository, 2, 60, 30, true);
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        verify(idempotentResponseRepository).insert(any(IdempotentResponse.class));
+    }
+
+    @Test
+    public void mongoBackedStoreAnswersWhenAnotherInstanceHoldsTheKey() {
+        idempotencyService = new IdempotencyServiceImpl(idempotentResponseRepository, 2, 60, 30, true);
+        when(idempotentResponseRepository.insert(any(IdempotentResponse.class)))
+                .thenThrow(new DuplicateKeyException("key-1"));
+        when(idempotentResponseRepository.findById("key-1")).thenReturn(Optional.of(
+                new IdempotentResponse("key-1", "fp", 409, null, new Date(), new Date())));
+        Assert.assertEquals(HttpStatus.CONFLICT, idempotencyService.reserve("key-1", "fp").getStatusCode());
+
+        when(idempotentResponseRepository.findById("key-2")).thenReturn(Optional.of(
+                new IdempotentResponse("key-2", "fp", new Date(), new Date())));
+        Assert.assertEquals(HttpStatus.CONFLICT, idempotencyService.reserve("key-2", "fp").getStatusCode());
+        verify(idempotentResponseRepository, never()).deleteByKeyAndStoredAt(any(), any());
+    }
+
+    @Test
+    public void expiredMongoEntryIsTakenOver() {
+        idempotencyService = new IdempotencyServiceImpl(idempotentResponseRepository, 2, 60, 30, true);
+        Date storedAt = new Date(0);
+        when(idempotentResponseRepository.insert(any(IdempotentResponse.class)))
+                .thenThrow(new DuplicateKeyException("key-1")).thenReturn(null);
+        when(idempotentResponseRepository.findById("key-1")).thenReturn(Optional.of(
+                new IdempotentResponse("key-1", "fp", 201, null, storedAt, storedAt)));
+        Assert.assertNull(idempotencyService.reserve("key-1", "fp"));
+        verify(idempotentResponseRepository).deleteByKeyAndStoredAt("key-1", storedAt);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
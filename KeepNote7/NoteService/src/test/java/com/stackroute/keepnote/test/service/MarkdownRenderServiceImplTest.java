@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.service.MarkdownRenderServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MarkdownRenderServiceImplTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MarkdownRenderServiceImpl markdownRenderService;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        markdownRenderService = new MarkdownRenderServiceImpl(meterRegistry, 2, 1024);
+    }
+
+    @Test
+    public void rendersMarkdownAndEscapesHtml() {
+        Assert.assertEquals("<p><strong>IPL</strong> lists</p>\n", markdownRenderService.renderHtml("**IPL** lists"));
+        Assert.assertEquals("<p>&lt;script&gt;alert(1)&lt;/script&gt;</p>\n",
+                markdownRenderService.renderHtml("<script>alert(1)</script>"));
+        Assert.assertNull(markdownRenderService.renderHtml(null));
+    }
+
+    @Test
+    public void unsafeLinkDestinationsAreDropped() {
+        Assert.assertEquals("<p><a href=\"\">click</a></p>\n",
+                markdownRenderService.renderHtml("[click](javascript:alert(1))"));
+        Assert.assertEquals("<p><a href=\"\">click</a></p>\n",
+                markdownRenderService.renderHtml("[click](JAVA&#9;SCRIPT:alert(1))"));
+        Assert.assertEquals("<p><a href=\"\">javascript:alert(1)</a></p>\n",
+                markdownRenderService.renderHtml("<javascript:alert(1)>"));
+        Assert.assertEquals("<p><img src=\"\" alt=\"x\" /></p>\n",
+                markdownRenderService.renderHtml("![x](data:text/html;base64,PHNjcmlwdD4=)"));
+    }
+
+    @Test
+    public void safeLinkDestinationsAreKept() {
+        Assert.assertEquals("<p><a href=\"https://keepnote.io/a?b=c\">site</a> <a href=\"mailto:a@b.io\">mail</a>"
+                + " <a href=\"/notes/2#top\">note</a></p>\n",
+                markdownRenderService.renderHtml("[site](https://keepnote.io/a?b=c) [mail](mailto:a@b.io) [note](/notes/2#top)"));
+    }
+
+    @Test
+    public void identicalContentIsRenderedOnce() {
+        markdownRenderService.renderHtml("# Cricket");
+        markdownRenderService.renderHtml("# Cricket");
+        markdownRenderService.renderHtml("# Cricket");
+
+        Assert.assertEquals(2.0, meterRegistry.get("keepnote.markdown.cache.requests").tag("result", "hit")
+                .counter().count(), 0.0);
+        Assert.assertEquals(1.0, meterRegistry.get("keepnote.markdown.cache.requests").tag("result", "miss")
+                .counter().count(), 0.0);
+        Assert.assertEquals(1, meterRegistry.get("keepnote.markdown.render").timer().count());
+        Assert.assertEquals(2.0 / 3, meterRegistry.get("keepnote.markdown.cache.hit.ratio").gauge().value(), 0.001);
+    }
+
+    @Test
+    public void cacheIsBoundedByEntries() {
+        markdownRenderService.renderHtml("one");
+        markdownRenderService.renderHtml("two");
+        markdownRenderService.renderHtml("one");
+        markdownRenderService.renderHtml("three");
+
+        Assert.assertEquals(2.0, meterRegistry.get("keepnote.markdown.cache.size").gauge().value(), 0.0);
+        markdownRenderService.renderHtml("two");
+        Assert.assertEquals(4.0, meterRegistry.get("keepnote.markdown.cache.requests").tag("result", "miss")
+                .counter().count(), 0.0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteChangeEvent;
+import com.stackroute.keepnote.service.NoteEventPublisherImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class NoteEventPublisherImplTest {
+
+    @Mock
+    private AmqpTemplate amqpTemplate;
+    private NoteEventPublisherImpl noteEventPublisher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        noteEventPublisher = new NoteEventPublisherImpl(amqpTemplate);
+    }
+
+    private Note note(int noteId, String categoryId) {
+        Note note = new Note();
+        note.setNoteId(noteId);
+        if (categoryId != null) {
+            Category category = new Category();
+            category.setCategoryId(categoryId);
+            note.setCategory(category);
+        }
+        return note;
+    }
+
+    @Test
+    public void publishAddedSumsPerCategory() {
+        noteEventPublisher.publishAdded("Jhon123", Arrays.asList(note(1, "c1"), note(2, "c1"), note(3, "c2"), note(4, null)));
+
+        ArgumentCaptor<NoteChangeEvent> event = ArgumentCaptor.forClass(NoteChangeEvent.class);
+        verify(amqpTemplate).convertAndSend(eq(EventsConfig.EXCHANGE), eq("note.changed"), event.capture());
+        Assert.assertEquals("Jhon123", event.getValue().getUserId());
+        Assert.assertEquals(Integer.valueOf(2), event.getValue().getDeltas().get("c1"));
+        Assert.assertEquals(Integer.valueOf(1), event.getValue().getDeltas().get("c2"));
+        Assert.assertEquals(2, event.getValue().getDeltas().size());
+    }
+
+    @Test
+    public void publishReplacedMovesBetweenCategories() {
+        noteEventPublisher.publishReplaced("Jhon123", note(1, "c1"), note(1, "c2"));
+
+        ArgumentCaptor<NoteChangeEvent> event = ArgumentCaptor.forClass(NoteChangeEvent.class);
+        verify(amqpTemplate).convertAndSend(eq(EventsConfig.EXCHANGE), eq("note.changed"), event.capture());
+        Assert.assertEquals(Integer.valueOf(-1), event.getValue().getDeltas().get("c1"));
+        Assert.assertEquals(Integer.valueOf(1), event.getValue().getDeltas().get("c2"));
+    }
+
+    @Test
+    public void publishReplacedSameCategorySendsNothing() {
+        noteEventPublisher.publishReplaced("Jhon123", note(1, "c1"), note(1, "c1"));
+        verify(amqpTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    public void brokerFailureDoesNotFailTheWrite() {
+        doThrow(new AmqpException("down")).when(amqpTemplate)
+                .convertAndSend(anyString(), anyString(), any(Object.class));
+        noteEventPublisher.publishRemoved("Jhon123", Collections.singletonList(note(1, "c1")));
+        noteEventPublisher.publishReset("Jhon123");
+    }
+}
@@ -0,0 +1,105 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.model.NoteLink;
+import com.stackroute.keepnote.model.NoteNeighborhood;
+import com.stackroute.keepnote.repository.NoteLinkRepository;
+import com.stackroute.keepnote.service.NoteLinkServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NoteLinkServiceImplTest {
+
+    @Mock
+    private NoteLinkRepository noteLinkRepository;
+    private NoteLinkServiceImpl noteLinkService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        noteLinkService = new NoteLinkServiceImpl(noteLinkRepository, 3, 500);
+    }
+
+    @Test
+    public void parseLinksIgnoresSelfLinksAndDuplicates() {
+        Assert.assertEquals(new HashSet<>(Arrays.asList(2, 3)),
+                NoteLinkServiceImpl.parseLinks(1, "see [[2]], [[3]], [[2]] and [[1]] but not [2] or [[x]]"));
+        Assert.assertTrue(NoteLinkServiceImpl.parseLinks(1, null).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void updateLinksAppliesOnlyTheDifference() {
+        when(noteLinkRepository.findLinksFrom("Jhon123", Collections.singleton(1)))
+                .thenReturn(Arrays.asList(new NoteLink("Jhon123", 1, 2), new NoteLink("Jhon123", 1, 4)));
+
+        noteLinkService.updateLinks("Jhon123", 1, "[[2]] [[3]]");
+
+        verify(noteLinkRepository).deleteLinks("Jhon123", 1, Collections.singleton(4));
+        ArgumentCaptor<List<NoteLink>> captor = ArgumentCaptor.forClass(List.class);
+        verify(noteLinkRepository).insert(captor.capture());
+        Assert.assertEquals(1, captor.getValue().size());
+        Assert.assertEquals(3, captor.getValue().get(0).getTargetNoteId());
+    }
+
+    @Test
+    public void updateLinksWithoutChangesWritesNothing() {
+        when(noteLinkRepository.findLinksFrom("Jhon123", Collections.singleton(1)))
+                .thenReturn(Collections.singletonList(new NoteLink("Jhon123", 1, 2)));
+
+        noteLinkService.updateLinks("Jhon123", 1, "[[2]]");
+
+        verify(noteLinkRepository, never()).deleteLinks(any(), anyInt(), anyCollection());
+        verify(noteLinkRepository, never()).insert(anyCollection());
+    }
+
+    @Test
+    public void neighborhoodWalksBothDirections() {
+        /* 1 -> 2 -> 3, 4 -> 1 */
+        when(noteLinkRepository.findLinksFrom(eq("Jhon123"), eq(Collections.singleton(1))))
+                .thenReturn(Collections.singletonList(new NoteLink("Jhon123", 1, 2)));
+        when(noteLinkRepository.findLinksTo(eq("Jhon123"), eq(Collections.singleton(1))))
+                .thenReturn(Collections.singletonList(new NoteLink("Jhon123", 4, 1)));
+        when(noteLinkRepository.findLinksFrom(eq("Jhon123"), eq(new HashSet<>(Arrays.asList(2, 4)))))
+                .thenReturn(Collections.singletonList(new NoteLink("Jhon123", 2, 3)));
+        when(noteLinkRepository.findLinksTo(eq("Jhon123"), eq(new HashSet<>(Arrays.asList(2, 4)))))
+                .thenReturn(Collections.singletonList(new NoteLink("Jhon123", 1, 2)));
+
+        NoteNeighborhood oneHop = noteLinkService.getNeighborhood("Jhon123", 1, 1);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2, 4)), oneHop.getDistances().keySet());
+        Assert.assertEquals(2, oneHop.getLinks().size());
+
+        NoteNeighborhood twoHops = noteLinkService.getNeighborhood("Jhon123", 1, 2);
+        Assert.assertEquals(Integer.valueOf(2), twoHops.getDistances().get(3));
+        Assert.assertEquals(3, twoHops.getLinks().size());
+        Assert.assertFalse(twoHops.isTruncated());
+    }
+
+    @Test
+    public void neighborhoodIsCappedByMaxNodes() {
+        noteLinkService = new NoteLinkServiceImpl(noteLinkRepository, 3, 2);
+        when(noteLinkRepository.findLinksFrom(eq("Jhon123"), eq(Collections.singleton(1))))
+                .thenReturn(Arrays.asList(new NoteLink("Jhon123", 1, 2), new NoteLink("Jhon123", 1, 3)));
+
+        NoteNeighborhood neighborhood = noteLinkService.getNeighborhood("Jhon123", 1, 10);
+        Assert.assertEquals(3, neighborhood.getHops());
+        Assert.assertEquals(2, neighborhood.getDistances().size());
+        Assert.assertTrue(neighborhood.isTruncated());
+    }
+}
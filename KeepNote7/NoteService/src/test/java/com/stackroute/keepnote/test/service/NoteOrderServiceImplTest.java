@@ -0,0 +1,80 @@
+package com.stackroute.keepnote.test.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.exception.NoteOrderConflictException;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.repository.NoteRepository;
+import com.stackroute.keepnote.service.NoteOrderServiceImpl;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NoteOrderServiceImplTest {
+
+    @Mock
+    private NoteRepository noteRepository;
+    @Mock
+    private MongoOperations mongoOperations;
+    private NoteOrderServiceImpl noteOrderService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        noteOrderService = new NoteOrderServiceImpl(noteRepository, mongoOperations, 16, 100);
+    }
+
+    @Test
+    public void moveNoteWritesOnlyTheMovedNote() throws Exception {
+        when(noteRepository.findNotesByIds(eq("Jhon123"), anyCollection(), anyCollection()))
+                .thenReturn(Arrays.asList(note(2, "A"), note(3, "B")));
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(NoteUser.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        String key = noteOrderService.moveNote("Jhon123", 1, 2, 3);
+
+        Assert.assertTrue("A".compareTo(key) < 0 && key.compareTo("B") < 0);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations, times(1)).updateFirst(any(Query.class), update.capture(), eq(NoteUser.class));
+        Assert.assertEquals(key, update.getValue().getUpdateObject().get("$set", Document.class)
+                .get("notes.$.orderKey"));
+    }
+
+    @Test(expected = NoteOrderConflictException.class)
+    public void moveNoteBetweenSwappedNeighboursConflicts() throws Exception {
+        when(noteRepository.findNotesByIds(eq("Jhon123"), anyCollection(), anyCollection()))
+                .thenReturn(Arrays.asList(note(2, "B"), note(3, "A")));
+        noteOrderService.moveNote("Jhon123", 1, 2, 3);
+    }
+
+    @Test(expected = NoteNotFoundExeption.class)
+    public void moveUnknownNote() throws Exception {
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(NoteUser.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        noteOrderService.moveNote("Jhon123", 9, null, null);
+    }
+
+    private Note note(int noteId, String orderKey) {
+        Note note = new Note();
+        note.setNoteId(noteId);
+        note.setOrderKey(orderKey);
+        return note;
+    }
+}
@@ -0,0 +1,147 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteRevision;
+import com.stackroute.keepnote.model.TextDelta;
+import com.stackroute.keepnote.repository.NoteRevisionRepository;
+import com.stackroute.keepnote.service.NoteRevisionServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NoteRevisionServiceImplTest {
+
+    @Mock
+    private NoteRevisionRepository noteRevisionRepository;
+    private NoteRevisionServiceImpl noteRevisionService;
+    private Note note;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        noteRevisionService = new NoteRevisionServiceImpl(noteRevisionRepository, 10);
+        note = new Note();
+        note.setNoteId(1);
+        note.setNoteTitle("IPL lists");
+        note.setNoteContent("Mumbai Indians vs RCB match scheduled  for 4 PM at Wankhede stadium");
+    }
+
+    @Test
+    public void textDeltaRoundTrip() {
+        String before = "Mumbai Indians vs RCB match scheduled  for 4 PM";
+        String after = "Mumbai Indians vs CSK match scheduled  for 4 PM";
+        TextDelta delta = TextDelta.between(before, after);
+        Assert.assertEquals(after, delta.applyTo(before));
+        Assert.assertEquals(3, delta.size());
+        Assert.assertEquals("", TextDelta.between("abc", "").applyTo("abc"));
+        Assert.assertEquals("aXbc", TextDelta.between("abc", "aXbc").applyTo("abc"));
+    }
+
+    @Test
+    public void firstRevisionIsSnapshot() {
+        note.setRevision(1);
+        noteRevisionService.recordRevision("Jhon123", note, null, 0);
+        NoteRevision stored = captureInserted();
+        Assert.assertTrue(stored.isSnapshot());
+        Assert.assertEquals(note.getNoteContent(), stored.getNoteContent());
+        Assert.assertNull(stored.getDelta());
+    }
+
+    @Test
+    public void smallEditIsStoredAsDelta() {
+        String previous = note.getNoteContent();
+        note.setNoteContent(previous.replace("4 PM", "6 PM"));
+        note.setRevision(2);
+        noteRevisionService.recordRevision("Jhon123", note, previous, 1);
+        NoteRevision stored = captureInserted();
+        Assert.assertFalse(stored.isSnapshot());
+        Assert.assertNull(stored.getNoteContent());
+        Assert.assertEquals("6", stored.getDelta().getInsert());
+    }
+
+    @Test
+    public void snapshotIntervalForcesSnapshot() {
+        String previous = note.getNoteContent();
+        note.setNoteContent(previous + "!");
+        note.setRevision(10);
+        noteRevisionService.recordRevision("Jhon123", note, previous, 9);
+        Assert.assertTrue(captureInserted().isSnapshot());
+    }
+
+    @Test
+    public void concurrentWriteIsAppendedAfterNewestRevision() {
+        String previous = note.getNoteContent();
+        note.setNoteContent(previous.replace("4 PM", "6 PM"));
+        note.setRevision(2);
+        when(noteRevisionRepository.insert(any(NoteRevision.class)))
+                .thenThrow(new DuplicateKeyException("revision 2")).thenReturn(null);
+        when(noteRevisionRepository.findFirstByUserIdAndNoteIdOrderByRevisionDesc("Jhon123", 1))
+                .thenReturn(revision(2, false, null, null));
+
+        noteRevisionService.recordRevision("Jhon123", note, previous, 1);
+
+        ArgumentCaptor<NoteRevision> captor = ArgumentCaptor.forClass(NoteRevision.class);
+        verify(noteRevisionRepository, times(2)).insert(captor.capture());
+        NoteRevision stored = captor.getValue();
+        Assert.assertEquals(3, stored.getRevision());
+        Assert.assertTrue(stored.isSnapshot());
+        Assert.assertEquals(note.getNoteContent(), stored.getNoteContent());
+        Assert.assertNull(stored.getDelta());
+        Assert.assertEquals(3, note.getRevision());
+    }
+
+    @Test
+    public void getNoteAtRevisionAppliesDeltasSinceSnapshot() throws NoteNotFoundExeption {
+        NoteRevision snapshot = revision(3, true, "one two three", null);
+        NoteRevision fourth = revision(4, false, null, TextDelta.between("one two three", "one 2 three"));
+        NoteRevision fifth = revision(5, false, null, TextDelta.between("one 2 three", "one 2 3"));
+        when(noteRevisionRepository.findFirstByUserIdAndNoteIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(
+                "Jhon123", 1, 5)).thenReturn(snapshot);
+        when(noteRevisionRepository.findRevisionsAfter(eq("Jhon123"), eq(1), eq(3), eq(5), any()))
+                .thenReturn(Arrays.asList(fourth, fifth));
+
+        Note materialized = noteRevisionService.getNoteAtRevision("Jhon123", 1, 5);
+        Assert.assertEquals("one 2 3", materialized.getNoteContent());
+        Assert.assertEquals(5, materialized.getRevision());
+    }
+
+    @Test(expected = NoteNotFoundExeption.class)
+    public void getNoteAtRevisionUnknownRevision() throws NoteNotFoundExeption {
+        when(noteRevisionRepository.findFirstByUserIdAndNoteIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(
+                "Jhon123", 1, 8)).thenReturn(revision(3, true, "one", null));
+        when(noteRevisionRepository.findRevisionsAfter(eq("Jhon123"), eq(1), eq(3), eq(8), any()))
+                .thenReturn(Arrays.asList(revision(4, false, null, TextDelta.between("one", "two"))));
+        noteRevisionService.getNoteAtRevision("Jhon123", 1, 8);
+    }
+
+    private NoteRevision captureInserted() {
+        ArgumentCaptor<NoteRevision> captor = ArgumentCaptor.forClass(NoteRevision.class);
+        verify(noteRevisionRepository).insert(captor.capture());
+        return captor.getValue();
+    }
+
+    private NoteRevision revision(int number, boolean snapshot, String content, TextDelta delta) {
+        NoteRevision revision = new NoteRevision();
+        revision.setUserId("Jhon123");
+        revision.setNoteId(1);
+        revision.setRevision(number);
+        revision.setSnapshot(snapshot);
+        revision.setNoteContent(content);
+        revision.setDelta(delta);
+        revision.setNoteTitle("IPL lists");
+        return revision;
+    }
+}
@@ -1,18 +1,28 @@
 package com.stackroute.keepnote.test.service;
 
+import com.stackroute.keepnote.model.NoteLookup;
 import com.stackroute.keepnote.exception.NoteNotFoundExeption;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
 import com.stackroute.keepnote.model.NoteUser;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.repository.NoteRepository;
+import com.stackroute.keepnote.service.NoteEventPublisher;
+import com.stackroute.keepnote.service.NoteLinkService;
+import com.stackroute.keepnote.service.NoteRevisionService;
 import com.stackroute.keepnote.service.NoteServiceImpl;
+import com.stackroute.keepnote.service.NoteTrashService;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,6 +30,7 @@ import static org.mockito.Mockito.when;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.util.*;
 
@@ -36,6 +47,14 @@ public class NoteServiceImplTest {
     private Reminder reminder;
     @Mock
     private NoteRepository noteRepository;
+    @Mock
+    private NoteRevisionService noteRevisionService;
+    @Mock
+    private NoteLinkService noteLinkService;
+    @Mock
+    private NoteTrashService noteTrashService;
+    @Mock
+    private NoteEventPublisher noteEventPublisher;
     @InjectMocks
     private NoteServiceImpl noteServiceImpl;
     private List<Note> noteList = null;
@@ -191,4 +210,153 @@ public class NoteServiceImplTest {
         List<Note> notes = noteServiceImpl.getAllNoteByUserId("Jhon123");
         Assert.assertEquals(noteList, notes);
     }
+
+    @Test
+    public void createNoteRecordsFirstRevision() {
+        when(noteRepository.insert((NoteUser) any())).thenReturn(noteUser);
+        noteServiceImpl.createNote(note);
+        Assert.assertEquals(1, note.getRevision());
+        verify(noteRevisionService, times(1)).recordRevision(eq("Jhon123"), eq(note), isNull(), eq(0));
+    }
+
+    @Test
+    public void updateNoteAppendsOneRevision() throws NoteNotFoundExeption {
+        note.setRevision(3);
+        when(noteRepository.findById("Jhon123")).thenReturn(options);
+        Note updated = new Note();
+        updated.setNoteTitle("IPL lists");
+        updated.setNoteContent("Match cancelled");
+        noteServiceImpl.updateNote(updated, note.getNoteId(), "Jhon123");
+        Assert.assertEquals(4, updated.getRevision());
+        verify(noteRevisionService, times(1)).recordRevision("Jhon123", updated,
+                "Mumbai Indians vs RCB match scheduled  for 4 PM", 3);
+    }
+
+    @Test
+    public void updateNoteSavesTheRevisionNumberTheHistoryAssigned() throws NoteNotFoundExeption {
+        note.setRevision(3);
+        when(noteRepository.findById("Jhon123")).thenReturn(options);
+        /* a concurrent write took revision 4, the retried insert got 5 */
+        doAnswer(invocation -> {
+            invocation.<Note>getArgument(1).setRevision(5);
+            return null;
+        }).when(noteRevisionService).recordRevision(eq("Jhon123"), any(Note.class), any(), eq(3));
+        Note updated = new Note();
+        updated.setNoteContent("Match cancelled");
+        noteServiceImpl.updateNote(updated, note.getNoteId(), "Jhon123");
+
+        ArgumentCaptor<NoteUser> saved = ArgumentCaptor.forClass(NoteUser.class);
+        verify(noteRepository).save(saved.capture());
+        Note stored = saved.getValue().getNotes().get(saved.getValue().getNotes().size() - 1);
+        Assert.assertEquals(note.getNoteId(), stored.getNoteId());
+        Assert.assertEquals(5, stored.getRevision());
+    }
+
+    @Test
+    public void updateNoteRefreshesLinks() throws NoteNotFoundExeption {
+        when(noteRepository.findById("Jhon123")).thenReturn(options);
+        Note updated = new Note();
+        updated.setNoteContent("See [[2]] and [[3]]");
+        noteServiceImpl.updateNote(updated, note.getNoteId(), "Jhon123");
+        verify(noteLinkService, times(1)).updateLinks("Jhon123", 1, "See [[2]] and [[3]]");
+    }
+
+    @Test
+    public void deleteNoteRemovesOutgoingLinks() {
+        when(noteRepository.findById(noteUser.getUserId())).thenReturn(options);
+        noteServiceImpl.deleteNote("Jhon123", note.getNoteId());
+        verify(noteLinkService, times(1)).removeNote("Jhon123", 1);
+    }
+
+    @Test
+    public void deleteNoteMovesNoteToTrash() {
+        when(noteRepository.findById(noteUser.getUserId())).thenReturn(options);
+        noteServiceImpl.deleteNote("Jhon123", note.getNoteId());
+        verify(noteTrashService, times(1)).moveToTrash("Jhon123", note);
+        verify(noteRepository, times(0)).delete((NoteUser) any());
+    }
+
+    @Test
+    public void getNotesByNoteIdsKeepsRequestOrder() {
+        Note second = new Note();
+        second.setNoteId(2);
+        when(noteRepository.findNotesByIds("Jhon123", new HashSet<>(Arrays.asList(2, 9, 1)), null))
+                .thenReturn(Arrays.asList(note, second));
+        List<NoteLookup> lookups = noteServiceImpl.getNotesByNoteIds("Jhon123", Arrays.asList(2, 9, 1), null);
+        Assert.assertEquals(3, lookups.size());
+        Assert.assertSame(second, lookups.get(0).getNote());
+        Assert.assertEquals(NoteLookup.NOT_FOUND, lookups.get(1).getStatus());
+        Assert.assertNull(lookups.get(1).getNote());
+        Assert.assertSame(note, lookups.get(2).getNote());
+    }
+
+    @Test
+    public void getNoteByNoteIdWithFieldsLoadsProjection() throws NoteNotFoundExeption {
+        Note projected = new Note();
+        projected.setNoteId(1);
+        projected.setNoteTitle("IPL lists");
+        when(noteRepository.findNotesByUserId("Jhon123", new HashSet<>(Arrays.asList("noteTitle", "noteId"))))
+                .thenReturn(Collections.singletonList(projected));
+        Note fetched = noteServiceImpl.getNoteByNoteId("Jhon123", 1, Collections.singleton("noteTitle"));
+        Assert.assertEquals("IPL lists", fetched.getNoteTitle());
+        Assert.assertNull(fetched.getNoteContent());
+    }
+
+    @Test
+    public void createNoteAppendsToManualOrder() {
+        Note existing = new Note();
+        existing.setNoteId(2);
+        existing.setOrderKey("V");
+        NoteUser stored = new NoteUser();
+        stored.setUserId("Jhon123");
+        stored.setNotes(new ArrayList<>(Collections.singletonList(existing)));
+        when(noteRepository.findById("Jhon123")).thenReturn(Optional.of(stored));
+        when(noteRepository.pushNote("Jhon123", note)).thenReturn(true);
+        Assert.assertTrue(noteServiceImpl.createNote(note));
+        Assert.assertTrue(note.getOrderKey().compareTo("V") > 0);
+        verify(noteRepository, never()).save((NoteUser) any());
+    }
+
+    @Test
+    public void createNoteFallsBackToPushWhenImportCreatedTheDocument() {
+        when(noteRepository.insert((NoteUser) any())).thenThrow(new DuplicateKeyException("Jhon123"));
+        when(noteRepository.pushNote("Jhon123", note)).thenReturn(true);
+        Assert.assertTrue(noteServiceImpl.createNote(note));
+        verify(noteRepository, times(1)).pushNote("Jhon123", note);
+    }
+
+    @Test
+    public void updateNoteKeepsOrderAndPin() throws NoteNotFoundExeption {
+        note.setOrderKey("k");
+        note.setPinned(true);
+        when(noteRepository.findById("Jhon123")).thenReturn(options);
+        Note updated = new Note();
+        updated.setNoteContent("Match cancelled");
+        noteServiceImpl.updateNote(updated, note.getNoteId(), "Jhon123");
+        Assert.assertEquals("k", updated.getOrderKey());
+        Assert.assertTrue(updated.isPinned());
+    }
+
+    @Test
+    public void createNotePublishesCountChange() {
+        when(noteRepository.insert((NoteUser) any())).thenReturn(noteUser);
+        noteServiceImpl.createNote(note);
+        verify(noteEventPublisher, times(1)).publishAdded("Jhon123", Collections.singletonList(note));
+    }
+
+    @Test
+    public void updateNotePublishesCategoryMove() throws NoteNotFoundExeption {
+        when(noteRepository.findById("Jhon123")).thenReturn(options);
+        Note updated = new Note();
+        updated.setNoteContent("Match cancelled");
+        noteServiceImpl.updateNote(updated, note.getNoteId(), "Jhon123");
+        verify(noteEventPublisher, times(1)).publishReplaced("Jhon123", note, updated);
+    }
+
+    @Test
+    public void deleteAllNotesPublishesReset() {
+        when(noteRepository.findById("Jhon123")).thenReturn(options);
+        noteServiceImpl.deleteAllNotes("Jhon123");
+        verify(noteEventPublisher, times(1)).publishReset("Jhon123");
+    }
 }
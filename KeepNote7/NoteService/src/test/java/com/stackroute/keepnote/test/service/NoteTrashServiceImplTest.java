@@ -0,0 +1,108 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.exception.NoteAlreadyExistsException;
+import com.stackroute.keepnote.exception.NoteNotFoundExeption;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteUser;
+import com.stackroute.keepnote.model.TrashedNote;
+import com.stackroute.keepnote.repository.TrashedNoteRepository;
+import com.stackroute.keepnote.service.NoteEventPublisher;
+import com.stackroute.keepnote.service.NoteLinkService;
+import com.stackroute.keepnote.service.NoteTrashServiceImpl;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NoteTrashServiceImplTest {
+
+    @Mock
+    private TrashedNoteRepository trashedNoteRepository;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private NoteLinkService noteLinkService;
+    @Mock
+    private NoteEventPublisher noteEventPublisher;
+    private NoteTrashServiceImpl noteTrashService;
+    private Note note;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        noteTrashService = new NoteTrashServiceImpl(trashedNoteRepository, mongoOperations, noteLinkService, noteEventPublisher, 30);
+        note = new Note();
+        note.setNoteId(1);
+        note.setNoteTitle("IPL lists");
+        note.setNoteContent("See [[2]]");
+    }
+
+    @Test
+    public void moveToTrashPullsOnlyTheNote() {
+        noteTrashService.moveToTrash("Jhon123", note);
+
+        ArgumentCaptor<TrashedNote> trashed = ArgumentCaptor.forClass(TrashedNote.class);
+        verify(trashedNoteRepository).save(trashed.capture());
+        Assert.assertEquals("Jhon123:1", trashed.getValue().getId());
+        long retention = trashed.getValue().getPurgeAt().getTime() - trashed.getValue().getDeletedAt().getTime();
+        Assert.assertEquals(TimeUnit.DAYS.toMillis(30), retention);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoOperations).updateFirst(any(Query.class), update.capture(), eq(NoteUser.class));
+        Assert.assertTrue(update.getValue().getUpdateObject().containsKey("$pull"));
+    }
+
+    @Test
+    public void restoreNotePushesNoteBackAndRelinks() throws Exception {
+        when(trashedNoteRepository.findById("Jhon123:1"))
+                .thenReturn(Optional.of(new TrashedNote("Jhon123", note, new Date(), new Date())));
+
+        Note restored = noteTrashService.restoreNote("Jhon123", 1);
+        Assert.assertSame(note, restored);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).upsert(query.capture(), any(Update.class), eq(NoteUser.class));
+        Assert.assertEquals(new Document("$ne", 1), query.getValue().getQueryObject().get("notes.noteId"));
+        verify(trashedNoteRepository).deleteById("Jhon123:1");
+        verify(noteLinkService).updateLinks("Jhon123", 1, "See [[2]]");
+        verify(noteEventPublisher).publishAdded("Jhon123", Collections.singletonList(note));
+    }
+
+    @Test(expected = NoteNotFoundExeption.class)
+    public void restoreNoteNotInTrash() throws Exception {
+        when(trashedNoteRepository.findById("Jhon123:1")).thenReturn(Optional.empty());
+        noteTrashService.restoreNote("Jhon123", 1);
+    }
+
+    @Test
+    public void restoreNoteKeepsLiveNote() throws Exception {
+        when(trashedNoteRepository.findById("Jhon123:1"))
+                .thenReturn(Optional.of(new TrashedNote("Jhon123", note, new Date(), new Date())));
+        when(mongoOperations.upsert(any(Query.class), any(Update.class), eq(NoteUser.class)))
+                .thenThrow(new DuplicateKeyException("E11000"));
+        try {
+            noteTrashService.restoreNote("Jhon123", 1);
+            Assert.fail();
+        } catch (NoteAlreadyExistsException e) {
+            verify(trashedNoteRepository, never()).deleteById("Jhon123:1");
+            verify(noteEventPublisher, never()).publishAdded(any(), any());
+        }
+    }
+}
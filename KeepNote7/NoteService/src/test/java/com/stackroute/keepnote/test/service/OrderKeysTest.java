@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.service.OrderKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class OrderKeysTest {
+
+    @Test
+    public void betweenSortsStrictlyBetweenNeighbours() {
+        Random random = new Random(42);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int position = random.nextInt(keys.size() + 1);
+            String before = position == 0 ? null : keys.get(position - 1);
+            String after = position == keys.size() ? null : keys.get(position);
+            String key = OrderKeys.between(before, after);
+            Assert.assertTrue(before == null || before.compareTo(key) < 0);
+            Assert.assertTrue(after == null || key.compareTo(after) < 0);
+            Assert.assertFalse(key.endsWith("0"));
+            keys.add(position, key);
+        }
+    }
+
+    @Test
+    public void appendingGrowsKeysSlowly() {
+        String key = null;
+        for (int i = 0; i < 100; i++) {
+            key = OrderKeys.between(key, null);
+        }
+        Assert.assertTrue(key.length() <= 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void betweenRejectsKeysOutOfOrder() {
+        OrderKeys.between("b", "a");
+    }
+
+    @Test
+    public void spreadReturnsShortAscendingKeys() {
+        List<String> keys = OrderKeys.spread(5000);
+        Assert.assertEquals(5000, keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            Assert.assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+            Assert.assertTrue(keys.get(i).length() <= 3);
+        }
+    }
+
+    @Test
+    public void displayOrderPutsPinnedFirstAndKeylessLast() {
+        Note pinned = note(3, "z", true);
+        Note first = note(1, "a", false);
+        Note second = note(2, "b", false);
+        Note keyless = note(0, null, false);
+        List<Note> notes = new ArrayList<>(Arrays.asList(keyless, second, first, pinned));
+        notes.sort(OrderKeys.DISPLAY_ORDER);
+        Assert.assertEquals(Arrays.asList(pinned, first, second, keyless), notes);
+    }
+
+    private Note note(int noteId, String orderKey, boolean pinned) {
+        Note note = new Note();
+        note.setNoteId(noteId);
+        note.setOrderKey(orderKey);
+        note.setPinned(pinned);
+        return note;
+    }
+}
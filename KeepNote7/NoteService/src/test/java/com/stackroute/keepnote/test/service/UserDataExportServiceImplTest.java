@@ -0,0 +1,76 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.service.UserDataExportServiceImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+public class UserDataExportServiceImplTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private RestTemplate restTemplate;
+    private UserDataExportServiceImpl userDataExportService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        userDataExportService = new UserDataExportServiceImpl(mongoOperations, restTemplate,
+                "http://category-service/api/v1/category/stream", "http://reminder-service/api/v1/reminder/stream",
+                16, 0, 1);
+    }
+
+    @After
+    public void tearDown() {
+        userDataExportService.shutdown();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void exportsBeyondTheLimitAreRejected() {
+        userDataExportService.startExport("Jhon123", "Bearer token");
+        userDataExportService.startExport("Jhon123", "Bearer token");
+    }
+
+    @Test
+    public void permitOfAnExportThatNeverStartsIsReleased() throws InterruptedException {
+        StreamingResponseBody abandoned = userDataExportService.startExport("Jhon123", "Bearer token");
+        Thread.sleep(50);
+        userDataExportService.releaseAbandonedExports();
+
+        Assert.assertNotNull(userDataExportService.startExport("Jhon123", "Bearer token"));
+        try {
+            abandoned.writeTo(new ByteArrayOutputStream());
+            Assert.fail("abandoned export was written");
+        } catch (IOException e) {
+            Assert.assertEquals("Export abandoned before the response was written", e.getMessage());
+        }
+    }
+
+    @Test
+    public void exportWaitingToStartKeepsItsPermit() {
+        userDataExportService.shutdown();
+        userDataExportService = new UserDataExportServiceImpl(mongoOperations, restTemplate,
+                "http://category-service/api/v1/category/stream", "http://reminder-service/api/v1/reminder/stream",
+                16, 120, 1);
+        userDataExportService.startExport("Jhon123", "Bearer token");
+        userDataExportService.releaseAbandonedExports();
+        try {
+            userDataExportService.startExport("Jhon123", "Bearer token");
+            Assert.fail("permit released before the export was abandoned");
+        } catch (RejectedExecutionException e) {
+            /* the first export still holds the only permit */
+        }
+    }
+
+}
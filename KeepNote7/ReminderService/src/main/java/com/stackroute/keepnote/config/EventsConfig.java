@@ -0,0 +1,59 @@
+package com.stackroute.keepnote.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Change events are published as JSON to the durable keepnote.events topic exchange,
+ * on the RabbitMQ broker the service already uses for the config bus. Every instance
+ * also reads reminder changes and snoozes back through its own auto-deleted queues, so
+ * the instance holding a reminder's dispatch shard reschedules it whichever instance
+ * took the write.
+ */
+@Configuration
+public class EventsConfig {
+
+	public static final String EXCHANGE = "keepnote.events";
+	public static final String SNOOZED_ROUTING_KEY = "reminder-schedule.snoozed";
+	public static final String NOTIFICATION_ROUTING_KEY = "reminder-notification.due";
+
+	@Bean
+	public TopicExchange eventsExchange() {
+		return new TopicExchange(EXCHANGE, true, false);
+	}
+
+	@Bean
+	public Queue reminderChangesQueue() {
+		return new AnonymousQueue();
+	}
+
+	@Bean
+	public Queue reminderSnoozesQueue() {
+		return new AnonymousQueue();
+	}
+
+	@Bean
+	public Binding reminderChangesBinding() {
+		return BindingBuilder.bind(reminderChangesQueue()).to(eventsExchange()).with("reminder.*");
+	}
+
+	@Bean
+	public Binding reminderSnoozesBinding() {
+		return BindingBuilder.bind(reminderSnoozesQueue()).to(eventsExchange()).with(SNOOZED_ROUTING_KEY);
+	}
+
+	@Bean
+	public MessageConverter eventMessageConverter(ObjectMapper objectMapper) {
+		return new Jackson2JsonMessageConverter(objectMapper);
+	}
+
+}
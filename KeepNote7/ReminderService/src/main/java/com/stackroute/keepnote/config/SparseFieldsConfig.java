@@ -0,0 +1,39 @@
+package com.stackroute.keepnote.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Attaches the reminder property filter used by ?fields= to the application's
+ * ObjectMapper through a mixin, so the model class itself stays free of Jackson
+ * filter annotations and plain ObjectMappers keep serializing it as before. Responses
+ * that do not select fields fall back to the default filter, which writes everything.
+ */
+@Configuration
+public class SparseFieldsConfig {
+
+	public static final String REMINDER_FILTER = "reminderFields";
+
+	@JsonFilter(REMINDER_FILTER)
+	static abstract class ReminderFieldsMixin {
+	}
+
+	@Bean
+	public Jackson2ObjectMapperBuilderCustomizer sparseFieldsCustomizer() {
+		return SparseFieldsConfig::configure;
+	}
+
+	public static void configure(Jackson2ObjectMapperBuilder builder) {
+		builder.mixIn(Reminder.class, ReminderFieldsMixin.class)
+				.filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll())
+						.setFailOnUnknownId(false));
+	}
+
+}
@@ -1,6 +1,12 @@
 package com.stackroute.keepnote.controller;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -11,13 +17,24 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.stackroute.keepnote.config.SparseFields;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.stackroute.keepnote.exception.ReminderNotCreatedException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
+import com.stackroute.keepnote.service.ReminderEventPublisher;
+import com.stackroute.keepnote.service.ReminderHistoryService;
 import com.stackroute.keepnote.service.ReminderService;
+import com.stackroute.keepnote.service.ReminderTrashService;
+import com.stackroute.keepnote.service.IdempotencyService;
 
+import io.jsonwebtoken.Claims;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
@@ -47,6 +64,9 @@ public class ReminderController {
 	 * 
 	 */
 
+	private static final int MAX_PAGE_SIZE = 500;
+	private static final int MAX_HISTORY_DAYS = 366;
+
 	/*
 	 * Autowiring should be implemented for the ReminderService. (Use
 	 * Constructor-based autowiring) Please note that we should not create any
@@ -55,8 +75,26 @@ public class ReminderController {
 	@Autowired
 	private ReminderService reminderService;
 
-	public ReminderController(ReminderService reminderService) {
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private ReminderTrashService reminderTrashService;
+
+	@Autowired
+	private ReminderEventPublisher reminderEventPublisher;
+
+	@Autowired
+	private ReminderHistoryService reminderHistoryService;
+
+	public ReminderController(ReminderService reminderService, IdempotencyService idempotencyService,
+			ReminderTrashService reminderTrashService, ReminderEventPublisher reminderEventPublisher,
+			ReminderHistoryService reminderHistoryService) {
 		this.reminderService=reminderService;
+		this.idempotencyService=idempotencyService;
+		this.reminderTrashService=reminderTrashService;
+		this.reminderEventPublisher=reminderEventPublisher;
+		this.reminderHistoryService=reminderHistoryService;
 	}
 
 	/*
@@ -68,19 +106,48 @@ public class ReminderController {
 	 * 1. 201(CREATED - In case of successful creation of the reminder
 	 * 2. 409(CONFLICT) - In case of duplicate reminder ID
 	 *
+	 * A request carrying an Idempotency-Key header is recorded against that key, a
+	 * retry with the same key is answered with the recorded response. A retry arriving
+	 * while the first request still runs gets 409, the key reused with another body 422.
+	 * 
 	 * This handler method should map to the URL "/api/v1/reminder" using HTTP POST
 	 * method".
 	 */
 	@ApiOperation(value="Create a Reminder")
 	@PostMapping("/api/v1/reminder")
-	public ResponseEntity<Reminder> createReminder(@RequestBody Reminder reminder) {
+	public ResponseEntity<?> createReminder(@RequestBody Reminder reminder, HttpServletRequest request,
+			@RequestHeader(value="Idempotency-Key", required=false) String idempotencyKey) {
 		
+		String key = null;
+		String fingerprint = null;
+		if(idempotencyKey != null) {
+			/* scoped by the caller, not by the body, so nobody can replay another user's response */
+			Claims claims = (Claims) request.getAttribute("claims");
+			key = "reminder:" + claims.getSubject() + ":" + idempotencyKey;
+			fingerprint = idempotencyService.fingerprint(reminder);
+			ResponseEntity<?> stored = idempotencyService.reserve(key, fingerprint);
+			if(stored != null) {
+				return stored;
+			}
+		}
+		
+		ResponseEntity<Reminder> response;
 		try {
 			Reminder rem1 = reminderService.createReminder(reminder);
-			return new ResponseEntity<Reminder>(rem1, HttpStatus.CREATED);
+			response = new ResponseEntity<Reminder>(rem1, HttpStatus.CREATED);
 		} catch (ReminderNotCreatedException e) {
-			return new ResponseEntity<>(HttpStatus.CONFLICT);
+			response = new ResponseEntity<>(HttpStatus.CONFLICT);
+		} catch (RuntimeException e) {
+			if(key != null) {
+				idempotencyService.complete(key, fingerprint, new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR));
+			}
+			throw e;
+		}
+		
+		if(key != null) {
+			idempotencyService.complete(key, fingerprint, response);
 		}
+		return response;
 		
 	}
 
@@ -151,15 +218,30 @@ public class ReminderController {
 	 * 1. 200(OK) - If the reminder found successfully. 
 	 * 2. 404(NOT FOUND) - If the reminder with specified reminderId is not found. 
 	 * 
+	 * With ?fields=reminderId,reminderName only the listed fields are loaded and
+	 * returned, 400(BAD REQUEST) for unknown fields.
+	 * 
 	 * This handler method should map to the URL "/api/v1/reminder/{id}" using HTTP GET method
 	 * where "id" should be replaced by a valid reminderId without {}
 	 */
 	@ApiOperation(value="Get a Specific Reminder")
 	@GetMapping("/api/v1/reminder/{id}")
-	public ResponseEntity<?> getReminderById(@PathVariable String id) {
+	public ResponseEntity<?> getReminderById(@PathVariable String id,
+			@RequestParam(value="fields", required=false) String fields) {
 		
+			Set<String> selected;
 			try {
-				return new ResponseEntity<>(reminderService.getReminderById(id),HttpStatus.OK);
+				selected = SparseFields.parse(fields, Reminder.class);
+			} catch (IllegalArgumentException e) {
+				return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+			}
+		
+			try {
+				if(selected == null) {
+					return new ResponseEntity<>(reminderService.getReminderById(id),HttpStatus.OK);
+				}
+				return new ResponseEntity<>(SparseFields.filter(reminderService.getReminderById(id, selected),
+						SparseFieldsConfig.REMINDER_FILTER, selected), HttpStatus.OK);
 			} catch (ReminderNotFoundException e) {
 				return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 			}
@@ -167,26 +249,221 @@ public class ReminderController {
 	}
 
 	/*
-	 * Define a handler method which will get us the all reminders.
+	 * Define a handler method which will get us the reminders of the logged in user, one
+	 * page at a time. The body is {"reminders": [...], "next": cursor}, pass next as
+	 * ?cursor= for the following page, it is null on the last one. The reminders are
+	 * written as they are read from the database.
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
-	 * 1. 200(OK) - If the reminder found successfully. 
-	 * 2. 404(NOT FOUND) - If the reminder with specified reminderId is not found.
+	 * 1. 200(OK) - With the page, which may be empty.
+	 * 2. 400(BAD REQUEST) - If limit, the due range, the cursor or the fields are invalid.
+	 * 
+	 * ?limit= is the page size (default 50, at most 500). ?dueFrom= and ?dueTo= (epoch
+	 * milliseconds, either may be left out) only list reminders next firing in
+	 * [dueFrom, dueTo), in due order; otherwise they are listed in id order. ?fields=
+	 * limits the loaded and returned fields as for a single reminder.
 	 * 
 	 * This handler method should map to the URL "/api/v1/reminder" using HTTP GET method
 	 */
-	@ApiOperation(value="Get All Reminders")
-	@GetMapping("/api/v1/reminder")
-	public ResponseEntity<?> getAllReminders() {
+	@ApiOperation(value="Get the Reminders of the logged in user")
+	@GetMapping(value="/api/v1/reminder", produces="application/json")
+	public ResponseEntity<?> getAllReminders(@RequestParam(value="fields", required=false) String fields,
+			@RequestParam(value="cursor", required=false) String cursor,
+			@RequestParam(value="limit", defaultValue="50") int limit,
+			@RequestParam(value="dueFrom", required=false) Long dueFrom,
+			@RequestParam(value="dueTo", required=false) Long dueTo, HttpServletRequest request) {
 		
-		List<Reminder> list = null;
-			
-		list =reminderService.getAllReminders();
-		if(list!= null) {
-			return new ResponseEntity<>(reminderService.getAllReminders(),HttpStatus.OK);
+		Set<String> selected;
+		ReminderCursor after;
+		try {
+			selected = SparseFields.parse(fields, Reminder.class);
+			after = ReminderCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
 		}
-			
-		return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		boolean byDueTime = dueFrom != null || dueTo != null;
+		if (limit < 1 || limit > MAX_PAGE_SIZE || (dueFrom != null && dueTo != null && dueFrom > dueTo)
+				|| (after != null && byDueTime != (after.getNextFireAt() != null))) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		
+		String userId = ((Claims) request.getAttribute("claims")).getSubject();
+		Date from = dueFrom == null ? null : new Date(dueFrom);
+		Date to = dueTo == null ? null : new Date(dueTo);
+		return new ResponseEntity<StreamingResponseBody>(
+				outputStream -> reminderService.writeReminderPage(userId, from, to, after, limit, selected, outputStream),
+				HttpStatus.OK);
 		
 	}
-}
\ No newline at end of file
+
+	/*
+	 * Define a handler method which will stream all reminder records of the logged in
+	 * user as newline delimited JSON. It is used by the user data export of the
+	 * NoteService, the records are written to the response as they are read from
+	 * the database.
+	 *
+	 * This handler method should map to the URL "/api/v1/reminder/stream" using HTTP GET method
+	 */
+	@ApiOperation(value="Stream All Reminders of the logged in user")
+	@GetMapping(value="/api/v1/reminder/stream", produces="application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> streamReminders(HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		String userId = claims.getSubject();
+		return new ResponseEntity<>(outputStream -> reminderService.exportAllReminderByUserId(userId, outputStream),
+				HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will list the deleted reminders of the logged in user,
+	 * most recently deleted first. Trashed reminders are purged automatically after the
+	 * retention time.
+	 *
+	 * This handler method should map to the URL "/api/v1/reminder/trash" using HTTP GET method
+	 */
+	@ApiOperation(value="List the deleted Reminders of the logged in user")
+	@GetMapping("/api/v1/reminder/trash")
+	public ResponseEntity<?> getReminderTrash(HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		return new ResponseEntity<>(reminderTrashService.getTrash(claims.getSubject()), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will restore a deleted reminder of the logged in user.
+	 * This handler method should return any one of the status messages basis on
+	 * different situations:
+	 * 1. 200(OK) - If the reminder was restored, the body carries the reminder.
+	 * 2. 404(NOT FOUND) - If the reminder is not in the user's trash.
+	 * 3. 409(CONFLICT) - If a reminder with the same id exists again.
+	 *
+	 * This handler method should map to the URL "/api/v1/reminder/trash/{id}/restore" using
+	 * HTTP POST method
+	 */
+	@ApiOperation(value="Restore a deleted Reminder")
+	@PostMapping("/api/v1/reminder/trash/{id}/restore")
+	public ResponseEntity<?> restoreReminder(@PathVariable String id, HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		try {
+			return new ResponseEntity<>(reminderTrashService.restore(id, claims.getSubject()), HttpStatus.OK);
+		} catch (ReminderNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		} catch (ReminderNotCreatedException e) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+	}
+
+	/*
+	 * Define a handler method which will snooze the reminders of the logged in user that
+	 * are due within the given number of minutes until then, all of them or only those
+	 * with the given ids. This handler method should return any one of the status
+	 * messages basis on different situations:
+	 * 1. 200(OK) - The body carries the number of reminders snoozed.
+	 * 2. 400(BAD REQUEST) - If minutes is not positive.
+	 *
+	 * This handler method should map to the URL "/api/v1/reminder/snooze?minutes=&ids=" using
+	 * HTTP POST method, ids is an optional comma separated list of reminder ids
+	 */
+	@ApiOperation(value="Snooze the Reminders of the logged in user")
+	@PostMapping("/api/v1/reminder/snooze")
+	public ResponseEntity<?> snoozeReminders(@RequestParam("minutes") long minutes,
+			@RequestParam(value="ids", required=false) List<String> ids, HttpServletRequest request) {
+
+		if (minutes <= 0) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		Claims claims = (Claims) request.getAttribute("claims");
+		return new ResponseEntity<>(reminderService.snoozeReminders(claims.getSubject(), ids, minutes), HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will dismiss a reminder of the logged in user, so a
+	 * snoozed or recurring reminder does not fire again before its next regular
+	 * occurrence. This handler method should return any one of the status messages
+	 * basis on different situations:
+	 * 1. 200(OK) - If the reminder was dismissed, the body carries the reminder.
+	 * 2. 404(NOT FOUND) - If the user has no reminder with this id.
+	 * 3. 409(CONFLICT) - If the reminder kept firing or changing while it was dismissed.
+	 *
+	 * This handler method should map to the URL "/api/v1/reminder/{id}/dismiss" using HTTP
+	 * POST method
+	 */
+	@ApiOperation(value="Dismiss a Reminder")
+	@PostMapping("/api/v1/reminder/{id}/dismiss")
+	public ResponseEntity<?> dismissReminder(@PathVariable String id, HttpServletRequest request) {
+
+		Claims claims = (Claims) request.getAttribute("claims");
+		try {
+			Reminder reminder = reminderService.dismissReminder(id, claims.getSubject());
+			if (reminder == null) {
+				return new ResponseEntity<>(HttpStatus.CONFLICT);
+			}
+			return new ResponseEntity<>(reminder, HttpStatus.OK);
+		} catch (ReminderNotFoundException e) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+	}
+
+	/*
+	 * Define a handler method which will report how many reminders of the logged in user
+	 * fired, were snoozed and were dismissed per UTC day or ISO week. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - With one entry per day or week, periods without activity included.
+	 * 2. 400(BAD REQUEST) - If the dates or the period are invalid, or the range is
+	 *    longer than a year.
+	 *
+	 * This handler method should map to the URL
+	 * "/api/v1/reminder/history?from=2018-05-01&to=2018-06-01&period=day" using HTTP GET
+	 * method, to is exclusive and period is day (the default) or week
+	 */
+	@ApiOperation(value="Get the Reminder history of the logged in user")
+	@GetMapping("/api/v1/reminder/history")
+	public ResponseEntity<?> getReminderHistory(@RequestParam("from") String from, @RequestParam("to") String to,
+			@RequestParam(value="period", defaultValue="day") String period, HttpServletRequest request) {
+
+		LocalDate fromDay;
+		LocalDate toDay;
+		try {
+			fromDay = LocalDate.parse(from);
+			toDay = LocalDate.parse(to);
+		} catch (DateTimeParseException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		if (!fromDay.isBefore(toDay) || fromDay.plusDays(MAX_HISTORY_DAYS).isBefore(toDay)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		String userId = ((Claims) request.getAttribute("claims")).getSubject();
+		if ("day".equalsIgnoreCase(period)) {
+			return new ResponseEntity<>(reminderHistoryService.getDailyHistory(userId, fromDay, toDay), HttpStatus.OK);
+		}
+		if ("week".equalsIgnoreCase(period)) {
+			return new ResponseEntity<>(reminderHistoryService.getWeeklyHistory(userId, fromDay, toDay), HttpStatus.OK);
+		}
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+
+	/*
+	 * Define a handler method which will publish the stored reminder change events again,
+	 * e.g. after a consumer lost events. Consumers skip changes they already applied.
+	 * Only internal callers may replay, the request must carry the configured
+	 * keepnote.events.replay-token in the X-Replay-Token header.
+	 * 1. 200(OK) - The body carries the number of events sent.
+	 * 2. 403(FORBIDDEN) - If the token is missing or wrong, or no token is configured.
+	 *
+	 * This handler method should map to the URL "/api/v1/reminder/events/replay?since=" using
+	 * HTTP POST method, since is the epoch millisecond time of the oldest change to send
+	 */
+	@ApiOperation(value="Replay Reminder change events")
+	@PostMapping("/api/v1/reminder/events/replay")
+	public ResponseEntity<?> replayEvents(@RequestParam("since") long since,
+			@RequestHeader(value="X-Replay-Token", required=false) String replayToken) {
+
+		if (!reminderEventPublisher.isReplayAllowed(replayToken)) {
+			return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+		}
+		return new ResponseEntity<>(reminderEventPublisher.replay(since), HttpStatus.OK);
+	}
+
+}
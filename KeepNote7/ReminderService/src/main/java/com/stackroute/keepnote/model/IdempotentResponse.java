@@ -0,0 +1,114 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Response recorded against an Idempotency-Key so that a retried create request
+ * can be answered with the original outcome instead of being applied twice.
+ * The key is reserved with a pending entry before the request runs, the response
+ * replaces it once the request is done. The fingerprint is the hash of the request
+ * body the key was first used with. The expiresAt field carries a TTL index with no
+ * extra delay, so Mongo removes the entry once keepnote.idempotency.ttl-seconds
+ * have passed.
+ */
+@Document(collection = "idempotent_responses")
+public class IdempotentResponse {
+
+	@Id
+	private String key;
+	private String fingerprint;
+	private boolean pending;
+	private int status;
+	private Object body;
+	private Date storedAt;
+	@Indexed(expireAfterSeconds = 0)
+	private Date expiresAt;
+
+	public IdempotentResponse() {
+	}
+
+	public IdempotentResponse(String key, String fingerprint, Date storedAt, Date expiresAt) {
+		this.key = key;
+		this.fingerprint = fingerprint;
+		this.pending = true;
+		this.storedAt = storedAt;
+		this.expiresAt = expiresAt;
+	}
+
+	public IdempotentResponse(String key, String fingerprint, int status, Object body, Date storedAt,
+			Date expiresAt) {
+		this.key = key;
+		this.fingerprint = fingerprint;
+		this.status = status;
+		this.body = body;
+		this.storedAt = storedAt;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	public boolean isPending() {
+		return pending;
+	}
+
+	public void setPending(boolean pending) {
+		this.pending = pending;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public Object getBody() {
+		return body;
+	}
+
+	public void setBody(Object body) {
+		this.body = body;
+	}
+
+	public Date getStoredAt() {
+		return storedAt;
+	}
+
+	public void setStoredAt(Date storedAt) {
+		this.storedAt = storedAt;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	@Override
+	public String toString() {
+		return "IdempotentResponse [key=" + key + ", pending=" + pending + ", status=" + status + ", storedAt="
+				+ storedAt + "]";
+	}
+
+}
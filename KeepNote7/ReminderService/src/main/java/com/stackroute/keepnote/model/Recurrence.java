@@ -0,0 +1,97 @@
+package com.stackroute.keepnote.model;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/*
+ * Recurrence rules of reminders. A recurring reminder repeats every
+ * recurrenceInterval (at least one) hours, days, weeks, months or years after its
+ * first dueAt, calendar units are counted in UTC. Occurrences are always computed
+ * from the first dueAt, so a reminder due on the 31st stays on the last day of
+ * shorter months instead of drifting to the 28th.
+ */
+public final class Recurrence {
+
+	public static final String HOURLY = "HOURLY";
+	public static final String DAILY = "DAILY";
+	public static final String WEEKLY = "WEEKLY";
+	public static final String MONTHLY = "MONTHLY";
+	public static final String YEARLY = "YEARLY";
+
+	private Recurrence() {
+	}
+
+	public static boolean isValid(String recurrence) {
+		return recurrence == null || unit(recurrence) != null;
+	}
+
+	public static boolean isRecurring(Reminder reminder) {
+		return reminder.getRecurrence() != null && unit(reminder.getRecurrence()) != null;
+	}
+
+	/*
+	 * Returns the time a reminder with the given first occurrence fires first when it is
+	 * saved at now: dueAt for a one-time reminder (at once if that has passed), the
+	 * first occurrence from now on for a recurring one.
+	 */
+	public static Date firstFireAt(Date dueAt, String recurrence, int interval, long now) {
+
+		if (dueAt == null || recurrence == null || unit(recurrence) == null) {
+			return dueAt;
+		}
+		return next(dueAt, recurrence, interval, now - 1);
+	}
+
+	/*
+	 * Returns the first occurrence of the reminder strictly after the given time, null
+	 * for a reminder that does not recur. first is the dueAt of the first occurrence.
+	 */
+	public static Date next(Date first, String recurrence, int interval, long after) {
+
+		ChronoUnit unit = recurrence == null ? null : unit(recurrence);
+		if (unit == null || first == null) {
+			return null;
+		}
+		long step = Math.max(interval, 1);
+		if (first.getTime() > after) {
+			return first;
+		}
+
+		if (unit == ChronoUnit.HOURS || unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS) {
+			long stepMillis = step * unit.getDuration().toMillis();
+			long periods = (after - first.getTime()) / stepMillis + 1;
+			return new Date(first.getTime() + periods * stepMillis);
+		}
+
+		ZonedDateTime start = ZonedDateTime.ofInstant(first.toInstant(), ZoneOffset.UTC);
+		ZonedDateTime end = ZonedDateTime.ofInstant(new Date(after).toInstant(), ZoneOffset.UTC);
+		long periods = Math.max(unit.between(start, end) / step, 0);
+		ZonedDateTime next = start.plus(periods * step, unit);
+		while (next.toInstant().toEpochMilli() <= after) {
+			periods++;
+			next = start.plus(periods * step, unit);
+		}
+		return Date.from(next.toInstant());
+	}
+
+	private static ChronoUnit unit(String recurrence) {
+
+		switch (recurrence) {
+		case HOURLY:
+			return ChronoUnit.HOURS;
+		case DAILY:
+			return ChronoUnit.DAYS;
+		case WEEKLY:
+			return ChronoUnit.WEEKS;
+		case MONTHLY:
+			return ChronoUnit.MONTHS;
+		case YEARLY:
+			return ChronoUnit.YEARS;
+		default:
+			return null;
+		}
+	}
+
+}
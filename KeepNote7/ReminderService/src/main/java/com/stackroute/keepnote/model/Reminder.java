@@ -3,6 +3,8 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 /*
@@ -10,6 +12,10 @@ import org.springframework.data.mongodb.core.mapping.Document;
  * @Document identifies a domain object to be persisted to MongoDB.
  *  */
 @Document
+@CompoundIndexes({
+		@CompoundIndex(name = "reminder_shard_next_fire_idx", def = "{'shard': 1, 'nextFireAt': 1}"),
+		@CompoundIndex(name = "reminder_user_idx", def = "{'reminderCreatedBy': 1, '_id': 1}"),
+		@CompoundIndex(name = "reminder_user_next_fire_idx", def = "{'reminderCreatedBy': 1, 'nextFireAt': 1, '_id': 1}") })
 public class Reminder {
 
 	/*
@@ -31,6 +37,22 @@ public class Reminder {
 	private String reminderCreatedBy;
 	private Date reminderCreationDate;
 	
+	/*
+	 * dueAt is the first occurrence of the reminder, later occurrences of a recurring
+	 * reminder (see Recurrence) are counted from it. nextFireAt is the precomputed time
+	 * the reminder fires next: the next occurrence, or a later time if it was snoozed,
+	 * null once a one-time reminder fired. lastFiredAt is the time it fired last.
+	 * shard is the dispatch shard of the reminder id, fenceToken the lease token of the
+	 * shard owner that fired it last.
+	 */
+	private Date dueAt;
+	private String recurrence;
+	private int recurrenceInterval;
+	private Date nextFireAt;
+	private Date lastFiredAt;
+	private int shard;
+	private Long fenceToken;
+	
 	
 
     public Reminder() {
@@ -122,11 +144,97 @@ public class Reminder {
 
 
 
+	public Date getDueAt() {
+		return dueAt;
+	}
+
+
+
+	public void setDueAt(Date dueAt) {
+		this.dueAt = dueAt;
+	}
+
+
+
+	public String getRecurrence() {
+		return recurrence;
+	}
+
+
+
+	public void setRecurrence(String recurrence) {
+		this.recurrence = recurrence;
+	}
+
+
+
+	public int getRecurrenceInterval() {
+		return recurrenceInterval;
+	}
+
+
+
+	public void setRecurrenceInterval(int recurrenceInterval) {
+		this.recurrenceInterval = recurrenceInterval;
+	}
+
+
+
+	public Date getNextFireAt() {
+		return nextFireAt;
+	}
+
+
+
+	public void setNextFireAt(Date nextFireAt) {
+		this.nextFireAt = nextFireAt;
+	}
+
+
+
+	public Date getLastFiredAt() {
+		return lastFiredAt;
+	}
+
+
+
+	public void setLastFiredAt(Date lastFiredAt) {
+		this.lastFiredAt = lastFiredAt;
+	}
+
+
+
+	public int getShard() {
+		return shard;
+	}
+
+
+
+	public void setShard(int shard) {
+		this.shard = shard;
+	}
+
+
+
+	public Long getFenceToken() {
+		return fenceToken;
+	}
+
+
+
+	public void setFenceToken(Long fenceToken) {
+		this.fenceToken = fenceToken;
+	}
+
+
+
 	@Override
 	public String toString() {
 		return "Reminder [reminderId=" + reminderId + ", reminderName=" + reminderName + ", reminderDescription="
 				+ reminderDescription + ", reminderType=" + reminderType + ", reminderCreatedBy=" + reminderCreatedBy
-				+ ", reminderCreationDate=" + reminderCreationDate + "]";
+				+ ", reminderCreationDate=" + reminderCreationDate + ", dueAt=" + dueAt + ", recurrence=" + recurrence
+				+ ", recurrenceInterval=" + recurrenceInterval + ", nextFireAt=" + nextFireAt + ", lastFiredAt=" + lastFiredAt
+				+ ", shard=" + shard + "]";
 	}
     
     
@@ -0,0 +1,132 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * A change of a reminder, published to the keepnote.events exchange so that services
+ * holding embedded copies of the reminder can bring them up to date. Every event is kept
+ * in the reminder_events collection first (the outbox): events the broker did not take are
+ * sent again later, and stored events can be replayed. Outbox entries expire after
+ * seven days.
+ *
+ * version counts the changes of the reminder, see ReminderVersion. Consumers apply an event only
+ * to copies older than it, which makes redelivery and replay harmless.
+ */
+@Document(collection = "reminder_events")
+public class ReminderChangeEvent {
+
+	public static final String UPSERTED = "UPSERTED";
+	public static final String DELETED = "DELETED";
+
+	@Id
+	private String eventId;
+	private String type;
+	private String reminderId;
+	private String userId;
+	private Reminder reminder;
+	private long version;
+	private Date publishedAt;
+	@Indexed
+	private boolean published;
+	private boolean replayed;
+	@Indexed(expireAfterSeconds = 604800)
+	private Date createdAt;
+
+	public ReminderChangeEvent() {
+	}
+
+	public ReminderChangeEvent(String eventId, String type, String reminderId, String userId, Reminder reminder, long version) {
+		this.eventId = eventId;
+		this.type = type;
+		this.reminderId = reminderId;
+		this.userId = userId;
+		this.reminder = reminder;
+		this.version = version;
+		this.createdAt = new Date();
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(String eventId) {
+		this.eventId = eventId;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(String reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Reminder getReminder() {
+		return reminder;
+	}
+
+	public void setReminder(Reminder reminder) {
+		this.reminder = reminder;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public Date getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(Date publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public boolean isPublished() {
+		return published;
+	}
+
+	public void setPublished(boolean published) {
+		this.published = published;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+	public void setReplayed(boolean replayed) {
+		this.replayed = replayed;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.stackroute.keepnote.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/*
+ * Position in a listing of a user's reminders, after the reminder it was taken from.
+ * Listings by due time are ordered by (nextFireAt, reminderId), the others by
+ * reminderId alone, so the cursor carries nextFireAt only for the former. It is handed
+ * to clients as an opaque URL safe string.
+ */
+public final class ReminderCursor {
+
+	private final Date nextFireAt;
+	private final String reminderId;
+
+	public ReminderCursor(Date nextFireAt, String reminderId) {
+		this.nextFireAt = nextFireAt;
+		this.reminderId = reminderId;
+	}
+
+	public Date getNextFireAt() {
+		return nextFireAt;
+	}
+
+	public String getReminderId() {
+		return reminderId;
+	}
+
+	public String encode() {
+		String position = (nextFireAt == null ? "" : Long.toString(nextFireAt.getTime())) + ":" + reminderId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Reads a cursor returned by encode(), null for null. Throws an
+	 * IllegalArgumentException for anything else.
+	 */
+	public static ReminderCursor decode(String cursor) {
+
+		if (cursor == null) {
+			return null;
+		}
+		String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		int separator = position.indexOf(':');
+		if (separator < 0 || separator == position.length() - 1) {
+			throw new IllegalArgumentException("Malformed cursor");
+		}
+		Date nextFireAt = separator == 0 ? null : new Date(Long.parseLong(position.substring(0, separator)));
+		return new ReminderCursor(nextFireAt, position.substring(separator + 1));
+	}
+
+}
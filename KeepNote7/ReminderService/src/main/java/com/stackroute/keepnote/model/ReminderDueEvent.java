@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * Published as a Spring application event when a reminder fires. dueAt is the
+ * occurrence that fired, the reminder itself already carries the next occurrence
+ * when it recurs.
+ */
+public class ReminderDueEvent {
+
+	private final Reminder reminder;
+	private final Date dueAt;
+	private final Date firedAt;
+
+	public ReminderDueEvent(Reminder reminder, Date dueAt, Date firedAt) {
+		this.reminder = reminder;
+		this.dueAt = dueAt;
+		this.firedAt = firedAt;
+	}
+
+	public Reminder getReminder() {
+		return reminder;
+	}
+
+	public Date getDueAt() {
+		return dueAt;
+	}
+
+	public Date getFiredAt() {
+		return firedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderDueEvent [reminderId=" + reminder.getReminderId() + ", dueAt=" + dueAt + ", firedAt=" + firedAt
+				+ "]";
+	}
+
+}
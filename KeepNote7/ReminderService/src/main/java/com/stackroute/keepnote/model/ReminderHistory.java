@@ -0,0 +1,115 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * How many of a user's reminders fired, were snoozed and were dismissed in one period
+ * starting at start (UTC). DAY is the stored granularity: the reminder_history
+ * collection holds one DAY document per user and day with any activity, only ever
+ * incremented; WEEK entries are summed from DAY documents when read and not stored. The id is derived
+ * from userId, period and start, so the increments of a period always meet in the
+ * same document.
+ */
+@Document(collection = "reminder_history")
+@CompoundIndex(name = "reminder_history_user_period_idx", def = "{'userId': 1, 'period': 1, 'start': 1}")
+public class ReminderHistory {
+
+	public static final String DAY = "DAY";
+	public static final String WEEK = "WEEK";
+
+	@Id
+	private String id;
+	private String userId;
+	private String period;
+	private Date start;
+	private long fired;
+	private long snoozed;
+	private long dismissed;
+
+	public ReminderHistory() {
+	}
+
+	public ReminderHistory(String userId, String period, Date start) {
+		this.id = id(userId, period, start);
+		this.userId = userId;
+		this.period = period;
+		this.start = start;
+	}
+
+	public static String id(String userId, String period, Date start) {
+		return userId + "/" + period + "/" + start.getTime();
+	}
+
+	public void add(ReminderHistory other) {
+		fired += other.fired;
+		snoozed += other.snoozed;
+		dismissed += other.dismissed;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(String period) {
+		this.period = period;
+	}
+
+	public Date getStart() {
+		return start;
+	}
+
+	public void setStart(Date start) {
+		this.start = start;
+	}
+
+	public long getFired() {
+		return fired;
+	}
+
+	public void setFired(long fired) {
+		this.fired = fired;
+	}
+
+	public long getSnoozed() {
+		return snoozed;
+	}
+
+	public void setSnoozed(long snoozed) {
+		this.snoozed = snoozed;
+	}
+
+	public long getDismissed() {
+		return dismissed;
+	}
+
+	public void setDismissed(long dismissed) {
+		this.dismissed = dismissed;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderHistory [userId=" + userId + ", period=" + period + ", start=" + start + ", fired=" + fired
+				+ ", snoozed=" + snoozed + ", dismissed=" + dismissed + "]";
+	}
+
+}
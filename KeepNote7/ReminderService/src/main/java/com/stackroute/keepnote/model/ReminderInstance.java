@@ -0,0 +1,37 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * Heartbeat of a running ReminderService instance, used to split the dispatch shards
+ * evenly. The document is removed by Mongo's TTL monitor some time after expiresAt.
+ */
+@Document(collection = "reminder_instances")
+public class ReminderInstance {
+
+	@Id
+	private String instanceId;
+	@Indexed(expireAfterSeconds = 0)
+	private Date expiresAt;
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public void setInstanceId(String instanceId) {
+		this.instanceId = instanceId;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+}
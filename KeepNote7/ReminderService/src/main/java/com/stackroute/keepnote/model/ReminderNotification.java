@@ -0,0 +1,81 @@
+package com.stackroute.keepnote.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * One notification to a user, carrying every reminder of the user that came due
+ * within the coalescing window (see ReminderDeliveryServiceImpl). firstDueAt is the
+ * earliest occurrence in it, delivery latency is measured from there.
+ */
+public class ReminderNotification {
+
+	private String notificationId;
+	private String userId;
+	private List<ReminderDueEvent> reminders = new ArrayList<>();
+	private Date firstDueAt;
+	private Date createdAt;
+
+	public ReminderNotification() {
+	}
+
+	public ReminderNotification(String notificationId, String userId) {
+		this.notificationId = notificationId;
+		this.userId = userId;
+	}
+
+	public void add(ReminderDueEvent reminder) {
+		reminders.add(reminder);
+		if (firstDueAt == null || reminder.getDueAt().before(firstDueAt)) {
+			firstDueAt = reminder.getDueAt();
+		}
+	}
+
+	public String getNotificationId() {
+		return notificationId;
+	}
+
+	public void setNotificationId(String notificationId) {
+		this.notificationId = notificationId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public List<ReminderDueEvent> getReminders() {
+		return reminders;
+	}
+
+	public void setReminders(List<ReminderDueEvent> reminders) {
+		this.reminders = reminders;
+	}
+
+	public Date getFirstDueAt() {
+		return firstDueAt;
+	}
+
+	public void setFirstDueAt(Date firstDueAt) {
+		this.firstDueAt = firstDueAt;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderNotification [notificationId=" + notificationId + ", userId=" + userId + ", reminders="
+				+ reminders.size() + ", firstDueAt=" + firstDueAt + ", createdAt=" + createdAt + "]";
+	}
+
+}
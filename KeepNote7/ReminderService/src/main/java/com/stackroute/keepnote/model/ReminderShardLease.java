@@ -0,0 +1,60 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The lease of one reminder dispatch shard. owner is the instance holding the shard
+ * until expiresAt, token grows by one with every acquisition and fences writes of
+ * earlier owners.
+ */
+@Document(collection = "reminder_shard_leases")
+public class ReminderShardLease {
+
+	@Id
+	private int shard;
+	private String owner;
+	private Date expiresAt;
+	private long token;
+
+	public int getShard() {
+		return shard;
+	}
+
+	public void setShard(int shard) {
+		this.shard = shard;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	public long getToken() {
+		return token;
+	}
+
+	public void setToken(long token) {
+		this.token = token;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderShardLease [shard=" + shard + ", owner=" + owner + ", expiresAt=" + expiresAt + ", token=" + token
+				+ "]";
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Set;
+
+/*
+ * Published as a Spring application event when this instance acquired or lost
+ * reminder dispatch shards.
+ */
+public class ReminderShardsChangedEvent {
+
+	private final Set<Integer> acquired;
+	private final Set<Integer> lost;
+
+	public ReminderShardsChangedEvent(Set<Integer> acquired, Set<Integer> lost) {
+		this.acquired = acquired;
+		this.lost = lost;
+	}
+
+	public Set<Integer> getAcquired() {
+		return acquired;
+	}
+
+	public Set<Integer> getLost() {
+		return lost;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderShardsChangedEvent [acquired=" + acquired + ", lost=" + lost + "]";
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * Published to the keepnote.events exchange with routing key reminder-schedule.snoozed
+ * after reminders of a user were snoozed to the same time, so that every instance
+ * reschedules those of its shards.
+ */
+public class ReminderSnoozedEvent {
+
+	private String userId;
+	private Date until;
+
+	public ReminderSnoozedEvent() {
+	}
+
+	public ReminderSnoozedEvent(String userId, Date until) {
+		this.userId = userId;
+		this.until = until;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Date getUntil() {
+		return until;
+	}
+
+	public void setUntil(Date until) {
+		this.until = until;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderSnoozedEvent [userId=" + userId + ", until=" + until + "]";
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.stackroute.keepnote.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * The version of the last change event published for a reminder. Every event takes
+ * the next version with one $inc, so versions of a reminder are unique and ordered
+ * whatever the clocks of the instances publishing them say.
+ */
+@Document(collection = "reminder_versions")
+public class ReminderVersion {
+
+	@Id
+	private String reminderId;
+	private long version;
+
+	public String getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(String reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/*
+ * A deleted reminder kept in the reminder_trash collection until purgeAt. purgeAt carries a
+ * TTL index with no extra delay, so Mongo removes the entry once the retention time
+ * has passed and no application sweep is needed. Keyed by the reminder id, deleting a
+ * restored reminder again replaces the older entry.
+ */
+@Document(collection = "reminder_trash")
+public class TrashedReminder {
+
+	@Id
+	private String reminderId;
+	@Indexed
+	private String userId;
+	private Reminder reminder;
+	private Date deletedAt;
+	@Indexed(expireAfterSeconds = 0)
+	private Date purgeAt;
+
+	public TrashedReminder() {
+	}
+
+	public TrashedReminder(String reminderId, String userId, Reminder reminder, Date deletedAt, Date purgeAt) {
+		this.reminderId = reminderId;
+		this.userId = userId;
+		this.reminder = reminder;
+		this.deletedAt = deletedAt;
+		this.purgeAt = purgeAt;
+	}
+
+	public String getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(String reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Reminder getReminder() {
+		return reminder;
+	}
+
+	public void setReminder(Reminder reminder) {
+		this.reminder = reminder;
+	}
+
+	public Date getDeletedAt() {
+		return deletedAt;
+	}
+
+	public void setDeletedAt(Date deletedAt) {
+		this.deletedAt = deletedAt;
+	}
+
+	public Date getPurgeAt() {
+		return purgeAt;
+	}
+
+	public void setPurgeAt(Date purgeAt) {
+		this.purgeAt = purgeAt;
+	}
+
+}
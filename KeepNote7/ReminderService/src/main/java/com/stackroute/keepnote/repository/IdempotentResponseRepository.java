@@ -0,0 +1,20 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Date;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.IdempotentResponse;
+
+/*
+* This class is implementing the MongoRepository interface for IdempotentResponse.
+* Entries are expired by the TTL index declared on the document.
+* */
+@Repository
+public interface IdempotentResponseRepository extends MongoRepository<IdempotentResponse, String> {
+
+	/* removes the entry only if nobody replaced it since it was read */
+	Long deleteByKeyAndStoredAt(String key, Date storedAt);
+
+}
@@ -0,0 +1,24 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.keepnote.model.ReminderChangeEvent;
+
+/*
+* This class is implementing the MongoRepository interface for ReminderChangeEvent.
+* Annotate this class with @Repository annotation
+* */
+@Repository
+public interface ReminderChangeEventRepository extends MongoRepository<ReminderChangeEvent, String> {
+
+	List<ReminderChangeEvent> findByPublishedFalse(Pageable pageable);
+
+	List<ReminderChangeEvent> findByCreatedAtGreaterThanEqual(Date createdAt, Sort sort);
+
+}
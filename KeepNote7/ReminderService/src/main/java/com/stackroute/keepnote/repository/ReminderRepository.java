@@ -1,5 +1,7 @@
 package com.stackroute.keepnote.repository;
 
+import java.util.stream.Stream;
+
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,6 +12,12 @@ import com.stackroute.keepnote.model.Reminder;
 * Annotate this class with @Repository annotation
 * */
 @Repository
-public interface ReminderRepository extends MongoRepository<Reminder, String> {
+public interface ReminderRepository extends MongoRepository<Reminder, String>, ReminderRepositoryCustom {
+
+	/*
+	 * Streams the reminders created by a user through a Mongo cursor. The stream has
+	 * to be closed by the caller.
+	 */
+	Stream<Reminder> streamAllReminderByReminderCreatedBy(String createdBy);
 
 }
@@ -0,0 +1,53 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.springframework.data.util.CloseableIterator;
+
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
+
+/*
+ * Queries of the ReminderRepository that need a field projection, and multi-document or
+ * conditional updates, implemented in ReminderRepositoryImpl.
+ */
+public interface ReminderRepositoryCustom {
+
+	/*
+	 * Loads a reminder with only the given fields filled in, null if there is none.
+	 */
+	Reminder findProjectedById(String reminderId, Collection<String> fields);
+
+	/*
+	 * Streams up to limit reminders of the user after the cursor (from the start for
+	 * null) through a Mongo cursor, which has to be closed by the caller. With a due
+	 * range (either bound may be null) only reminders whose nextFireAt is in
+	 * [dueFrom, dueTo) are read, ordered by nextFireAt, otherwise all of them ordered
+	 * by id. fields limits the loaded fields as in findProjectedById, null loads all.
+	 */
+	CloseableIterator<Reminder> streamPage(String userId, Date dueFrom, Date dueTo, ReminderCursor after, int limit,
+			Collection<String> fields);
+
+	/*
+	 * Moves the nextFireAt of the user's reminders due before until to until, in one
+	 * update. With reminderIds only those reminders are snoozed. Returns the number of
+	 * reminders snoozed.
+	 */
+	long snooze(String userId, Collection<String> reminderIds, Date until);
+
+	/*
+	 * Writes the fields a user edits, the schedule and the shard of the reminder if its
+	 * nextFireAt is still readNextFireAt, i.e. it neither fired nor was snoozed since it
+	 * was read. lastFiredAt and fenceToken are left as they are. Returns whether the
+	 * reminder was updated.
+	 */
+	boolean updateIfNextFireAt(Reminder reminder, Date readNextFireAt);
+
+	/*
+	 * Sets the nextFireAt of the reminder if it is still readNextFireAt. Returns whether
+	 * the reminder was updated.
+	 */
+	boolean moveNextFireAt(String reminderId, Date readNextFireAt, Date nextFireAt);
+
+}
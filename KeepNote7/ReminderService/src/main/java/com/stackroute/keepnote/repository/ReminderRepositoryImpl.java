@@ -0,0 +1,112 @@
+package com.stackroute.keepnote.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
+
+public class ReminderRepositoryImpl implements ReminderRepositoryCustom {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	public ReminderRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	public Reminder findProjectedById(String reminderId, Collection<String> fields) {
+
+		Query query = query(where("_id").is(reminderId));
+		include(query, fields);
+		return mongoOperations.findOne(query, Reminder.class);
+	}
+
+	public CloseableIterator<Reminder> streamPage(String userId, Date dueFrom, Date dueTo, ReminderCursor after, int limit,
+			Collection<String> fields) {
+
+		Criteria criteria = where("reminderCreatedBy").is(userId);
+		Sort sort;
+		if (dueFrom != null || dueTo != null) {
+			Criteria due = criteria.and("nextFireAt");
+			if (dueFrom != null) {
+				due.gte(dueFrom);
+			}
+			if (dueTo != null) {
+				due.lt(dueTo);
+			}
+			if (after != null) {
+				criteria.orOperator(where("nextFireAt").gt(after.getNextFireAt()),
+						where("nextFireAt").is(after.getNextFireAt()).and("_id").gt(after.getReminderId()));
+			}
+			sort = Sort.by("nextFireAt", "_id");
+		} else {
+			if (after != null) {
+				criteria.and("_id").gt(after.getReminderId());
+			}
+			sort = Sort.by("_id");
+		}
+
+		Query query = query(criteria).with(sort).limit(limit);
+		if (fields != null) {
+			include(query, fields);
+			/* the position of the last reminder read is the next cursor */
+			query.fields().include("nextFireAt");
+		}
+		return mongoOperations.stream(query, Reminder.class);
+	}
+
+	public long snooze(String userId, Collection<String> reminderIds, Date until) {
+
+		Criteria criteria = where("reminderCreatedBy").is(userId).and("nextFireAt").lt(until);
+		if (reminderIds != null && !reminderIds.isEmpty()) {
+			criteria.and("_id").in(reminderIds);
+		}
+		return mongoOperations.updateMulti(query(criteria), new Update().set("nextFireAt", until), Reminder.class)
+				.getModifiedCount();
+	}
+
+	public boolean updateIfNextFireAt(Reminder reminder, Date readNextFireAt) {
+
+		Update update = new Update().set("reminderName", reminder.getReminderName())
+				.set("reminderDescription", reminder.getReminderDescription())
+				.set("reminderType", reminder.getReminderType())
+				.set("reminderCreatedBy", reminder.getReminderCreatedBy())
+				.set("reminderCreationDate", reminder.getReminderCreationDate())
+				.set("dueAt", reminder.getDueAt())
+				.set("recurrence", reminder.getRecurrence())
+				.set("recurrenceInterval", reminder.getRecurrenceInterval())
+				.set("nextFireAt", reminder.getNextFireAt())
+				.set("shard", reminder.getShard());
+		return mongoOperations.updateFirst(scheduledAt(reminder.getReminderId(), readNextFireAt), update, Reminder.class)
+				.getMatchedCount() > 0;
+	}
+
+	public boolean moveNextFireAt(String reminderId, Date readNextFireAt, Date nextFireAt) {
+
+		return mongoOperations.updateFirst(scheduledAt(reminderId, readNextFireAt), new Update().set("nextFireAt", nextFireAt),
+				Reminder.class).getMatchedCount() > 0;
+	}
+
+	private Query scheduledAt(String reminderId, Date nextFireAt) {
+		return query(where("_id").is(reminderId).and("nextFireAt").is(nextFireAt));
+	}
+
+	private void include(Query query, Collection<String> fields) {
+		for (String field : fields) {
+			query.fields().include(field);
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * Publishes every notification to the keepnote.events exchange with routing key
+ * reminder-notification.due, for a notifying service to pick up. Enabled unless
+ * keepnote.notifications.amqp.enabled is false.
+ */
+@Service
+@ConditionalOnProperty(name = "keepnote.notifications.amqp.enabled", matchIfMissing = true)
+public class AmqpNotificationChannel implements NotificationChannel {
+
+	@Autowired
+	private AmqpTemplate amqpTemplate;
+
+	public AmqpNotificationChannel(AmqpTemplate amqpTemplate) {
+		this.amqpTemplate = amqpTemplate;
+	}
+
+	public String getName() {
+		return "amqp";
+	}
+
+	public void deliver(List<ReminderNotification> notifications) {
+
+		for (ReminderNotification notification : notifications) {
+			amqpTemplate.convertAndSend(EventsConfig.EXCHANGE, EventsConfig.NOTIFICATION_ROUTING_KEY, notification);
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/*
+ * A hierarchical timing wheel of keyed timeouts. The lowest wheel has wheelSize
+ * buckets of tickMs each, every further wheel has buckets as wide as the whole
+ * wheel below it and is created on first use, so any deadline fits in a handful of
+ * wheels. Scheduling and cancelling are O(1): a timeout is linked into the bucket
+ * of its deadline and unlinked from it again.
+ *
+ * Only buckets that were given timeouts are kept in a priority queue ordered by
+ * their expiration, so the owner can sleep until nextExpiration() instead of
+ * ticking through empty buckets. advance(now) expires the due buckets; timeouts of a higher wheel bucket
+ * are moved down into the finer wheels until their own bucket is due.
+ *
+ * The wheel is not thread safe, the owner has to synchronize access.
+ */
+public class HierarchicalTimingWheel<T> {
+
+	private final PriorityQueue<Bucket<T>> dueBuckets = new PriorityQueue<>(
+			(a, b) -> Long.compare(a.expiration, b.expiration));
+	private final Map<String, Timeout<T>> timeouts = new HashMap<>();
+	private final Wheel root;
+
+	public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+		if (tickMs < 1 || wheelSize < 2) {
+			throw new IllegalArgumentException("tickMs must be positive and wheelSize at least 2");
+		}
+		this.root = new Wheel(tickMs, wheelSize, startMs);
+	}
+
+	/*
+	 * Schedules the payload under the key, replacing a timeout already scheduled under
+	 * it. Returns false, without scheduling anything, if the deadline is already due.
+	 */
+	public boolean schedule(String key, long deadlineMs, T payload) {
+
+		cancel(key);
+		Timeout<T> timeout = new Timeout<>(key, deadlineMs, payload);
+		if (!root.add(timeout)) {
+			return false;
+		}
+		timeouts.put(key, timeout);
+		return true;
+	}
+
+	/*
+	 * Removes the timeout scheduled under the key, returns false if there is none.
+	 */
+	public boolean cancel(String key) {
+
+		Timeout<T> timeout = timeouts.remove(key);
+		if (timeout == null) {
+			return false;
+		}
+		timeout.bucket.remove(timeout);
+		return true;
+	}
+
+	public boolean contains(String key) {
+		return timeouts.containsKey(key);
+	}
+
+	public int size() {
+		return timeouts.size();
+	}
+
+	/*
+	 * The expiration time of the earliest non-empty bucket, Long.MAX_VALUE if nothing
+	 * is scheduled.
+	 */
+	public long nextExpiration() {
+
+		Bucket<T> next = dueBuckets.peek();
+		return next == null ? Long.MAX_VALUE : next.expiration;
+	}
+
+	/*
+	 * Moves the wheel to now and hands the payload of every timeout due by then to
+	 * expired, in deadline order of the buckets.
+	 */
+	public void advance(long now, Consumer<T> expired) {
+
+		Bucket<T> bucket;
+		while ((bucket = dueBuckets.peek()) != null && bucket.expiration <= now) {
+			dueBuckets.poll();
+			root.advanceClock(bucket.expiration);
+			for (Timeout<T> timeout : bucket.drain()) {
+				if (!root.add(timeout)) {
+					timeouts.remove(timeout.key);
+					expired.accept(timeout.payload);
+				}
+			}
+		}
+		root.advanceClock(now);
+	}
+
+	private final class Wheel {
+
+		private final long tickMs;
+		private final int wheelSize;
+		private final long interval;
+		private final List<Bucket<T>> buckets;
+		private long currentTime;
+		private Wheel overflow;
+
+		Wheel(long tickMs, int wheelSize, long startMs) {
+			this.tickMs = tickMs;
+			this.wheelSize = wheelSize;
+			this.interval = tickMs * wheelSize;
+			this.buckets = new ArrayList<>(wheelSize);
+			for (int i = 0; i < wheelSize; i++) {
+				buckets.add(new Bucket<>());
+			}
+			this.currentTime = startMs - (startMs % tickMs);
+		}
+
+		boolean add(Timeout<T> timeout) {
+
+			if (timeout.deadline < currentTime + tickMs) {
+				return false;
+			}
+			if (timeout.deadline < currentTime + interval) {
+				long virtualId = timeout.deadline / tickMs;
+				Bucket<T> bucket = buckets.get((int) (virtualId % wheelSize));
+				bucket.add(timeout);
+				if (bucket.expiration != virtualId * tickMs) {
+					bucket.expiration = virtualId * tickMs;
+					dueBuckets.add(bucket);
+				}
+				return true;
+			}
+			if (overflow == null) {
+				overflow = new Wheel(interval, wheelSize, currentTime);
+			}
+			return overflow.add(timeout);
+		}
+
+		void advanceClock(long timeMs) {
+
+			if (timeMs >= currentTime + tickMs) {
+				currentTime = timeMs - (timeMs % tickMs);
+				if (overflow != null) {
+					overflow.advanceClock(currentTime);
+				}
+			}
+		}
+
+	}
+
+	private static final class Bucket<T> {
+
+		private final Timeout<T> head = new Timeout<>(null, 0, null);
+		private long expiration = -1;
+
+		Bucket() {
+			head.next = head;
+			head.prev = head;
+		}
+
+		void add(Timeout<T> timeout) {
+			timeout.bucket = this;
+			timeout.prev = head.prev;
+			timeout.next = head;
+			head.prev.next = timeout;
+			head.prev = timeout;
+		}
+
+		void remove(Timeout<T> timeout) {
+			timeout.prev.next = timeout.next;
+			timeout.next.prev = timeout.prev;
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+
+		/* unlinks all timeouts, the bucket is reused for a later expiration of its slot */
+		List<Timeout<T>> drain() {
+
+			List<Timeout<T>> drained = new ArrayList<>();
+			Timeout<T> timeout = head.next;
+			while (timeout != head) {
+				Timeout<T> next = timeout.next;
+				remove(timeout);
+				drained.add(timeout);
+				timeout = next;
+			}
+			expiration = -1;
+			return drained;
+		}
+
+	}
+
+	private static final class Timeout<T> {
+
+		private final String key;
+		private final long deadline;
+		private final T payload;
+		private Bucket<T> bucket;
+		private Timeout<T> prev;
+		private Timeout<T> next;
+
+		Timeout(String key, long deadline, T payload) {
+			this.key = key;
+			this.deadline = deadline;
+			this.payload = payload;
+		}
+
+	}
+
+}
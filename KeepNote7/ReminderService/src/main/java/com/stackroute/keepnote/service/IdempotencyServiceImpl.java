@@ -0,0 +1,169 @@
+package com.stackroute.keepnote.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.model.IdempotentResponse;
+import com.stackroute.keepnote.repository.IdempotentResponseRepository;
+
+/*
+ * Keeps the responses of create requests carrying an Idempotency-Key. Responses are
+ * held in a bounded in-memory map (least recently used entries are evicted once
+ * max-entries is reached, entries older than ttl-seconds are ignored). When
+ * keepnote.idempotency.mongo-enabled is set the responses are also written to the
+ * idempotent_responses collection so that a retry reaching another instance, or
+ * arriving after a restart, is still answered with the original response.
+ *
+ * A key is reserved before the request runs: a pending entry is put in the map, and
+ * with Mongo enabled inserted under the key as _id, so of two concurrent requests
+ * with the same key exactly one runs and the other gets 409. A pending entry older
+ * than pending-timeout-seconds belongs to a request that died and can be taken over.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+	@Autowired
+	private IdempotentResponseRepository idempotentResponseRepository;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final long pendingTimeoutMillis;
+	private final boolean mongoEnabled;
+	private final Map<String, IdempotentResponse> responses;
+
+	public IdempotencyServiceImpl(IdempotentResponseRepository idempotentResponseRepository,
+			@Value("${keepnote.idempotency.max-entries:10000}") int maxEntries,
+			@Value("${keepnote.idempotency.ttl-seconds:86400}") long ttlSeconds,
+			@Value("${keepnote.idempotency.pending-timeout-seconds:60}") long pendingTimeoutSeconds,
+			@Value("${keepnote.idempotency.mongo-enabled:false}") boolean mongoEnabled) {
+		this.idempotentResponseRepository = idempotentResponseRepository;
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlSeconds * 1000;
+		this.pendingTimeoutMillis = pendingTimeoutSeconds * 1000;
+		this.mongoEnabled = mongoEnabled;
+		this.responses = new LinkedHashMap<String, IdempotentResponse>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, IdempotentResponse> eldest) {
+				return size() > IdempotencyServiceImpl.this.maxEntries;
+			}
+		};
+	}
+
+	public ResponseEntity<?> reserve(String key, String fingerprint) {
+
+		Date now = new Date();
+		IdempotentResponse pending = new IdempotentResponse(key, fingerprint, now, new Date(now.getTime() + ttlMillis));
+		IdempotentResponse stored;
+		synchronized (responses) {
+			stored = responses.get(key);
+			if (stored != null && isStale(stored, now)) {
+				responses.remove(key);
+				stored = null;
+			}
+			if (stored == null && !mongoEnabled) {
+				responses.put(key, pending);
+				return null;
+			}
+		}
+		if (stored != null) {
+			return answer(stored, fingerprint);
+		}
+
+		/* the unique _id decides between instances, a stale entry is taken over once */
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				idempotentResponseRepository.insert(pending);
+				synchronized (responses) {
+					responses.put(key, pending);
+				}
+				return null;
+			} catch (DuplicateKeyException e) {
+				Optional<IdempotentResponse> optional = idempotentResponseRepository.findById(key);
+				if (!optional.isPresent()) {
+					continue;
+				}
+				stored = optional.get();
+				if (!isStale(stored, now)) {
+					if (!stored.isPending()) {
+						synchronized (responses) {
+							responses.put(key, stored);
+						}
+					}
+					return answer(stored, fingerprint);
+				}
+				idempotentResponseRepository.deleteByKeyAndStoredAt(key, stored.getStoredAt());
+			}
+		}
+		return new ResponseEntity<>(HttpStatus.CONFLICT);
+	}
+
+	public void complete(String key, String fingerprint, ResponseEntity<?> response) {
+
+		/* server errors are not recorded so that the client is free to retry them */
+		if (response.getStatusCode().is5xxServerError()) {
+			synchronized (responses) {
+				responses.remove(key);
+			}
+			if (mongoEnabled) {
+				idempotentResponseRepository.deleteById(key);
+			}
+			return;
+		}
+
+		Date now = new Date();
+		IdempotentResponse stored = new IdempotentResponse(key, fingerprint, response.getStatusCodeValue(),
+				response.getBody(), now, new Date(now.getTime() + ttlMillis));
+		synchronized (responses) {
+			responses.put(key, stored);
+		}
+		if (mongoEnabled) {
+			idempotentResponseRepository.save(stored);
+		}
+	}
+
+	public String fingerprint(Object body) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(objectMapper.writeValueAsBytes(body)));
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private ResponseEntity<?> answer(IdempotentResponse stored, String fingerprint) {
+
+		if (!fingerprint.equals(stored.getFingerprint())) {
+			return new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+		}
+		if (stored.isPending()) {
+			return new ResponseEntity<>(HttpStatus.CONFLICT);
+		}
+		return new ResponseEntity<>(stored.getBody(), HttpStatus.valueOf(stored.getStatus()));
+	}
+
+	private boolean isStale(IdempotentResponse stored, Date now) {
+		long age = now.getTime() - stored.getStoredAt().getTime();
+		return age > ttlMillis || (stored.isPending() && age > pendingTimeoutMillis);
+	}
+
+}
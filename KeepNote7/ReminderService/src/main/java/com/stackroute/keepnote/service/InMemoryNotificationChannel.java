@@ -0,0 +1,44 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * Keeps the delivered notifications in memory, for tests and local runs. Enabled with
+ * keepnote.notifications.in-memory.enabled=true.
+ */
+@Service
+@ConditionalOnProperty(name = "keepnote.notifications.in-memory.enabled")
+public class InMemoryNotificationChannel implements NotificationChannel {
+
+	private final List<ReminderNotification> delivered = new ArrayList<>();
+	private final List<Integer> batchSizes = new ArrayList<>();
+
+	public String getName() {
+		return "in-memory";
+	}
+
+	public synchronized void deliver(List<ReminderNotification> notifications) {
+		delivered.addAll(notifications);
+		batchSizes.add(notifications.size());
+	}
+
+	public synchronized List<ReminderNotification> getDelivered() {
+		return new ArrayList<>(delivered);
+	}
+
+	public synchronized List<Integer> getBatchSizes() {
+		return new ArrayList<>(batchSizes);
+	}
+
+	public synchronized void clear() {
+		delivered.clear();
+		batchSizes.clear();
+	}
+
+}
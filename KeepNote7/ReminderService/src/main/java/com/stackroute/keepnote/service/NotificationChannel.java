@@ -0,0 +1,23 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * A way of handing reminder notifications to users. Every NotificationChannel bean
+ * gets every notification from the ReminderDeliveryService, in batches.
+ */
+public interface NotificationChannel {
+
+	/* used as the channel tag of the delivery metrics */
+	String getName();
+
+	/*
+	 * Delivers the batch, throwing a RuntimeException if it was not taken; the whole
+	 * batch is then retried later, so a channel has to cope with receiving a
+	 * notification twice (notificationId stays the same).
+	 */
+	void deliver(List<ReminderNotification> notifications);
+
+}
@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.model.ReminderDueEvent;
+
+public interface ReminderDeliveryService {
+
+	/*
+	 * Queues a fired reminder for delivery. It is dropped if the queue stays full.
+	 */
+	void reminderDue(ReminderDueEvent event);
+
+	/* fired reminders queued or waiting in a coalescing window */
+	int pending();
+
+}
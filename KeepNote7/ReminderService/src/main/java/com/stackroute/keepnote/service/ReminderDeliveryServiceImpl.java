@@ -0,0 +1,319 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.model.ReminderDueEvent;
+import com.stackroute.keepnote.model.ReminderNotification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Delivers fired reminders to the users through every NotificationChannel bean. The
+ * fire threads hand each ReminderDueEvent to a queue of
+ * keepnote.notifications.queue-capacity; when it is full they wait up to
+ * keepnote.notifications.offer-timeout-ms, so a burst slows firing down instead of
+ * growing the heap, and drop the reminder after that.
+ *
+ * A single dispatcher thread drains the queue and coalesces per user: the reminders
+ * of a user coming due within keepnote.notifications.coalesce-window-ms of the first
+ * one (at most keepnote.notifications.max-per-notification) become one notification.
+ * Notifications whose window closed together are handed to each channel in batches of
+ * up to keepnote.notifications.batch-size, on keepnote.notifications.delivery-threads
+ * threads. When those are all busy the dispatcher delivers itself and stops draining,
+ * which in turn backs the queue up.
+ *
+ * A failed batch is retried up to keepnote.notifications.max-attempts times with
+ * exponential backoff from keepnote.notifications.backoff-base-ms, capped at
+ * keepnote.notifications.backoff-max-ms, of which a random half is waited so that
+ * batches failing together do not retry together. Retries are per channel, a batch
+ * one channel took is not sent to it again. Notifications still queued or waiting for
+ * a retry are lost if the instance stops.
+ *
+ * Metrics: keepnote.notifications.queue.depth, keepnote.notifications.coalescing
+ * (users with an open window), keepnote.notifications.coalesced,
+ * keepnote.notifications.delivered and keepnote.notifications.retries (tagged
+ * channel), keepnote.notifications.dropped (reminders, tagged reason queue_full or
+ * retries_exhausted) and the keepnote.notifications.latency timer from the
+ * occurrence to delivery (tagged channel), published with a percentile histogram.
+ */
+@Service
+public class ReminderDeliveryServiceImpl implements ReminderDeliveryService {
+
+	private static Logger log = LoggerFactory.getLogger(ReminderDeliveryServiceImpl.class);
+
+	private final List<NotificationChannel> channels;
+	private final BlockingQueue<ReminderDueEvent> queue;
+	private final long offerTimeoutMillis;
+	private final long windowMillis;
+	private final int maxPerNotification;
+	private final int batchSize;
+	private final int maxAttempts;
+	private final long backoffBaseMillis;
+	private final long backoffMaxMillis;
+	/* dispatcher thread only, in the order the windows opened, so the first one closes first */
+	private final Map<String, Window> windows = new LinkedHashMap<>();
+	private volatile int coalescing;
+	private final ThreadPoolExecutor deliveryExecutor;
+	private final ScheduledExecutorService retryExecutor;
+	private final Thread dispatcher;
+	private volatile boolean running;
+
+	private final MeterRegistry meterRegistry;
+	private final Counter coalesced;
+	private final Map<String, Counter> delivered = new HashMap<>();
+	private final Map<String, Counter> retries = new HashMap<>();
+	private final Map<String, Timer> latency = new HashMap<>();
+
+	public ReminderDeliveryServiceImpl(List<NotificationChannel> channels, MeterRegistry meterRegistry,
+			@Value("${keepnote.notifications.queue-capacity:10000}") int queueCapacity,
+			@Value("${keepnote.notifications.offer-timeout-ms:100}") long offerTimeoutMillis,
+			@Value("${keepnote.notifications.coalesce-window-ms:2000}") long windowMillis,
+			@Value("${keepnote.notifications.max-per-notification:100}") int maxPerNotification,
+			@Value("${keepnote.notifications.batch-size:100}") int batchSize,
+			@Value("${keepnote.notifications.delivery-threads:2}") int deliveryThreads,
+			@Value("${keepnote.notifications.max-attempts:6}") int maxAttempts,
+			@Value("${keepnote.notifications.backoff-base-ms:500}") long backoffBaseMillis,
+			@Value("${keepnote.notifications.backoff-max-ms:60000}") long backoffMaxMillis) {
+		this.channels = channels;
+		this.meterRegistry = meterRegistry;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.offerTimeoutMillis = offerTimeoutMillis;
+		this.windowMillis = windowMillis;
+		this.maxPerNotification = maxPerNotification;
+		this.batchSize = batchSize;
+		this.maxAttempts = maxAttempts;
+		this.backoffBaseMillis = backoffBaseMillis;
+		this.backoffMaxMillis = backoffMaxMillis;
+		this.deliveryExecutor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(deliveryThreads), new CustomizableThreadFactory("reminder-delivery-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.retryExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("reminder-retry-"));
+		this.dispatcher = new CustomizableThreadFactory("reminder-dispatch-").newThread(this::runDispatcher);
+		this.dispatcher.setDaemon(true);
+
+		this.coalesced = Counter.builder("keepnote.notifications.coalesced")
+				.description("Fired reminders added to a notification already open for the user").register(meterRegistry);
+		for (NotificationChannel channel : channels) {
+			String name = channel.getName();
+			delivered.put(name, Counter.builder("keepnote.notifications.delivered").tag("channel", name)
+					.description("Notifications delivered").register(meterRegistry));
+			retries.put(name, Counter.builder("keepnote.notifications.retries").tag("channel", name)
+					.description("Notification batches scheduled for another attempt").register(meterRegistry));
+			latency.put(name, Timer.builder("keepnote.notifications.latency").tag("channel", name)
+					.description("Time from the occurrence of a reminder to its delivery").publishPercentileHistogram()
+					.register(meterRegistry));
+		}
+		Gauge.builder("keepnote.notifications.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+		Gauge.builder("keepnote.notifications.coalescing", this, delivery -> delivery.coalescing).register(meterRegistry);
+	}
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		dispatcher.start();
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		dispatcher.interrupt();
+		retryExecutor.shutdownNow();
+		deliveryExecutor.shutdown();
+	}
+
+	@EventListener
+	public void reminderDue(ReminderDueEvent event) {
+
+		try {
+			if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		dropped("queue_full", 1);
+	}
+
+	public int pending() {
+		return queue.size() + coalescing;
+	}
+
+	private void runDispatcher() {
+
+		List<ReminderDueEvent> drained = new ArrayList<>(batchSize);
+		List<ReminderNotification> ready = new ArrayList<>();
+		while (running) {
+			try {
+				ReminderDueEvent event = queue.poll(untilFirstWindowCloses(), TimeUnit.MILLISECONDS);
+				if (event != null) {
+					add(event, ready);
+					queue.drainTo(drained, batchSize);
+					for (ReminderDueEvent next : drained) {
+						add(next, ready);
+					}
+					drained.clear();
+				}
+				closeWindows(System.currentTimeMillis(), ready);
+				for (int from = 0; from < ready.size(); from += batchSize) {
+					submit(new ArrayList<>(ready.subList(from, Math.min(ready.size(), from + batchSize))));
+				}
+				ready.clear();
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				log.error("Reminder dispatch failed", e);
+			}
+		}
+	}
+
+	private long untilFirstWindowCloses() {
+
+		Iterator<Window> first = windows.values().iterator();
+		return first.hasNext() ? Math.max(0, first.next().closesAt - System.currentTimeMillis()) : windowMillis;
+	}
+
+	private void add(ReminderDueEvent event, List<ReminderNotification> ready) {
+
+		String userId = event.getReminder().getReminderCreatedBy();
+		Window window = windows.get(userId);
+		if (window == null) {
+			window = new Window(new ReminderNotification(UUID.randomUUID().toString(), userId),
+					System.currentTimeMillis() + windowMillis);
+			windows.put(userId, window);
+		} else {
+			coalesced.increment();
+		}
+		window.notification.add(event);
+		if (window.notification.getReminders().size() >= maxPerNotification) {
+			windows.remove(userId);
+			ready.add(created(window.notification));
+		}
+		coalescing = windows.size();
+	}
+
+	private void closeWindows(long now, List<ReminderNotification> ready) {
+
+		Iterator<Window> open = windows.values().iterator();
+		while (open.hasNext()) {
+			Window window = open.next();
+			if (window.closesAt > now) {
+				break;
+			}
+			open.remove();
+			ready.add(created(window.notification));
+		}
+		coalescing = windows.size();
+	}
+
+	private ReminderNotification created(ReminderNotification notification) {
+		notification.setCreatedAt(new Date());
+		return notification;
+	}
+
+	private void submit(List<ReminderNotification> batch) {
+
+		for (NotificationChannel channel : channels) {
+			execute(() -> deliver(channel, batch, 1), batch);
+		}
+	}
+
+	private void deliver(NotificationChannel channel, List<ReminderNotification> batch, int attempt) {
+
+		try {
+			channel.deliver(batch);
+		} catch (RuntimeException e) {
+			if (attempt >= maxAttempts || !running) {
+				log.warn("Dropping " + batch.size() + " notifications for " + channel.getName() + " after " + attempt
+						+ " attempts: " + e.getMessage());
+				dropped("retries_exhausted", reminders(batch));
+				return;
+			}
+			retries.get(channel.getName()).increment();
+			try {
+				retryExecutor.schedule(() -> execute(() -> deliver(channel, batch, attempt + 1), batch), backoff(attempt),
+						TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException stopped) {
+				dropped("retries_exhausted", reminders(batch));
+			}
+			return;
+		}
+
+		delivered.get(channel.getName()).increment(batch.size());
+		long now = System.currentTimeMillis();
+		Timer timer = latency.get(channel.getName());
+		for (ReminderNotification notification : batch) {
+			timer.record(Math.max(0, now - notification.getFirstDueAt().getTime()), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void execute(Runnable delivery, List<ReminderNotification> batch) {
+
+		try {
+			deliveryExecutor.execute(delivery);
+		} catch (RejectedExecutionException e) {
+			dropped("retries_exhausted", reminders(batch));
+		}
+	}
+
+	/* exponential, capped, then somewhere in its upper half */
+	private long backoff(int attempt) {
+
+		long cap = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt - 1, 30));
+		return cap - ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+	}
+
+	private static int reminders(List<ReminderNotification> batch) {
+
+		int reminders = 0;
+		for (ReminderNotification notification : batch) {
+			reminders += notification.getReminders().size();
+		}
+		return reminders;
+	}
+
+	private void dropped(String reason, int reminders) {
+		Counter.builder("keepnote.notifications.dropped").tag("reason", reason)
+				.description("Fired reminders not delivered").register(meterRegistry).increment(reminders);
+	}
+
+	private static final class Window {
+
+		private final ReminderNotification notification;
+		private final long closesAt;
+
+		Window(ReminderNotification notification, long closesAt) {
+			this.notification = notification;
+			this.closesAt = closesAt;
+		}
+
+	}
+
+}
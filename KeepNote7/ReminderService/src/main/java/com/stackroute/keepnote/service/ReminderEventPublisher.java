@@ -0,0 +1,31 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+
+import com.stackroute.keepnote.model.Reminder;
+
+public interface ReminderEventPublisher {
+
+	void publishUpserted(Reminder reminder);
+
+	void publishDeleted(Reminder reminder);
+
+	/*
+	 * Tells all instances that reminders of the user were snoozed until the given time.
+	 * Not kept in the outbox.
+	 */
+	void publishSnoozed(String userId, Date until);
+
+	/*
+	 * Sends all stored events created at or after since (epoch millis) again, oldest
+	 * first. Returns the number of events sent.
+	 */
+	int replay(long since);
+
+	/*
+	 * True if the token is the configured keepnote.events.replay-token. Without a
+	 * configured token nobody may replay.
+	 */
+	boolean isReplayAllowed(String token);
+
+}
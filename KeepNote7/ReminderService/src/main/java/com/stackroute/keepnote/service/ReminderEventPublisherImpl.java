@@ -0,0 +1,161 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.config.EventsConfig;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderChangeEvent;
+import com.stackroute.keepnote.model.ReminderVersion;
+import com.stackroute.keepnote.model.ReminderSnoozedEvent;
+import com.stackroute.keepnote.repository.ReminderChangeEventRepository;
+
+/*
+ * Publishes reminder changes to the keepnote.events exchange with routing key
+ * reminder.upserted or reminder.deleted. Each event is written to the outbox before it is
+ * sent and marked published once the broker took it. Events the broker did not take
+ * are retried every keepnote.events.retry-interval-ms, a failing broker never fails
+ * the reminder write itself. Snoozes go out once with routing key
+ * reminder-schedule.snoozed, only running instances need them.
+ */
+@Service
+public class ReminderEventPublisherImpl implements ReminderEventPublisher {
+
+	private static Logger log = LoggerFactory.getLogger(ReminderEventPublisherImpl.class);
+
+	@Autowired
+	private ReminderChangeEventRepository reminderChangeEventRepository;
+
+	@Autowired
+	private AmqpTemplate amqpTemplate;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	private final int retryBatchSize;
+	private final String replayToken;
+
+	public ReminderEventPublisherImpl(ReminderChangeEventRepository reminderChangeEventRepository, AmqpTemplate amqpTemplate,
+			MongoOperations mongoOperations, @Value("${keepnote.events.retry-batch-size:500}") int retryBatchSize,
+			@Value("${keepnote.events.replay-token:}") String replayToken) {
+		this.reminderChangeEventRepository = reminderChangeEventRepository;
+		this.amqpTemplate = amqpTemplate;
+		this.mongoOperations = mongoOperations;
+		this.retryBatchSize = retryBatchSize;
+		this.replayToken = replayToken;
+	}
+
+	public void publishUpserted(Reminder reminder) {
+		publish(new ReminderChangeEvent(UUID.randomUUID().toString(), ReminderChangeEvent.UPSERTED, reminder.getReminderId(),
+				reminder.getReminderCreatedBy(), reminder, nextVersion(reminder.getReminderId())));
+	}
+
+	public void publishDeleted(Reminder reminder) {
+		publish(new ReminderChangeEvent(UUID.randomUUID().toString(), ReminderChangeEvent.DELETED, reminder.getReminderId(),
+				reminder.getReminderCreatedBy(), null, nextVersion(reminder.getReminderId())));
+	}
+
+	public void publishSnoozed(String userId, Date until) {
+
+		try {
+			amqpTemplate.convertAndSend(EventsConfig.EXCHANGE, EventsConfig.SNOOZED_ROUTING_KEY,
+					new ReminderSnoozedEvent(userId, until));
+		} catch (AmqpException e) {
+			log.warn("Snooze of reminders of " + userId + " not published: " + e.getMessage());
+		}
+	}
+
+	public int replay(long since) {
+
+		List<ReminderChangeEvent> events = reminderChangeEventRepository.findByCreatedAtGreaterThanEqual(new Date(since),
+				Sort.by(Sort.Direction.ASC, "createdAt", "version"));
+		int sent = 0;
+		for (ReminderChangeEvent event : events) {
+			event.setReplayed(true);
+			if (send(event)) {
+				sent++;
+			}
+		}
+		return sent;
+	}
+
+	public boolean isReplayAllowed(String token) {
+
+		return !replayToken.isEmpty() && token != null && MessageDigest.isEqual(
+				replayToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.events.retry-interval-ms:30000}")
+	public void publishPending() {
+
+		for (ReminderChangeEvent event : reminderChangeEventRepository.findByPublishedFalse(PageRequest.of(0, retryBatchSize))) {
+			if (send(event)) {
+				event.setPublished(true);
+				reminderChangeEventRepository.save(event);
+			}
+		}
+	}
+
+	/*
+	 * The first version of a reminder starts at the current time in milliseconds, so it is
+	 * above the time based versions that copies synchronized before received.
+	 */
+	private long nextVersion(String reminderId) {
+
+		Query query = query(where("_id").is(reminderId));
+		if (!mongoOperations.exists(query, ReminderVersion.class)) {
+			try {
+				mongoOperations.upsert(query, new Update().setOnInsert("version", System.currentTimeMillis()),
+						ReminderVersion.class);
+			} catch (DuplicateKeyException e) {
+				/* another instance created it first */
+			}
+		}
+		return mongoOperations.findAndModify(query, new Update().inc("version", 1),
+				FindAndModifyOptions.options().returnNew(true).upsert(true), ReminderVersion.class).getVersion();
+	}
+
+	private void publish(ReminderChangeEvent event) {
+
+		reminderChangeEventRepository.save(event);
+		if (send(event)) {
+			event.setPublished(true);
+			reminderChangeEventRepository.save(event);
+		}
+	}
+
+	private boolean send(ReminderChangeEvent event) {
+
+		event.setPublishedAt(new Date());
+		try {
+			amqpTemplate.convertAndSend(EventsConfig.EXCHANGE, "reminder." + event.getType().toLowerCase(), event);
+			return true;
+		} catch (AmqpException e) {
+			log.warn("Reminder event " + event.getEventId() + " not published: " + e.getMessage());
+			return false;
+		}
+	}
+
+}
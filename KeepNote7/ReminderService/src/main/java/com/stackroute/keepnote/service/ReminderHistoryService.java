@@ -0,0 +1,27 @@
+package com.stackroute.keepnote.service;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import com.stackroute.keepnote.model.ReminderHistory;
+
+public interface ReminderHistoryService {
+
+	void recordSnoozed(String userId, Date at, long reminders);
+
+	void recordDismissed(String userId, Date at);
+
+	/*
+	 * One entry per UTC day in [from, to), days without activity included with zero
+	 * counts.
+	 */
+	List<ReminderHistory> getDailyHistory(String userId, LocalDate from, LocalDate to);
+
+	/*
+	 * One entry per ISO week (starting Monday) overlapping [from, to), each counting
+	 * the whole week, days outside the range included.
+	 */
+	List<ReminderHistory> getWeeklyHistory(String userId, LocalDate from, LocalDate to);
+
+}
@@ -0,0 +1,227 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.stackroute.keepnote.model.ReminderDueEvent;
+import com.stackroute.keepnote.model.ReminderHistory;
+
+/*
+ * Counts fired, snoozed and dismissed reminders per user in the reminder_history
+ * collection (see ReminderHistory). Increments are summed in memory per DAY document,
+ * the only stored granularity, and written every keepnote.history.flush-interval-ms as one unordered bulk
+ * of $inc upserts, so the burst of reminders firing at the top of an hour costs a
+ * handful of writes. Increments of a failed write are kept for the next flush, the
+ * last ones are written on shutdown; if the instance dies, the last interval's counts
+ * are lost.
+ *
+ * Daily reports read one DAY document per day, weekly ones seven per week, always of
+ * whole weeks so a week cut by the range is not reported short; raw reminders are
+ * never scanned for them.
+ */
+@Service
+public class ReminderHistoryServiceImpl implements ReminderHistoryService {
+
+	private static Logger log = LoggerFactory.getLogger(ReminderHistoryServiceImpl.class);
+
+	private static final int FIRED = 0;
+	private static final int SNOOZED = 1;
+	private static final int DISMISSED = 2;
+	private static final String[] COUNTERS = { "fired", "snoozed", "dismissed" };
+	private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	private final Map<String, Increment> pending = new LinkedHashMap<>();
+
+	public ReminderHistoryServiceImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	@EventListener
+	public void reminderFired(ReminderDueEvent event) {
+		record(event.getReminder().getReminderCreatedBy(), event.getFiredAt(), FIRED, 1);
+	}
+
+	public void recordSnoozed(String userId, Date at, long reminders) {
+		if (reminders > 0) {
+			record(userId, at, SNOOZED, reminders);
+		}
+	}
+
+	public void recordDismissed(String userId, Date at) {
+		record(userId, at, DISMISSED, 1);
+	}
+
+	@PreDestroy
+	public void stop() {
+		flush();
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.history.flush-interval-ms:1000}")
+	public int flush() {
+
+		List<Increment> increments;
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return 0;
+			}
+			increments = new ArrayList<>(pending.values());
+			pending.clear();
+		}
+
+		BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ReminderHistory.class);
+		for (Increment increment : increments) {
+			bulk.upsert(query(where("_id").is(increment.id)), increment.update());
+		}
+		try {
+			bulk.execute();
+		} catch (BulkOperationException e) {
+			/* the others were applied, retrying them would count them twice */
+			for (BulkWriteError error : e.getErrors()) {
+				requeue(increments.get(error.getIndex()));
+			}
+			log.warn(e.getErrors().size() + " of " + increments.size() + " history updates failed, kept for the next flush");
+			return increments.size() - e.getErrors().size();
+		} catch (DataAccessException e) {
+			for (Increment increment : increments) {
+				requeue(increment);
+			}
+			log.warn("Writing " + increments.size() + " history updates failed: " + e.getMessage());
+			return 0;
+		}
+		return increments.size();
+	}
+
+	public List<ReminderHistory> getDailyHistory(String userId, LocalDate from, LocalDate to) {
+
+		Map<Long, ReminderHistory> days = readDays(userId, from, to);
+		List<ReminderHistory> history = new ArrayList<>();
+		for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+			Date start = date(day);
+			ReminderHistory stored = days.get(start.getTime());
+			history.add(stored != null ? stored : new ReminderHistory(userId, ReminderHistory.DAY, start));
+		}
+		return history;
+	}
+
+	public List<ReminderHistory> getWeeklyHistory(String userId, LocalDate from, LocalDate to) {
+
+		LocalDate first = monday(from);
+		LocalDate end = to.isAfter(monday(to)) ? monday(to).plusWeeks(1) : to;
+		Map<Long, ReminderHistory> days = readDays(userId, first, end);
+		List<ReminderHistory> history = new ArrayList<>();
+		for (LocalDate week = first; week.isBefore(end); week = week.plusWeeks(1)) {
+			ReminderHistory total = new ReminderHistory(userId, ReminderHistory.WEEK, date(week));
+			for (LocalDate day = week; day.isBefore(week.plusWeeks(1)); day = day.plusDays(1)) {
+				ReminderHistory stored = days.get(date(day).getTime());
+				if (stored != null) {
+					total.add(stored);
+				}
+			}
+			history.add(total);
+		}
+		return history;
+	}
+
+	private Map<Long, ReminderHistory> readDays(String userId, LocalDate from, LocalDate to) {
+
+		Map<Long, ReminderHistory> days = new HashMap<>();
+		for (ReminderHistory day : mongoOperations.find(query(where("userId").is(userId).and("period").is(ReminderHistory.DAY)
+				.and("start").gte(date(from)).lt(date(to))).with(Sort.by("start")), ReminderHistory.class)) {
+			days.put(day.getStart().getTime(), day);
+		}
+		return days;
+	}
+
+	private void record(String userId, Date at, int counter, long count) {
+
+		long time = at.getTime();
+		Date day = new Date(time - Math.floorMod(time, DAY_MILLIS));
+		synchronized (pending) {
+			increment(userId, ReminderHistory.DAY, day).counts[counter] += count;
+		}
+	}
+
+	/* called with the pending lock held */
+	private Increment increment(String userId, String period, Date start) {
+		return pending.computeIfAbsent(ReminderHistory.id(userId, period, start),
+				id -> new Increment(id, userId, period, start));
+	}
+
+	private void requeue(Increment failed) {
+
+		synchronized (pending) {
+			Increment increment = increment(failed.userId, failed.period, failed.start);
+			for (int i = 0; i < COUNTERS.length; i++) {
+				increment.counts[i] += failed.counts[i];
+			}
+		}
+	}
+
+	private static LocalDate monday(LocalDate day) {
+		return day.minusDays(day.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+	}
+
+	private static Date date(LocalDate day) {
+		return Date.from(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+	}
+
+	private static final class Increment {
+
+		private final String id;
+		private final String userId;
+		private final String period;
+		private final Date start;
+		private final long[] counts = new long[COUNTERS.length];
+
+		Increment(String id, String userId, String period, Date start) {
+			this.id = id;
+			this.userId = userId;
+			this.period = period;
+			this.start = start;
+		}
+
+		Update update() {
+
+			Update update = new Update().setOnInsert("userId", userId).setOnInsert("period", period)
+					.setOnInsert("start", start);
+			for (int i = 0; i < COUNTERS.length; i++) {
+				if (counts[i] != 0) {
+					update.inc(COUNTERS[i], counts[i]);
+				}
+			}
+			return update;
+		}
+
+	}
+
+}
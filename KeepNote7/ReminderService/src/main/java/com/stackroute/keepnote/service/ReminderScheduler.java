@@ -0,0 +1,34 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.model.Reminder;
+
+public interface ReminderScheduler {
+
+	/*
+	 * The dispatch shard a reminder with the given id is stored under.
+	 */
+	int shardOf(String reminderId);
+
+	/*
+	 * Schedules the reminder's dueAt, replacing an earlier schedule of the reminder.
+	 * A reminder without dueAt, or of a shard this instance does not hold, is cancelled.
+	 */
+	void schedule(Reminder reminder);
+
+	/*
+	 * Cancels the scheduled firing of the reminder, if any.
+	 */
+	void cancel(String reminderId);
+
+	/*
+	 * Loads the reminders due up to the end of the next time window from the database
+	 * and returns how many were scheduled.
+	 */
+	int loadWindow();
+
+	/*
+	 * The number of reminders scheduled in memory.
+	 */
+	int pending();
+
+}
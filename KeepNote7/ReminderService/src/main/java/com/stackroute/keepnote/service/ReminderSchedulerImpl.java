@@ -0,0 +1,374 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.bson.Document;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.model.Recurrence;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderChangeEvent;
+import com.stackroute.keepnote.model.ReminderDueEvent;
+import com.stackroute.keepnote.model.ReminderShardsChangedEvent;
+import com.stackroute.keepnote.model.ReminderSnoozedEvent;
+
+/*
+ * Fires reminders at their nextFireAt. Only the reminders due within the next
+ * keepnote.reminders.window-ms are held in memory, in a hierarchical timing wheel with
+ * one millisecond ticks; the next slice is streamed from the (shard, nextFireAt) index
+ * every keepnote.reminders.load-interval-ms. Reminders created, changed or snoozed
+ * inside the loaded window are scheduled directly. A single timer thread sleeps until
+ * the next due bucket, due reminders are handed to keepnote.reminders.fire-threads
+ * threads.
+ *
+ * An instance only loads and fires the reminders of the dispatch shards it holds a
+ * lease on (see ReminderShardLeaseServiceImpl). A newly acquired shard is loaded from
+ * keepnote.reminders.catch-up-ms back, so reminders a failed owner did not fire fire
+ * at once. Writes taken by another instance reach the owner through the reminder
+ * change and snooze events every instance listens to.
+ *
+ * Firing claims the occurrence with an update guarded by the scheduled nextFireAt and
+ * by the shard's lease token, so each occurrence is claimed once in the cluster and a
+ * reminder changed, snoozed or deleted in the meantime does not fire. The same update
+ * moves nextFireAt to the next occurrence of a recurring reminder (null for a one-time
+ * one), so the index only ever holds pending occurrences. The firing is then published
+ * as a ReminderDueEvent application event and a recurring reminder is scheduled again.
+ */
+@Service
+public class ReminderSchedulerImpl implements ReminderScheduler {
+
+	private static Logger log = LoggerFactory.getLogger(ReminderSchedulerImpl.class);
+
+	private static final int MIGRATION_BATCH_SIZE = 1000;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Autowired
+	private ReminderShardLeaseService reminderShardLeaseService;
+
+	private final long windowMillis;
+	private final long catchUpMillis;
+	private final HierarchicalTimingWheel<Reminder> wheel;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition rescheduled = lock.newCondition();
+	private final ExecutorService fireExecutor;
+	private final Thread timer;
+	private volatile boolean running;
+	private long loadedUntil;
+
+	public ReminderSchedulerImpl(MongoOperations mongoOperations, ApplicationEventPublisher applicationEventPublisher,
+			ReminderShardLeaseService reminderShardLeaseService,
+			@Value("${keepnote.reminders.window-ms:60000}") long windowMillis,
+			@Value("${keepnote.reminders.catch-up-ms:3600000}") long catchUpMillis,
+			@Value("${keepnote.reminders.wheel-size:512}") int wheelSize,
+			@Value("${keepnote.reminders.fire-threads:4}") int fireThreads) {
+		this.mongoOperations = mongoOperations;
+		this.applicationEventPublisher = applicationEventPublisher;
+		this.reminderShardLeaseService = reminderShardLeaseService;
+		this.windowMillis = windowMillis;
+		this.catchUpMillis = catchUpMillis;
+		long now = System.currentTimeMillis();
+		this.wheel = new HierarchicalTimingWheel<>(1, wheelSize, now);
+		this.loadedUntil = now;
+		this.fireExecutor = new ThreadPoolExecutor(fireThreads, fireThreads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), new CustomizableThreadFactory("reminder-fire-"));
+		this.timer = new CustomizableThreadFactory("reminder-timer-").newThread(this::runTimer);
+		this.timer.setDaemon(true);
+	}
+
+	@PostConstruct
+	public void start() {
+		migrate();
+		running = true;
+		timer.start();
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		timer.interrupt();
+		fireExecutor.shutdown();
+	}
+
+	public int shardOf(String reminderId) {
+		return reminderShardLeaseService.shardOf(reminderId);
+	}
+
+	public void schedule(Reminder reminder) {
+
+		lock.lock();
+		try {
+			if (reminder.getNextFireAt() == null || reminderShardLeaseService.token(reminder.getShard()) < 0) {
+				wheel.cancel(reminder.getReminderId());
+				return;
+			}
+			if (reminder.getNextFireAt().getTime() < loadedUntil) {
+				add(reminder);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void cancel(String reminderId) {
+
+		lock.lock();
+		try {
+			wheel.cancel(reminderId);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.reminders.load-interval-ms:30000}")
+	public int loadWindow() {
+
+		long from;
+		long to = System.currentTimeMillis() + windowMillis;
+		lock.lock();
+		try {
+			from = loadedUntil;
+			/* changes from here on are scheduled directly, the slice read below may miss them */
+			loadedUntil = Math.max(loadedUntil, to);
+		} finally {
+			lock.unlock();
+		}
+		return to <= from ? 0 : load(reminderShardLeaseService.ownedShards(), from, to);
+	}
+
+	/*
+	 * Loads the shards this instance just acquired, including what their previous owner
+	 * may have left unfired.
+	 */
+	@EventListener
+	public void shardsChanged(ReminderShardsChangedEvent event) {
+
+		if (event.getAcquired().isEmpty()) {
+			return;
+		}
+		long to = loadedUntil();
+		long from = System.currentTimeMillis() - catchUpMillis;
+		/* off the lease thread, a long load must not delay lease renewal */
+		fireExecutor.execute(() -> load(event.getAcquired(), from, to));
+	}
+
+	/*
+	 * Reschedules a reminder saved or deleted on any instance, if it is in one of this
+	 * instance's shards. The reminder is read again, the event may be older than the
+	 * stored state.
+	 */
+	@RabbitListener(queues = "#{reminderChangesQueue.name}")
+	public void reminderChanged(ReminderChangeEvent event) {
+
+		if (ReminderChangeEvent.DELETED.equals(event.getType())) {
+			cancel(event.getReminderId());
+			return;
+		}
+		if (reminderShardLeaseService.token(shardOf(event.getReminderId())) < 0) {
+			return;
+		}
+		Reminder reminder = mongoOperations.findById(event.getReminderId(), Reminder.class);
+		if (reminder == null) {
+			cancel(event.getReminderId());
+		} else {
+			schedule(reminder);
+		}
+	}
+
+	/*
+	 * Reschedules the snoozed reminders of a user that are in this instance's shards.
+	 */
+	@RabbitListener(queues = "#{reminderSnoozesQueue.name}")
+	public void remindersSnoozed(ReminderSnoozedEvent event) {
+
+		Set<Integer> shards = reminderShardLeaseService.ownedShards();
+		if (shards.isEmpty()) {
+			return;
+		}
+		try (CloseableIterator<Reminder> reminders = mongoOperations.stream(query(where("shard").in(shards)
+				.and("reminderCreatedBy").is(event.getUserId()).and("nextFireAt").is(event.getUntil())), Reminder.class)) {
+			while (reminders.hasNext()) {
+				schedule(reminders.next());
+			}
+		}
+	}
+
+	private long loadedUntil() {
+
+		lock.lock();
+		try {
+			return loadedUntil;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int load(Set<Integer> shards, long from, long to) {
+
+		if (shards.isEmpty()) {
+			return 0;
+		}
+		int loaded = 0;
+		try (CloseableIterator<Reminder> reminders = mongoOperations.stream(
+				query(where("shard").in(shards).and("nextFireAt").gte(new Date(from)).lt(new Date(to))), Reminder.class)) {
+			while (reminders.hasNext()) {
+				Reminder reminder = reminders.next();
+				lock.lock();
+				try {
+					add(reminder);
+				} finally {
+					lock.unlock();
+				}
+				loaded++;
+			}
+		}
+		return loaded;
+	}
+
+	public int pending() {
+
+		lock.lock();
+		try {
+			return wheel.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* called with the lock held */
+	private void add(Reminder reminder) {
+
+		if (wheel.schedule(reminder.getReminderId(), reminder.getNextFireAt().getTime(), reminder)) {
+			rescheduled.signal();
+		} else {
+			fireExecutor.execute(() -> fire(reminder));
+		}
+	}
+
+	private void runTimer() {
+
+		List<Reminder> due = new ArrayList<>();
+		while (running) {
+			lock.lock();
+			try {
+				long wait = wheel.nextExpiration() - System.currentTimeMillis();
+				if (wait > 0) {
+					rescheduled.await(Math.min(wait, windowMillis), TimeUnit.MILLISECONDS);
+					continue;
+				}
+				wheel.advance(System.currentTimeMillis(), due::add);
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+			for (Reminder reminder : due) {
+				fireExecutor.execute(() -> fire(reminder));
+			}
+			due.clear();
+		}
+	}
+
+	private void fire(Reminder reminder) {
+
+		long token = reminderShardLeaseService.token(reminder.getShard());
+		if (token < 0) {
+			return;
+		}
+		Date occurrence = reminder.getNextFireAt();
+		Date firedAt = new Date();
+		/* the dueAt anchors the recurrence, so snoozing one occurrence does not shift the later ones */
+		Date next = Recurrence.next(reminder.getDueAt(), reminder.getRecurrence(), reminder.getRecurrenceInterval(),
+				Math.max(firedAt.getTime(), occurrence.getTime()));
+		Update update = new Update().set("lastFiredAt", firedAt).set("fenceToken", token).set("nextFireAt", next);
+		try {
+			if (mongoOperations.updateFirst(query(where("_id").is(reminder.getReminderId()).and("nextFireAt").is(occurrence)
+					.orOperator(where("fenceToken").is(null), where("fenceToken").lte(token))), update, Reminder.class)
+					.getModifiedCount() == 0) {
+				return;
+			}
+		} catch (RuntimeException e) {
+			log.warn("Reminder " + reminder.getReminderId() + " due at " + occurrence + " not fired: " + e.getMessage());
+			return;
+		}
+
+		reminder.setLastFiredAt(firedAt);
+		reminder.setFenceToken(token);
+		reminder.setNextFireAt(next);
+		applicationEventPublisher.publishEvent(new ReminderDueEvent(reminder, occurrence, firedAt));
+		if (next != null) {
+			schedule(reminder);
+		}
+	}
+
+	/*
+	 * Reminders stored before dispatch was sharded get their shard, and reminders
+	 * stored before nextFireAt was kept get it from their dueAt, once on startup. An
+	 * occurrence already fired keeps no nextFireAt.
+	 */
+	private void migrate() {
+
+		BulkOperations bulk = null;
+		int batched = 0;
+		Query outdated = query(new Criteria().orOperator(where("shard").exists(false), where("nextFireAt").exists(false)));
+		outdated.fields().include("_id").include("dueAt").include("lastFiredAt");
+		try (CloseableIterator<Document> reminders = mongoOperations.stream(outdated, Document.class,
+				mongoOperations.getCollectionName(Reminder.class))) {
+			while (reminders.hasNext()) {
+				Document reminder = reminders.next();
+				String reminderId = reminder.get("_id").toString();
+				Date dueAt = reminder.getDate("dueAt");
+				Date lastFiredAt = reminder.getDate("lastFiredAt");
+				boolean fired = dueAt == null || lastFiredAt != null && !lastFiredAt.before(dueAt);
+				if (bulk == null) {
+					bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Reminder.class);
+				}
+				bulk.updateOne(query(where("_id").is(reminderId)),
+						new Update().set("shard", shardOf(reminderId)).set("nextFireAt", fired ? null : dueAt));
+				if (++batched == MIGRATION_BATCH_SIZE) {
+					bulk.execute();
+					bulk = null;
+					batched = 0;
+				}
+			}
+		}
+		if (bulk != null) {
+			bulk.execute();
+		}
+	}
+
+}
@@ -3,8 +3,13 @@ package com.stackroute.keepnote.service;
 import com.stackroute.keepnote.exception.ReminderNotCreatedException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Set;
 
 public interface ReminderService {
 	
@@ -21,5 +26,14 @@ public interface ReminderService {
 
     Reminder getReminderById(String reminderId) throws ReminderNotFoundException;
 
-    List<Reminder> getAllReminders();
+    Reminder getReminderById(String reminderId, Set<String> fields) throws ReminderNotFoundException;
+
+    void exportAllReminderByUserId(String userId, OutputStream outputStream) throws IOException;
+
+    void writeReminderPage(String userId, Date dueFrom, Date dueTo, ReminderCursor after, int limit, Set<String> fields,
+            OutputStream outputStream) throws IOException;
+
+    long snoozeReminders(String userId, Collection<String> reminderIds, long minutes);
+
+    Reminder dismissReminder(String reminderId, String userId) throws ReminderNotFoundException;
 }
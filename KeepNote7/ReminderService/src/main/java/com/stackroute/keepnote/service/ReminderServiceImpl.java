@@ -1,14 +1,33 @@
 package com.stackroute.keepnote.service;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.stackroute.keepnote.exception.ReminderNotCreatedException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.Recurrence;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
 import com.stackroute.keepnote.repository.ReminderRepository;
 
 /*
@@ -29,25 +48,57 @@ public class ReminderServiceImpl implements ReminderService {
 	 * object using the new keyword.
 	 */
 	
+	private static final ObjectWriter EXPORT_WRITER = new ObjectMapper().writerFor(Reminder.class);
+
+	private static final ObjectMapper PAGE_MAPPER = pageMapper();
+
+	/* updates guarded by a nextFireAt that changed meanwhile are retried on a fresh read */
+	static final int MAX_UPDATE_ATTEMPTS = 5;
+
 	@Autowired
 	private ReminderRepository reminderRepository;
 	
-	
+	@Autowired
+	private ReminderTrashService reminderTrashService;
+
+	@Autowired
+	private ReminderEventPublisher reminderEventPublisher;
+
+	@Autowired
+	private ReminderScheduler reminderScheduler;
 
-	public ReminderServiceImpl(ReminderRepository reminderRepository) {
+	@Autowired
+	private ReminderHistoryService reminderHistoryService;
+
+	public ReminderServiceImpl(ReminderRepository reminderRepository, ReminderTrashService reminderTrashService,
+			ReminderEventPublisher reminderEventPublisher, ReminderScheduler reminderScheduler,
+			ReminderHistoryService reminderHistoryService) {
 		this.reminderRepository=reminderRepository;
+		this.reminderTrashService=reminderTrashService;
+		this.reminderEventPublisher=reminderEventPublisher;
+		this.reminderScheduler=reminderScheduler;
+		this.reminderHistoryService=reminderHistoryService;
 	}
 
 	/*
 	 * This method should be used to save a new reminder.Call the corresponding
-	 * method of Respository interface.
+	 * method of Respository interface. A reminder with a dueAt is scheduled to fire at
+	 * its first occurrence from now on; the change event lets the instance holding its
+	 * dispatch shard schedule it.
 	 */
 	public Reminder createReminder(Reminder reminder) throws ReminderNotCreatedException {
 		
-		if(reminder!= null && reminder.getReminderId()!= null) {
+		if(reminder!= null && reminder.getReminderId()!= null && Recurrence.isValid(reminder.getRecurrence())) {
+			reminder.setLastFiredAt(null);
+			reminder.setFenceToken(null);
+			reminder.setShard(reminderScheduler.shardOf(reminder.getReminderId()));
+			reminder.setNextFireAt(Recurrence.firstFireAt(reminder.getDueAt(), reminder.getRecurrence(),
+					reminder.getRecurrenceInterval(), System.currentTimeMillis()));
 			Reminder reminder2 = reminderRepository.insert(reminder);
 			//System.out.println(reminder2);
 			if(reminder2!= null) {
+				reminderScheduler.schedule(reminder2);
+				reminderEventPublisher.publishUpserted(reminder2);
 				return reminder2;
 			}
 		}
@@ -57,8 +108,8 @@ public class ReminderServiceImpl implements ReminderService {
 	}
 
 	/*
-	 * This method should be used to delete an existing reminder.Call the
-	 * corresponding method of Respository interface.
+	 * This method should be used to delete an existing reminder. The reminder is
+	 * moved to the trash, from where it can be restored until it is purged.
 	 */
 	public boolean deleteReminder(String reminderId) throws ReminderNotFoundException {
 		
@@ -66,7 +117,9 @@ public class ReminderServiceImpl implements ReminderService {
 			Reminder rem = getReminderById(reminderId);
 			
 			if(rem!= null) {
-				reminderRepository.delete(rem);
+				reminderTrashService.moveToTrash(rem);
+				reminderScheduler.cancel(reminderId);
+				reminderEventPublisher.publishDeleted(rem);
 				return true;
 			}else {
 				throw new ReminderNotFoundException("Reminder Not Found");
@@ -77,25 +130,132 @@ public class ReminderServiceImpl implements ReminderService {
 	}
 
 	/*
-	 * This method should be used to update a existing reminder.Call the
-	 * corresponding method of Respository interface.
+	 * This method should be used to update a existing reminder. Notes embedding a
+	 * copy of the reminder are brought up to date asynchronously from the published
+	 * change event. A reminder whose dueAt or recurrence changed is scheduled from its
+	 * first occurrence from now on, otherwise it keeps its pending (possibly snoozed)
+	 * occurrence; an unknown recurrence is dropped. The update only applies if the
+	 * reminder did not fire or get snoozed since it was read, otherwise it is read
+	 * again; null if it kept changing.
 	 */
 	public Reminder updateReminder(Reminder reminder, String reminderId) throws ReminderNotFoundException {
 		
 		if(reminderId!= null) {
-			Reminder rem = getReminderById(reminderId);
-			
-			if(rem!= null && reminder!= null) {
+			for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+				Reminder rem = reminderRepository.findById(reminderId).orElse(null);
+				if(rem == null || reminder == null) {
+					throw new ReminderNotFoundException("Reminder Not Found");
+				}
+				Date read = rem.getNextFireAt();
 				reminder.setReminderId(rem.getReminderId());
-				reminderRepository.save(reminder);
-			}else {
-				throw new ReminderNotFoundException("Reminder Not Found");
+				reminder.setShard(reminderScheduler.shardOf(rem.getReminderId()));
+				reminder.setFenceToken(rem.getFenceToken());
+				reminder.setLastFiredAt(rem.getLastFiredAt());
+				if(!Recurrence.isValid(reminder.getRecurrence())) {
+					reminder.setRecurrence(null);
+				}
+				if(Objects.equals(reminder.getDueAt(), rem.getDueAt()) && Objects.equals(reminder.getRecurrence(), rem.getRecurrence())
+						&& reminder.getRecurrenceInterval() == rem.getRecurrenceInterval()) {
+					reminder.setNextFireAt(rem.getNextFireAt());
+				} else {
+					reminder.setNextFireAt(Recurrence.firstFireAt(reminder.getDueAt(), reminder.getRecurrence(),
+							reminder.getRecurrenceInterval(), System.currentTimeMillis()));
+				}
+				if(reminderRepository.updateIfNextFireAt(reminder, read)) {
+					reminderScheduler.schedule(reminder);
+					reminderEventPublisher.publishUpserted(reminder);
+					return reminder;
+				}
 			}
+			return null;
 		}
 
 		return reminder;
 	}
 
+	/*
+	 * Writes one page of the user's reminders as {"reminders": [...], "next": cursor}.
+	 * The reminders are read through a Mongo cursor and written one at a time, one more
+	 * than the page is read to tell whether there is a next page; next is null on the
+	 * last one. fields limits the loaded and written fields, null writes all.
+	 */
+	public void writeReminderPage(String userId, Date dueFrom, Date dueTo, ReminderCursor after, int limit,
+			Set<String> fields, OutputStream outputStream) throws IOException {
+
+		boolean byDueTime = dueFrom != null || dueTo != null;
+		ObjectWriter writer = fields == null ? PAGE_MAPPER.writerFor(Reminder.class)
+				: PAGE_MAPPER.writerFor(Reminder.class).with(new SimpleFilterProvider().addFilter(
+						SparseFieldsConfig.REMINDER_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields)));
+		try (CloseableIterator<Reminder> reminders = reminderRepository.streamPage(userId, dueFrom, dueTo, after, limit + 1,
+				fields);
+				JsonGenerator generator = PAGE_MAPPER.getFactory().createGenerator(outputStream)) {
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("reminders");
+			Reminder last = null;
+			int written = 0;
+			while (written < limit && reminders.hasNext()) {
+				last = reminders.next();
+				writer.writeValue(generator, last);
+				written++;
+			}
+			generator.writeEndArray();
+			if (last != null && reminders.hasNext()) {
+				generator.writeStringField("next",
+						new ReminderCursor(byDueTime ? last.getNextFireAt() : null, last.getReminderId()).encode());
+			} else {
+				generator.writeNullField("next");
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	/*
+	 * Snoozes the user's reminders due within the next minutes (only those with the
+	 * given ids, if any) until then, with a single update, and tells the instances
+	 * holding their shards to reschedule them. Returns the number of reminders snoozed.
+	 */
+	public long snoozeReminders(String userId, Collection<String> reminderIds, long minutes) {
+
+		if(userId == null || minutes <= 0) {
+			throw new IllegalArgumentException("minutes must be positive");
+		}
+		Date now = new Date();
+		Date until = new Date(now.getTime() + TimeUnit.MINUTES.toMillis(minutes));
+		long snoozed = reminderRepository.snooze(userId, reminderIds, until);
+		if(snoozed > 0) {
+			reminderEventPublisher.publishSnoozed(userId, until);
+			reminderHistoryService.recordSnoozed(userId, now, snoozed);
+		}
+		return snoozed;
+	}
+
+	/*
+	 * Dismisses a reminder of the user: a pending (e.g. snoozed) occurrence is dropped,
+	 * a recurring reminder fires next at its next regular occurrence, a one-time one
+	 * not at all. Like updateReminder, only nextFireAt is written and only if it did
+	 * not change since it was read; null if it kept changing.
+	 */
+	public Reminder dismissReminder(String reminderId, String userId) throws ReminderNotFoundException {
+
+		for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+			Reminder reminder = reminderId == null ? null : reminderRepository.findById(reminderId).orElse(null);
+			if(reminder == null || userId == null || !userId.equals(reminder.getReminderCreatedBy())) {
+				throw new ReminderNotFoundException("Reminder Not Found");
+			}
+			Date now = new Date();
+			Date read = reminder.getNextFireAt();
+			reminder.setNextFireAt(Recurrence.next(reminder.getDueAt(), reminder.getRecurrence(),
+					reminder.getRecurrenceInterval(), now.getTime()));
+			if(reminderRepository.moveNextFireAt(reminderId, read, reminder.getNextFireAt())) {
+				reminderScheduler.schedule(reminder);
+				reminderEventPublisher.publishUpserted(reminder);
+				reminderHistoryService.recordDismissed(userId, now);
+				return reminder;
+			}
+		}
+		return null;
+	}
+
 	/*
 	 * This method should be used to get a reminder by reminderId.Call the
 	 * corresponding method of Respository interface.
@@ -115,13 +275,42 @@ public class ReminderServiceImpl implements ReminderService {
 	}
 
 	/*
-	 * This method should be used to get all reminders. Call the corresponding
-	 * method of Respository interface.
+	 * Same as getReminderById, but only the given fields are loaded from the database.
 	 */
+	public Reminder getReminderById(String reminderId, Set<String> fields) throws ReminderNotFoundException {
+
+		Reminder reminder = reminderId == null ? null : reminderRepository.findProjectedById(reminderId, fields);
+		if(reminder != null) {
+			return reminder;
+		}
+
+		throw new ReminderNotFoundException("reminder not found!");
+	}
+
+	/*
+	 * This method writes all reminders of a user as newline delimited JSON, reading
+	 * them through a Mongo cursor one at a time.
+	 */
+	public void exportAllReminderByUserId(String userId, OutputStream outputStream) throws IOException {
+
+		try (Stream<Reminder> reminders = reminderRepository.streamAllReminderByReminderCreatedBy(userId)) {
+			for (Reminder reminder : (Iterable<Reminder>) reminders::iterator) {
+				outputStream.write(EXPORT_WRITER.writeValueAsBytes(reminder));
+				outputStream.write('\n');
+			}
+		}
+		outputStream.flush();
+	}
 
-	public List<Reminder> getAllReminders() {
+	/* the application's mapping of reminders with the ?fields= filter, buffered and not closing the response */
+	private static ObjectMapper pageMapper() {
 
-		return reminderRepository.findAll();
+		Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+		SparseFieldsConfig.configure(builder);
+		ObjectMapper mapper = builder.build();
+		mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		return mapper;
 	}
 
-}
\ No newline at end of file
+}
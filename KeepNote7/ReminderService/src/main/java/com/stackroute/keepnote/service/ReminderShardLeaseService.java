@@ -0,0 +1,28 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Set;
+
+public interface ReminderShardLeaseService {
+
+	/*
+	 * The dispatch shard of a reminder id.
+	 */
+	int shardOf(String reminderId);
+
+	/*
+	 * The lease token this instance holds for the shard, -1 if it does not hold it.
+	 */
+	long token(int shard);
+
+	/*
+	 * The shards this instance currently holds.
+	 */
+	Set<Integer> ownedShards();
+
+	/*
+	 * Renews the held leases and acquires or releases shards towards an even split
+	 * over the running instances.
+	 */
+	void maintainLeases();
+
+}
@@ -0,0 +1,202 @@
+package com.stackroute.keepnote.service;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.model.ReminderInstance;
+import com.stackroute.keepnote.model.ReminderShardLease;
+import com.stackroute.keepnote.model.ReminderShardsChangedEvent;
+
+/*
+ * Splits reminder dispatch over the running ReminderService instances. Reminder ids
+ * are hashed into keepnote.reminders.shards shards (the same number on every
+ * instance), each shard is leased to one instance for keepnote.reminders.lease-ms
+ * at a time. Leases are taken with a findAndModify that only matches an expired
+ * lease and are renewed every keepnote.reminders.lease-renew-ms with an update
+ * that only matches the holder's own token, so a lease is never held twice and a
+ * dead instance's shards are taken over once its leases expire.
+ *
+ * Every instance keeps a heartbeat in reminder_instances and holds at most its
+ * share, shards / running instances rounded up: surplus leases are released for a
+ * new instance to pick up. Every acquisition increments the shard's token; firing a
+ * reminder records the token and is refused for a lower one, so an instance that
+ * lost its lease without noticing (a long pause) cannot fire after the new owner.
+ *
+ * Renewal runs on its own thread rather than the shared @Scheduled thread, so a slow
+ * window load or outbox retry cannot delay it until the leases expire.
+ */
+@Service
+public class ReminderShardLeaseServiceImpl implements ReminderShardLeaseService {
+
+	private static Logger log = LoggerFactory.getLogger(ReminderShardLeaseServiceImpl.class);
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	private final String instanceId = UUID.randomUUID().toString();
+	private final int shards;
+	private final long leaseMillis;
+	private final long renewMillis;
+	private final ScheduledExecutorService renewExecutor;
+	private final Map<Integer, Long> owned = new ConcurrentHashMap<>();
+	private boolean leasesCreated;
+
+	public ReminderShardLeaseServiceImpl(MongoOperations mongoOperations, ApplicationEventPublisher applicationEventPublisher,
+			@Value("${keepnote.reminders.shards:64}") int shards,
+			@Value("${keepnote.reminders.lease-ms:15000}") long leaseMillis,
+			@Value("${keepnote.reminders.lease-renew-ms:5000}") long renewMillis) {
+		this.mongoOperations = mongoOperations;
+		this.applicationEventPublisher = applicationEventPublisher;
+		this.shards = shards;
+		this.leaseMillis = leaseMillis;
+		this.renewMillis = renewMillis;
+		this.renewExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("reminder-lease-"));
+	}
+
+	@PostConstruct
+	public void start() {
+		renewExecutor.scheduleWithFixedDelay(() -> {
+			try {
+				maintainLeases();
+			} catch (RuntimeException e) {
+				/* an exception would cancel the schedule, the next round retries */
+				log.warn("Renewing reminder shard leases failed: " + e);
+			}
+		}, 0, renewMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public int shardOf(String reminderId) {
+		return Math.floorMod(reminderId.hashCode(), shards);
+	}
+
+	public long token(int shard) {
+		Long token = owned.get(shard);
+		return token == null ? -1 : token;
+	}
+
+	public Set<Integer> ownedShards() {
+		return new HashSet<>(owned.keySet());
+	}
+
+	public synchronized void maintainLeases() {
+
+		long now = System.currentTimeMillis();
+		Date expiresAt = new Date(now + leaseMillis);
+		createLeases();
+		mongoOperations.upsert(query(where("_id").is(instanceId)), new Update().set("expiresAt", expiresAt),
+				ReminderInstance.class);
+
+		Set<Integer> acquired = new HashSet<>();
+		Set<Integer> lost = new HashSet<>();
+		for (Map.Entry<Integer, Long> lease : owned.entrySet()) {
+			if (mongoOperations.updateFirst(held(lease.getKey(), lease.getValue()), new Update().set("expiresAt", expiresAt),
+					ReminderShardLease.class).getMatchedCount() == 0) {
+				owned.remove(lease.getKey());
+				lost.add(lease.getKey());
+			}
+		}
+
+		long instances = Math.max(1, mongoOperations.count(query(where("expiresAt").gt(new Date(now))), ReminderInstance.class));
+		long share = (shards + instances - 1) / instances;
+
+		Iterator<Map.Entry<Integer, Long>> surplus = owned.entrySet().iterator();
+		while (owned.size() > share && surplus.hasNext()) {
+			Map.Entry<Integer, Long> lease = surplus.next();
+			release(lease.getKey(), lease.getValue());
+			surplus.remove();
+			lost.add(lease.getKey());
+		}
+
+		/* instances start looking at different shards so they rarely race for the same one */
+		int offset = Math.floorMod(instanceId.hashCode(), shards);
+		for (int i = 0; i < shards && owned.size() < share; i++) {
+			int shard = (offset + i) % shards;
+			if (owned.containsKey(shard)) {
+				continue;
+			}
+			ReminderShardLease lease = mongoOperations.findAndModify(
+					query(where("_id").is(shard).and("expiresAt").lt(new Date(now))),
+					new Update().set("owner", instanceId).set("expiresAt", expiresAt).inc("token", 1L),
+					FindAndModifyOptions.options().returnNew(true), ReminderShardLease.class);
+			if (lease != null) {
+				owned.put(shard, lease.getToken());
+				acquired.add(shard);
+			}
+		}
+
+		if (!acquired.isEmpty() || !lost.isEmpty()) {
+			log.info("Reminder shards acquired " + acquired + ", lost " + lost + ", holding " + owned.size() + " of " + shards);
+			applicationEventPublisher.publishEvent(new ReminderShardsChangedEvent(acquired, lost));
+		}
+	}
+
+	/*
+	 * Hands the shards back on shutdown, the next instance takes them over without
+	 * waiting for the leases to expire.
+	 */
+	@PreDestroy
+	public synchronized void releaseAll() {
+
+		renewExecutor.shutdownNow();
+		for (Map.Entry<Integer, Long> lease : owned.entrySet()) {
+			release(lease.getKey(), lease.getValue());
+		}
+		owned.clear();
+		mongoOperations.remove(query(where("_id").is(instanceId)), ReminderInstance.class);
+	}
+
+	private Query held(int shard, long token) {
+		return query(where("_id").is(shard).and("owner").is(instanceId).and("token").is(token));
+	}
+
+	private void release(int shard, long token) {
+		mongoOperations.updateFirst(held(shard, token), new Update().set("expiresAt", new Date(0)), ReminderShardLease.class);
+	}
+
+	private void createLeases() {
+
+		if (leasesCreated) {
+			return;
+		}
+		for (int shard = 0; shard < shards; shard++) {
+			try {
+				mongoOperations.upsert(query(where("_id").is(shard)),
+						new Update().setOnInsert("expiresAt", new Date(0)).setOnInsert("token", 0L), ReminderShardLease.class);
+			} catch (DuplicateKeyException e) {
+				/* created by another instance at the same time */
+			}
+		}
+		leasesCreated = true;
+	}
+
+}
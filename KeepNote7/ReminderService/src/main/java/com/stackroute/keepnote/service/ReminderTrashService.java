@@ -0,0 +1,27 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.exception.ReminderNotCreatedException;
+import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.TrashedReminder;
+
+public interface ReminderTrashService {
+
+	/*
+	 * Moves a reminder out of the reminder collection into the trash.
+	 */
+	void moveToTrash(Reminder reminder);
+
+	/*
+	 * Lists the trashed reminders of a user, most recently deleted first.
+	 */
+	List<TrashedReminder> getTrash(String userId);
+
+	/*
+	 * Moves a trashed reminder of the user back into the reminder collection.
+	 */
+	Reminder restore(String reminderId, String userId) throws ReminderNotFoundException, ReminderNotCreatedException;
+
+}
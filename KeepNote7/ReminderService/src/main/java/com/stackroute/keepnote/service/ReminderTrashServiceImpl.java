@@ -0,0 +1,92 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.ReminderNotCreatedException;
+import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.Recurrence;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.TrashedReminder;
+import com.stackroute.keepnote.repository.ReminderRepository;
+import com.stackroute.keepnote.repository.TrashedReminderRepository;
+
+/*
+ * Deleting a reminder moves it into the reminder_trash collection: one insert there and one
+ * delete by id here. Trashed reminders are purged by Mongo's TTL monitor after
+ * keepnote.trash.retention-days, the reminder collection and its queries never see them.
+ */
+@Service
+public class ReminderTrashServiceImpl implements ReminderTrashService {
+
+	@Autowired
+	private TrashedReminderRepository trashedReminderRepository;
+
+	@Autowired
+	private ReminderRepository reminderRepository;
+
+	@Autowired
+	private ReminderEventPublisher reminderEventPublisher;
+
+	@Autowired
+	private ReminderScheduler reminderScheduler;
+
+	private final long retentionMillis;
+
+	public ReminderTrashServiceImpl(TrashedReminderRepository trashedReminderRepository, ReminderRepository reminderRepository,
+			ReminderEventPublisher reminderEventPublisher, ReminderScheduler reminderScheduler,
+			@Value("${keepnote.trash.retention-days:30}") int retentionDays) {
+		this.trashedReminderRepository = trashedReminderRepository;
+		this.reminderRepository = reminderRepository;
+		this.reminderEventPublisher = reminderEventPublisher;
+		this.reminderScheduler = reminderScheduler;
+		this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+	}
+
+	public void moveToTrash(Reminder reminder) {
+
+		Date now = new Date();
+		trashedReminderRepository.save(new TrashedReminder(reminder.getReminderId(), reminder.getReminderCreatedBy(), reminder, now,
+				new Date(now.getTime() + retentionMillis)));
+		reminderRepository.delete(reminder);
+	}
+
+	public List<TrashedReminder> getTrash(String userId) {
+
+		return trashedReminderRepository.findByUserId(userId, Sort.by(Sort.Direction.DESC, "deletedAt"));
+	}
+
+	public Reminder restore(String reminderId, String userId) throws ReminderNotFoundException, ReminderNotCreatedException {
+
+		Optional<TrashedReminder> trashed = trashedReminderRepository.findById(reminderId);
+		if (!trashed.isPresent() || userId == null || !userId.equals(trashed.get().getUserId())) {
+			throw new ReminderNotFoundException("Reminder not found in trash");
+		}
+
+		Reminder reminder = trashed.get().getReminder();
+		reminder.setShard(reminderScheduler.shardOf(reminderId));
+		if (reminder.getNextFireAt() != null && Recurrence.isRecurring(reminder)) {
+			/* occurrences missed while in the trash are skipped */
+			reminder.setNextFireAt(Recurrence.firstFireAt(reminder.getDueAt(), reminder.getRecurrence(),
+					reminder.getRecurrenceInterval(), System.currentTimeMillis()));
+		}
+		try {
+			reminderRepository.insert(reminder);
+		} catch (DuplicateKeyException e) {
+			throw new ReminderNotCreatedException("Reminder already exists");
+		}
+		trashedReminderRepository.deleteById(reminderId);
+		reminderScheduler.schedule(reminder);
+		reminderEventPublisher.publishUpserted(reminder);
+		return reminder;
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * POSTs every batch of notifications as one JSON array to
+ * keepnote.notifications.webhook.url. Enabled when the url is set. A response other
+ * than 2xx or no response within keepnote.notifications.webhook.timeout-ms fails the
+ * batch, which is then retried.
+ */
+@Service
+@ConditionalOnProperty(name = "keepnote.notifications.webhook.url")
+public class WebhookNotificationChannel implements NotificationChannel {
+
+	private final RestTemplate restTemplate;
+	private final String url;
+
+	public WebhookNotificationChannel(RestTemplateBuilder restTemplateBuilder,
+			@Value("${keepnote.notifications.webhook.url}") String url,
+			@Value("${keepnote.notifications.webhook.timeout-ms:5000}") int timeoutMillis) {
+		this.restTemplate = restTemplateBuilder.setConnectTimeout(timeoutMillis).setReadTimeout(timeoutMillis).build();
+		this.url = url;
+	}
+
+	public String getName() {
+		return "webhook";
+	}
+
+	public void deliver(List<ReminderNotification> notifications) {
+		restTemplate.postForEntity(url, notifications, Void.class);
+	}
+
+}
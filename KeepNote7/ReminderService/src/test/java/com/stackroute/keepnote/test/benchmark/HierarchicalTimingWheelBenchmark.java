@@ -0,0 +1,64 @@
+package com.stackroute.keepnote.test.benchmark;
+
+import com.stackroute.keepnote.service.HierarchicalTimingWheel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Schedule and cancel throughput of the reminder timing wheel, run as a plain main
+ * method so it stays out of the unit test run:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.stackroute.keepnote.test.benchmark.HierarchicalTimingWheelBenchmark
+ *
+ * Each round schedules PENDING reminders with deadlines spread over a day, cancels
+ * every second one and advances the wheel over the first minute. The first WARMUP
+ * rounds only warm up the JIT.
+ */
+public class HierarchicalTimingWheelBenchmark {
+
+    private static final int PENDING = 2_000_000;
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    public static void main(String[] args) {
+
+        String[] keys = new String[PENDING];
+        long[] deadlines = new long[PENDING];
+        Random random = new Random(42);
+        for (int i = 0; i < PENDING; i++) {
+            keys[i] = "reminder-" + i;
+            deadlines[i] = 1 + (long) (random.nextDouble() * DAY);
+        }
+
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 512, 0);
+            long[] fired = new long[1];
+
+            long start = System.nanoTime();
+            for (int i = 0; i < PENDING; i++) {
+                wheel.schedule(keys[i], deadlines[i], keys[i]);
+            }
+            long scheduled = System.nanoTime();
+            for (int i = 0; i < PENDING; i += 2) {
+                wheel.cancel(keys[i]);
+            }
+            long cancelled = System.nanoTime();
+            wheel.advance(TimeUnit.MINUTES.toMillis(1), key -> fired[0]++);
+            long advanced = System.nanoTime();
+
+            if (round >= WARMUP) {
+                System.out.printf("round %d: schedule %.0f ops/s, cancel %.0f ops/s, advance 1 min %d ms (%d fired, %d pending)%n",
+                        round - WARMUP + 1, opsPerSecond(PENDING, scheduled - start),
+                        opsPerSecond(PENDING / 2, cancelled - scheduled),
+                        TimeUnit.NANOSECONDS.toMillis(advanced - cancelled), fired[0], wheel.size());
+            }
+        }
+    }
+
+    private static double opsPerSecond(int ops, long nanos) {
+        return ops * 1e9 / nanos;
+    }
+}
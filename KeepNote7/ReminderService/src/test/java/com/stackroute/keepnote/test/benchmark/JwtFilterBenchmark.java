@@ -0,0 +1,91 @@
+package com.stackroute.keepnote.test.benchmark;
+
+import com.stackroute.keepnote.jwtfilter.JwtFilter;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/*
+ * Per request overhead of the JWT filter, run as a plain main method so it stays out
+ * of the unit test run:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.stackroute.keepnote.test.benchmark.JwtFilterBenchmark
+ *
+ * Compares the old filter body (a new parser and key for every request), the filter
+ * with its cache disabled (pre-built parser and key only), the cached filter and the
+ * trusted gateway mode, where the service only checks the HMAC of the identity
+ * headers the gateway signed. The gateway mode is the cost each service hop pays
+ * behind the gateway, the token itself is then verified once at the gateway.
+ * Requests cycle through USERS distinct tokens, as a service sees a steady set of
+ * signed in users. The first WARMUP rounds only warm up the JIT.
+ */
+public class JwtFilterBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int REQUESTS = 200_000;
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+
+    private interface Filter {
+        void filter(MockHttpServletRequest request) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        MockHttpServletRequest[] requests = new MockHttpServletRequest[USERS];
+        MockHttpServletRequest[] gatewayRequests = new MockHttpServletRequest[USERS];
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec("gatewaysecret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        long expires = System.currentTimeMillis() + 3600000;
+        for (int i = 0; i < USERS; i++) {
+            String token = Jwts.builder().setSubject("user-" + i).setIssuedAt(new Date())
+                    .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                    .signWith(SignatureAlgorithm.HS256, "secretkey").compact();
+            requests[i] = new MockHttpServletRequest("GET", "/api/v1/reminder");
+            requests[i].addHeader("authorization", "Bearer " + token);
+            gatewayRequests[i] = new MockHttpServletRequest("GET", "/api/v1/reminder");
+            gatewayRequests[i].addHeader("X-Auth-User", "user-" + i);
+            gatewayRequests[i].addHeader("X-Auth-Expires", Long.toString(expires));
+            gatewayRequests[i].addHeader("X-Auth-Signature", Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(("user-" + i + "\n" + expires).getBytes(StandardCharsets.UTF_8))));
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> { };
+        JwtFilter uncached = new JwtFilter(0, 0);
+        JwtFilter cached = new JwtFilter();
+        JwtFilter trusted = new JwtFilter(10000, 300000, "gatewaysecret");
+
+        run("per request parser", requests, request -> {
+            String token = request.getHeader("authorization").substring(7);
+            request.setAttribute("claims", Jwts.parser().setSigningKey("secretkey").parseClaimsJws(token).getBody());
+        });
+        run("pre-built parser", requests, request -> uncached.doFilter(request, response, chain));
+        run("cached claims", requests, request -> cached.doFilter(request, response, chain));
+        run("gateway identity", gatewayRequests, request -> trusted.doFilter(request, response, chain));
+    }
+
+    private static void run(String name, MockHttpServletRequest[] requests, Filter filter) throws Exception {
+
+        for (int round = 0; round < WARMUP + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < REQUESTS; i++) {
+                filter.filter(requests[i % USERS]);
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP) {
+                System.out.printf("%s, round %d: %.0f ns/request, %.0f requests/s%n", name, round - WARMUP + 1,
+                        (double) elapsed / REQUESTS, REQUESTS * 1e9 / elapsed);
+            }
+        }
+    }
+}
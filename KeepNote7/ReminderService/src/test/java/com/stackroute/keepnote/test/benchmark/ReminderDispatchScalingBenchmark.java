@@ -0,0 +1,127 @@
+package com.stackroute.keepnote.test.benchmark;
+
+import com.mongodb.MongoClient;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderDueEvent;
+import com.stackroute.keepnote.model.ReminderShardsChangedEvent;
+import com.stackroute.keepnote.service.ReminderSchedulerImpl;
+import com.stackroute.keepnote.service.ReminderShardLeaseServiceImpl;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Fires the same number of reminders with 1, 2 and 4 dispatch instances running in one
+ * JVM against a local mongod (mongodb://localhost:27017, database
+ * keepnote-dispatch-bench, dropped before every run). Run as a plain main method:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.stackroute.keepnote.test.benchmark.ReminderDispatchScalingBenchmark
+ *
+ * All reminders are due at the same moment, so the reported rate is the firing
+ * throughput of the cluster. Each run prints how the firings were split over the
+ * instances and fails unless every reminder fired exactly once.
+ */
+public class ReminderDispatchScalingBenchmark {
+
+    private static final int REMINDERS = 100_000;
+    private static final int SHARDS = 64;
+    private static final int FIRE_THREADS = 4;
+
+    public static void main(String[] args) throws Exception {
+
+        MongoClient client = new MongoClient();
+        try {
+            MongoTemplate mongo = new MongoTemplate(client, "keepnote-dispatch-bench");
+            for (int instances : new int[] { 1, 2, 4 }) {
+                mongo.getDb().drop();
+                run(mongo, instances);
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    private static void run(MongoTemplate mongo, int instances) throws InterruptedException {
+
+        Set<String> firedIds = ConcurrentHashMap.newKeySet();
+        AtomicLong duplicates = new AtomicLong();
+        AtomicLong lastFiredAt = new AtomicLong();
+        List<AtomicLong> firedPerInstance = new ArrayList<>();
+        List<ReminderShardLeaseServiceImpl> leases = new ArrayList<>();
+        List<ReminderSchedulerImpl> schedulers = new ArrayList<>();
+
+        for (int i = 0; i < instances; i++) {
+            AtomicLong fired = new AtomicLong();
+            firedPerInstance.add(fired);
+            ReminderSchedulerImpl[] scheduler = new ReminderSchedulerImpl[1];
+            ReminderShardLeaseServiceImpl lease = new ReminderShardLeaseServiceImpl(mongo, event -> {
+                if (event instanceof ReminderShardsChangedEvent) {
+                    scheduler[0].shardsChanged((ReminderShardsChangedEvent) event);
+                }
+            }, SHARDS, 15000, 5000);
+            scheduler[0] = new ReminderSchedulerImpl(mongo, event -> {
+                if (event instanceof ReminderDueEvent) {
+                    if (!firedIds.add(((ReminderDueEvent) event).getReminder().getReminderId())) {
+                        duplicates.incrementAndGet();
+                    }
+                    fired.incrementAndGet();
+                    lastFiredAt.accumulateAndGet(System.currentTimeMillis(), Math::max);
+                }
+            }, lease, 60000, 0, 512, FIRE_THREADS);
+            leases.add(lease);
+            schedulers.add(scheduler[0]);
+        }
+
+        /* heartbeats first, then rounds until the shards are split evenly */
+        for (int round = 0; round < 3; round++) {
+            for (ReminderShardLeaseServiceImpl lease : leases) {
+                lease.maintainLeases();
+            }
+        }
+
+        long dueAt = System.currentTimeMillis() + 5000;
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Reminder.class);
+        for (int i = 0; i < REMINDERS; i++) {
+            Reminder reminder = new Reminder();
+            reminder.setReminderId("bench-" + i);
+            reminder.setReminderName("bench");
+            reminder.setReminderCreatedBy("bench");
+            reminder.setDueAt(new Date(dueAt));
+            reminder.setNextFireAt(reminder.getDueAt());
+            reminder.setShard(leases.get(0).shardOf(reminder.getReminderId()));
+            bulk.insert(reminder);
+        }
+        bulk.execute();
+
+        for (ReminderSchedulerImpl scheduler : schedulers) {
+            scheduler.start();
+            scheduler.loadWindow();
+        }
+
+        long deadline = dueAt + TimeUnit.MINUTES.toMillis(5);
+        while (firedIds.size() < REMINDERS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        long elapsed = Math.max(1, lastFiredAt.get() - dueAt);
+        System.out.printf("%d instance(s): %d fired in %d ms, %.0f reminders/s, %d duplicates, split %s%n", instances,
+                firedIds.size(), elapsed, firedIds.size() * 1000.0 / elapsed, duplicates.get(), firedPerInstance);
+
+        for (int i = 0; i < instances; i++) {
+            schedulers.get(i).stop();
+            leases.get(i).releaseAll();
+        }
+        if (firedIds.size() != REMINDERS || duplicates.get() != 0) {
+            throw new AssertionError(instances + " instance(s): " + firedIds.size() + " of " + REMINDERS
+                    + " reminders fired, " + duplicates.get() + " fired more than once");
+        }
+    }
+}
@@ -2,9 +2,22 @@ package com.stackroute.keepnote.test.controller;
 
 
 
+import java.util.Collections;
 import static org.mockito.Mockito.when;
-
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -16,9 +29,12 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
@@ -29,7 +45,14 @@ import com.stackroute.keepnote.controller.ReminderController;
 import com.stackroute.keepnote.exception.ReminderNotCreatedException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
+import com.stackroute.keepnote.model.ReminderHistory;
 import com.stackroute.keepnote.service.ReminderService;
+import com.stackroute.keepnote.service.ReminderEventPublisher;
+import com.stackroute.keepnote.service.ReminderHistoryService;
+import com.stackroute.keepnote.service.ReminderTrashService;
+import io.jsonwebtoken.Jwts;
+import com.stackroute.keepnote.service.IdempotencyService;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 
@@ -44,6 +67,14 @@ public class ReminderControllerTest {
 
     @MockBean
     private ReminderService reminderService;
+    @MockBean
+    private IdempotencyService idempotencyService;
+    @MockBean
+    private ReminderTrashService reminderTrashService;
+    @MockBean
+    private ReminderEventPublisher reminderEventPublisher;
+    @MockBean
+    private ReminderHistoryService reminderHistoryService;
 
     @InjectMocks
     private ReminderController reminderController;
@@ -168,15 +199,219 @@ public class ReminderControllerTest {
     }
 
     @Test
-    public void getAllReminderById() throws Exception
+    public void getAllRemindersStreamsPageOfUser() throws Exception
+    {
+        doAnswer(invocation -> {
+            ((OutputStream) invocation.getArgument(6)).write("{\"reminders\":[],\"next\":null}".getBytes());
+            return null;
+        }).when(reminderService).writeReminderPage(eq("John123"), isNull(), isNull(), isNull(), eq(50), isNull(), any());
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder")
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("{\"reminders\":[],\"next\":null}"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getAllRemindersByDueTimeAfterCursor() throws Exception
     {
-        when(reminderService.getAllReminders()).thenReturn(reminderList);
-        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").contentType(MediaType.APPLICATION_JSON)
-                .content(asJsonString(reminderList))).andExpect(MockMvcResultMatchers.status().isOk())
+        ReminderCursor cursor = new ReminderCursor(new Date(1527000000000L), "5b0509731764e3096984eae6");
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").param("dueFrom", "1526000000000")
+                .param("cursor", cursor.encode()).param("limit", "10")
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        verify(reminderService).writeReminderPage(eq("John123"), eq(new Date(1526000000000L)), isNull(),
+                argThat(after -> "5b0509731764e3096984eae6".equals(after.getReminderId())
+                        && after.getNextFireAt().getTime() == 1527000000000L), eq(10), isNull(), any());
+    }
+
+    @Test
+    public void getAllRemindersWithIdCursorInDueRange() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").param("dueTo", "1527000000000")
+                .param("cursor", new ReminderCursor(null, "5b0509731764e3096984eae6").encode())
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getAllRemindersWithInvalidPage() throws Exception
+    {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").param("limit", "501")
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").param("cursor", "not a cursor")
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(reminderService, never()).writeReminderPage(any(), any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void createReminderWithIdempotencyKeyStoresResponse() throws Exception {
+
+        when(reminderService.createReminder(any())).thenReturn(reminder);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("John123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
                 .andDo(MockMvcResultHandlers.print());
+        verify(idempotencyService).complete(eq("reminder:John123:key-1"), any(), any());
+    }
+
+    @Test
+    public void createReminderIdempotencyKeyIsScopedByCaller() throws Exception {
 
+        when(reminderService.createReminder(any())).thenReturn(reminder);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("Other123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(idempotencyService).reserve(eq("reminder:Other123:key-1"), any());
     }
 
+    @Test
+    public void createReminderWithIdempotencyKeyInProgress() throws Exception {
+
+        doReturn(new ResponseEntity<>(HttpStatus.CONFLICT)).when(idempotencyService).reserve(eq("reminder:John123:key-1"), any());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("John123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder)))
+                .andExpect(MockMvcResultMatchers.status().isConflict())
+                .andDo(MockMvcResultHandlers.print());
+        verify(reminderService, never()).createReminder(any());
+    }
+
+    @Test
+    public void createReminderWithIdempotencyKeyReplaysStoredResponse() throws Exception {
+
+        doReturn(new ResponseEntity<>(reminder, HttpStatus.CREATED)).when(idempotencyService)
+                .reserve(eq("reminder:John123:key-1"), any());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder").header("Idempotency-Key", "key-1")
+                .requestAttr("claims", Jwts.claims().setSubject("John123"))
+                .contentType(MediaType.APPLICATION_JSON).content(asJsonString(reminder)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andDo(MockMvcResultHandlers.print());
+        verify(reminderService, never()).createReminder(any());
+    }
+
+    @Test
+    public void getAllRemindersWithFields() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").param("fields", "reminderName")
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        verify(reminderService).writeReminderPage(eq("John123"), isNull(), isNull(), isNull(), eq(50),
+                eq(Collections.singleton("reminderName")), any());
+    }
+
+    @Test
+    public void getAllRemindersWithUnknownField() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder").param("fields", "noSuchField"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void replayEventsSuccess() throws Exception {
+        when(reminderEventPublisher.isReplayAllowed("internal-token")).thenReturn(true);
+        when(reminderEventPublisher.replay(1527000000000L)).thenReturn(3);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/events/replay").param("since", "1527000000000")
+                .header("X-Replay-Token", "internal-token"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("3"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void replayEventsWithoutTokenForbidden() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/events/replay").param("since", "1527000000000")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isForbidden())
+                .andDo(MockMvcResultHandlers.print());
+        verify(reminderEventPublisher, never()).replay(anyLong());
+    }
+
+    @Test
+    public void restoreReminderSuccess() throws Exception {
+        when(reminderTrashService.restore("5b0509731764e3096984eae6", "Jhon123")).thenReturn(reminder);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/trash/5b0509731764e3096984eae6/restore")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void restoreReminderNotInTrash() throws Exception {
+        when(reminderTrashService.restore("5b0509731764e3096984eae6", "Jhon123")).thenThrow(ReminderNotFoundException.class);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/trash/5b0509731764e3096984eae6/restore")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void snoozeRemindersSuccess() throws Exception {
+        when(reminderService.snoozeReminders("Jhon123", Arrays.asList("a", "b"), 10)).thenReturn(2L);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/snooze").param("minutes", "10").param("ids", "a,b")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("2"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void snoozeRemindersWithoutMinutes() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/snooze").param("minutes", "0")
+                .requestAttr("claims", Jwts.claims().setSubject("Jhon123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+        verify(reminderService, never()).snoozeReminders(anyString(), any(), anyLong());
+    }
+
+    @Test
+    public void dismissReminderSuccess() throws Exception {
+        when(reminderService.dismissReminder("5b0509731764e3096984eae6", "John123")).thenReturn(reminder);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/reminder/5b0509731764e3096984eae6/dismiss")
+                .requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getReminderHistoryByWeek() throws Exception {
+        ReminderHistory week = new ReminderHistory("John123", ReminderHistory.WEEK, new Date(1525046400000L));
+        week.setFired(7);
+        when(reminderHistoryService.getWeeklyHistory("John123", LocalDate.parse("2018-05-03"), LocalDate.parse("2018-05-10")))
+                .thenReturn(Collections.singletonList(week));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder/history").param("from", "2018-05-03")
+                .param("to", "2018-05-10").param("period", "week").requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].fired").value(7))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getReminderHistoryWithInvalidRange() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder/history").param("from", "2018-05-10")
+                .param("to", "2018-05-03").requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder/history").param("from", "2018-05-03")
+                .param("to", "2018-05-10").param("period", "month").requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/reminder/history").param("from", "2017-01-01")
+                .param("to", "2018-05-10").requestAttr("claims", Jwts.claims().setSubject("John123")))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
 
     private static String asJsonString(final Object obj) {
         try {
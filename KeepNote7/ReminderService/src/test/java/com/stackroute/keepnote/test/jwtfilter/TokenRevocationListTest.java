@@ -0,0 +1,68 @@
+package com.stackroute.keepnote.test.jwtfilter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import com.stackroute.keepnote.jwtfilter.TokenRevocationList;
+import com.stackroute.keepnote.model.TokenRevokedEvent;
+
+public class TokenRevocationListTest {
+
+    private TokenRevocationList revocations;
+
+    @Before
+    public void setUp() {
+        /* nothing listens there, resync() keeps the current list */
+        revocations = new TokenRevocationList(new RestTemplateBuilder(), "http://localhost:1/api/v1/auth/revocations",
+                100, 0.01);
+    }
+
+    @Test
+    public void revokesUntilExpiry() {
+        long now = System.currentTimeMillis();
+        revocations.revoke("token-1", now + 60000);
+        revocations.revoke("token-2", now - 1);
+        Assert.assertTrue(revocations.isRevoked("token-1"));
+        Assert.assertFalse(revocations.isRevoked("token-2"));
+        Assert.assertFalse(revocations.isRevoked("token-3"));
+        Assert.assertFalse(revocations.isRevoked(null));
+    }
+
+    @Test
+    public void revokesFromBusEvent() {
+        revocations.tokenRevoked(new TokenRevokedEvent(this, "user-auth:9100", "token-1",
+                System.currentTimeMillis() + 60000));
+        Assert.assertTrue(revocations.isRevoked("token-1"));
+    }
+
+    @Test
+    public void purgeDropsExpiredAndKeepsActive() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        revocations.revoke("token-1", now + 60000);
+        revocations.revoke("token-2", now + 50);
+        Thread.sleep(100);
+        revocations.resync();
+        Assert.assertEquals(1, revocations.size());
+        Assert.assertTrue(revocations.isRevoked("token-1"));
+        Assert.assertFalse(revocations.isRevoked("token-2"));
+    }
+
+    @Test
+    public void noFalseNegativesBeyondExpectedTokens() {
+        long expiresAt = System.currentTimeMillis() + 60000;
+        for (int i = 0; i < 1000; i++) {
+            revocations.revoke("token-" + i, expiresAt);
+        }
+        revocations.purgeExpired();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(revocations.isRevoked("token-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            falsePositives += revocations.isRevoked("token-" + i) ? 1 : 0;
+        }
+        Assert.assertEquals(0, falsePositives);
+    }
+}
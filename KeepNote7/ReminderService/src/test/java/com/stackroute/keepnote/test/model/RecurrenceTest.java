@@ -0,0 +1,63 @@
+package com.stackroute.keepnote.test.model;
+
+import com.stackroute.keepnote.model.Recurrence;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Date;
+
+public class RecurrenceTest {
+
+    private static Date at(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+
+    @Test
+    public void dailySkipsMissedOccurrences() {
+        Date next = Recurrence.next(at("2018-05-01T09:00:00Z"), Recurrence.DAILY, 1,
+                at("2018-05-03T10:00:00Z").getTime());
+        Assert.assertEquals(at("2018-05-04T09:00:00Z"), next);
+    }
+
+    @Test
+    public void nextIsStrictlyAfter() {
+        Date next = Recurrence.next(at("2018-05-01T09:00:00Z"), Recurrence.WEEKLY, 2,
+                at("2018-05-15T09:00:00Z").getTime());
+        Assert.assertEquals(at("2018-05-29T09:00:00Z"), next);
+    }
+
+    @Test
+    public void monthlyKeepsTheDayOfTheFirstOccurrence() {
+        Date first = at("2018-01-31T09:00:00Z");
+        Assert.assertEquals(at("2018-02-28T09:00:00Z"),
+                Recurrence.next(first, Recurrence.MONTHLY, 1, at("2018-02-01T00:00:00Z").getTime()));
+        Assert.assertEquals(at("2018-03-31T09:00:00Z"),
+                Recurrence.next(first, Recurrence.MONTHLY, 1, at("2018-02-28T09:00:00Z").getTime()));
+    }
+
+    @Test
+    public void futureFirstOccurrenceIsNext() {
+        Date first = at("2030-01-01T00:00:00Z");
+        Assert.assertEquals(first, Recurrence.next(first, Recurrence.YEARLY, 1, at("2018-01-01T00:00:00Z").getTime()));
+    }
+
+    @Test
+    public void firstFireAtSkipsPastOccurrencesOfRecurringReminders() {
+        Date first = at("2018-05-01T09:00:00Z");
+        Assert.assertEquals(at("2018-05-04T09:00:00Z"),
+                Recurrence.firstFireAt(first, Recurrence.DAILY, 1, at("2018-05-03T10:00:00Z").getTime()));
+        Assert.assertEquals(at("2018-05-04T09:00:00Z"),
+                Recurrence.firstFireAt(first, Recurrence.DAILY, 1, at("2018-05-04T09:00:00Z").getTime()));
+        Assert.assertEquals(first, Recurrence.firstFireAt(first, null, 0, at("2018-05-03T10:00:00Z").getTime()));
+        Assert.assertNull(Recurrence.firstFireAt(null, Recurrence.DAILY, 1, 0));
+    }
+
+    @Test
+    public void oneShotAndUnknownRecurrences() {
+        Assert.assertNull(Recurrence.next(at("2018-05-01T09:00:00Z"), null, 1, 0));
+        Assert.assertTrue(Recurrence.isValid(null));
+        Assert.assertTrue(Recurrence.isValid(Recurrence.HOURLY));
+        Assert.assertFalse(Recurrence.isValid("FORTNIGHTLY"));
+    }
+}
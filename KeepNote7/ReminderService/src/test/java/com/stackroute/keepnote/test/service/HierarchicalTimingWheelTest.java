@@ -0,0 +1,91 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.service.HierarchicalTimingWheel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HierarchicalTimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    private HierarchicalTimingWheel<String> wheel;
+    private List<String> fired;
+
+    @Before
+    public void setUp() {
+        wheel = new HierarchicalTimingWheel<>(1, 8, START);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    public void firesAtTheDeadlineMillisecond() {
+        Assert.assertTrue(wheel.schedule("a", START + 5, "a"));
+        Assert.assertEquals(START + 5, wheel.nextExpiration());
+
+        wheel.advance(START + 4, fired::add);
+        Assert.assertTrue(fired.isEmpty());
+        wheel.advance(START + 5, fired::add);
+        Assert.assertEquals(Arrays.asList("a"), fired);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cascadesFromHigherWheels() {
+        /* 8 x 1ms, 8 x 8ms, 8 x 64ms: the deadline starts two wheels up */
+        wheel.schedule("far", START + 300, "far");
+        wheel.schedule("near", START + 3, "near");
+
+        long now = START;
+        while (fired.size() < 2) {
+            now = Math.max(now, wheel.nextExpiration());
+            wheel.advance(now, fired::add);
+        }
+        Assert.assertEquals(Arrays.asList("near", "far"), fired);
+        Assert.assertEquals(START + 300, now);
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotFire() {
+        wheel.schedule("a", START + 5, "a");
+        wheel.schedule("b", START + 5, "b");
+        Assert.assertTrue(wheel.cancel("a"));
+        Assert.assertFalse(wheel.cancel("a"));
+
+        wheel.advance(START + 10, fired::add);
+        Assert.assertEquals(Arrays.asList("b"), fired);
+    }
+
+    @Test
+    public void rescheduleReplacesTheDeadline() {
+        wheel.schedule("a", START + 5, "first");
+        wheel.schedule("a", START + 50, "second");
+        Assert.assertEquals(1, wheel.size());
+
+        wheel.advance(START + 10, fired::add);
+        Assert.assertTrue(fired.isEmpty());
+        wheel.advance(START + 50, fired::add);
+        Assert.assertEquals(Arrays.asList("second"), fired);
+    }
+
+    @Test
+    public void dueDeadlineIsNotScheduled() {
+        Assert.assertFalse(wheel.schedule("a", START, "a"));
+        Assert.assertFalse(wheel.contains("a"));
+        Assert.assertEquals(Long.MAX_VALUE, wheel.nextExpiration());
+    }
+
+    @Test
+    public void lateAdvanceFiresEverythingDue() {
+        for (int i = 1; i <= 100; i++) {
+            wheel.schedule("r" + i, START + i * 7, "r" + i);
+        }
+        wheel.advance(START + 350, fired::add);
+        Assert.assertEquals(50, fired.size());
+        Assert.assertEquals(50, wheel.size());
+    }
+}
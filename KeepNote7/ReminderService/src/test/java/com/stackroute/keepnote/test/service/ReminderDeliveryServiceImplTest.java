@@ -0,0 +1,162 @@
+package com.stackroute.keepnote.test.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderDueEvent;
+import com.stackroute.keepnote.model.ReminderNotification;
+import com.stackroute.keepnote.service.InMemoryNotificationChannel;
+import com.stackroute.keepnote.service.NotificationChannel;
+import com.stackroute.keepnote.service.ReminderDeliveryServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ReminderDeliveryServiceImplTest {
+
+    private MeterRegistry meterRegistry;
+    private InMemoryNotificationChannel sink;
+    private ReminderDeliveryServiceImpl deliveryService;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sink = new InMemoryNotificationChannel();
+    }
+
+    @After
+    public void tearDown() {
+        if (deliveryService != null) {
+            deliveryService.stop();
+        }
+    }
+
+    @Test
+    public void coalescesRemindersOfAUserWithinTheWindow() {
+        start(Collections.singletonList(sink), 100, 200, 100, 3);
+        deliveryService.reminderDue(due("r1", "John123"));
+        deliveryService.reminderDue(due("r2", "John123"));
+        deliveryService.reminderDue(due("r3", "Jhon456"));
+        deliveryService.reminderDue(due("r4", "John123"));
+
+        await(() -> sink.getDelivered().size() == 2);
+        ReminderNotification john = sink.getDelivered().stream().filter(n -> n.getUserId().equals("John123"))
+                .findFirst().get();
+        Assert.assertEquals(3, john.getReminders().size());
+        Assert.assertEquals(2.0, meterRegistry.get("keepnote.notifications.coalesced").counter().count(), 0);
+        Assert.assertEquals(2.0, meterRegistry.get("keepnote.notifications.delivered").tag("channel", "in-memory")
+                .counter().count(), 0);
+        Assert.assertEquals(2, meterRegistry.get("keepnote.notifications.latency").timer().count());
+        Assert.assertEquals(0, deliveryService.pending());
+    }
+
+    @Test
+    public void fullNotificationIsSentBeforeTheWindowCloses() {
+        start(Collections.singletonList(sink), 100, 60000, 2, 3);
+        deliveryService.reminderDue(due("r1", "John123"));
+        deliveryService.reminderDue(due("r2", "John123"));
+
+        await(() -> sink.getDelivered().size() == 1);
+        Assert.assertEquals(2, sink.getDelivered().get(0).getReminders().size());
+    }
+
+    @Test
+    public void failedBatchIsRetriedOnlyOnTheFailingChannel() {
+        AtomicInteger failures = new AtomicInteger(2);
+        InMemoryNotificationChannel flakySink = new InMemoryNotificationChannel();
+        NotificationChannel flaky = new NotificationChannel() {
+            public String getName() {
+                return "flaky";
+            }
+
+            public void deliver(List<ReminderNotification> notifications) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("unavailable");
+                }
+                flakySink.deliver(notifications);
+            }
+        };
+        start(Arrays.asList(sink, flaky), 100, 10, 100, 3);
+        deliveryService.reminderDue(due("r1", "John123"));
+
+        await(() -> flakySink.getDelivered().size() == 1);
+        Assert.assertEquals(1, sink.getDelivered().size());
+        Assert.assertEquals(2.0, meterRegistry.get("keepnote.notifications.retries").tag("channel", "flaky")
+                .counter().count(), 0);
+    }
+
+    @Test
+    public void batchIsDroppedAfterTheLastAttempt() {
+        NotificationChannel down = new NotificationChannel() {
+            public String getName() {
+                return "down";
+            }
+
+            public void deliver(List<ReminderNotification> notifications) {
+                throw new IllegalStateException("unavailable");
+            }
+        };
+        start(Collections.singletonList(down), 100, 10, 100, 2);
+        deliveryService.reminderDue(due("r1", "John123"));
+        deliveryService.reminderDue(due("r2", "John123"));
+
+        await(() -> dropped("retries_exhausted") == 2.0);
+        Assert.assertEquals(1.0, meterRegistry.get("keepnote.notifications.retries").counter().count(), 0);
+    }
+
+    @Test
+    public void reminderIsDroppedWhenTheQueueStaysFull() {
+        /* not started, nothing drains the queue */
+        deliveryService = new ReminderDeliveryServiceImpl(Collections.singletonList(sink), meterRegistry, 1, 0, 10, 100,
+                100, 1, 3, 1, 1);
+        deliveryService.reminderDue(due("r1", "John123"));
+        deliveryService.reminderDue(due("r2", "John123"));
+
+        Assert.assertEquals(1, deliveryService.pending());
+        Assert.assertEquals(1.0, dropped("queue_full"), 0);
+        Assert.assertEquals(1.0, meterRegistry.get("keepnote.notifications.queue.depth").gauge().value(), 0);
+    }
+
+    private void start(List<NotificationChannel> channels, int queueCapacity, long windowMillis, int maxPerNotification,
+            int maxAttempts) {
+        deliveryService = new ReminderDeliveryServiceImpl(channels, meterRegistry, queueCapacity, 100, windowMillis,
+                maxPerNotification, 100, 2, maxAttempts, 10, 20);
+        deliveryService.start();
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.find("keepnote.notifications.dropped").tag("reason", reason).counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+
+    private static ReminderDueEvent due(String reminderId, String userId) {
+        Reminder reminder = new Reminder();
+        reminder.setReminderId(reminderId);
+        reminder.setReminderCreatedBy(userId);
+        Date now = new Date();
+        return new ReminderDueEvent(reminder, now, now);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("condition not met within 5s", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderDueEvent;
+import com.stackroute.keepnote.model.ReminderHistory;
+import com.stackroute.keepnote.service.ReminderHistoryServiceImpl;
+
+public class ReminderHistoryServiceImplTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private ReminderHistoryServiceImpl historyService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, ReminderHistory.class)).thenReturn(bulkOperations);
+        historyService = new ReminderHistoryServiceImpl(mongoOperations);
+    }
+
+    private static Date at(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+
+    private static ReminderDueEvent fired(String userId, Date firedAt) {
+        Reminder reminder = new Reminder();
+        reminder.setReminderCreatedBy(userId);
+        return new ReminderDueEvent(reminder, firedAt, firedAt);
+    }
+
+    @Test
+    public void flushWritesOneIncrementPerDay() {
+        historyService.reminderFired(fired("John123", at("2018-05-01T09:00:00Z")));
+        historyService.reminderFired(fired("John123", at("2018-05-01T09:59:59Z")));
+        historyService.reminderFired(fired("John123", at("2018-05-01T10:00:00Z")));
+        historyService.recordSnoozed("John123", at("2018-05-01T10:05:00Z"), 4);
+        historyService.reminderFired(fired("John123", at("2018-05-02T00:00:00Z")));
+
+        Assert.assertEquals(2, historyService.flush());
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).upsert(queries.capture(), updates.capture());
+        verify(bulkOperations).execute();
+        List<Query> written = queries.getAllValues();
+        Assert.assertEquals(ReminderHistory.id("John123", ReminderHistory.DAY, at("2018-05-01T00:00:00Z")),
+                written.get(0).getQueryObject().get("_id"));
+        Assert.assertEquals(ReminderHistory.id("John123", ReminderHistory.DAY, at("2018-05-02T00:00:00Z")),
+                written.get(1).getQueryObject().get("_id"));
+        Document day = updates.getAllValues().get(0).getUpdateObject();
+        Assert.assertEquals(3L, ((Document) day.get("$inc")).get("fired"));
+        Assert.assertEquals(4L, ((Document) day.get("$inc")).get("snoozed"));
+        Assert.assertEquals(ReminderHistory.DAY, ((Document) day.get("$setOnInsert")).get("period"));
+
+        Assert.assertEquals(0, historyService.flush());
+    }
+
+    @Test
+    public void failedIncrementsAreKeptForTheNextFlush() {
+        historyService.recordDismissed("John123", at("2018-05-01T09:00:00Z"));
+        historyService.recordDismissed("John123", at("2018-05-02T09:00:00Z"));
+        MongoBulkWriteException failure = new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)), null,
+                new ServerAddress());
+        when(bulkOperations.execute()).thenThrow(new BulkOperationException("failed", failure))
+                .thenReturn(null);
+
+        Assert.assertEquals(1, historyService.flush());
+        Assert.assertEquals(1, historyService.flush());
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOperations, times(3)).upsert(queries.capture(), any(Update.class));
+        Assert.assertEquals(ReminderHistory.id("John123", ReminderHistory.DAY, at("2018-05-02T00:00:00Z")),
+                queries.getAllValues().get(2).getQueryObject().get("_id"));
+    }
+
+    @Test
+    public void dailyHistoryHasAnEntryPerDay() {
+        ReminderHistory stored = new ReminderHistory("John123", ReminderHistory.DAY, at("2018-05-02T00:00:00Z"));
+        stored.setFired(5);
+        when(mongoOperations.find(any(Query.class), eq(ReminderHistory.class))).thenReturn(Collections.singletonList(stored));
+
+        List<ReminderHistory> history = historyService.getDailyHistory("John123", LocalDate.parse("2018-05-01"),
+                LocalDate.parse("2018-05-04"));
+
+        Assert.assertEquals(3, history.size());
+        Assert.assertEquals(at("2018-05-01T00:00:00Z"), history.get(0).getStart());
+        Assert.assertEquals(0, history.get(0).getFired());
+        Assert.assertEquals(5, history.get(1).getFired());
+    }
+
+    @Test
+    public void weeklyHistorySumsTheDaysOfEachWeek() {
+        ReminderHistory sunday = new ReminderHistory("John123", ReminderHistory.DAY, at("2018-05-06T00:00:00Z"));
+        sunday.setFired(2);
+        ReminderHistory monday = new ReminderHistory("John123", ReminderHistory.DAY, at("2018-05-07T00:00:00Z"));
+        monday.setFired(3);
+        monday.setDismissed(1);
+        ReminderHistory tuesday = new ReminderHistory("John123", ReminderHistory.DAY, at("2018-05-08T00:00:00Z"));
+        tuesday.setFired(4);
+        when(mongoOperations.find(any(Query.class), eq(ReminderHistory.class)))
+                .thenReturn(Arrays.asList(sunday, monday, tuesday));
+
+        List<ReminderHistory> history = historyService.getWeeklyHistory("John123", LocalDate.parse("2018-05-03"),
+                LocalDate.parse("2018-05-10"));
+
+        Assert.assertEquals(2, history.size());
+        Assert.assertEquals(at("2018-04-30T00:00:00Z"), history.get(0).getStart());
+        Assert.assertEquals(ReminderHistory.WEEK, history.get(0).getPeriod());
+        Assert.assertEquals(2, history.get(0).getFired());
+        Assert.assertEquals(7, history.get(1).getFired());
+        Assert.assertEquals(1, history.get(1).getDismissed());
+    }
+
+    @Test
+    public void weeklyHistoryReadsWholeWeeks() {
+        historyService.getWeeklyHistory("John123", LocalDate.parse("2018-05-03"), LocalDate.parse("2018-05-10"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).find(query.capture(), eq(ReminderHistory.class));
+        Document start = (Document) query.getValue().getQueryObject().get("start");
+        Assert.assertEquals(at("2018-04-30T00:00:00Z"), start.get("$gte"));
+        Assert.assertEquals(at("2018-05-14T00:00:00Z"), start.get("$lt"));
+    }
+
+}
@@ -1,23 +1,41 @@
 package com.stackroute.keepnote.test.service;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.util.CloseableIterator;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.exception.ReminderNotCreatedException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.Recurrence;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderCursor;
 import com.stackroute.keepnote.repository.ReminderRepository;
+import com.stackroute.keepnote.service.ReminderEventPublisher;
+import com.stackroute.keepnote.service.ReminderHistoryService;
+import com.stackroute.keepnote.service.ReminderScheduler;
 import com.stackroute.keepnote.service.ReminderServiceImpl;
+import com.stackroute.keepnote.service.ReminderTrashService;
 
 import junit.framework.Assert;
 
@@ -26,6 +44,18 @@ public class ReminderServiceImplTest {
     @Mock
     ReminderRepository reminderRepository;
 
+    @Mock
+    ReminderTrashService reminderTrashService;
+
+    @Mock
+    ReminderEventPublisher reminderEventPublisher;
+
+    @Mock
+    ReminderScheduler reminderScheduler;
+
+    @Mock
+    ReminderHistoryService reminderHistoryService;
+
     Reminder reminder;
 
     @InjectMocks
@@ -50,6 +80,8 @@ public class ReminderServiceImplTest {
         reminderList.add(reminder);
 
         options = Optional.of(reminder);
+        when(reminderRepository.updateIfNextFireAt(any(), any())).thenReturn(true);
+        when(reminderRepository.moveNextFireAt(any(), any(), any())).thenReturn(true);
 
     }
 
@@ -77,6 +109,8 @@ public class ReminderServiceImplTest {
         when(reminderRepository.findById(reminder.getReminderId())).thenReturn(options);
         boolean flag = reminderService.deleteReminder(reminder.getReminderId());
         Assert.assertEquals(true, flag);
+        verify(reminderTrashService).moveToTrash(reminder);
+        verify(reminderEventPublisher).publishDeleted(reminder);
 
     }
 
@@ -102,25 +136,214 @@ public class ReminderServiceImplTest {
 
 
     @Test
-    public void getAllReminders()
+    public void exportAllReminderByUserIdWritesOneLinePerReminder() throws Exception {
+
+        when(reminderRepository.streamAllReminderByReminderCreatedBy(reminder.getReminderCreatedBy()))
+                .thenReturn(Stream.of(reminder));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reminderService.exportAllReminderByUserId(reminder.getReminderCreatedBy(), outputStream);
+        String export = outputStream.toString("UTF-8");
+        Assert.assertTrue(export.endsWith("\n"));
+        Assert.assertTrue(export.contains(reminder.getReminderId()));
+        Assert.assertEquals(1, export.split("\n").length);
+    }
+
+    @Test
+    public void writeReminderPageStopsAtLimitWithCursor() throws Exception {
+
+        List<Reminder> reminders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Reminder page = new Reminder();
+            page.setReminderId("r" + i);
+            page.setReminderName("Email " + i);
+            page.setNextFireAt(new Date(1527000000000L + i));
+            reminders.add(page);
+        }
+        when(reminderRepository.streamPage("John123", new Date(0), null, null, 3, Collections.singleton("reminderName")))
+                .thenReturn(iterator(reminders));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reminderService.writeReminderPage("John123", new Date(0), null, null, 2, Collections.singleton("reminderName"),
+                outputStream);
+
+        JsonNode page = new ObjectMapper().readTree(outputStream.toByteArray());
+        Assert.assertEquals(2, page.get("reminders").size());
+        Assert.assertEquals("Email 1", page.get("reminders").get(1).get("reminderName").asText());
+        Assert.assertNull(page.get("reminders").get(1).get("reminderId"));
+        ReminderCursor next = ReminderCursor.decode(page.get("next").asText());
+        Assert.assertEquals("r1", next.getReminderId());
+        Assert.assertEquals(new Date(1527000000001L), next.getNextFireAt());
+    }
+
+    @Test
+    public void writeReminderPageLastPage() throws Exception {
+
+        when(reminderRepository.streamPage("John123", null, null, null, 51, null))
+                .thenReturn(iterator(reminderList));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reminderService.writeReminderPage("John123", null, null, null, 50, null, outputStream);
+
+        JsonNode page = new ObjectMapper().readTree(outputStream.toByteArray());
+        Assert.assertEquals(reminder.getReminderId(), page.get("reminders").get(0).get("reminderId").asText());
+        Assert.assertTrue(page.get("next").isNull());
+    }
+
+    @Test
+    public void createReminderSchedulesIt() throws ReminderNotCreatedException
     {
-        when(reminderRepository.findAll()).thenReturn(reminderList);
-        List<Reminder> reminderListdata = reminderService.getAllReminders();
-        Assert.assertEquals(reminderList, reminderListdata);
+        reminder.setDueAt(new Date(System.currentTimeMillis() + 60000));
+        when(reminderRepository.insert((Reminder) any())).thenReturn(reminder);
+        reminderService.createReminder(reminder);
+        verify(reminderScheduler).schedule(reminder);
+    }
 
+    @Test(expected = ReminderNotCreatedException.class)
+    public void createReminderWithUnknownRecurrence() throws ReminderNotCreatedException
+    {
+        reminder.setRecurrence("FORTNIGHTLY");
+        reminderService.createReminder(reminder);
     }
 
+    @Test
+    public void updateReminderReschedulesIt() throws ReminderNotFoundException
+    {
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(options);
+        reminder.setRecurrence(Recurrence.DAILY);
+        reminderService.updateReminder(reminder, reminder.getReminderId());
+        verify(reminderScheduler).schedule(reminder);
+    }
 
+    @Test
+    public void deleteReminderCancelsIt() throws ReminderNotFoundException
+    {
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(options);
+        reminderService.deleteReminder(reminder.getReminderId());
+        verify(reminderScheduler).cancel(reminder.getReminderId());
+    }
 
 
+    @Test
+    public void createReminderPrecomputesNextFireAt() throws ReminderNotCreatedException
+    {
+        reminder.setDueAt(new Date(System.currentTimeMillis() - 36 * 3600000L));
+        reminder.setRecurrence(Recurrence.DAILY);
+        when(reminderRepository.insert((Reminder) any())).thenReturn(reminder);
+        reminderService.createReminder(reminder);
+        Assert.assertEquals(new Date(reminder.getDueAt().getTime() + 2 * 86400000L), reminder.getNextFireAt());
+        verify(reminderEventPublisher).publishUpserted(reminder);
+    }
 
+    @Test
+    public void updateReminderKeepsSnoozedOccurrence() throws ReminderNotFoundException
+    {
+        Date dueAt = new Date(System.currentTimeMillis() + 60000);
+        Date snoozedUntil = new Date(dueAt.getTime() + 600000);
+        Reminder stored = new Reminder();
+        stored.setReminderId(reminder.getReminderId());
+        stored.setDueAt(dueAt);
+        stored.setNextFireAt(snoozedUntil);
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(Optional.of(stored));
+        reminder.setDueAt(dueAt);
+        reminderService.updateReminder(reminder, reminder.getReminderId());
+        Assert.assertEquals(snoozedUntil, reminder.getNextFireAt());
+
+        Date moved = new Date(dueAt.getTime() + 3600000);
+        reminder.setDueAt(moved);
+        reminderService.updateReminder(reminder, reminder.getReminderId());
+        Assert.assertEquals(moved, reminder.getNextFireAt());
+    }
 
+    @Test
+    public void snoozeRemindersNotifiesTheInstances()
+    {
+        when(reminderRepository.snooze(eq("John123"), eq(Collections.singletonList("a")), any())).thenReturn(1L);
+        long before = System.currentTimeMillis();
+        Assert.assertEquals(1L, reminderService.snoozeReminders("John123", Collections.singletonList("a"), 15));
+        verify(reminderEventPublisher).publishSnoozed(eq("John123"),
+                argThat(until -> until.getTime() >= before + 15 * 60000L));
+        verify(reminderHistoryService).recordSnoozed(eq("John123"), any(), eq(1L));
+    }
 
+    @Test
+    public void snoozeRemindersWithNothingDue()
+    {
+        when(reminderRepository.snooze(eq("John123"), any(), any())).thenReturn(0L);
+        Assert.assertEquals(0L, reminderService.snoozeReminders("John123", null, 15));
+        verify(reminderEventPublisher, never()).publishSnoozed(any(), any());
+    }
 
+    @Test
+    public void dismissReminderSkipsToTheNextRegularOccurrence() throws ReminderNotFoundException
+    {
+        long now = System.currentTimeMillis();
+        reminder.setDueAt(new Date(now - 3600000L));
+        reminder.setRecurrence(Recurrence.DAILY);
+        reminder.setNextFireAt(new Date(now + 600000L));
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(options);
 
+        reminderService.dismissReminder(reminder.getReminderId(), "John123");
 
+        Assert.assertEquals(new Date(reminder.getDueAt().getTime() + 86400000L), reminder.getNextFireAt());
+        verify(reminderRepository).moveNextFireAt(reminder.getReminderId(), new Date(now + 600000L),
+                reminder.getNextFireAt());
+        verify(reminderScheduler).schedule(reminder);
+        verify(reminderHistoryService).recordDismissed(eq("John123"), any());
+    }
 
+    @Test
+    public void updateReminderRereadsAfterAConcurrentFiring() throws ReminderNotFoundException
+    {
+        Date dueAt = new Date(System.currentTimeMillis() + 60000);
+        Date firedNext = new Date(dueAt.getTime() + 86400000L);
+        Reminder stored = new Reminder();
+        stored.setReminderId(reminder.getReminderId());
+        stored.setDueAt(dueAt);
+        stored.setNextFireAt(dueAt);
+        Reminder fired = new Reminder();
+        fired.setReminderId(reminder.getReminderId());
+        fired.setDueAt(dueAt);
+        fired.setNextFireAt(firedNext);
+        fired.setLastFiredAt(dueAt);
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(Optional.of(stored), Optional.of(fired));
+        when(reminderRepository.updateIfNextFireAt(any(), eq(dueAt))).thenReturn(false);
+        when(reminderRepository.updateIfNextFireAt(any(), eq(firedNext))).thenReturn(true);
+
+        reminder.setDueAt(dueAt);
+        Assert.assertEquals(reminder, reminderService.updateReminder(reminder, reminder.getReminderId()));
+        Assert.assertEquals(firedNext, reminder.getNextFireAt());
+        Assert.assertEquals(dueAt, reminder.getLastFiredAt());
+        verify(reminderRepository, never()).save(any());
+    }
 
+    @Test
+    public void dismissReminderThatKeepsChanging() throws ReminderNotFoundException
+    {
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(options);
+        when(reminderRepository.moveNextFireAt(any(), any(), any())).thenReturn(false);
+        Assert.assertNull(reminderService.dismissReminder(reminder.getReminderId(), "John123"));
+        verify(reminderScheduler, never()).schedule(any());
+    }
 
+    @Test(expected = ReminderNotFoundException.class)
+    public void dismissReminderOfAnotherUser() throws ReminderNotFoundException
+    {
+        when(reminderRepository.findById(reminder.getReminderId())).thenReturn(options);
+        reminderService.dismissReminder(reminder.getReminderId(), "Jhon456");
+    }
+
+    private static CloseableIterator<Reminder> iterator(List<Reminder> reminders) {
+        Iterator<Reminder> iterator = reminders.iterator();
+        return new CloseableIterator<Reminder>() {
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public Reminder next() {
+                return iterator.next();
+            }
+
+            public void close() {
+            }
+        };
+    }
 
-}
\ No newline at end of file
+}
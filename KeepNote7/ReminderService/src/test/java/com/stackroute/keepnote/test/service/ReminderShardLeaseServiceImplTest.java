@@ -0,0 +1,127 @@
+package com.stackroute.keepnote.test.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.stackroute.keepnote.model.ReminderInstance;
+import com.stackroute.keepnote.model.ReminderShardLease;
+import com.stackroute.keepnote.model.ReminderShardsChangedEvent;
+import com.stackroute.keepnote.service.ReminderShardLeaseServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReminderShardLeaseServiceImplTest {
+
+    private static final int SHARDS = 64;
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    private ReminderShardLeaseServiceImpl leaseService;
+
+    /* an in-memory lease table: shard -> owner token */
+    private Map<Object, Long> leases;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        leases = new HashMap<>();
+        leaseService = leaseService(mongoOperations, 1);
+    }
+
+    private ReminderShardLeaseServiceImpl leaseService(MongoOperations mongo, long instances) {
+        when(mongo.count(any(Query.class), eq(ReminderInstance.class))).thenReturn(instances);
+        when(mongo.updateFirst(any(Query.class), any(Update.class), eq(ReminderShardLease.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(ReminderShardLease.class))).thenAnswer(invocation -> {
+                    Object shard = ((Query) invocation.getArgument(0)).getQueryObject().get("_id");
+                    if (leases.containsKey(shard)) {
+                        return null;
+                    }
+                    ReminderShardLease lease = new ReminderShardLease();
+                    lease.setShard((Integer) shard);
+                    lease.setToken(leases.size() + 1L);
+                    leases.put(shard, lease.getToken());
+                    return lease;
+                });
+        return new ReminderShardLeaseServiceImpl(mongo, applicationEventPublisher, SHARDS, 15000, 5000);
+    }
+
+    @Test
+    public void singleInstanceTakesAllShards() {
+        leaseService.maintainLeases();
+
+        Assert.assertEquals(SHARDS, leaseService.ownedShards().size());
+        ArgumentCaptor<ReminderShardsChangedEvent> event = ArgumentCaptor.forClass(ReminderShardsChangedEvent.class);
+        verify(applicationEventPublisher).publishEvent(event.capture());
+        Assert.assertEquals(SHARDS, event.getValue().getAcquired().size());
+        Assert.assertTrue(leaseService.token(leaseService.ownedShards().iterator().next()) > 0);
+    }
+
+    @Test
+    public void instancesSplitTheShards() {
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (int i = 0; i < 4; i++) {
+            ReminderShardLeaseServiceImpl instance = leaseService(mock(MongoOperations.class), 4);
+            instance.maintainLeases();
+            Assert.assertEquals(SHARDS / 4, instance.ownedShards().size());
+            all.addAll(instance.ownedShards());
+            total += instance.ownedShards().size();
+        }
+        /* every shard, and so every reminder, has exactly one owner */
+        Assert.assertEquals(SHARDS, all.size());
+        Assert.assertEquals(SHARDS, total);
+    }
+
+    @Test
+    public void surplusIsReleasedWhenAnInstanceJoins() {
+        leaseService.maintainLeases();
+        when(mongoOperations.count(any(Query.class), eq(ReminderInstance.class))).thenReturn(2L);
+        leaseService.maintainLeases();
+
+        Assert.assertEquals(SHARDS / 2, leaseService.ownedShards().size());
+    }
+
+    @Test
+    public void failedRenewalLosesTheShard() {
+        leaseService.maintainLeases();
+        when(mongoOperations.updateFirst(any(Query.class), any(Update.class), eq(ReminderShardLease.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        leaseService.maintainLeases();
+
+        Assert.assertTrue(leaseService.ownedShards().isEmpty());
+        Assert.assertEquals(-1, leaseService.token(0));
+        ArgumentCaptor<ReminderShardsChangedEvent> event = ArgumentCaptor.forClass(ReminderShardsChangedEvent.class);
+        verify(applicationEventPublisher, times(2)).publishEvent(event.capture());
+        Assert.assertEquals(SHARDS, event.getValue().getLost().size());
+    }
+
+    @Test
+    public void shardOfIsStable() {
+        int shard = leaseService.shardOf("5b0509731764e3096984eae6");
+        Assert.assertEquals(shard, leaseService.shardOf("5b0509731764e3096984eae6"));
+        Assert.assertTrue(shard >= 0 && shard < SHARDS);
+    }
+}
@@ -2,11 +2,15 @@ package com.stackroute.keepnote;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.bus.jackson.RemoteApplicationEventScan;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.stackroute.keepnote.model.TokenRevokedEvent;
+
 import brave.sampler.Sampler;
 
 /*
@@ -19,6 +23,8 @@ import brave.sampler.Sampler;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@EnableScheduling
+@RemoteApplicationEventScan(basePackageClasses = TokenRevokedEvent.class)
 public class UserAuthenticationServiceApplication {
 
 
@@ -1,29 +1,36 @@
 package com.stackroute.keepnote.controller;
 
 
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.servlet.ServletException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.stackroute.keepnote.exception.HashingOverloadedException;
 import com.stackroute.keepnote.exception.UserAlreadyExistsException;
+import com.stackroute.keepnote.exception.InvalidRefreshTokenException;
+import com.stackroute.keepnote.model.TokenGrant;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.service.RefreshTokenService;
+import com.stackroute.keepnote.service.RefreshTokenServiceImpl;
+import com.stackroute.keepnote.service.TokenRevocationService;
 import com.stackroute.keepnote.service.UserAuthenticationService;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
@@ -41,7 +48,6 @@ import io.swagger.annotations.ApiOperation;
 @RequestMapping
 public class UserAuthenticationController {
 	
-	static final long EXPIRATION_TIME= 3000000;
 	Map<String, String> map = new HashMap<>();
 	Map<String, Boolean> map1 = new HashMap<>();
 
@@ -53,10 +59,19 @@ public class UserAuthenticationController {
 	
 	@Autowired
 	private UserAuthenticationService authenticationService;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
 	
 
-    public UserAuthenticationController(UserAuthenticationService authicationService) {
+    public UserAuthenticationController(UserAuthenticationService authicationService,
+    		TokenRevocationService tokenRevocationService, RefreshTokenService refreshTokenService) {
     	this.authenticationService=authicationService;
+    	this.tokenRevocationService=tokenRevocationService;
+    	this.refreshTokenService=refreshTokenService;
 	}
 
    /*
@@ -66,6 +81,8 @@ public class UserAuthenticationController {
 	 * basis on different situations:
 	 * 1. 201(CREATED) - If the user created successfully. 
 	 * 2. 409(CONFLICT) - If the userId conflicts with any existing user
+	 * 3. 503(SERVICE UNAVAILABLE) - If too many passwords are waiting to be hashed, the
+	 *    Retry-After header tells the client when to try again
 	 * 
 	 * This handler method should map to the URL "/api/v1/auth/register" using HTTP POST method
 	 */
@@ -79,6 +96,9 @@ public class UserAuthenticationController {
 			return new ResponseEntity<>(flag, HttpStatus.CREATED);
 		} catch (UserAlreadyExistsException e) {
 			return new ResponseEntity<>( false, HttpStatus.CONFLICT);
+		} catch (HashingOverloadedException e) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds())).body(false);
 		}
     	
     	
@@ -99,6 +119,9 @@ public class UserAuthenticationController {
 									  .setSigningKey("secretkey")
 									  .parseClaimsJws(token)
 									  .getBody();
+			if (tokenRevocationService.isRevoked(claims.getId())) {
+				throw new ServletException("Token has been revoked");
+			}
 			map1.clear();
     		map1.put("isAuthenticated", true);
     		return new ResponseEntity<> (map1, HttpStatus.OK);
@@ -115,11 +138,14 @@ public class UserAuthenticationController {
 	 * object from request body containing the username and password. The username and password should be validated 
 	 * before proceeding ahead with JWT token generation. The user credentials will be validated against the database entries. 
 	 * The error should be return if validation is not successful. If credentials are validated successfully, then JWT
-	 * token will be generated. The token should be returned back to the caller along with the API response.
+	 * token will be generated. The token should be returned back to the caller along with the API response,
+	 * together with a refresh token for getting new tokens at "/api/v1/auth/refresh" without logging in again.
 	 * This handler method should return any one of the status messages basis on different
 	 * situations:
 	 * 1. 200(OK) - If login is successful
 	 * 2. 401(UNAUTHORIZED) - If login is not successful
+	 * 3. 503(SERVICE UNAVAILABLE) - If too many passwords are waiting to be checked, the
+	 *    Retry-After header tells the client when to try again
 	 * 
 	 * This handler method should map to the URL "/api/v1/auth/login" using HTTP POST method
 	*/
@@ -128,59 +154,137 @@ public class UserAuthenticationController {
     @PostMapping("/api/v1/auth/login")
     public ResponseEntity<?> login(@RequestBody User user) {
     	
-    	String jwtToken = "";
-    	System.out.println("User Data :: " + user);
+    	Map<String, String> result = new HashMap<>();
     	try {
 			
-    		jwtToken = getToken(user.getUserId(), user.getUserPassword());
-    		map.clear();
-    		map.put("message", "user successfully logged in!");
-    		map.put("token", jwtToken);
+    		TokenGrant grant = getToken(user.getUserId(), user.getUserPassword());
+    		result.put("message", "user successfully logged in!");
+    		result.put("token", grant.getAccessToken());
+    		result.put("refreshToken", grant.getRefreshToken());
+		} catch (HashingOverloadedException e) {
+    		result.put("message", e.getMessage());
+    		result.put("token", null);
+    		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+    				.header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds())).body(result);
 		} catch (Exception e) {
-			e.printStackTrace();
-			map.clear();
-    		map.put("message", e.getMessage());
-    		map.put("token", null);
-    		return new ResponseEntity<> (map, HttpStatus.UNAUTHORIZED);
+    		result.put("message", e.getMessage());
+    		result.put("token", null);
+    		return new ResponseEntity<> (result, HttpStatus.UNAUTHORIZED);
 		}
     	
-    	return new ResponseEntity<> (map, HttpStatus.OK);
+    	return new ResponseEntity<> (result, HttpStatus.OK);
     	
     }
 
+	/*
+	 * Define a handler method which will read the refresh token from the request body
+	 * ({"refreshToken": "..."}) and return a new access token and a new refresh token,
+	 * the presented one can not be used again. Credentials are not checked again. This
+	 * handler method should return any one of the status messages basis on different
+	 * situations:
+	 * 1. 200(OK) - If the refresh token was valid
+	 * 2. 401(UNAUTHORIZED) - If it is invalid, expired or was already used, using a
+	 *    refresh token twice also ends the session it belongs to
+	 *
+	 * This handler method should map to the URL "/api/v1/auth/refresh" using HTTP POST method
+	 */
+    @ApiOperation(value="Token Refresh")
+    @PostMapping("/api/v1/auth/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> body) {
+
+    	Map<String, String> result = new HashMap<>();
+    	String refreshToken = body.get("refreshToken");
+    	if (refreshToken == null) {
+    		result.put("message", "Missing refresh token");
+    		return new ResponseEntity<>(result, HttpStatus.UNAUTHORIZED);
+    	}
+    	try {
+    		TokenGrant grant = refreshTokenService.refresh(refreshToken);
+    		result.put("message", "token successfully refreshed!");
+    		result.put("token", grant.getAccessToken());
+    		result.put("refreshToken", grant.getRefreshToken());
+    	} catch (InvalidRefreshTokenException e) {
+    		result.put("message", e.getMessage());
+    		return new ResponseEntity<>(result, HttpStatus.UNAUTHORIZED);
+    	}
+    	return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+	/*
+	 * Define a handler method which will revoke the caller's token until it expires.
+	 * The token id is stored and sent to every service over the bus, the session the
+	 * token belongs to is ended so its refresh token stops working too. This handler
+	 * method should return any one of the status messages basis on different situations:
+	 * 1. 200(OK) - If the token was revoked
+	 * 2. 400(BAD REQUEST) - If the token has no id, tokens issued before revocation
+	 *    support only expire
+	 * 3. 401(UNAUTHORIZED) - If the token is missing, invalid or already expired
+	 *
+	 * This handler method should map to the URL "/api/v1/auth/logout" using HTTP POST method
+	 */
+    @ApiOperation(value="User Logout")
+    @PostMapping("/api/v1/auth/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value="authorization", required=false) String authorization) {
+
+    	Map<String, String> result = new HashMap<>();
+    	if (authorization == null || !authorization.startsWith("Bearer ")) {
+    		result.put("message", "Missing or invalid Authorization header");
+    		return new ResponseEntity<>(result, HttpStatus.UNAUTHORIZED);
+    	}
+    	Claims claims;
+    	try {
+    		claims = Jwts.parser()
+    				.setSigningKey("secretkey")
+    				.parseClaimsJws(authorization.substring(7))
+    				.getBody();
+    	} catch (JwtException | IllegalArgumentException e) {
+    		result.put("message", e.getMessage());
+    		return new ResponseEntity<>(result, HttpStatus.UNAUTHORIZED);
+    	}
+    	if (claims.getId() == null || claims.getExpiration() == null) {
+    		result.put("message", "Token cannot be revoked");
+    		return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+    	}
+    	tokenRevocationService.revoke(claims.getId(), claims.getSubject(), claims.getExpiration());
+    	String familyId = claims.get(RefreshTokenServiceImpl.FAMILY_CLAIM, String.class);
+    	if (familyId != null) {
+    		refreshTokenService.revokeFamily(familyId);
+    	}
+    	result.put("message", "user successfully logged out!");
+    	return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+	/*
+	 * Define a handler method which will return the ids of all revoked tokens that
+	 * have not expired yet, with their expiry in epoch millis. The services load the
+	 * list on start and resync from it, new revocations reach them over the bus.
+	 *
+	 * This handler method should map to the URL "/api/v1/auth/revocations" using HTTP GET method
+	 */
+    @ApiOperation(value="Revoked Tokens")
+    @GetMapping("/api/v1/auth/revocations")
+    public ResponseEntity<?> getRevokedTokens() {
+    	return new ResponseEntity<>(tokenRevocationService.getRevokedTokens(), HttpStatus.OK);
+    }
+
 
 
 
 
-// Generate JWT token
-	public String getToken(String username, String password) throws Exception {
+// Check the credentials and start a session
+	public TokenGrant getToken(String username, String password) throws Exception {
 		
-		String jwtToken = null;
 		if(username== null && password==null) {
 			throw new ServletException("Please enter username and password!");
 		}
 		
-		try {
-			User user = authenticationService.findByUserIdAndPassword(username, password);
-			
-			if(user== null) {			
-				throw new ServletException("Invalid Credentials!");
-			}
-			
-			jwtToken = Jwts.builder()
-					.setSubject(username)
-					.setIssuedAt(new Date()) 
-					.setExpiration(new Date(System.currentTimeMillis()+EXPIRATION_TIME))
-					.signWith(SignatureAlgorithm.HS256, "secretkey")
-					.compact();
-			
-		} catch (Exception e) {
-			e.printStackTrace();
+		User user = authenticationService.findByUserIdAndPassword(username, password);
+		
+		if(user== null) {			
+			throw new ServletException("Invalid Credentials!");
 		}
 		
-		System.out.println("jwtToken :: " +jwtToken);	
-			
-        return jwtToken;
+        return refreshTokenService.issue(username);
         
         
 }
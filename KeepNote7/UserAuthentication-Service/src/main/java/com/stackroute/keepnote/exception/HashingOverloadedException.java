@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.exception;
+
+public class HashingOverloadedException extends Exception {
+
+    private final long retryAfterSeconds;
+
+    public HashingOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
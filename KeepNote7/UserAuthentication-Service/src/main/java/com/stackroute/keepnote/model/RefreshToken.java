@@ -0,0 +1,99 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+
+/*
+ * One login session. Every refresh rotates the session to a new refresh token, only
+ * the SHA-256 of the current token's id is kept, so a token can be used once. The
+ * session ends at expiresAt however often it was refreshed.
+ */
+
+@Entity
+@Table(indexes = { @Index(name = "refresh_token_user_idx", columnList = "userId"),
+		@Index(name = "refresh_token_expires_idx", columnList = "expiresAt") })
+public class RefreshToken {
+
+	@Id
+	@GeneratedValue(generator = "uuid2")
+	@GenericGenerator(name = "uuid2", strategy = "uuid2")
+	private String familyId;
+	private String userId;
+	private String tokenHash;
+	private Date createdAt;
+	private Date rotatedAt;
+	private Date expiresAt;
+
+	public RefreshToken() {
+	}
+
+	public RefreshToken(String userId, String tokenHash, Date createdAt, Date expiresAt) {
+		this.userId = userId;
+		this.tokenHash = tokenHash;
+		this.createdAt = createdAt;
+		this.rotatedAt = createdAt;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getFamilyId() {
+		return familyId;
+	}
+
+	public void setFamilyId(String familyId) {
+		this.familyId = familyId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getTokenHash() {
+		return tokenHash;
+	}
+
+	public void setTokenHash(String tokenHash) {
+		this.tokenHash = tokenHash;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Date getRotatedAt() {
+		return rotatedAt;
+	}
+
+	public void setRotatedAt(Date rotatedAt) {
+		this.rotatedAt = rotatedAt;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	@Override
+	public String toString() {
+		return "RefreshToken [familyId=" + familyId + ", userId=" + userId + ", createdAt=" + createdAt + ", rotatedAt="
+				+ rotatedAt + ", expiresAt=" + expiresAt + "]";
+	}
+
+}
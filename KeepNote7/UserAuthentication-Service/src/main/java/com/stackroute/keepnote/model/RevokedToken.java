@@ -0,0 +1,73 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*
+ * A token that was revoked before it expired, identified by its jti claim. The row
+ * is only needed until the token would have expired anyway, expired rows are purged.
+ */
+
+@Entity
+@Table(indexes = @Index(name = "revoked_token_expires_idx", columnList = "expiresAt"))
+public class RevokedToken {
+
+	@Id
+	private String tokenId;
+	private String userId;
+	private Date expiresAt;
+	private Date revokedAt;
+
+	public RevokedToken() {
+	}
+
+	public RevokedToken(String tokenId, String userId, Date expiresAt, Date revokedAt) {
+		this.tokenId = tokenId;
+		this.userId = userId;
+		this.expiresAt = expiresAt;
+		this.revokedAt = revokedAt;
+	}
+
+	public String getTokenId() {
+		return tokenId;
+	}
+
+	public void setTokenId(String tokenId) {
+		this.tokenId = tokenId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public Date getExpiresAt() {
+		return expiresAt;
+	}
+
+	public void setExpiresAt(Date expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	public Date getRevokedAt() {
+		return revokedAt;
+	}
+
+	public void setRevokedAt(Date revokedAt) {
+		this.revokedAt = revokedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "RevokedToken [tokenId=" + tokenId + ", userId=" + userId + ", expiresAt=" + expiresAt + ", revokedAt="
+				+ revokedAt + "]";
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The tokens handed out on login and on every refresh: an access token for the
+ * services and the refresh token that replaces the one just used.
+ */
+public class TokenGrant {
+
+	private final String accessToken;
+	private final String refreshToken;
+	private final String familyId;
+
+	public TokenGrant(String accessToken, String refreshToken, String familyId) {
+		this.accessToken = accessToken;
+		this.refreshToken = refreshToken;
+		this.familyId = familyId;
+	}
+
+	public String getAccessToken() {
+		return accessToken;
+	}
+
+	public String getRefreshToken() {
+		return refreshToken;
+	}
+
+	public String getFamilyId() {
+		return familyId;
+	}
+
+}
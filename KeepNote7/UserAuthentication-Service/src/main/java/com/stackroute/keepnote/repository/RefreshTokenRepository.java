@@ -0,0 +1,38 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Date;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.model.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+	/*
+	 * Checks and rotates in one statement: only matches while the presented token is
+	 * still the family's current one and the family has not expired. Returns the
+	 * number of rows changed, 0 or 1.
+	 */
+	@Modifying
+	@Transactional
+	@Query("update RefreshToken t set t.tokenHash = :next, t.rotatedAt = :now "
+			+ "where t.familyId = :familyId and t.tokenHash = :current and t.expiresAt > :now")
+	int rotate(@Param("familyId") String familyId, @Param("current") String current, @Param("next") String next,
+			@Param("now") Date now);
+
+	@Modifying
+	@Transactional
+	@Query("delete from RefreshToken t where t.familyId = :familyId")
+	int revokeFamily(@Param("familyId") String familyId);
+
+	@Modifying
+	@Transactional
+	@Query("delete from RefreshToken t where t.expiresAt < :now")
+	int deleteExpired(@Param("now") Date now);
+}
@@ -0,0 +1,21 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.model.RevokedToken;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+	List<RevokedToken> findByExpiresAtAfter(Date now);
+
+	@Modifying
+	@Transactional
+	long deleteByExpiresAtBefore(Date now);
+}
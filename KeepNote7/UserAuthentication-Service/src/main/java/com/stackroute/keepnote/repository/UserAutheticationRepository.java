@@ -18,12 +18,7 @@ public interface UserAutheticationRepository extends JpaRepository<User, String>
 /*
 	* Apart from the standard CRUD methods already available in JPA Repository, based
 	* on our requirements, we might need to create few query methods for getting 
-	* specific data from the database. 
+	* specific data from the database. Passwords are stored hashed, so users are
+	* looked up by id and the password is checked by the PasswordHasher.
 	* */
-	
-	/*
-	* This method will validate a user from database by username and password. 
-    */
-    
-    User findByUserIdAndUserPassword(String userId, String userPassword);
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.stackroute.keepnote.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.exception.HashingOverloadedException;
+
+/*
+ * BCrypt hashing and checking of passwords on a pool of its own, so a login storm
+ * only queues up behind the hashing threads and never holds the Tomcat threads that
+ * serve register, refresh and isAuthenticated for more than one wait.
+ *
+ * The pool has keepnote.auth.hashing.threads threads (0: one per core) and queues at
+ * most keepnote.auth.hashing.queue-capacity requests. Once the queue is full, or a
+ * request has waited keepnote.auth.hashing.timeout-ms without being hashed, the
+ * caller gets a HashingOverloadedException telling the client to come back after
+ * keepnote.auth.hashing.retry-after-seconds. Every hash costs 2^bcrypt-cost rounds,
+ * hashes made with another cost still verify and needsRehash() reports them.
+ * matchesNone() does the work of a check against a hash of the configured cost made
+ * once at startup, so rejecting an unknown user takes as long as a wrong password.
+ */
+@Component
+public class PasswordHasher {
+
+	private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+	private final BCryptPasswordEncoder encoder;
+	private final String dummyHash;
+	private final int cost;
+	private final long timeoutMillis;
+	private final long retryAfterSeconds;
+	private final ThreadPoolExecutor executor;
+
+	public PasswordHasher(@Value("${keepnote.auth.hashing.bcrypt-cost:10}") int cost,
+			@Value("${keepnote.auth.hashing.threads:0}") int threads,
+			@Value("${keepnote.auth.hashing.queue-capacity:32}") int queueCapacity,
+			@Value("${keepnote.auth.hashing.timeout-ms:2000}") long timeoutMillis,
+			@Value("${keepnote.auth.hashing.retry-after-seconds:1}") long retryAfterSeconds) {
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity)
+				: new SynchronousQueue<>();
+		this.encoder = new BCryptPasswordEncoder(cost);
+		this.dummyHash = encoder.encode("");
+		this.cost = cost;
+		this.timeoutMillis = timeoutMillis;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, queue,
+				new CustomizableThreadFactory("password-hashing-"));
+	}
+
+	public String hash(String password) throws HashingOverloadedException {
+		return run(() -> encoder.encode(password));
+	}
+
+	public boolean matches(String password, String hash) throws HashingOverloadedException {
+		return isHash(hash) && run(() -> encoder.matches(password, hash));
+	}
+
+	/* always false, after as much work as matches() */
+	public boolean matchesNone(String password) throws HashingOverloadedException {
+		run(() -> encoder.matches(password == null ? "" : password, dummyHash));
+		return false;
+	}
+
+	public boolean isHash(String value) {
+		return value != null && BCRYPT_PATTERN.matcher(value).matches();
+	}
+
+	/* true for plain text passwords and for hashes made with another cost */
+	public boolean needsRehash(String hash) {
+		return !isHash(hash) || Integer.parseInt(hash.substring(hash.indexOf('$', 1) + 1, hash.lastIndexOf('$'))) != cost;
+	}
+
+	public int getQueuedRequests() {
+		return executor.getQueue().size();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private <T> T run(Callable<T> task) throws HashingOverloadedException {
+
+		Future<T> result;
+		try {
+			result = executor.submit(task);
+		} catch (RejectedExecutionException e) {
+			throw new HashingOverloadedException("Too many logins, try again later", retryAfterSeconds);
+		}
+		try {
+			return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			throw new HashingOverloadedException("Too many logins, try again later", retryAfterSeconds);
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new HashingOverloadedException("Interrupted while hashing", retryAfterSeconds);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.exception.InvalidRefreshTokenException;
+import com.stackroute.keepnote.model.TokenGrant;
+
+public interface RefreshTokenService {
+
+	/*
+	 * Starts a session for a user whose credentials were checked, returns its first
+	 * access and refresh token.
+	 */
+	TokenGrant issue(String userId);
+
+	/*
+	 * Mints a new access token without checking credentials again and rotates the
+	 * refresh token. Presenting a refresh token that was already rotated ends the
+	 * whole session, it was either stolen or replayed.
+	 */
+	TokenGrant refresh(String refreshToken) throws InvalidRefreshTokenException;
+
+	void revokeFamily(String familyId);
+
+	void purgeExpired();
+}
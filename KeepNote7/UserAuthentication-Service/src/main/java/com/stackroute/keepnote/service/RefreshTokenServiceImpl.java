@@ -0,0 +1,154 @@
+package com.stackroute.keepnote.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.exception.InvalidRefreshTokenException;
+import com.stackroute.keepnote.model.RefreshToken;
+import com.stackroute.keepnote.model.TokenGrant;
+import com.stackroute.keepnote.repository.RefreshTokenRepository;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+/*
+ * Access tokens live keepnote.auth.access-token-ttl-ms and are signed with the key
+ * the services verify. Refresh tokens are JWTs signed with
+ * keepnote.auth.refresh-secret instead, so a service never accepts one, and carry
+ * the user, the session (family) id and a random token id. A session lasts
+ * keepnote.auth.refresh-token-ttl-ms from login.
+ *
+ * A refresh is a single update of the session row by primary key that only
+ * matches the current token id, it never reads the user table. If it matches
+ * nothing the token was already rotated (or the session ended) and the session is
+ * deleted, so a stolen refresh token dies with the first use of either copy.
+ * Access tokens carry the session id in the "fam" claim so logout can end it.
+ */
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+	public static final String FAMILY_CLAIM = "fam";
+
+	private static Logger log = LoggerFactory.getLogger(RefreshTokenServiceImpl.class);
+
+	@Autowired
+	private RefreshTokenRepository refreshTokenRepository;
+
+	private final SecureRandom random = new SecureRandom();
+	private final byte[] refreshKey;
+	private final JwtParser refreshParser;
+	private final long accessTokenTtlMillis;
+	private final long refreshTokenTtlMillis;
+
+	public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+			@Value("${keepnote.auth.refresh-secret}") String refreshSecret,
+			@Value("${keepnote.auth.access-token-ttl-ms:3000000}") long accessTokenTtlMillis,
+			@Value("${keepnote.auth.refresh-token-ttl-ms:1209600000}") long refreshTokenTtlMillis) {
+		if (refreshSecret.isEmpty()) {
+			throw new IllegalArgumentException("keepnote.auth.refresh-secret must be set");
+		}
+		this.refreshTokenRepository = refreshTokenRepository;
+		this.refreshKey = refreshSecret.getBytes(StandardCharsets.UTF_8);
+		this.refreshParser = Jwts.parser().setSigningKey(refreshKey);
+		this.accessTokenTtlMillis = accessTokenTtlMillis;
+		this.refreshTokenTtlMillis = refreshTokenTtlMillis;
+	}
+
+	public TokenGrant issue(String userId) {
+
+		Date now = new Date();
+		String tokenId = newTokenId();
+		RefreshToken family = refreshTokenRepository.save(
+				new RefreshToken(userId, hash(tokenId), now, new Date(now.getTime() + refreshTokenTtlMillis)));
+		return grant(userId, family.getFamilyId(), tokenId, family.getExpiresAt(), now);
+	}
+
+	public TokenGrant refresh(String refreshToken) throws InvalidRefreshTokenException {
+
+		Claims claims;
+		try {
+			claims = refreshParser.parseClaimsJws(refreshToken).getBody();
+		} catch (JwtException | IllegalArgumentException e) {
+			throw new InvalidRefreshTokenException("Invalid refresh token");
+		}
+		String familyId = claims.get(FAMILY_CLAIM, String.class);
+		if (familyId == null || claims.getId() == null || claims.getSubject() == null) {
+			throw new InvalidRefreshTokenException("Invalid refresh token");
+		}
+
+		Date now = new Date();
+		String tokenId = newTokenId();
+		if (refreshTokenRepository.rotate(familyId, hash(claims.getId()), hash(tokenId), now) == 0) {
+			refreshTokenRepository.revokeFamily(familyId);
+			log.warn("Refresh token of session " + familyId + " (user " + claims.getSubject()
+					+ ") presented after rotation, session ended");
+			throw new InvalidRefreshTokenException("Refresh token has already been used");
+		}
+		return grant(claims.getSubject(), familyId, tokenId, claims.getExpiration(), now);
+	}
+
+	public void revokeFamily(String familyId) {
+		refreshTokenRepository.revokeFamily(familyId);
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.auth.purge-interval-ms:3600000}")
+	public void purgeExpired() {
+
+		int purged = refreshTokenRepository.deleteExpired(new Date());
+		if (purged > 0) {
+			log.info("Purged " + purged + " expired refresh token sessions");
+		}
+	}
+
+	private TokenGrant grant(String userId, String familyId, String tokenId, Date sessionExpiresAt, Date now) {
+
+		String accessToken = Jwts.builder()
+				.setId(UUID.randomUUID().toString())
+				.setSubject(userId)
+				.claim(FAMILY_CLAIM, familyId)
+				.setIssuedAt(now)
+				.setExpiration(new Date(Math.min(now.getTime() + accessTokenTtlMillis, sessionExpiresAt.getTime())))
+				.signWith(SignatureAlgorithm.HS256, "secretkey")
+				.compact();
+		String refreshToken = Jwts.builder()
+				.setId(tokenId)
+				.setSubject(userId)
+				.claim(FAMILY_CLAIM, familyId)
+				.setIssuedAt(now)
+				.setExpiration(sessionExpiresAt)
+				.signWith(SignatureAlgorithm.HS256, refreshKey)
+				.compact();
+		return new TokenGrant(accessToken, refreshToken, familyId);
+	}
+
+	private String newTokenId() {
+		byte[] bytes = new byte[32];
+		random.nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	private String hash(String tokenId) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(tokenId.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
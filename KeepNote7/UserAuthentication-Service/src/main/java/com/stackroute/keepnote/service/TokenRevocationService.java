@@ -0,0 +1,23 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.Map;
+
+public interface TokenRevocationService {
+
+	/*
+	 * Revokes the token until it expires and tells every service over the bus.
+	 * Returns false if the token has already expired, nothing is stored then.
+	 */
+	boolean revoke(String tokenId, String userId, Date expiresAt);
+
+	boolean isRevoked(String tokenId);
+
+	/*
+	 * All tokens that are revoked and not yet expired, token id to expiry in epoch
+	 * millis. The services load it on start and resync from it.
+	 */
+	Map<String, Long> getRevokedTokens();
+
+	void purgeExpired();
+}
@@ -0,0 +1,81 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.model.RevokedToken;
+import com.stackroute.keepnote.model.TokenRevokedEvent;
+import com.stackroute.keepnote.repository.RevokedTokenRepository;
+
+/*
+ * Keeps revoked token ids (the jti claim) in the revoked_token table until the
+ * token expires and publishes every revocation as a TokenRevokedEvent on the
+ * Spring Cloud Bus, so the JwtFilter of every service rejects the token within the
+ * bus delivery delay. Expired rows are purged every
+ * keepnote.revocation.purge-interval-ms.
+ */
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+
+	private static Logger log = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+
+	@Autowired
+	private RevokedTokenRepository revokedTokenRepository;
+
+	@Autowired
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Autowired
+	private ServiceMatcher serviceMatcher;
+
+	public TokenRevocationServiceImpl(RevokedTokenRepository revokedTokenRepository,
+			ApplicationEventPublisher applicationEventPublisher, ServiceMatcher serviceMatcher) {
+		this.revokedTokenRepository = revokedTokenRepository;
+		this.applicationEventPublisher = applicationEventPublisher;
+		this.serviceMatcher = serviceMatcher;
+	}
+
+	public boolean revoke(String tokenId, String userId, Date expiresAt) {
+
+		Date now = new Date();
+		if (!expiresAt.after(now)) {
+			return false;
+		}
+		revokedTokenRepository.save(new RevokedToken(tokenId, userId, expiresAt, now));
+		applicationEventPublisher.publishEvent(
+				new TokenRevokedEvent(this, serviceMatcher.getServiceId(), tokenId, expiresAt.getTime()));
+		return true;
+	}
+
+	public boolean isRevoked(String tokenId) {
+		return tokenId != null && revokedTokenRepository.existsById(tokenId);
+	}
+
+	public Map<String, Long> getRevokedTokens() {
+
+		Map<String, Long> revoked = new HashMap<>();
+		for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(new Date())) {
+			revoked.put(token.getTokenId(), token.getExpiresAt().getTime());
+		}
+		return revoked;
+	}
+
+	@Scheduled(fixedDelayString = "${keepnote.revocation.purge-interval-ms:3600000}")
+	public void purgeExpired() {
+
+		long purged = revokedTokenRepository.deleteByExpiresAtBefore(new Date());
+		if (purged > 0) {
+			log.info("Purged " + purged + " expired token revocations");
+		}
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.stackroute.keepnote.service;
 
+import com.stackroute.keepnote.exception.HashingOverloadedException;
 import com.stackroute.keepnote.exception.UserAlreadyExistsException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
@@ -11,7 +12,8 @@ public interface UserAuthenticationService {
 	 * corresponding Impl classes
 	 */
 
-    public User findByUserIdAndPassword(String userId, String password) throws UserNotFoundException;
+    public User findByUserIdAndPassword(String userId, String password) throws UserNotFoundException,
+    		HashingOverloadedException;
 
-    boolean saveUser(User user) throws UserAlreadyExistsException;
+    boolean saveUser(User user) throws UserAlreadyExistsException, HashingOverloadedException;
 }
@@ -1,11 +1,16 @@
 package com.stackroute.keepnote.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.stackroute.keepnote.exception.HashingOverloadedException;
 import com.stackroute.keepnote.exception.UserAlreadyExistsException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
@@ -19,12 +24,18 @@ import com.stackroute.keepnote.repository.UserAutheticationRepository;
 * to use @Service over @Component in service-layer classes because it specifies intent 
 * better. Additionally, tool support and additional behavior might rely on it in the 
 * future.
+*
+* Passwords are stored as BCrypt hashes and hashed and checked on the PasswordHasher's
+* own pool. Passwords still stored in plain text, or hashed with another cost than
+* keepnote.auth.hashing.bcrypt-cost, are rehashed on the next successful login.
 * */
 
 
 @Service
 public class UserAuthenticationServiceImpl implements UserAuthenticationService {
 
+	private static Logger log = LoggerFactory.getLogger(UserAuthenticationServiceImpl.class);
+
     /*
 	 * Autowiring should be implemented for the UserAuthenticationRepository. (Use
 	 * Constructor-based autowiring) Please note that we should not create any
@@ -33,10 +44,14 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
 
 	@Autowired
 	private UserAutheticationRepository authRepository;
+
+	@Autowired
+	private PasswordHasher passwordHasher;
 	
-     public UserAuthenticationServiceImpl(UserAutheticationRepository authRepository) {
+     public UserAuthenticationServiceImpl(UserAutheticationRepository authRepository, PasswordHasher passwordHasher) {
 
     	 this.authRepository=authRepository;
+    	 this.passwordHasher=passwordHasher;
      }
 
 	/*
@@ -45,18 +60,42 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
 	 * 
 	 */
     @Override
-    public User findByUserIdAndPassword(String userId, String password) throws UserNotFoundException {
+    public User findByUserIdAndPassword(String userId, String password) throws UserNotFoundException,
+    		HashingOverloadedException {
 
       
-    	User user =  authRepository.findByUserIdAndUserPassword(userId, password);
+    	Optional<User> optional = userId == null ? Optional.empty() : authRepository.findById(userId);
     	
-    	if(user!= null) {
-    		return user;
+    	if(optional.isPresent() && password != null) {
+    		User user = optional.get();
+    		String stored = user.getUserPassword();
+    		boolean matches = passwordHasher.isHash(stored) ? passwordHasher.matches(password, stored)
+    				: stored != null && MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+    						password.getBytes(StandardCharsets.UTF_8));
+    		if(matches) {
+    			if(passwordHasher.needsRehash(stored)) {
+    				rehash(user, password);
+    			}
+    			return user;
+    		}
+    	} else {
+    		/* an unknown user is rejected after the same BCrypt work as a wrong password */
+    		passwordHasher.matchesNone(password);
     	}
         
     	throw new UserNotFoundException("User Not Found!");
     }
 
+	/* the login already succeeded, if the pool is busy the next login tries again */
+	private void rehash(User user, String password) {
+		try {
+			user.setUserPassword(passwordHasher.hash(password));
+			authRepository.save(user);
+		} catch (HashingOverloadedException e) {
+			log.info("Password of " + user.getUserId() + " not rehashed: " + e.getMessage());
+		}
+	}
+
 
 
 
@@ -66,7 +105,7 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
 	 */
 
     @Override
-    public boolean saveUser(User user) throws UserAlreadyExistsException {
+    public boolean saveUser(User user) throws UserAlreadyExistsException, HashingOverloadedException {
     	
     	
     	Optional<User> user2 = authRepository.findById(user.getUserId());
@@ -75,8 +114,10 @@ public class UserAuthenticationServiceImpl implements UserAuthenticationService
     		
     		if(user2!= null 
         			&& !user2.isPresent()) {
-        		System.out.println(user);
         		if(user!= null) {
+        			if(user.getUserPassword() != null) {
+        				user.setUserPassword(passwordHasher.hash(user.getUserPassword()));
+        			}
         			User user3 = authRepository.save(user);
         			return user3 != null ? true : false;
         		}
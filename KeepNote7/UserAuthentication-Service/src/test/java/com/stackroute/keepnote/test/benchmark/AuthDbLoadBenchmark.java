@@ -0,0 +1,158 @@
+package com.stackroute.keepnote.test.benchmark;
+
+import com.stackroute.keepnote.model.RefreshToken;
+import com.stackroute.keepnote.model.TokenGrant;
+import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.repository.RefreshTokenRepository;
+import com.stackroute.keepnote.repository.UserAutheticationRepository;
+import com.stackroute.keepnote.service.PasswordHasher;
+import com.stackroute.keepnote.service.RefreshTokenServiceImpl;
+import com.stackroute.keepnote.service.UserAuthenticationServiceImpl;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Auth database statements per active user-hour, run as a plain main method so it
+ * stays out of the unit test run:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.stackroute.keepnote.test.benchmark.AuthDbLoadBenchmark
+ *
+ * USERS users are active ACTIVE_HOURS a day for DAYS days of virtual time. A client
+ * renews its access token whenever it has expired, at the start of the day and then
+ * every access token lifetime. Before refresh tokens every renewal was a login,
+ * a credential lookup in the user table. With refresh tokens a login only starts a
+ * session (one insert) and a renewal is one update of the session row by primary
+ * key, until the session expires and the user logs in again.
+ *
+ * The services run against in-memory repositories that count every call, each call
+ * being one statement. Passwords are hashed with the lowest BCrypt cost, only the
+ * statements are of interest here.
+ */
+public class AuthDbLoadBenchmark {
+
+    private static final int USERS = 200;
+    private static final int DAYS = 28;
+    private static final int ACTIVE_HOURS = 8;
+    private static final long SESSION_TTL = TimeUnit.DAYS.toMillis(14);
+
+    private static final PasswordHasher PASSWORD_HASHER = new PasswordHasher(4, 0, 64, 5000, 1);
+
+    public static void main(String[] args) throws Exception {
+
+        String hash = PASSWORD_HASHER.hash("123456");
+        before(TimeUnit.MINUTES.toMillis(50), hash);
+        after(TimeUnit.MINUTES.toMillis(50), hash);
+        after(TimeUnit.MINUTES.toMillis(15), hash);
+        PASSWORD_HASHER.shutdown();
+    }
+
+    /* the old login: a 50 minute token and a credential lookup for every new one */
+    private static void before(long accessTtl, String hash) throws Exception {
+
+        Map<String, Integer> statements = new TreeMap<>();
+        UserAuthenticationServiceImpl authenticationService =
+                new UserAuthenticationServiceImpl(userRepository(statements, hash), PASSWORD_HASHER);
+
+        for (int user = 0; user < USERS; user++) {
+            for (int day = 0; day < DAYS; day++) {
+                for (long at = 0; at < TimeUnit.HOURS.toMillis(ACTIVE_HOURS); at += accessTtl) {
+                    authenticationService.findByUserIdAndPassword("user" + user, "123456");
+                }
+            }
+        }
+        report("login every " + TimeUnit.MILLISECONDS.toMinutes(accessTtl) + " min", statements);
+    }
+
+    private static void after(long accessTtl, String hash) throws Exception {
+
+        Map<String, Integer> statements = new TreeMap<>();
+        UserAuthenticationServiceImpl authenticationService =
+                new UserAuthenticationServiceImpl(userRepository(statements, hash), PASSWORD_HASHER);
+        RefreshTokenServiceImpl refreshTokenService = new RefreshTokenServiceImpl(refreshTokenRepository(statements),
+                "refreshsecret", accessTtl, SESSION_TTL);
+
+        for (int user = 0; user < USERS; user++) {
+            String userId = "user" + user;
+            String refreshToken = null;
+            long sessionExpiresAt = 0;
+            for (int day = 0; day < DAYS; day++) {
+                long dayStart = TimeUnit.DAYS.toMillis(day);
+                for (long at = 0; at < TimeUnit.HOURS.toMillis(ACTIVE_HOURS); at += accessTtl) {
+                    TokenGrant grant;
+                    if (dayStart + at >= sessionExpiresAt) {
+                        authenticationService.findByUserIdAndPassword(userId, "123456");
+                        grant = refreshTokenService.issue(userId);
+                        sessionExpiresAt = dayStart + at + SESSION_TTL;
+                    } else {
+                        grant = refreshTokenService.refresh(refreshToken);
+                    }
+                    refreshToken = grant.getRefreshToken();
+                }
+            }
+        }
+        report("refresh every " + TimeUnit.MILLISECONDS.toMinutes(accessTtl) + " min", statements);
+    }
+
+    private static void report(String name, Map<String, Integer> statements) {
+
+        double userHours = (double) USERS * DAYS * ACTIVE_HOURS;
+        int total = 0;
+        StringBuilder line = new StringBuilder(String.format("%-22s", name));
+        for (Map.Entry<String, Integer> statement : statements.entrySet()) {
+            line.append(String.format("  %s %.4f", statement.getKey(), statement.getValue() / userHours));
+            total += statement.getValue();
+        }
+        line.append(String.format("  | total %.4f per active user-hour", total / userHours));
+        System.out.println(line);
+    }
+
+    private static void count(Map<String, Integer> statements, String name) {
+        statements.merge(name, 1, Integer::sum);
+    }
+
+    private static UserAutheticationRepository userRepository(Map<String, Integer> statements, String hash) {
+
+        return (UserAutheticationRepository) Proxy.newProxyInstance(AuthDbLoadBenchmark.class.getClassLoader(),
+                new Class<?>[] { UserAutheticationRepository.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("findById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    count(statements, "credentials");
+                    User user = new User();
+                    user.setUserId((String) args[0]);
+                    user.setUserPassword(hash);
+                    return Optional.of(user);
+                });
+    }
+
+    private static RefreshTokenRepository refreshTokenRepository(Map<String, Integer> statements) {
+
+        Map<String, String> families = new HashMap<>();
+        return (RefreshTokenRepository) Proxy.newProxyInstance(AuthDbLoadBenchmark.class.getClassLoader(),
+                new Class<?>[] { RefreshTokenRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "save":
+                        count(statements, "insert");
+                        RefreshToken family = (RefreshToken) args[0];
+                        family.setFamilyId(UUID.randomUUID().toString());
+                        families.put(family.getFamilyId(), family.getTokenHash());
+                        return family;
+                    case "rotate":
+                        count(statements, "rotate");
+                        return families.replace((String) args[0], (String) args[1], (String) args[2]) ? 1 : 0;
+                    case "revokeFamily":
+                        count(statements, "revoke");
+                        return families.remove(args[0]) == null ? 0 : 1;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
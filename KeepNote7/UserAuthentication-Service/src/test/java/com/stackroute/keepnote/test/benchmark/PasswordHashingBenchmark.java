@@ -0,0 +1,114 @@
+package com.stackroute.keepnote.test.benchmark;
+
+import com.stackroute.keepnote.exception.HashingOverloadedException;
+import com.stackroute.keepnote.service.PasswordHasher;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Login throughput and p99 latency under overload, run as a plain main method so it
+ * stays out of the unit test run:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.stackroute.keepnote.test.benchmark.PasswordHashingBenchmark
+ *
+ * A pool of REQUEST_THREADS threads with an unbounded queue stands in for Tomcat.
+ * Logins arrive open loop at OVERLOAD times the rate the cores can hash, each login
+ * followed by a cheap request (an isAuthenticated check). Latencies are measured from
+ * the arrival, so time spent queued for a request thread counts.
+ *
+ * "inline" hashes on the request thread, as a plain BCrypt call in the service would.
+ * "bounded" hashes on the PasswordHasher pool with the default queue and timeout and
+ * sheds the rest with 503. The cheap requests show whether logins starve the other
+ * endpoints.
+ */
+public class PasswordHashingBenchmark {
+
+    private static final int COST = 10;
+    private static final int REQUEST_THREADS = 200;
+    private static final double OVERLOAD = 2.0;
+    private static final long DURATION_MS = 10_000;
+
+    private interface Login {
+        void login() throws HashingOverloadedException;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        PasswordHasher calibration = new PasswordHasher(COST, 1, 0, 60_000, 1);
+        String hash = calibration.hash("123456");
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            calibration.matches("123456", hash);
+        }
+        double hashMillis = (System.nanoTime() - start) / 10 / 1e6;
+        double capacity = cores * 1000 / hashMillis;
+        System.out.printf("cost %d: %.1f ms per hash, %d cores, about %.0f logins/s, offering %.0f logins/s%n",
+                COST, hashMillis, cores, capacity, capacity * OVERLOAD);
+        calibration.shutdown();
+
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(COST);
+        run("inline", () -> encoder.matches("123456", hash), capacity * OVERLOAD);
+
+        PasswordHasher bounded = new PasswordHasher(COST, 0, 32, 2000, 1);
+        run("bounded", () -> bounded.matches("123456", hash), capacity * OVERLOAD);
+        bounded.shutdown();
+    }
+
+    private static void run(String name, Login login, double loginsPerSecond) throws InterruptedException {
+
+        ExecutorService requestThreads = new ThreadPoolExecutor(REQUEST_THREADS, REQUEST_THREADS, 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        List<Long> loginLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> cheapLatencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger shed = new AtomicInteger();
+
+        long intervalNanos = (long) (1e9 / loginsPerSecond);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(DURATION_MS);
+        int arrivals = 0;
+        for (long arrival = start; arrival < end; arrival += intervalNanos) {
+            while (System.nanoTime() < arrival) {
+                Thread.yield();
+            }
+            long arrivedAt = arrival;
+            requestThreads.execute(() -> {
+                try {
+                    login.login();
+                    loginLatencies.add(System.nanoTime() - arrivedAt);
+                } catch (HashingOverloadedException e) {
+                    shed.incrementAndGet();
+                }
+            });
+            requestThreads.execute(() -> cheapLatencies.add(System.nanoTime() - arrivedAt));
+            arrivals++;
+        }
+        requestThreads.shutdown();
+        requestThreads.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-8s %d logins offered, %d ok (%.0f/s), %d shed, login p50 %.0f ms p99 %.0f ms,"
+                + " other requests p99 %.1f ms%n", name, arrivals, loginLatencies.size(),
+                loginLatencies.size() / seconds, shed.get(), percentile(loginLatencies, 0.50),
+                percentile(loginLatencies, 0.99), percentile(cheapLatencies, 0.99));
+    }
+
+    private static double percentile(List<Long> latencies, double percentile) {
+
+        if (latencies.isEmpty()) {
+            return Double.NaN;
+        }
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1)) / 1e6;
+    }
+}
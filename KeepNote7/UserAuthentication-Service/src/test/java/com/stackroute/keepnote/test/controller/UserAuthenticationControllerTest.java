@@ -3,9 +3,16 @@ package com.stackroute.keepnote.test.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.controller.UserAuthenticationController;
+import com.stackroute.keepnote.exception.HashingOverloadedException;
+import com.stackroute.keepnote.exception.InvalidRefreshTokenException;
 import com.stackroute.keepnote.exception.UserAlreadyExistsException;
+import com.stackroute.keepnote.model.TokenGrant;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.service.RefreshTokenService;
+import com.stackroute.keepnote.service.TokenRevocationService;
 import com.stackroute.keepnote.service.UserAuthenticationService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -23,6 +30,7 @@ import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.Collections;
 import java.util.Date;
 
 @RunWith(SpringRunner.class)
@@ -35,6 +43,12 @@ public class UserAuthenticationControllerTest {
     @MockBean
     private UserAuthenticationService authenticationService;
 
+    @MockBean
+    private TokenRevocationService tokenRevocationService;
+
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
     private User user;
 
     @InjectMocks
@@ -78,8 +92,135 @@ public class UserAuthenticationControllerTest {
 
         Mockito.when(authenticationService.saveUser(user)).thenReturn(true);
         Mockito.when(authenticationService.findByUserIdAndPassword(userId, password)).thenReturn(user);
+        Mockito.when(refreshTokenService.issue(userId)).thenReturn(new TokenGrant("access-1", "refresh-1", "family-1"));
         mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/login").contentType(MediaType.APPLICATION_JSON).content(jsonToString(user)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.token").value("access-1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.refreshToken").value("refresh-1"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void testLoginUserWithInvalidCredentials() throws Exception {
+
+        Mockito.when(authenticationService.findByUserIdAndPassword("Jhon123", "123456")).thenReturn(null);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/login").contentType(MediaType.APPLICATION_JSON).content(jsonToString(user)))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized()).andDo(MockMvcResultHandlers.print());
+        Mockito.verifyZeroInteractions(refreshTokenService);
+    }
+
+    @Test
+    public void testLoginShedsLoadWhenHashingIsBusy() throws Exception {
+
+        Mockito.when(authenticationService.findByUserIdAndPassword("Jhon123", "123456"))
+                .thenThrow(new HashingOverloadedException("Too many logins, try again later", 2));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/login").contentType(MediaType.APPLICATION_JSON).content(jsonToString(user)))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "2"))
+                .andDo(MockMvcResultHandlers.print());
+        Mockito.verifyZeroInteractions(refreshTokenService);
+    }
+
+    @Test
+    public void testRegisterShedsLoadWhenHashingIsBusy() throws Exception {
+
+        Mockito.when(authenticationService.saveUser(Mockito.any(User.class)))
+                .thenThrow(new HashingOverloadedException("Too many logins, try again later", 1));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/register").contentType(MediaType.APPLICATION_JSON).content(jsonToString(user)))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void testRefreshToken() throws Exception {
+
+        Mockito.when(refreshTokenService.refresh("refresh-1")).thenReturn(new TokenGrant("access-2", "refresh-2", "family-1"));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content(jsonToString(Collections.singletonMap("refreshToken", "refresh-1"))))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.token").value("access-2"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.refreshToken").value("refresh-2"))
+                .andDo(MockMvcResultHandlers.print());
+        Mockito.verifyZeroInteractions(authenticationService);
+    }
+
+    @Test
+    public void testRefreshWithUsedToken() throws Exception {
+
+        Mockito.when(refreshTokenService.refresh("refresh-1"))
+                .thenThrow(new InvalidRefreshTokenException("Refresh token has already been used"));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content(jsonToString(Collections.singletonMap("refreshToken", "refresh-1"))))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized()).andDo(MockMvcResultHandlers.print());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/refresh").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized()).andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void testLogoutRevokesToken() throws Exception {
+
+        Date expiresAt = new Date((System.currentTimeMillis() / 1000 + 3600) * 1000);
+        String token = Jwts.builder().setId("token-1").setSubject("Jhon123").setExpiration(expiresAt)
+                .signWith(SignatureAlgorithm.HS256, "secretkey").compact();
+        Mockito.when(tokenRevocationService.revoke("token-1", "Jhon123", expiresAt)).thenReturn(true);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/logout").header("authorization", "Bearer " + token))
+                .andExpect(MockMvcResultMatchers.status().isOk()).andDo(MockMvcResultHandlers.print());
+        Mockito.verify(tokenRevocationService).revoke("token-1", "Jhon123", expiresAt);
+    }
+
+    @Test
+    public void testLogoutEndsSession() throws Exception {
+
+        Date expiresAt = new Date((System.currentTimeMillis() / 1000 + 3600) * 1000);
+        String token = Jwts.builder().setId("token-1").setSubject("Jhon123").claim("fam", "family-1")
+                .setExpiration(expiresAt).signWith(SignatureAlgorithm.HS256, "secretkey").compact();
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/logout").header("authorization", "Bearer " + token))
                 .andExpect(MockMvcResultMatchers.status().isOk()).andDo(MockMvcResultHandlers.print());
+        Mockito.verify(refreshTokenService).revokeFamily("family-1");
+    }
+
+    @Test
+    public void testLogoutWithoutTokenId() throws Exception {
+
+        String token = Jwts.builder().setSubject("Jhon123").setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(SignatureAlgorithm.HS256, "secretkey").compact();
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/logout").header("authorization", "Bearer " + token))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()).andDo(MockMvcResultHandlers.print());
+        Mockito.verifyZeroInteractions(tokenRevocationService);
+    }
+
+    @Test
+    public void testLogoutWithInvalidToken() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/logout").header("authorization", "Bearer abc"))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized()).andDo(MockMvcResultHandlers.print());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/logout"))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized()).andDo(MockMvcResultHandlers.print());
+        Mockito.verifyZeroInteractions(tokenRevocationService);
+    }
+
+    @Test
+    public void testGetRevokedTokens() throws Exception {
+
+        Mockito.when(tokenRevocationService.getRevokedTokens()).thenReturn(Collections.singletonMap("token-1", 1700000000000L));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/auth/revocations"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$['token-1']").value(1700000000000L))
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void testAuthCheckRejectsRevokedToken() throws Exception {
+
+        String token = Jwts.builder().setId("token-1").setSubject("Jhon123")
+                .setExpiration(new Date(System.currentTimeMillis() + 3600000))
+                .signWith(SignatureAlgorithm.HS256, "secretkey").compact();
+        Mockito.when(tokenRevocationService.isRevoked("token-1")).thenReturn(true);
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/auth/isAuthenticated").header("authorization", "Bearer " + token))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.isAuthenticated").value(false))
+                .andDo(MockMvcResultHandlers.print());
     }
 
     // Parsing String format data into JSON format
@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.exception.HashingOverloadedException;
+import com.stackroute.keepnote.service.PasswordHasher;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PasswordHasherTest {
+
+    @Test
+    public void testHashAndMatch() throws HashingOverloadedException {
+
+        PasswordHasher passwordHasher = new PasswordHasher(4, 1, 8, 5000, 1);
+        try {
+            String hash = passwordHasher.hash("123456");
+            Assert.assertTrue(hash.startsWith("$2a$04$"));
+            Assert.assertNotEquals(hash, passwordHasher.hash("123456"));
+            Assert.assertTrue(passwordHasher.matches("123456", hash));
+            Assert.assertFalse(passwordHasher.matches("654321", hash));
+            Assert.assertFalse(passwordHasher.matches("123456", "123456"));
+            Assert.assertFalse(passwordHasher.matchesNone(""));
+            Assert.assertFalse(passwordHasher.matchesNone(null));
+        } finally {
+            passwordHasher.shutdown();
+        }
+    }
+
+    @Test
+    public void testNeedsRehash() throws HashingOverloadedException {
+
+        PasswordHasher weaker = new PasswordHasher(4, 1, 8, 5000, 1);
+        PasswordHasher stronger = new PasswordHasher(5, 1, 8, 5000, 1);
+        try {
+            String hash = weaker.hash("123456");
+            Assert.assertFalse(weaker.needsRehash(hash));
+            Assert.assertTrue(stronger.needsRehash(hash));
+            Assert.assertTrue(stronger.matches("123456", hash));
+            Assert.assertTrue(weaker.needsRehash("123456"));
+            Assert.assertTrue(weaker.needsRehash(null));
+        } finally {
+            weaker.shutdown();
+            stronger.shutdown();
+        }
+    }
+
+    @Test
+    public void testShedsLoadOnceTheWaitIsTooLong() {
+
+        /* a cost 12 hash takes far longer than the 1 ms wait */
+        PasswordHasher passwordHasher = new PasswordHasher(12, 1, 8, 1, 3);
+        try {
+            passwordHasher.hash("123456");
+            Assert.fail("slow hash not shed");
+        } catch (HashingOverloadedException e) {
+            Assert.assertEquals(3, e.getRetryAfterSeconds());
+        } finally {
+            passwordHasher.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectsWhenTheQueueIsFull() throws Exception {
+
+        PasswordHasher passwordHasher = new PasswordHasher(12, 1, 0, 5000, 1);
+        Thread busy = new Thread(() -> {
+            try {
+                passwordHasher.hash("123456");
+            } catch (HashingOverloadedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            busy.start();
+            Thread.sleep(50);
+            long start = System.nanoTime();
+            try {
+                passwordHasher.hash("123456");
+                Assert.fail("hash accepted without a free thread");
+            } catch (HashingOverloadedException e) {
+                /* rejected at once instead of waiting out the 5 s timeout */
+                Assert.assertTrue(System.nanoTime() - start < 1_000_000_000L);
+            }
+        } finally {
+            busy.join();
+            passwordHasher.shutdown();
+        }
+    }
+}
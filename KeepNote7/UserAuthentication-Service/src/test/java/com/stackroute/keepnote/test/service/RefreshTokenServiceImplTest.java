@@ -0,0 +1,124 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.exception.InvalidRefreshTokenException;
+import com.stackroute.keepnote.model.RefreshToken;
+import com.stackroute.keepnote.model.TokenGrant;
+import com.stackroute.keepnote.repository.RefreshTokenRepository;
+import com.stackroute.keepnote.service.RefreshTokenServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Date;
+
+public class RefreshTokenServiceImplTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenServiceImpl refreshTokenService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        refreshTokenService = new RefreshTokenServiceImpl(refreshTokenRepository, "refreshsecret", 3000000, 1209600000);
+        Mockito.when(refreshTokenRepository.save(Mockito.any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken family = invocation.getArgument(0);
+            family.setFamilyId("family-1");
+            return family;
+        });
+    }
+
+    @Test
+    public void testIssueStartsSession() {
+
+        long now = System.currentTimeMillis();
+        TokenGrant grant = refreshTokenService.issue("Jhon123");
+
+        ArgumentCaptor<RefreshToken> stored = ArgumentCaptor.forClass(RefreshToken.class);
+        Mockito.verify(refreshTokenRepository).save(stored.capture());
+        Assert.assertEquals("Jhon123", stored.getValue().getUserId());
+        Assert.assertNotNull(stored.getValue().getTokenHash());
+        Assert.assertEquals("family-1", grant.getFamilyId());
+
+        Claims access = Jwts.parser().setSigningKey("secretkey").parseClaimsJws(grant.getAccessToken()).getBody();
+        Assert.assertEquals("Jhon123", access.getSubject());
+        Assert.assertEquals("family-1", access.get(RefreshTokenServiceImpl.FAMILY_CLAIM, String.class));
+        Assert.assertNotNull(access.getId());
+        Assert.assertTrue(access.getExpiration().getTime() <= now + 3000000 + 1000);
+    }
+
+    @Test(expected = SignatureException.class)
+    public void testRefreshTokenIsNotAnAccessToken() {
+
+        TokenGrant grant = refreshTokenService.issue("Jhon123");
+        Jwts.parser().setSigningKey("secretkey").parseClaimsJws(grant.getRefreshToken());
+    }
+
+    @Test
+    public void testRefreshRotatesToken() throws InvalidRefreshTokenException {
+
+        TokenGrant grant = refreshTokenService.issue("Jhon123");
+        Mockito.when(refreshTokenRepository.rotate(Mockito.eq("family-1"), Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(Date.class))).thenReturn(1);
+
+        TokenGrant refreshed = refreshTokenService.refresh(grant.getRefreshToken());
+        Assert.assertEquals("family-1", refreshed.getFamilyId());
+        Assert.assertNotEquals(grant.getRefreshToken(), refreshed.getRefreshToken());
+        Assert.assertEquals("Jhon123",
+                Jwts.parser().setSigningKey("secretkey").parseClaimsJws(refreshed.getAccessToken()).getBody().getSubject());
+
+        /* the stored hash is replaced by the hash of the new token */
+        ArgumentCaptor<String> current = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> next = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(refreshTokenRepository).rotate(Mockito.eq("family-1"), current.capture(), next.capture(),
+                Mockito.any(Date.class));
+        ArgumentCaptor<RefreshToken> stored = ArgumentCaptor.forClass(RefreshToken.class);
+        Mockito.verify(refreshTokenRepository).save(stored.capture());
+        Assert.assertEquals(stored.getValue().getTokenHash(), current.getValue());
+        Assert.assertNotEquals(current.getValue(), next.getValue());
+        Mockito.verify(refreshTokenRepository, Mockito.never()).revokeFamily(Mockito.anyString());
+    }
+
+    @Test
+    public void testReusedRefreshTokenEndsSession() {
+
+        TokenGrant grant = refreshTokenService.issue("Jhon123");
+        Mockito.when(refreshTokenRepository.rotate(Mockito.eq("family-1"), Mockito.anyString(), Mockito.anyString(),
+                Mockito.any(Date.class))).thenReturn(0);
+        try {
+            refreshTokenService.refresh(grant.getRefreshToken());
+            Assert.fail("reused refresh token accepted");
+        } catch (InvalidRefreshTokenException e) {
+            Assert.assertEquals("Refresh token has already been used", e.getMessage());
+        }
+        Mockito.verify(refreshTokenRepository).revokeFamily("family-1");
+    }
+
+    @Test(expected = InvalidRefreshTokenException.class)
+    public void testAccessTokenIsNotARefreshToken() throws InvalidRefreshTokenException {
+
+        TokenGrant grant = refreshTokenService.issue("Jhon123");
+        refreshTokenService.refresh(grant.getAccessToken());
+    }
+
+    @Test(expected = InvalidRefreshTokenException.class)
+    public void testMalformedRefreshToken() throws InvalidRefreshTokenException {
+
+        refreshTokenService.refresh("abc");
+    }
+
+    @Test
+    public void testPurgeExpired() {
+
+        refreshTokenService.purgeExpired();
+        Mockito.verify(refreshTokenRepository).deleteExpired(Mockito.any(Date.class));
+    }
+}
@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.test.service;
+
+import com.stackroute.keepnote.model.RevokedToken;
+import com.stackroute.keepnote.model.TokenRevokedEvent;
+import com.stackroute.keepnote.repository.RevokedTokenRepository;
+import com.stackroute.keepnote.service.TokenRevocationServiceImpl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cloud.bus.ServiceMatcher;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+public class TokenRevocationServiceImplTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Mock
+    private ServiceMatcher serviceMatcher;
+
+    @InjectMocks
+    private TokenRevocationServiceImpl tokenRevocationService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(serviceMatcher.getServiceId()).thenReturn("user-auth:9100");
+    }
+
+    @Test
+    public void testRevokeStoresAndPublishes() {
+
+        Date expiresAt = new Date(System.currentTimeMillis() + 3600000);
+        Assert.assertTrue(tokenRevocationService.revoke("token-1", "Jhon123", expiresAt));
+
+        ArgumentCaptor<RevokedToken> stored = ArgumentCaptor.forClass(RevokedToken.class);
+        Mockito.verify(revokedTokenRepository).save(stored.capture());
+        Assert.assertEquals("token-1", stored.getValue().getTokenId());
+        Assert.assertEquals("Jhon123", stored.getValue().getUserId());
+        Assert.assertEquals(expiresAt, stored.getValue().getExpiresAt());
+
+        ArgumentCaptor<TokenRevokedEvent> event = ArgumentCaptor.forClass(TokenRevokedEvent.class);
+        Mockito.verify(applicationEventPublisher).publishEvent(event.capture());
+        Assert.assertEquals("token-1", event.getValue().getTokenId());
+        Assert.assertEquals(expiresAt.getTime(), event.getValue().getExpiresAt());
+        Assert.assertEquals("user-auth:9100", event.getValue().getOriginService());
+    }
+
+    @Test
+    public void testRevokeExpiredTokenIsIgnored() {
+
+        Assert.assertFalse(tokenRevocationService.revoke("token-1", "Jhon123", new Date(System.currentTimeMillis() - 1)));
+        Mockito.verifyZeroInteractions(revokedTokenRepository, applicationEventPublisher);
+    }
+
+    @Test
+    public void testGetRevokedTokens() {
+
+        Date expiresAt = new Date(System.currentTimeMillis() + 3600000);
+        Mockito.when(revokedTokenRepository.findByExpiresAtAfter(Mockito.any(Date.class))).thenReturn(Arrays.asList(
+                new RevokedToken("token-1", "Jhon123", expiresAt, new Date()),
+                new RevokedToken("token-2", "Jhon123", expiresAt, new Date())));
+        Map<String, Long> revoked = tokenRevocationService.getRevokedTokens();
+        Assert.assertEquals(2, revoked.size());
+        Assert.assertEquals(Long.valueOf(expiresAt.getTime()), revoked.get("token-1"));
+    }
+
+    @Test
+    public void testIsRevoked() {
+
+        Mockito.when(revokedTokenRepository.existsById("token-1")).thenReturn(true);
+        Assert.assertTrue(tokenRevocationService.isRevoked("token-1"));
+        Assert.assertFalse(tokenRevocationService.isRevoked("token-2"));
+        Assert.assertFalse(tokenRevocationService.isRevoked(null));
+    }
+}
@@ -1,15 +1,17 @@
 package com.stackroute.keepnote.test.service;
 
+import com.stackroute.keepnote.exception.HashingOverloadedException;
 import com.stackroute.keepnote.exception.UserAlreadyExistsException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.repository.UserAutheticationRepository;
+import com.stackroute.keepnote.service.PasswordHasher;
 import com.stackroute.keepnote.service.UserAuthenticationServiceImpl;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -23,7 +25,7 @@ public class UserAuthenticationServiceTest {
     private UserAutheticationRepository autheticationRepository;
 
     private User user;
-    @InjectMocks
+    private PasswordHasher passwordHasher;
     private UserAuthenticationServiceImpl authenticationService;
 
     Optional<User> optional;
@@ -32,6 +34,9 @@ public class UserAuthenticationServiceTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        /* the lowest BCrypt cost keeps the tests fast */
+        passwordHasher = new PasswordHasher(4, 2, 8, 5000, 1);
+        authenticationService = new UserAuthenticationServiceImpl(autheticationRepository, passwordHasher);
         user = new User();
         user.setUserId("Jhon123");
         user.setFirstName("Jhon123");
@@ -42,19 +47,26 @@ public class UserAuthenticationServiceTest {
         optional = Optional.of(user);
     }
 
+    @After
+    public void tearDown() {
+        passwordHasher.shutdown();
+    }
+
     @Test
-    public void testSaveUserSuccess() throws UserAlreadyExistsException {
+    public void testSaveUserSuccess() throws UserAlreadyExistsException, HashingOverloadedException {
 
         Mockito.when(autheticationRepository.save(user)).thenReturn(user);
         boolean flag = authenticationService.saveUser(user);
         Assert.assertEquals("Cannot Register User", true, flag);
+        Assert.assertTrue(passwordHasher.isHash(user.getUserPassword()));
+        Assert.assertTrue(passwordHasher.matches("123456", user.getUserPassword()));
 
     }
 
 
     @Test(expected = UserAlreadyExistsException.class)
     @Ignore
-    public void testSaveUserFailure() throws UserAlreadyExistsException {
+    public void testSaveUserFailure() throws UserAlreadyExistsException, HashingOverloadedException {
 
         Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(optional);
         Mockito.when(autheticationRepository.save(user)).thenReturn(user);
@@ -64,9 +76,69 @@ public class UserAuthenticationServiceTest {
     }
 
     @Test
-    public void testFindByUserIdAndPassword() throws UserNotFoundException {
-        Mockito.when(autheticationRepository.findByUserIdAndUserPassword("Jhon123", "123456")).thenReturn(user);
+    public void testFindByUserIdAndPassword() throws UserNotFoundException, HashingOverloadedException {
+        user.setUserPassword(passwordHasher.hash("123456"));
+        Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(optional);
         User fetchedUser = authenticationService.findByUserIdAndPassword("Jhon123", "123456");
         Assert.assertEquals("Jhon123", fetchedUser.getUserId());
+        Mockito.verify(autheticationRepository, Mockito.never()).save(Mockito.any(User.class));
+    }
+
+    @Test(expected = UserNotFoundException.class)
+    public void testFindByUserIdAndWrongPassword() throws UserNotFoundException, HashingOverloadedException {
+        user.setUserPassword(passwordHasher.hash("123456"));
+        Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(optional);
+        authenticationService.findByUserIdAndPassword("Jhon123", "654321");
+    }
+
+    @Test(expected = UserNotFoundException.class)
+    public void testFindUnknownUser() throws UserNotFoundException, HashingOverloadedException {
+        Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(Optional.empty());
+        authenticationService.findByUserIdAndPassword("Jhon123", "123456");
+    }
+
+    @Test
+    public void testUnknownUserCostsAPasswordCheck() throws HashingOverloadedException {
+        PasswordHasher hasher = Mockito.spy(passwordHasher);
+        Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(Optional.empty());
+        try {
+            new UserAuthenticationServiceImpl(autheticationRepository, hasher).findByUserIdAndPassword("Jhon123", "123456");
+            Assert.fail("unknown user accepted");
+        } catch (UserNotFoundException e) {
+            Mockito.verify(hasher).matchesNone("123456");
+        }
+    }
+
+    @Test
+    public void testPlainTextPasswordIsRehashedOnLogin() throws UserNotFoundException, HashingOverloadedException {
+        Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(optional);
+        authenticationService.findByUserIdAndPassword("Jhon123", "123456");
+        Mockito.verify(autheticationRepository).save(user);
+        Assert.assertTrue(passwordHasher.isHash(user.getUserPassword()));
+        Assert.assertTrue(passwordHasher.matches("123456", user.getUserPassword()));
+    }
+
+    @Test(expected = UserNotFoundException.class)
+    public void testWrongPlainTextPassword() throws UserNotFoundException, HashingOverloadedException {
+        Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(optional);
+        try {
+            authenticationService.findByUserIdAndPassword("Jhon123", "654321");
+        } finally {
+            Mockito.verify(autheticationRepository, Mockito.never()).save(Mockito.any(User.class));
+        }
+    }
+
+    @Test
+    public void testPasswordIsRehashedWhenCostChanges() throws UserNotFoundException, HashingOverloadedException {
+        PasswordHasher stronger = new PasswordHasher(5, 1, 8, 5000, 1);
+        try {
+            user.setUserPassword(passwordHasher.hash("123456"));
+            Mockito.when(autheticationRepository.findById("Jhon123")).thenReturn(optional);
+            new UserAuthenticationServiceImpl(autheticationRepository, stronger).findByUserIdAndPassword("Jhon123", "123456");
+            Mockito.verify(autheticationRepository).save(user);
+            Assert.assertTrue(user.getUserPassword().startsWith("$2a$05$"));
+        } finally {
+            stronger.shutdown();
+        }
     }
 }
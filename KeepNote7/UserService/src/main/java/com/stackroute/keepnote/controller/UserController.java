@@ -1,5 +1,7 @@
 package com.stackroute.keepnote.controller;
 
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,8 +12,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.stackroute.keepnote.config.SparseFields;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.stackroute.keepnote.exceptions.UserAlreadyExistsException;
 import com.stackroute.keepnote.exceptions.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
@@ -134,19 +139,33 @@ public class UserController {
 	 * different situations: 
 	 * 1. 200(OK) - If the user found successfully. 
 	 * 2. 404(NOT FOUND) - If the user with specified userId is not found. 
+	 * With ?fields=userId,userName only the listed fields are loaded and returned,
+	 * 400(BAD REQUEST) for unknown fields.
 	 * This handler method should map to the URL "/api/v1/user/{id}" using HTTP GET method where "id" should be
 	 * replaced by a valid userId without {}
 	 */
 	@ApiOperation(value="Get Specific User Details")
 	@GetMapping("/api/v1/user/{id}")
-	public ResponseEntity<?>  getUser(@PathVariable String id) {
+	public ResponseEntity<?>  getUser(@PathVariable String id,
+			@RequestParam(value="fields", required=false) String fields) {
+		
+		Set<String> selected;
+		try {
+			selected = SparseFields.parse(fields, User.class);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 		
 		User usr = null;
 		try {
 			System.out.println("getUser() User ID: "+id);
-			usr  = userService.getUserById(id);
+			usr  = selected == null ? userService.getUserById(id) : userService.getUserById(id, selected);
 			
 			if(usr!=null) {
+				if(selected!= null) {
+					return new ResponseEntity<>(SparseFields.filter(usr, SparseFieldsConfig.USER_FILTER, selected),
+							HttpStatus.OK);
+				}
 				return new ResponseEntity<>(usr, HttpStatus.OK);
 			} 
 			
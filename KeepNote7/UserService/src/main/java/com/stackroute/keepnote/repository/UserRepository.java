@@ -10,7 +10,7 @@ import com.stackroute.keepnote.model.User;
 * Annotate this class with @Repository annotation
 * */
 @Repository
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
 	User saveAndFlush(User user);
 
@@ -0,0 +1,18 @@
+package com.stackroute.keepnote.repository;
+
+import java.util.Collection;
+
+import com.stackroute.keepnote.model.User;
+
+/*
+ * Queries of the UserRepository that need a field projection, implemented in
+ * UserRepositoryImpl.
+ */
+public interface UserRepositoryCustom {
+
+	/*
+	 * Loads a user with only the given fields filled in, null if there is none.
+	 */
+	User findProjectedById(String userId, Collection<String> fields);
+
+}
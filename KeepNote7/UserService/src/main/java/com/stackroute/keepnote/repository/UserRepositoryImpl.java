@@ -0,0 +1,36 @@
+package com.stackroute.keepnote.repository;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.stackroute.keepnote.model.User;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	public UserRepositoryImpl(MongoOperations mongoOperations) {
+		this.mongoOperations = mongoOperations;
+	}
+
+	public User findProjectedById(String userId, Collection<String> fields) {
+
+		Query query = query(where("_id").is(userId));
+		include(query, fields);
+		return mongoOperations.findOne(query, User.class);
+	}
+
+	private void include(Query query, Collection<String> fields) {
+		for (String field : fields) {
+			query.fields().include(field);
+		}
+	}
+
+}
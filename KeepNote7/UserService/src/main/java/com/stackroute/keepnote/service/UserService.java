@@ -1,5 +1,7 @@
 package com.stackroute.keepnote.service;
 
+import java.util.Set;
+
 import com.stackroute.keepnote.exceptions.UserAlreadyExistsException;
 import com.stackroute.keepnote.exceptions.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
@@ -19,4 +21,6 @@ public interface UserService {
 
 
 	    User getUserById(String userId) throws UserNotFoundException;
+
+	    User getUserById(String userId, Set<String> fields) throws UserNotFoundException;
 }
@@ -2,6 +2,7 @@ package com.stackroute.keepnote.service;
 
 import java.util.Date;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -119,4 +120,19 @@ public class UserServiceImpl implements UserService {
 		throw new UserNotFoundException("User not found");
 	}
 
-}
\ No newline at end of file
+	/*
+	 * Same as getUserById, but only the given fields are loaded from the database.
+	 */
+
+	public User getUserById(String userId, Set<String> fields) throws UserNotFoundException {
+		if(userId!= null) {
+			User user = userRepository.findProjectedById(userId, fields);
+			if(user!= null) {
+				return user;
+			}
+		}
+
+		throw new UserNotFoundException("User not found");
+	}
+
+}
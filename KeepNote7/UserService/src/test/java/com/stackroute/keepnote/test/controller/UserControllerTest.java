@@ -1,5 +1,11 @@
 package com.stackroute.keepnote.test.controller;
 
+import java.util.Collections;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.stackroute.keepnote.config.SparseFieldsConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.controller.UserController;
 import com.stackroute.keepnote.exceptions.UserAlreadyExistsException;
@@ -138,6 +144,32 @@ public class UserControllerTest {
                 .andDo(MockMvcResultHandlers.print());
     }
 
+    @Test
+    public void getUserWithFields() throws Exception {
+        User projected = new User();
+        projected.setUserName(user.getUserName());
+        when(userService.getUserById("Jhon123", Collections.singleton("userName"))).thenReturn(projected);
+        mockMvc = MockMvcBuilders.standaloneSetup(userController).setMessageConverters(sparseFieldsConverter()).build();
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/user/Jhon123").param("fields", "userName"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.userName").value("Jhon Simon"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.userPassword").doesNotExist())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    @Test
+    public void getUserWithUnknownField() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/v1/user/Jhon123").param("fields", "noSuchField"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andDo(MockMvcResultHandlers.print());
+    }
+
+    private static MappingJackson2HttpMessageConverter sparseFieldsConverter() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        SparseFieldsConfig.configure(builder);
+        return new MappingJackson2HttpMessageConverter(builder.build());
+    }
+
     public static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
@@ -0,0 +1,86 @@
+package com.stackroute.keepnote.netflixzuulapigatewayserver;
+
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.springframework.stereotype.Component;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/*
+ * Drops every X-Auth-* header of the incoming request before it is routed, whether
+ * it carries a bearer token or not. Only the identity JwtAuthenticationFilter signs
+ * reaches the services, a client cannot pass its own identity headers through.
+ */
+@Component
+public class IdentityHeaderFilter extends ZuulFilter {
+
+	private static final String IDENTITY_PREFIX = "X-Auth-";
+
+	@Override
+	public boolean shouldFilter() {
+		return true;
+	}
+
+	@Override
+	public Object run() {
+		RequestContext context = RequestContext.getCurrentContext();
+		context.setRequest(new WithoutIdentityHeaders(context.getRequest()));
+		return null;
+	}
+
+	@Override
+	public String filterType() {
+		return "pre";
+	}
+
+	@Override
+	public int filterOrder() {
+		return 0;
+	}
+
+	static boolean isIdentityHeader(String name) {
+		return name != null && name.regionMatches(true, 0, IDENTITY_PREFIX, 0, IDENTITY_PREFIX.length());
+	}
+
+	private static final class WithoutIdentityHeaders extends HttpServletRequestWrapper {
+
+		WithoutIdentityHeaders(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			return isIdentityHeader(name) ? null : super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			return isIdentityHeader(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			List<String> names = Collections.list(super.getHeaderNames());
+			names.removeIf(IdentityHeaderFilter::isIdentityHeader);
+			return Collections.enumeration(names);
+		}
+
+		@Override
+		public long getDateHeader(String name) {
+			return isIdentityHeader(name) ? -1 : super.getDateHeader(name);
+		}
+
+		@Override
+		public int getIntHeader(String name) {
+			return isIdentityHeader(name) ? -1 : super.getIntHeader(name);
+		}
+
+	}
+}
@@ -0,0 +1,197 @@
+package com.stackroute.keepnote.netflixzuulapigatewayserver;
+
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+
+/*
+ * Verifies the bearer token once at the gateway and forwards the verified identity
+ * to the services in three headers: X-Auth-User (the token subject), X-Auth-Expires
+ * (epoch millis) and X-Auth-Signature, the base64url HMAC-SHA256 of
+ * "user\nexpires" under keepnote.gateway.secret. A service running in trusted
+ * gateway mode checks the signature instead of parsing the JWT again. The identity
+ * expires with the token and at most keepnote.gateway.identity-ttl-ms after the
+ * request, so a captured header is only good for a short time. Without a secret no
+ * identity is forwarded and the services verify the bearer token themselves.
+ * Identity headers sent by the client are always dropped by IdentityHeaderFilter.
+ *
+ * Verified claims are cached by the SHA-256 of the token like in the services' JwtFilter
+ * (keepnote.jwt.cache.max-entries, keepnote.jwt.cache.max-ttl-ms). Requests without a
+ * bearer token are routed unchanged, an invalid or revoked token (its id is in the
+ * TokenRevocationList) is answered with 401 here.
+ */
+@Component
+public class JwtAuthenticationFilter extends ZuulFilter {
+
+	public static final String USER_HEADER = "X-Auth-User";
+	public static final String EXPIRES_HEADER = "X-Auth-Expires";
+	public static final String SIGNATURE_HEADER = "X-Auth-Signature";
+
+	private static final Key SIGNING_KEY = new SecretKeySpec(TextCodec.BASE64.decode("secretkey"),
+			SignatureAlgorithm.HS256.getJcaName());
+
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private final JwtParser parser = Jwts.parser().setSigningKey(SIGNING_KEY);
+	private final SecretKeySpec gatewayKey;
+	private final TokenRevocationList revocations;
+	private final long identityTtlMillis;
+	private final int maxEntries;
+	private final long maxTtlMillis;
+	private final Map<String, CachedClaims> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+	public JwtAuthenticationFilter(TokenRevocationList revocations,
+			@Value("${keepnote.gateway.secret:}") String gatewaySecret,
+			@Value("${keepnote.gateway.identity-ttl-ms:30000}") long identityTtlMillis,
+			@Value("${keepnote.jwt.cache.max-entries:10000}") int maxEntries,
+			@Value("${keepnote.jwt.cache.max-ttl-ms:300000}") long maxTtlMillis) {
+		this.revocations = revocations;
+		this.gatewayKey = gatewaySecret.isEmpty() ? null
+				: new SecretKeySpec(gatewaySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+		this.identityTtlMillis = identityTtlMillis;
+		this.maxEntries = maxEntries;
+		this.maxTtlMillis = maxTtlMillis;
+	}
+
+	@Override
+	public boolean shouldFilter() {
+		HttpServletRequest request = RequestContext.getCurrentContext().getRequest();
+		String authHeader = request.getHeader("authorization");
+		return !"OPTIONS".equals(request.getMethod()) && authHeader != null && authHeader.startsWith("Bearer ");
+	}
+
+	@Override
+	public Object run() {
+		RequestContext context = RequestContext.getCurrentContext();
+		String token = context.getRequest().getHeader("authorization").substring(7);
+		long now = System.currentTimeMillis();
+
+		Claims claims;
+		try {
+			claims = verify(token, now);
+			if (claims.getSubject() == null) {
+				throw new IllegalArgumentException("token has no subject");
+			}
+			if (revocations.isRevoked(claims.getId())) {
+				throw new IllegalArgumentException("token has been revoked");
+			}
+		} catch (JwtException | IllegalArgumentException e) {
+			logger.info("rejected token for request uri -> {}: {}", context.getRequest().getRequestURI(), e.getMessage());
+			context.setSendZuulResponse(false);
+			context.setResponseStatusCode(HttpServletResponse.SC_UNAUTHORIZED);
+			return null;
+		}
+
+		if (gatewayKey == null) {
+			return null;
+		}
+		long expires = now + identityTtlMillis;
+		if (claims.getExpiration() != null) {
+			expires = Math.min(expires, claims.getExpiration().getTime());
+		}
+		String user = claims.getSubject();
+		context.addZuulRequestHeader(USER_HEADER, user);
+		context.addZuulRequestHeader(EXPIRES_HEADER, Long.toString(expires));
+		context.addZuulRequestHeader(SIGNATURE_HEADER, sign(user, expires));
+		return null;
+	}
+
+	@Override
+	public String filterType() {
+		return "pre";
+	}
+
+	@Override
+	public int filterOrder() {
+		return 2;
+	}
+
+	public String sign(String user, long expires) {
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(gatewayKey);
+			byte[] signature = mac.doFinal((user + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Claims verify(String token, long now) {
+
+		String key = tokenHash(token);
+		synchronized (cache) {
+			CachedClaims cached = cache.get(key);
+			if (cached != null) {
+				if (now < cached.validUntil) {
+					return cached.claims;
+				}
+				cache.remove(key);
+			}
+		}
+
+		Claims claims = parser.parseClaimsJws(token).getBody();
+
+		Date expiration = claims.getExpiration();
+		long validUntil = now + maxTtlMillis;
+		if (expiration != null) {
+			validUntil = Math.min(validUntil, expiration.getTime());
+		}
+		if (validUntil > now && maxEntries > 0) {
+			synchronized (cache) {
+				cache.put(key, new CachedClaims(claims, validUntil));
+				if (cache.size() > maxEntries) {
+					cache.remove(cache.keySet().iterator().next());
+				}
+			}
+		}
+		return claims;
+	}
+
+	private String tokenHash(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class CachedClaims {
+
+		private final Claims claims;
+		private final long validUntil;
+
+		CachedClaims(Claims claims, long validUntil) {
+			this.claims = claims;
+			this.validUntil = validUntil;
+		}
+
+	}
+}
@@ -0,0 +1,58 @@
+package com.stackroute.keepnote.netflixzuulapigatewayserver;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.netflix.zuul.context.RequestContext;
+
+public class IdentityHeaderFilterTest {
+
+	private IdentityHeaderFilter filter;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() {
+		filter = new IdentityHeaderFilter();
+		request = new MockHttpServletRequest("GET", "/noteservice/api/v1/note");
+		RequestContext context = RequestContext.getCurrentContext();
+		context.clear();
+		context.setRequest(request);
+		context.setResponse(new MockHttpServletResponse());
+	}
+
+	@After
+	public void tearDown() {
+		RequestContext.getCurrentContext().unset();
+	}
+
+	@Test
+	public void dropsIdentityHeadersOfRequestsWithoutBearerToken() {
+		request.addHeader("X-Auth-User", "Jhon123");
+		request.addHeader("x-auth-expires", "9999999999999");
+		request.addHeader("X-Auth-Signature", "forged");
+		request.addHeader("Accept", "application/json");
+		Assert.assertTrue(filter.shouldFilter());
+		filter.run();
+
+		HttpServletRequest routed = RequestContext.getCurrentContext().getRequest();
+		List<String> names = Collections.list(routed.getHeaderNames());
+		Assert.assertEquals(Collections.singletonList("Accept"), names);
+		Assert.assertNull(routed.getHeader("X-Auth-User"));
+		Assert.assertFalse(routed.getHeaders("X-Auth-Signature").hasMoreElements());
+		Assert.assertEquals("application/json", routed.getHeader("Accept"));
+	}
+
+	@Test
+	public void runsBeforeTheTokenIsVerified() {
+		Assert.assertTrue(filter.filterOrder() < new JwtAuthenticationFilter(null, "", 30000, 10, 300000).filterOrder());
+	}
+}
@@ -0,0 +1,123 @@
+package com.stackroute.keepnote.netflixzuulapigatewayserver;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.netflix.zuul.context.RequestContext;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+public class JwtAuthenticationFilterTest {
+
+	private TokenRevocationList revocations;
+	private JwtAuthenticationFilter filter;
+	private MockHttpServletRequest request;
+
+	@Before
+	public void setUp() {
+		revocations = new TokenRevocationList(new RestTemplateBuilder(), "http://localhost:9100/api/v1/auth/revocations",
+				1000, 0.001);
+		filter = new JwtAuthenticationFilter(revocations, "gatewaysecret", 30000, 10, 300000);
+		request = new MockHttpServletRequest("GET", "/noteservice/api/v1/note");
+		RequestContext context = RequestContext.getCurrentContext();
+		context.clear();
+		context.setRequest(request);
+		context.setResponse(new MockHttpServletResponse());
+	}
+
+	@After
+	public void tearDown() {
+		RequestContext.getCurrentContext().unset();
+	}
+
+	private static String token(long expiresAt, String key) {
+		return Jwts.builder().setId("token-1").setSubject("Jhon123").setIssuedAt(new Date())
+				.setExpiration(new Date(expiresAt)).signWith(SignatureAlgorithm.HS256, key).compact();
+	}
+
+	@Test
+	public void skipsRequestsWithoutBearerToken() {
+		Assert.assertFalse(filter.shouldFilter());
+		request.addHeader("authorization", "Basic abc");
+		Assert.assertFalse(filter.shouldFilter());
+	}
+
+	@Test
+	public void forwardsSignedIdentity() {
+		long now = System.currentTimeMillis();
+		request.addHeader("authorization", "Bearer " + token(now + 3600000, "secretkey"));
+		Assert.assertTrue(filter.shouldFilter());
+		filter.run();
+
+		RequestContext context = RequestContext.getCurrentContext();
+		Map<String, String> headers = context.getZuulRequestHeaders();
+		long expires = Long.parseLong(headers.get("x-auth-expires"));
+		Assert.assertTrue(context.sendZuulResponse());
+		Assert.assertEquals("Jhon123", headers.get("x-auth-user"));
+		Assert.assertTrue(expires >= now + 30000 && expires <= System.currentTimeMillis() + 30000);
+		Assert.assertEquals(filter.sign("Jhon123", expires), headers.get("x-auth-signature"));
+	}
+
+	@Test
+	public void forwardsNoIdentityWithoutSecret() {
+		filter = new JwtAuthenticationFilter(revocations, "", 30000, 10, 300000);
+		request.addHeader("authorization", "Bearer " + token(System.currentTimeMillis() + 3600000, "secretkey"));
+		filter.run();
+
+		RequestContext context = RequestContext.getCurrentContext();
+		Assert.assertTrue(context.sendZuulResponse());
+		Assert.assertTrue(context.getZuulRequestHeaders().isEmpty());
+	}
+
+	@Test
+	public void identityExpiresWithTheToken() {
+		/* exp is serialized in whole seconds */
+		long expiresAt = (System.currentTimeMillis() / 1000 + 10) * 1000;
+		request.addHeader("authorization", "Bearer " + token(expiresAt, "secretkey"));
+		filter.run();
+		Assert.assertEquals(Long.toString(expiresAt),
+				RequestContext.getCurrentContext().getZuulRequestHeaders().get("x-auth-expires"));
+	}
+
+	@Test
+	public void rejectsInvalidToken() {
+		request.addHeader("authorization", "Bearer " + token(System.currentTimeMillis() + 3600000, "otherkey"));
+		filter.run();
+
+		RequestContext context = RequestContext.getCurrentContext();
+		Assert.assertFalse(context.sendZuulResponse());
+		Assert.assertEquals(401, context.getResponseStatusCode());
+		Assert.assertTrue(context.getZuulRequestHeaders().isEmpty());
+	}
+
+	@Test
+	public void rejectsExpiredToken() {
+		request.addHeader("authorization", "Bearer " + token(System.currentTimeMillis() - 60000, "secretkey"));
+		filter.run();
+		Assert.assertEquals(401, RequestContext.getCurrentContext().getResponseStatusCode());
+	}
+
+	@Test
+	public void rejectsRevokedToken() {
+		long expiresAt = System.currentTimeMillis() + 3600000;
+		request.addHeader("authorization", "Bearer " + token(expiresAt, "secretkey"));
+		filter.run();
+		Assert.assertTrue(RequestContext.getCurrentContext().sendZuulResponse());
+
+		/* revoked after its claims were cached */
+		revocations.revoke("token-1", expiresAt);
+		RequestContext.getCurrentContext().getZuulRequestHeaders().clear();
+		filter.run();
+		Assert.assertEquals(401, RequestContext.getCurrentContext().getResponseStatusCode());
+		Assert.assertTrue(RequestContext.getCurrentContext().getZuulRequestHeaders().isEmpty());
+	}
+}